@@ -129,6 +129,18 @@ ALTER TABLE notification_request ALTER COLUMN info SET DATA TYPE varchar(1000000
 
 ALTER TABLE IF EXISTS cloud_event ALTER COLUMN seq_id SET CYCLE;
 
+ALTER TABLE IF EXISTS cloud_event ADD COLUMN IF NOT EXISTS cloud_event_lane varchar(255);
+
+UPDATE cloud_event SET cloud_event_lane =
+    CASE
+        WHEN cloud_event_action IN ('ATTRIBUTES_UPDATED', 'POST_ATTRIBUTES', 'ATTRIBUTES_DELETED', 'TIMESERIES_UPDATED') THEN 'TELEMETRY'
+        WHEN cloud_event_type = 'ALARM' THEN 'ALARM'
+        ELSE 'CONTROL'
+    END
+WHERE cloud_event_lane IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_and_lane_and_seq_id ON cloud_event(tenant_id, cloud_event_lane, seq_id);
+
 DELETE FROM alarm WHERE tenant_id NOT IN (SELECT id FROM tenant);
 
 CREATE TABLE IF NOT EXISTS alarm_types (
@@ -36,6 +36,7 @@ import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.slack.SlackService;
 import org.thingsboard.rule.engine.api.sms.SmsSenderFactory;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
 import org.thingsboard.rule.engine.util.TenantIdLoader;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.TbActorRef;
@@ -72,6 +73,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.TbMsgProcessingStackItem;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.alarm.AlarmCommentService;
 import org.thingsboard.server.dao.asset.AssetProfileService;
 import org.thingsboard.server.dao.asset.AssetService;
@@ -854,6 +856,16 @@ class DefaultTbContext implements TbContext {
         mainCtx.getRuleNodeStateService().removeByRuleNodeIdAndEntityId(getTenantId(), getSelfId(), entityId);
     }
 
+    @Override
+    public TbMsgStore getMsgStore() {
+        return mainCtx.getMsgStoreService().getStore(getSelfId());
+    }
+
+    @Override
+    public StatsFactory getStatsFactory() {
+        return mainCtx.getStatsFactory();
+    }
+
     @Override
     public void addTenantProfileListener(Consumer<TenantProfile> listener) {
         mainCtx.getTenantProfileCache().addListener(getTenantId(), getSelfId(), listener);
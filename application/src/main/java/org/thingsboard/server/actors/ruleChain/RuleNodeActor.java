@@ -25,6 +25,7 @@ import org.thingsboard.server.actors.service.ContextBasedCreator;
 import org.thingsboard.server.common.data.id.RuleChainId;
 import org.thingsboard.server.common.data.id.RuleNodeId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.MsgType;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
@@ -51,6 +52,10 @@ public class RuleNodeActor extends RuleEngineComponentActor<RuleNodeId, RuleNode
 
     @Override
     protected boolean doProcess(TbActorMsg msg) {
+        if (msg.getMsgType() != MsgType.RULE_CHAIN_TO_RULE_MSG) {
+            // keep the order of the buffered messages relative to the lifecycle and other messages
+            onProcessRoundEnd();
+        }
         switch (msg.getMsgType()) {
             case COMPONENT_LIFE_CYCLE_MSG:
             case RULE_NODE_UPDATED_MSG:
@@ -105,6 +110,18 @@ public class RuleNodeActor extends RuleEngineComponentActor<RuleNodeId, RuleNode
         }
     }
 
+    @Override
+    public void onProcessRoundEnd() {
+        if (processor == null) {
+            return;
+        }
+        try {
+            processor.onProcessRoundEnd();
+        } catch (Exception e) {
+            logAndPersist("onMsgPack", e);
+        }
+    }
+
     public static class ActorCreator extends ContextBasedCreator {
 
         private final TenantId tenantId;
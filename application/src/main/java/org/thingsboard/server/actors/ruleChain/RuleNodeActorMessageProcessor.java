@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.actors.ruleChain;
 
+import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.server.actors.ActorSystemContext;
@@ -36,6 +37,12 @@ import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.gen.transport.TransportProtos;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author Andrew Shvayka
  */
@@ -47,6 +54,8 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
     private RuleNode ruleNode;
     private TbNode tbNode;
     private RuleNodeInfo info;
+    private final List<TbMsg> msgPack = new ArrayList<>();
+    private TbContext msgPackCtx;
 
     RuleNodeActorMessageProcessor(TenantId tenantId, String ruleChainName, RuleNodeId ruleNodeId, ActorSystemContext systemContext
             , TbActorRef parent, TbActorRef self) {
@@ -78,6 +87,7 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
             this.ruleNode = newRuleNode;
             this.defaultCtx.updateSelf(newRuleNode);
             if (restartRequired) {
+                onProcessRoundEnd();
                 if (tbNode != null) {
                     tbNode.destroy();
                 }
@@ -95,10 +105,19 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
 
     @Override
     public void stop(TbActorCtx context) {
+        // the pack of the current round is processed while the node is still initialized
+        onProcessRoundEnd();
         if (tbNode != null) {
             tbNode.destroy();
             state = ComponentLifecycleState.SUSPENDED;
         }
+        systemContext.getMsgStoreService().closeStore(entityId);
+    }
+
+    @Override
+    public void onStop(TbActorCtx context) throws Exception {
+        super.onStop(context);
+        systemContext.getMsgStoreService().deleteStore(entityId);
     }
 
     @Override
@@ -149,10 +168,17 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
                 if (ruleNode.isDebugMode()) {
                     systemContext.persistDebugInput(tenantId, entityId, msg.getMsg(), msg.getFromRelationType());
                 }
-                try {
-                    tbNode.onMsg(msg.getCtx(), msg.getMsg());
-                } catch (Exception e) {
-                    msg.getCtx().tellFailure(msg.getMsg(), e);
+                if (tbNode.isMsgPackSupported()) {
+                    if (msgPack.isEmpty()) {
+                        msgPackCtx = msg.getCtx();
+                    }
+                    msgPack.add(tbMsg);
+                } else {
+                    try {
+                        tbNode.onMsg(msg.getCtx(), msg.getMsg());
+                    } catch (Exception e) {
+                        msg.getCtx().tellFailure(msg.getMsg(), e);
+                    }
                 }
             } else {
                 tbMsg.getCallback().onFailure(new RuleNodeException("Message is processed by more then " + maxRuleNodeExecutionsPerMessage + " rule nodes!", ruleChainName, ruleNode));
@@ -160,6 +186,25 @@ public class RuleNodeActorMessageProcessor extends ComponentMsgProcessor<RuleNod
         }
     }
 
+    void onProcessRoundEnd() {
+        if (msgPack.isEmpty()) {
+            return;
+        }
+        List<TbMsg> msgs = new ArrayList<>(msgPack);
+        TbContext ctx = msgPackCtx;
+        msgPack.clear();
+        msgPackCtx = null;
+        Set<TbMsg> dispatched = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            if (tbNode == null) {
+                throw getInactiveException();
+            }
+            tbNode.onMsgs(ctx, msgs, dispatched::add);
+        } catch (Exception e) {
+            msgs.stream().filter(tbMsg -> !dispatched.contains(tbMsg)).forEach(tbMsg -> ctx.tellFailure(tbMsg, e));
+        }
+    }
+
     @Override
     public String getComponentName() {
         return ruleNode.getName();
@@ -24,6 +24,7 @@ import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.DispatcherType;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.actors.TbActorSystem;
 import org.thingsboard.server.actors.TbActorSystemSettings;
@@ -77,6 +78,18 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.rule_dispatcher_pool_size:4}")
     private int ruleDispatcherSize;
 
+    @Value("${actors.system.app_dispatcher_type:default}")
+    private String appDispatcherType;
+
+    @Value("${actors.system.tenant_dispatcher_type:default}")
+    private String tenantDispatcherType;
+
+    @Value("${actors.system.device_dispatcher_type:default}")
+    private String deviceDispatcherType;
+
+    @Value("${actors.system.rule_dispatcher_type:default}")
+    private String ruleDispatcherType;
+
     @PostConstruct
     public void initActorSystem() {
         log.info("Initializing actor system.");
@@ -84,10 +97,10 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
         system = new DefaultTbActorSystem(settings);
 
-        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize));
-        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize));
-        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize));
-        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize));
+        createDispatcher(APP_DISPATCHER_NAME, appDispatcherSize, appDispatcherType);
+        createDispatcher(TENANT_DISPATCHER_NAME, tenantDispatcherSize, tenantDispatcherType);
+        createDispatcher(DEVICE_DISPATCHER_NAME, deviceDispatcherSize, deviceDispatcherType);
+        createDispatcher(RULE_DISPATCHER_NAME, ruleDispatcherSize, ruleDispatcherType);
 
         actorContext.setActorSystem(system);
 
@@ -100,12 +113,17 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         log.info("Actor system initialized.");
     }
 
-    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize) {
+    private void createDispatcher(String dispatcherName, int poolSize, String type) {
+        DispatcherType dispatcherType = DispatcherType.valueOf(type.toUpperCase());
+        system.createDispatcher(dispatcherName, initDispatcherExecutor(dispatcherName, poolSize, dispatcherType), dispatcherType);
+    }
+
+    private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize, DispatcherType dispatcherType) {
         if (poolSize == 0) {
             int cores = Runtime.getRuntime().availableProcessors();
             poolSize = Math.max(1, cores / 2);
         }
-        if (poolSize == 1) {
+        if (poolSize == 1 && DispatcherType.DEFAULT.equals(dispatcherType)) {
             return Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(dispatcherName));
         } else {
             return ThingsBoardExecutors.newWorkStealingPool(poolSize, dispatcherName);
@@ -28,6 +28,7 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.adapter.NativeWebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.exception.ThingsboardErrorCode;
 import org.thingsboard.server.common.data.id.CustomerId;
@@ -46,6 +47,8 @@ import org.thingsboard.server.service.ws.WebSocketMsgEndpoint;
 import org.thingsboard.server.service.ws.WebSocketService;
 import org.thingsboard.server.service.ws.WebSocketSessionRef;
 import org.thingsboard.server.service.ws.WebSocketSessionType;
+import org.thingsboard.server.service.ws.WsDeflateUtils;
+import org.thingsboard.server.service.ws.WsSharedJson;
 
 import javax.websocket.RemoteEndpoint;
 import javax.websocket.SendHandler;
@@ -70,6 +73,9 @@ import static org.thingsboard.server.service.ws.DefaultWebSocketService.NUMBER_O
 @Slf4j
 public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocketMsgEndpoint {
 
+    private static final String COMPRESSION_PARAM = "compression";
+    private static final String COMPRESSION_DEFLATE = "deflate";
+
     private final ConcurrentMap<String, SessionMetaData> internalSessionMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, String> externalSessionMap = new ConcurrentHashMap<>();
 
@@ -89,6 +95,10 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     private long pingTimeout;
     @Value("${server.ws.max_queue_messages_per_session:1000}")
     private int wsMaxQueueMessagesPerSession;
+    @Value("${server.ws.compression.enabled:false}")
+    private boolean compressionEnabled;
+    @Value("${server.ws.compression.min_size:1024}")
+    private int compressionMinSize;
 
     private final ConcurrentMap<String, WebSocketSessionRef> blacklistedSessions = new ConcurrentHashMap<>();
 
@@ -151,7 +161,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                     tenantProfileConfiguration.getWsMsgQueueLimitPerSession() : wsMaxQueueMessagesPerSession;
             internalSessionMap.put(internalSessionId, new SessionMetaData(session, sessionRef,
                     (wsTenantProfileQueueLimit > 0 && wsTenantProfileQueueLimit < wsMaxQueueMessagesPerSession) ?
-                            wsTenantProfileQueueLimit : wsMaxQueueMessagesPerSession));
+                            wsTenantProfileQueueLimit : wsMaxQueueMessagesPerSession, isCompressionRequested(session)));
 
             externalSessionMap.put(externalSessionId, internalSessionId);
             processInWebSocketService(sessionRef, SessionEvent.onEstablished());
@@ -221,22 +231,32 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                 .build();
     }
 
+    boolean isCompressionRequested(WebSocketSession session) {
+        if (!compressionEnabled || session.getUri() == null) {
+            return false;
+        }
+        String compression = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(COMPRESSION_PARAM);
+        return COMPRESSION_DEFLATE.equalsIgnoreCase(compression);
+    }
+
     class SessionMetaData implements SendHandler {
         private final WebSocketSession session;
         private final RemoteEndpoint.Async asyncRemote;
         private final WebSocketSessionRef sessionRef;
+        private final boolean compressed;
 
         final AtomicBoolean isSending = new AtomicBoolean(false);
         private final Queue<TbWebSocketMsg<?>> msgQueue;
 
         private volatile long lastActivityTime;
 
-        SessionMetaData(WebSocketSession session, WebSocketSessionRef sessionRef, int maxMsgQueuePerSession) {
+        SessionMetaData(WebSocketSession session, WebSocketSessionRef sessionRef, int maxMsgQueuePerSession, boolean compressed) {
             super();
             this.session = session;
             Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
             this.asyncRemote = nativeSession.getAsyncRemote();
             this.sessionRef = sessionRef;
+            this.compressed = compressed;
             this.msgQueue = new LinkedBlockingQueue<>(maxMsgQueuePerSession);
             this.lastActivityTime = System.currentTimeMillis();
         }
@@ -274,6 +294,10 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             sendMsg(new TbWebSocketTextMsg(msg));
         }
 
+        void sendMsg(String msg, WsSharedJson sharedJson) {
+            sendMsg(new TbWebSocketTextMsg(msg, sharedJson));
+        }
+
         void sendMsg(TbWebSocketMsg<?> msg) {
             try {
                 msgQueue.add(msg);
@@ -294,7 +318,12 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             try {
                 if (TbWebSocketMsgType.TEXT.equals(msg.getType())) {
                     TbWebSocketTextMsg textMsg = (TbWebSocketTextMsg) msg;
-                    this.asyncRemote.sendText(textMsg.getMsg(), this);
+                    if (compressed && textMsg.getMsg().length() >= compressionMinSize) {
+                        // Deflated (zlib) JSON is sent as binary frame, the client inflates it before parsing.
+                        this.asyncRemote.sendBinary(WsDeflateUtils.deflate(textMsg.getMsg(), textMsg.getSharedJson()), this);
+                    } else {
+                        this.asyncRemote.sendText(textMsg.getMsg(), this);
+                    }
                     // isSending status will be reset in the onResult method by call back
                 } else {
                     TbWebSocketPingMsg pingMsg = (TbWebSocketPingMsg) msg;
@@ -334,7 +363,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
     }
 
     @Override
-    public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
+    public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg, WsSharedJson sharedJson) throws IOException {
         String externalId = sessionRef.getSessionId();
         log.debug("[{}] Processing {}", externalId, msg);
         String internalId = externalSessionMap.get(externalId);
@@ -353,7 +382,7 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                     log.debug("[{}][{}][{}] Session is no longer blacklisted.", tenantId, sessionRef.getSecurityCtx().getId(), externalId);
                     blacklistedSessions.remove(externalId);
                 }
-                sessionMd.sendMsg(msg);
+                sessionMd.sendMsg(msg, sharedJson);
             } else {
                 log.warn("[{}][{}] Failed to find session by internal id", externalId, internalId);
             }
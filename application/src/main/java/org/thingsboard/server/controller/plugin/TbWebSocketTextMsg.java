@@ -15,12 +15,20 @@
  */
 package org.thingsboard.server.controller.plugin;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.thingsboard.server.service.ws.WsSharedJson;
 
 @RequiredArgsConstructor
 public class TbWebSocketTextMsg implements TbWebSocketMsg<String> {
 
     private final String value;
+    @Getter
+    private final WsSharedJson sharedJson;
+
+    public TbWebSocketTextMsg(String value) {
+        this(value, null);
+    }
 
     @Override
     public TbWebSocketMsgType getType() {
@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Merges redundant cloud events of the same entity before they are converted to uplink messages:
+ * <ul>
+ * <li>entity UPDATED event is dropped if the next event of the same entity is UPDATED as well -
+ * the latest state of the entity is fetched from the DB during conversion anyway;</li>
+ * <li>consecutive TIMESERIES_UPDATED events of the same entity are packed into a single event
+ * with several ts/values entries;</li>
+ * <li>consecutive ATTRIBUTES_UPDATED events of the same entity and scope are packed into a single event,
+ * the latest value of each attribute wins.</li>
+ * </ul>
+ * Events of other entities may be placed in between, only the order of events of the same entity is considered.
+ */
+@Slf4j
+public final class CloudEventCoalescer {
+
+    private static final Set<CloudEventType> ENTITY_TYPES_WITH_STATE_LOOKUP = EnumSet.of(
+            CloudEventType.DEVICE, CloudEventType.DEVICE_PROFILE, CloudEventType.ASSET, CloudEventType.ASSET_PROFILE,
+            CloudEventType.DASHBOARD, CloudEventType.ENTITY_VIEW);
+
+    private static final String DATA = "data";
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+    private static final String KV = "kv";
+    private static final String SCOPE = "scope";
+    private static final String IS_POST_ATTRIBUTES = "isPostAttributes";
+
+    private CloudEventCoalescer() {
+    }
+
+    /**
+     * Coalesces provided cloud events.
+     *
+     * @return list of the same size as the provided one. Each element is either the original event,
+     * an event that replaces the original one and several next events of the same entity,
+     * or null if the original event was merged into another one and must not be sent separately
+     */
+    public static List<CloudEvent> coalesce(List<CloudEvent> cloudEvents) {
+        int size = cloudEvents.size();
+        int[] nextOfSameEntity = new int[size];
+        Arrays.fill(nextOfSameEntity, -1);
+        Map<EntityKey, Integer> lastIdx = new HashMap<>();
+        for (int i = size - 1; i >= 0; i--) {
+            EntityKey key = EntityKey.of(cloudEvents.get(i));
+            if (key != null) {
+                Integer next = lastIdx.put(key, i);
+                if (next != null) {
+                    nextOfSameEntity[i] = next;
+                }
+            }
+        }
+
+        List<CloudEvent> result = new ArrayList<>(cloudEvents);
+        for (int i = 0; i < size; i++) {
+            CloudEvent cloudEvent = result.get(i);
+            if (cloudEvent == null) {
+                continue;
+            }
+            int next = nextOfSameEntity[i];
+            switch (cloudEvent.getAction()) {
+                case UPDATED:
+                    if (next != -1 && ENTITY_TYPES_WITH_STATE_LOOKUP.contains(cloudEvent.getType())
+                            && EdgeEventActionType.UPDATED.equals(cloudEvents.get(next).getAction())) {
+                        result.set(i, null);
+                    }
+                    break;
+                case TIMESERIES_UPDATED:
+                case ATTRIBUTES_UPDATED:
+                    List<CloudEvent> run = new ArrayList<>();
+                    run.add(cloudEvent);
+                    while (next != -1 && isMergeable(cloudEvent, cloudEvents.get(next))) {
+                        run.add(cloudEvents.get(next));
+                        result.set(next, null);
+                        next = nextOfSameEntity[next];
+                    }
+                    if (run.size() > 1) {
+                        result.set(i, merge(run));
+                    }
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isMergeable(CloudEvent first, CloudEvent other) {
+        if (!first.getAction().equals(other.getAction()) || first.getEntityBody() == null || other.getEntityBody() == null) {
+            return false;
+        }
+        if (EdgeEventActionType.ATTRIBUTES_UPDATED.equals(first.getAction())) {
+            return Objects.equals(getText(first.getEntityBody(), SCOPE), getText(other.getEntityBody(), SCOPE))
+                    && getBoolean(first.getEntityBody(), IS_POST_ATTRIBUTES) == getBoolean(other.getEntityBody(), IS_POST_ATTRIBUTES)
+                    && first.getEntityBody().get(KV) instanceof ObjectNode
+                    && other.getEntityBody().get(KV) instanceof ObjectNode;
+        }
+        return first.getEntityBody().has(DATA) && other.getEntityBody().has(DATA);
+    }
+
+    private static CloudEvent merge(List<CloudEvent> run) {
+        CloudEvent first = run.get(0);
+        CloudEvent merged = new CloudEvent(first.getId());
+        merged.setCreatedTime(first.getCreatedTime());
+        merged.setSeqId(first.getSeqId());
+        merged.setTenantId(first.getTenantId());
+        merged.setAction(first.getAction());
+        merged.setType(first.getType());
+        merged.setEntityId(first.getEntityId());
+        if (EdgeEventActionType.TIMESERIES_UPDATED.equals(first.getAction())) {
+            merged.setEntityBody(mergeTimeseries(run));
+        } else {
+            merged.setEntityBody(mergeAttributes(run));
+        }
+        log.trace("[{}] {} events were merged into single event", run.size(), first.getAction());
+        return merged;
+    }
+
+    private static JsonNode mergeTimeseries(List<CloudEvent> run) {
+        ArrayNode data = JacksonUtil.newArrayNode();
+        JsonNode lastTs = null;
+        for (CloudEvent cloudEvent : run) {
+            JsonNode body = cloudEvent.getEntityBody();
+            JsonNode ts = body.get(TS);
+            if (ts == null || ts.isNull()) {
+                ts = JacksonUtil.valueToTree(cloudEvent.getCreatedTime());
+            }
+            lastTs = ts;
+            JsonNode eventData = body.get(DATA);
+            if (eventData.isArray()) {
+                for (JsonNode entry : eventData) {
+                    data.add(toTsValues(entry, ts));
+                }
+            } else {
+                data.add(toTsValues(eventData, ts));
+            }
+        }
+        ObjectNode result = JacksonUtil.newObjectNode();
+        result.set(DATA, data);
+        result.set(TS, lastTs);
+        return result;
+    }
+
+    private static JsonNode toTsValues(JsonNode entry, JsonNode ts) {
+        if (entry.has(TS) && entry.has(VALUES)) {
+            return entry;
+        }
+        ObjectNode result = JacksonUtil.newObjectNode();
+        result.set(TS, ts);
+        result.set(VALUES, entry);
+        return result;
+    }
+
+    private static JsonNode mergeAttributes(List<CloudEvent> run) {
+        ObjectNode result = run.get(0).getEntityBody().deepCopy();
+        ObjectNode kv = (ObjectNode) result.get(KV);
+        for (int i = 1; i < run.size(); i++) {
+            kv.setAll((ObjectNode) run.get(i).getEntityBody().get(KV));
+        }
+        return result;
+    }
+
+    private static String getText(JsonNode body, String field) {
+        JsonNode node = body.get(field);
+        return node != null && !node.isNull() ? node.asText() : null;
+    }
+
+    private static boolean getBoolean(JsonNode body, String field) {
+        JsonNode node = body.get(field);
+        return node != null && node.asBoolean();
+    }
+
+    @Data
+    private static class EntityKey {
+        private final CloudEventType type;
+        private final UUID entityId;
+
+        static EntityKey of(CloudEvent cloudEvent) {
+            return cloudEvent.getEntityId() != null ? new EntityKey(cloudEvent.getType(), cloudEvent.getEntityId()) : null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queue offsets of the cloud event lanes.
+ * <p>
+ * Offset of the single queue is derived from the lane offsets, so no event is lost once lanes are disabled.
+ * It is kept behind every lane that may have pending events. Lane that had no events on the latest read does not
+ * hold it back: new events of that lane get greater seqId anyway, and a lane that never gets events would otherwise
+ * pin the offset forever and the acknowledged events would never be cleaned up.
+ */
+public class CloudEventLaneOffsets {
+
+    private final Map<CloudEventLane, QueueOffset> offsets = new EnumMap<>(CloudEventLane.class);
+    private final Set<CloudEventLane> idleLanes = EnumSet.noneOf(CloudEventLane.class);
+
+    public QueueOffset get(CloudEventLane lane) {
+        return offsets.get(lane);
+    }
+
+    /**
+     * Sets the offset of the lane. Lane is considered to have pending events until it is marked as idle.
+     */
+    public void update(CloudEventLane lane, QueueOffset offset) {
+        offsets.put(lane, offset);
+        idleLanes.remove(lane);
+    }
+
+    /**
+     * Marks lane that has no events after its offset.
+     */
+    public void markIdle(CloudEventLane lane) {
+        idleLanes.add(lane);
+    }
+
+    /**
+     * @return the lowest offset of the lanes that may have pending events
+     * or the highest offset if none of the lanes has pending events
+     */
+    public QueueOffset getQueueOffset() {
+        boolean allIdle = idleLanes.containsAll(offsets.keySet());
+        Long startTs = null;
+        Long seqId = null;
+        for (Map.Entry<CloudEventLane, QueueOffset> entry : offsets.entrySet()) {
+            QueueOffset offset = entry.getValue();
+            if (allIdle) {
+                startTs = startTs == null ? offset.getStartTs() : Math.max(startTs, offset.getStartTs());
+                seqId = seqId == null ? offset.getSeqId() : Math.max(seqId, offset.getSeqId());
+            } else if (!idleLanes.contains(entry.getKey())) {
+                startTs = startTs == null ? offset.getStartTs() : Math.min(startTs, offset.getStartTs());
+                seqId = seqId == null ? offset.getSeqId() : Math.min(seqId, offset.getSeqId());
+            }
+        }
+        return new QueueOffset(startTs != null ? startTs : 0L, seqId != null ? seqId : 0L);
+    }
+
+    @Data
+    public static class QueueOffset {
+        private final long startTs;
+        private final long seqId;
+    }
+}
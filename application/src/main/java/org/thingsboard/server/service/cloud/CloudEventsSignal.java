@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notifies the cloud event reader about persisted cloud events.
+ * <p>
+ * The reader waits for the signal up to the fallback poll interval, so events persisted without a notification
+ * (e.g. by another node) are still picked up.
+ */
+public class CloudEventsSignal {
+
+    private final Semaphore signal = new Semaphore(0);
+    private final AtomicLong lastPersistedSeqId = new AtomicLong(-1);
+
+    public void onPersisted(long maxSeqId) {
+        lastPersistedSeqId.set(maxSeqId);
+        if (signal.availablePermits() == 0) {
+            signal.release();
+        }
+    }
+
+    /**
+     * Waits until new cloud events are persisted or the timeout elapses.
+     *
+     * @return true if the reader was woken up by the notification
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean notified = signal.tryAcquire(timeout, unit);
+        signal.drainPermits();
+        return notified;
+    }
+
+    /**
+     * Consumes the latest persisted seqId. SeqId is compared only within the same cycle,
+     * a separate query is used to check whether the new cycle was started.
+     *
+     * @return true if events with seqId greater than the provided one were persisted since the previous call
+     */
+    public boolean isNewEventPersisted(long queueSeqIdStart) {
+        return lastPersistedSeqId.getAndSet(-1) > queueSeqIdStart;
+    }
+
+    public void reset() {
+        lastPersistedSeqId.set(-1);
+    }
+}
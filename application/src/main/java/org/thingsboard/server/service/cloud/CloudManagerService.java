@@ -36,6 +36,7 @@ import org.thingsboard.server.cluster.TbClusterService;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.EdgeUtils;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.Edge;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
@@ -50,12 +51,14 @@ import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.TimePageLink;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.cloud.CloudEventService;
+import org.thingsboard.server.dao.cloud.CloudEventsPersistedEvent;
 import org.thingsboard.server.dao.edge.EdgeService;
 import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
 import org.thingsboard.server.gen.edge.v1.DownlinkResponseMsg;
 import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
 import org.thingsboard.server.gen.edge.v1.UplinkMsg;
 import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
+import org.thingsboard.server.service.cloud.CloudEventLaneOffsets.QueueOffset;
 import org.thingsboard.server.service.cloud.rpc.CloudEventStorageSettings;
 import org.thingsboard.server.service.cloud.rpc.processor.AlarmCloudProcessor;
 import org.thingsboard.server.service.cloud.rpc.processor.AssetCloudProcessor;
@@ -79,6 +82,7 @@ import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -92,6 +96,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -101,6 +106,8 @@ public class CloudManagerService {
 
     private static final int MAX_UPLINK_ATTEMPTS = 10; // max number of attemps to send downlink message if edge connected
 
+    private static final long UPLINK_WINDOW_POLL_INTERVAL_MS = 100;
+
     private static final String QUEUE_START_TS_ATTR_KEY = "queueStartTs";
     private static final String QUEUE_SEQ_ID_OFFSET_ATTR_KEY = "queueSeqIdOffset";
 
@@ -203,6 +210,10 @@ public class CloudManagerService {
 
     private final ConcurrentMap<Integer, UplinkMsg> pendingMsgsMap = new ConcurrentHashMap<>();
 
+    private CloudUplinkWindow uplinkWindow;
+
+    private final CloudEventsSignal newCloudEventsSignal = new CloudEventsSignal();
+
     private TenantId tenantId;
     private CustomerId customerId;
 
@@ -210,6 +221,7 @@ public class CloudManagerService {
     public void onApplicationEvent(ApplicationReadyEvent event) {
         if (validateRoutingKeyAndSecret()) {
             log.info("Starting Cloud Edge service");
+            uplinkWindow = new CloudUplinkWindow(cloudEventStorageSettings.getUplinkWindowSize());
             edgeRpcClient.connect(routingKey, routingSecret,
                     this::onUplinkResponse,
                     this::onEdgeUpdate,
@@ -263,48 +275,26 @@ public class CloudManagerService {
             while (!Thread.interrupted()) {
                 try {
                     if (initialized) {
-                        queueStartTs = getQueueStartTs().get();
-                        Long queueSeqIdStart = getQueueSeqIdStart().get();
-                        TimePageLink pageLink = new TimePageLink(cloudEventStorageSettings.getMaxReadRecordsCount(),
-                                0, null, null, queueStartTs, System.currentTimeMillis());
-                        if (newCloudEventsAvailable(queueSeqIdStart, pageLink)) {
-                            PageData<CloudEvent> cloudEvents;
-                            boolean success = true;
-                            CloudEvent latestCloudEvent = null;
-                            do {
-                                cloudEvents = cloudEventService.findCloudEvents(tenantId, queueSeqIdStart, null, pageLink);
-                                if (initialized) {
-                                    if (cloudEvents.getData().isEmpty()) {
-                                        log.info("seqId column of cloud_event table started new cycle");
-                                        cloudEvents = findCloudEventsFromBeginning(pageLink);
-                                    }
-                                    log.trace("[{}] event(s) are going to be converted.", cloudEvents.getData().size());
-                                    List<UplinkMsg> uplinkMsgsPack = convertToUplinkMsgsPack(cloudEvents.getData());
-                                    if (!uplinkMsgsPack.isEmpty()) {
-                                        success = sendUplinkMsgsPack(uplinkMsgsPack);
-                                    } else {
-                                        success = true;
-                                    }
-                                    if (!cloudEvents.getData().isEmpty()) {
-                                        latestCloudEvent = cloudEvents.getData().get(cloudEvents.getData().size() - 1);
-                                    }
-                                    if (success) {
-                                        pageLink = pageLink.nextPageLink();
-                                    }
-                                }
-                            } while (initialized && (!success || cloudEvents.hasNext()));
-                            if (latestCloudEvent != null) {
-                                try {
-                                    Long newStartTs = Uuids.unixTimestamp(latestCloudEvent.getUuidId());
-                                    updateQueueStartTsSeqIdOffset(newStartTs, latestCloudEvent.getSeqId());
-                                    log.debug("Queue offset was updated [{}][{}][{}]", latestCloudEvent.getUuidId(), newStartTs, latestCloudEvent.getSeqId());
-                                } catch (Exception e) {
-                                    log.error("Failed to update queue offset [{}]", latestCloudEvent);
+                        if (cloudEventStorageSettings.isLanesEnabled()) {
+                            newCloudEventsSignal.reset();
+                            processCloudEventsInLanes();
+                        } else {
+                            queueStartTs = getQueueStartTs().get();
+                            Long queueSeqIdStart = getQueueSeqIdStart().get();
+                            TimePageLink pageLink = new TimePageLink(cloudEventStorageSettings.getMaxReadRecordsCount(),
+                                    0, null, null, queueStartTs, System.currentTimeMillis());
+                            if (newCloudEventsSignal.isNewEventPersisted(queueSeqIdStart) || newCloudEventsAvailable(queueSeqIdStart, pageLink)) {
+                                if (cloudEventStorageSettings.isUplinkWindowEnabled()) {
+                                    processCloudEventsInWindow(queueSeqIdStart, pageLink);
+                                } else {
+                                    processCloudEventsInBatches(queueSeqIdStart, pageLink);
                                 }
                             }
                         }
                         try {
-                            Thread.sleep(cloudEventStorageSettings.getNoRecordsSleepInterval());
+                            // wait for the notification about new cloud events, polling is used as a fallback
+                            long pollInterval = Math.max(cloudEventStorageSettings.getNoRecordsSleepInterval(), cloudEventStorageSettings.getFallbackPollInterval());
+                            newCloudEventsSignal.await(pollInterval, TimeUnit.MILLISECONDS);
                         } catch (InterruptedException e) {
                             log.error("Error during sleep", e);
                         }
@@ -318,6 +308,245 @@ public class CloudManagerService {
         });
     }
 
+    private void processCloudEventsInBatches(Long queueSeqIdStart, TimePageLink pageLink) throws InterruptedException {
+        PageData<CloudEvent> cloudEvents;
+        boolean success = true;
+        CloudEvent latestCloudEvent = null;
+        do {
+            cloudEvents = cloudEventService.findCloudEvents(tenantId, queueSeqIdStart, null, pageLink);
+            if (initialized) {
+                if (cloudEvents.getData().isEmpty()) {
+                    log.info("seqId column of cloud_event table started new cycle");
+                    cloudEvents = findCloudEventsFromBeginning(pageLink);
+                }
+                log.trace("[{}] event(s) are going to be converted.", cloudEvents.getData().size());
+                List<UplinkMsg> uplinkMsgsPack = packUplinkMsgs(convertToUplinkMsgsPack(coalesce(cloudEvents.getData())));
+                if (!uplinkMsgsPack.isEmpty()) {
+                    success = sendUplinkMsgsPack(uplinkMsgsPack);
+                } else {
+                    success = true;
+                }
+                if (!cloudEvents.getData().isEmpty()) {
+                    latestCloudEvent = cloudEvents.getData().get(cloudEvents.getData().size() - 1);
+                }
+                if (success) {
+                    pageLink = pageLink.nextPageLink();
+                }
+            }
+        } while (initialized && (!success || cloudEvents.hasNext()));
+        if (latestCloudEvent != null) {
+            updateQueueOffset(latestCloudEvent);
+        }
+    }
+
+    private void processCloudEventsInWindow(Long queueSeqIdStart, TimePageLink pageLink) throws Exception {
+        uplinkWindow.reset();
+        ListenableFuture<PageData<CloudEvent>> pageFuture = findCloudEventsAsync(queueSeqIdStart, pageLink);
+        while (initialized && pageFuture != null) {
+            PageData<CloudEvent> cloudEvents = pageFuture.get();
+            // next page is fetched from the DB while messages of the current page are being sent
+            if (cloudEvents.hasNext()) {
+                pageLink = pageLink.nextPageLink();
+                pageFuture = findCloudEventsAsync(queueSeqIdStart, pageLink);
+            } else {
+                pageFuture = null;
+            }
+            log.trace("[{}] event(s) are going to be converted.", cloudEvents.getData().size());
+            List<CloudEvent> coalescedEvents = coalesce(cloudEvents.getData());
+            int maxMsgsPerPack = cloudEventStorageSettings.isUplinkPackEnabled() ? cloudEventStorageSettings.getUplinkPackMaxMsgs() : 1;
+            UplinkMsgPacker packer = new UplinkMsgPacker(edgeRpcClient.getServerMaxInboundMessageSize(), maxMsgsPerPack);
+            // the latest cloud event that is completely included into the current pack
+            CloudEvent packedCloudEvent = null;
+            for (int i = 0; i < cloudEvents.getData().size(); i++) {
+                if (!initialized) {
+                    break;
+                }
+                CloudEvent cloudEvent = cloudEvents.getData().get(i);
+                CloudEvent coalescedEvent = coalescedEvents.get(i);
+                UplinkMsg uplinkMsg = coalescedEvent != null ? convertToUplinkMsg(coalescedEvent) : null;
+                List<UplinkMsg> parts = uplinkMsg != null ? splitUplinkMsg(uplinkMsg) : Collections.emptyList();
+                if (parts.isEmpty()) {
+                    if (packer.isEmpty()) {
+                        uplinkWindow.skip(cloudEvent);
+                    } else {
+                        packedCloudEvent = cloudEvent;
+                    }
+                    continue;
+                }
+                for (int j = 0; j < parts.size(); j++) {
+                    if (!packer.fits(parts.get(j))) {
+                        sendUplinkMsgInWindow(packedCloudEvent, packer.flush());
+                        packedCloudEvent = null;
+                    }
+                    packer.add(parts.get(j));
+                    if (j == parts.size() - 1) {
+                        packedCloudEvent = cloudEvent;
+                    }
+                }
+            }
+            if (initialized && !packer.isEmpty()) {
+                sendUplinkMsgInWindow(packedCloudEvent, packer.flush());
+            }
+            commitUplinkWindowOffset();
+        }
+        while (initialized && !uplinkWindow.awaitEmpty(UPLINK_WINDOW_POLL_INTERVAL_MS)) {
+            resendUplinkMsgsInWindow();
+        }
+        commitUplinkWindowOffset();
+    }
+
+    private void processCloudEventsInLanes() throws Exception {
+        Long legacyQueueStartTs = getQueueStartTs().get();
+        Long legacyQueueSeqIdStart = getQueueSeqIdStart().get();
+        CloudEventLaneOffsets offsets = new CloudEventLaneOffsets();
+        for (CloudEventLane lane : CloudEventLane.values()) {
+            QueueOffset offset = new QueueOffset(getLongAttrByKey(getLaneAttrKey(QUEUE_START_TS_ATTR_KEY, lane)).get(),
+                    getLongAttrByKey(getLaneAttrKey(QUEUE_SEQ_ID_OFFSET_ATTR_KEY, lane)).get());
+            if (offset.getStartTs() == 0L && offset.getSeqId() == 0L) {
+                // lane was not processed yet - continue from the offset of the single queue
+                offset = new QueueOffset(legacyQueueStartTs, legacyQueueSeqIdStart);
+            }
+            offsets.update(lane, offset);
+        }
+        queueStartTs = offsets.get(CloudEventLane.CONTROL).getStartTs();
+        boolean hasMore;
+        do {
+            hasMore = false;
+            boolean offsetsUpdated = false;
+            // lanes are visited in the order of priority, every lane sends up to 'weight' batches per round
+            for (CloudEventLane lane : CloudEventLane.values()) {
+                QueueOffset laneOffset = offsets.get(lane);
+                int weight = Math.max(1, cloudEventStorageSettings.getLaneWeight(lane));
+                int sentBatches = 0;
+                while (initialized && sentBatches < weight && processNextBatchInLane(lane, offsets)) {
+                    sentBatches++;
+                }
+                hasMore = hasMore || sentBatches == weight;
+                offsetsUpdated = offsetsUpdated || !laneOffset.equals(offsets.get(lane));
+            }
+            // every lane was read at least once in the round, so the lanes without pending events are known
+            if (offsetsUpdated) {
+                updateLanesQueueOffset(offsets);
+            }
+            queueStartTs = offsets.get(CloudEventLane.CONTROL).getStartTs();
+        } while (initialized && hasMore);
+    }
+
+    /**
+     * @return true if the full batch was sent and lane may contain more events
+     */
+    private boolean processNextBatchInLane(CloudEventLane lane, CloudEventLaneOffsets offsets) throws InterruptedException {
+        QueueOffset offset = offsets.get(lane);
+        TimePageLink pageLink = new TimePageLink(cloudEventStorageSettings.getLaneMaxReadRecordsCount(lane),
+                0, null, null, offset.getStartTs(), System.currentTimeMillis());
+        PageData<CloudEvent> cloudEvents = cloudEventService.findCloudEvents(tenantId, lane, offset.getSeqId(), null, pageLink);
+        List<CloudEvent> data = cloudEvents.getData();
+        boolean hasNext = cloudEvents.hasNext();
+        if (data.isEmpty()) {
+            // events with lower seqId, that were created after the offset, mean that seqId started new cycle
+            cloudEvents = cloudEventService.findCloudEvents(tenantId, lane, 0L, offset.getSeqId(), pageLink);
+            data = cloudEvents.getData().stream()
+                    .filter(cloudEvent -> cloudEvent.getCreatedTime() > offset.getStartTs())
+                    .collect(Collectors.toList());
+            if (data.isEmpty()) {
+                offsets.markIdle(lane);
+                return false;
+            }
+            log.info("[{}] seqId column of cloud_event table started new cycle", lane);
+            hasNext = cloudEvents.hasNext();
+        }
+        log.trace("[{}][{}] event(s) are going to be converted.", lane, data.size());
+        List<UplinkMsg> uplinkMsgsPack = packUplinkMsgs(convertToUplinkMsgsPack(coalesce(data)));
+        if (!uplinkMsgsPack.isEmpty() && !sendUplinkMsgsPack(uplinkMsgsPack)) {
+            return false;
+        }
+        CloudEvent latestCloudEvent = data.get(data.size() - 1);
+        offsets.update(lane, new QueueOffset(Uuids.unixTimestamp(latestCloudEvent.getUuidId()), latestCloudEvent.getSeqId()));
+        updateLaneQueueOffset(lane, offsets.get(lane));
+        return hasNext;
+    }
+
+    private void updateLaneQueueOffset(CloudEventLane lane, QueueOffset offset) {
+        try {
+            List<AttributeKvEntry> attributes = Arrays.asList(
+                    new BaseAttributeKvEntry(new LongDataEntry(getLaneAttrKey(QUEUE_START_TS_ATTR_KEY, lane), offset.getStartTs()), System.currentTimeMillis()),
+                    new BaseAttributeKvEntry(new LongDataEntry(getLaneAttrKey(QUEUE_SEQ_ID_OFFSET_ATTR_KEY, lane), offset.getSeqId()), System.currentTimeMillis()));
+            attributesService.save(tenantId, tenantId, DataConstants.SERVER_SCOPE, attributes);
+            log.debug("[{}] Queue offset was updated [{}]", lane, offset);
+        } catch (Exception e) {
+            log.error("[{}] Failed to update queue offset", lane, e);
+        }
+    }
+
+    private void updateLanesQueueOffset(CloudEventLaneOffsets offsets) {
+        // offset of the single queue is kept behind the lanes with pending events, so no event is lost once lanes are disabled
+        QueueOffset queueOffset = offsets.getQueueOffset();
+        try {
+            updateQueueStartTsSeqIdOffset(queueOffset.getStartTs(), queueOffset.getSeqId());
+            log.debug("Queue offset of the lanes was updated [{}]", queueOffset);
+        } catch (Exception e) {
+            log.error("Failed to update queue offset of the lanes [{}]", queueOffset, e);
+        }
+    }
+
+    private String getLaneAttrKey(String attrKey, CloudEventLane lane) {
+        return attrKey + "_" + lane.name().toLowerCase();
+    }
+
+    private ListenableFuture<PageData<CloudEvent>> findCloudEventsAsync(Long queueSeqIdStart, TimePageLink pageLink) {
+        return dbCallbackExecutorService.executeAsync(() -> {
+            PageData<CloudEvent> cloudEvents = cloudEventService.findCloudEvents(tenantId, queueSeqIdStart, null, pageLink);
+            if (cloudEvents.getData().isEmpty()) {
+                log.info("seqId column of cloud_event table started new cycle");
+                cloudEvents = findCloudEventsFromBeginning(pageLink);
+            }
+            return cloudEvents;
+        });
+    }
+
+    private void sendUplinkMsgInWindow(CloudEvent cloudEvent, UplinkMsg uplinkMsg) throws InterruptedException {
+        while (initialized) {
+            if (uplinkWindow.tryAcquire(UPLINK_WINDOW_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                uplinkWindow.register(cloudEvent, uplinkMsg);
+                edgeRpcClient.sendUplinkMsg(uplinkMsg);
+                return;
+            }
+            resendUplinkMsgsInWindow();
+        }
+    }
+
+    private void resendUplinkMsgsInWindow() {
+        List<UplinkMsg> uplinkMsgs = uplinkWindow.collectForResend(cloudEventStorageSettings.getUplinkAckTimeoutMs(), MAX_UPLINK_ATTEMPTS);
+        if (!uplinkMsgs.isEmpty()) {
+            log.warn("[{}] uplink msg(s) are going to be resent: {}", uplinkMsgs.size(), uplinkMsgs);
+            uplinkMsgs.forEach(edgeRpcClient::sendUplinkMsg);
+        }
+        commitUplinkWindowOffset();
+    }
+
+    private void commitUplinkWindowOffset() {
+        CloudEvent latestCloudEvent = uplinkWindow.pollAcknowledgedOffset();
+        if (latestCloudEvent != null) {
+            updateQueueOffset(latestCloudEvent);
+        }
+    }
+
+    private void updateQueueOffset(CloudEvent latestCloudEvent) {
+        try {
+            Long newStartTs = Uuids.unixTimestamp(latestCloudEvent.getUuidId());
+            updateQueueStartTsSeqIdOffset(newStartTs, latestCloudEvent.getSeqId());
+            log.debug("Queue offset was updated [{}][{}][{}]", latestCloudEvent.getUuidId(), newStartTs, latestCloudEvent.getSeqId());
+        } catch (Exception e) {
+            log.error("Failed to update queue offset [{}]", latestCloudEvent);
+        }
+    }
+
+    @EventListener(CloudEventsPersistedEvent.class)
+    public void onCloudEventsPersisted(CloudEventsPersistedEvent event) {
+        log.trace("New cloud events were persisted, max seqId [{}]", event.getMaxSeqId());
+        newCloudEventsSignal.onPersisted(event.getMaxSeqId());
+    }
+
     private boolean newCloudEventsAvailable(Long queueSeqIdStart, TimePageLink pageLink) {
         PageData<CloudEvent> cloudEvents = cloudEventService.findCloudEvents(tenantId, queueSeqIdStart, null, pageLink);
         if (cloudEvents.getData().isEmpty()) {
@@ -347,11 +576,7 @@ public class CloudManagerService {
                 latch = new CountDownLatch(pendingMsgsMap.values().size());
                 List<UplinkMsg> copy = new ArrayList<>(pendingMsgsMap.values());
                 for (UplinkMsg uplinkMsg : copy) {
-                    if (edgeRpcClient.getServerMaxInboundMessageSize() != 0 && uplinkMsg.getSerializedSize() > edgeRpcClient.getServerMaxInboundMessageSize()) {
-                        log.error("Uplink msg size [{}] exceeds server max inbound message size [{}]. Skipping this message. " +
-                                        "Please increase value of EDGES_RPC_MAX_INBOUND_MESSAGE_SIZE env variable on the server and restart it." +
-                                        "Message {}",
-                                uplinkMsg.getSerializedSize(), edgeRpcClient.getServerMaxInboundMessageSize(), uplinkMsg);
+                    if (isUplinkMsgSizeExceeded(uplinkMsg)) {
                         pendingMsgsMap.remove(uplinkMsg.getUplinkMsgId());
                         latch.countDown();
                     } else {
@@ -383,62 +608,117 @@ public class CloudManagerService {
         }
     }
 
+    /**
+     * @return list of the same size as the provided one, null elements are merged into other events and must be skipped
+     */
+    private List<CloudEvent> coalesce(List<CloudEvent> cloudEvents) {
+        if (!cloudEventStorageSettings.isCoalesceEvents()) {
+            return cloudEvents;
+        }
+        return CloudEventCoalescer.coalesce(cloudEvents);
+    }
+
+    private List<UplinkMsg> packUplinkMsgs(List<UplinkMsg> uplinkMsgs) {
+        List<UplinkMsg> result = new ArrayList<>();
+        for (UplinkMsg uplinkMsg : uplinkMsgs) {
+            result.addAll(splitUplinkMsg(uplinkMsg));
+        }
+        if (cloudEventStorageSettings.isUplinkPackEnabled()) {
+            result = UplinkMsgPacker.pack(result, edgeRpcClient.getServerMaxInboundMessageSize(), cloudEventStorageSettings.getUplinkPackMaxMsgs());
+            log.trace("[{}] uplink msg(s) were packed into [{}] msg(s)", uplinkMsgs.size(), result.size());
+        }
+        return result;
+    }
+
+    /**
+     * @return parts of the uplink msg that fit server max inbound message size or empty list if msg can't be split
+     */
+    private List<UplinkMsg> splitUplinkMsg(UplinkMsg uplinkMsg) {
+        List<UplinkMsg> parts = UplinkMsgPacker.split(uplinkMsg, edgeRpcClient.getServerMaxInboundMessageSize());
+        if (parts.size() > 1) {
+            log.debug("Uplink msg size [{}] exceeds server max inbound message size [{}]. Msg was split into [{}] parts",
+                    uplinkMsg.getSerializedSize(), edgeRpcClient.getServerMaxInboundMessageSize(), parts.size());
+            return parts;
+        }
+        return isUplinkMsgSizeExceeded(uplinkMsg) ? Collections.emptyList() : parts;
+    }
+
+    private boolean isUplinkMsgSizeExceeded(UplinkMsg uplinkMsg) {
+        if (edgeRpcClient.getServerMaxInboundMessageSize() != 0 && uplinkMsg.getSerializedSize() > edgeRpcClient.getServerMaxInboundMessageSize()) {
+            log.error("Uplink msg size [{}] exceeds server max inbound message size [{}]. Skipping this message. " +
+                            "Please increase value of EDGES_RPC_MAX_INBOUND_MESSAGE_SIZE env variable on the server and restart it." +
+                            "Message {}",
+                    uplinkMsg.getSerializedSize(), edgeRpcClient.getServerMaxInboundMessageSize(), uplinkMsg);
+            return true;
+        }
+        return false;
+    }
+
     private List<UplinkMsg> convertToUplinkMsgsPack(List<CloudEvent> cloudEvents) {
         List<UplinkMsg> result = new ArrayList<>();
         for (CloudEvent cloudEvent : cloudEvents) {
-            log.trace("Converting cloud event [{}]", cloudEvent);
-            UplinkMsg uplinkMsg = null;
-            try {
-                switch (cloudEvent.getAction()) {
-                    case UPDATED:
-                    case ADDED:
-                    case DELETED:
-                    case ALARM_ACK:
-                    case ALARM_CLEAR:
-                    case CREDENTIALS_UPDATED:
-                    case RELATION_ADD_OR_UPDATE:
-                    case RELATION_DELETED:
-                    case ASSIGNED_TO_CUSTOMER:
-                    case UNASSIGNED_FROM_CUSTOMER:
-                        uplinkMsg = convertEntityEventToUplink(this.tenantId, cloudEvent);
-                        break;
-                    case ATTRIBUTES_UPDATED:
-                    case POST_ATTRIBUTES:
-                    case ATTRIBUTES_DELETED:
-                    case TIMESERIES_UPDATED:
-                        uplinkMsg = telemetryProcessor.convertTelemetryEventToUplink(this.tenantId, cloudEvent);
-                        break;
-                    case ATTRIBUTES_REQUEST:
-                        uplinkMsg = telemetryProcessor.convertAttributesRequestEventToUplink(cloudEvent);
-                        break;
-                    case RELATION_REQUEST:
-                        uplinkMsg = relationProcessor.convertRelationRequestEventToUplink(cloudEvent);
-                        break;
-                    case RULE_CHAIN_METADATA_REQUEST:
-                        uplinkMsg = ruleChainProcessor.convertRuleChainMetadataRequestEventToUplink(cloudEvent);
-                        break;
-                    case CREDENTIALS_REQUEST:
-                        uplinkMsg = entityProcessor.convertCredentialsRequestEventToUplink(cloudEvent);
-                        break;
-                    case RPC_CALL:
-                        uplinkMsg = deviceProcessor.convertRpcCallEventToUplink(cloudEvent);
-                        break;
-                    case WIDGET_BUNDLE_TYPES_REQUEST:
-                        uplinkMsg = widgetBundleProcessor.convertWidgetBundleTypesRequestEventToUplink(cloudEvent);
-                        break;
-                    case ENTITY_VIEW_REQUEST:
-                        uplinkMsg = entityViewProcessor.convertEntityViewRequestEventToUplink(cloudEvent);
-                        break;
-                }
-            } catch (Exception e) {
-                log.error("Exception during converting events from queue, skipping event [{}]", cloudEvent, e);
-            }            if (uplinkMsg != null) {
+            if (cloudEvent == null) {
+                continue;
+            }
+            UplinkMsg uplinkMsg = convertToUplinkMsg(cloudEvent);
+            if (uplinkMsg != null) {
                 result.add(uplinkMsg);
             }
         }
         return result;
     }
 
+    private UplinkMsg convertToUplinkMsg(CloudEvent cloudEvent) {
+        log.trace("Converting cloud event [{}]", cloudEvent);
+        UplinkMsg uplinkMsg = null;
+        try {
+            switch (cloudEvent.getAction()) {
+                case UPDATED:
+                case ADDED:
+                case DELETED:
+                case ALARM_ACK:
+                case ALARM_CLEAR:
+                case CREDENTIALS_UPDATED:
+                case RELATION_ADD_OR_UPDATE:
+                case RELATION_DELETED:
+                case ASSIGNED_TO_CUSTOMER:
+                case UNASSIGNED_FROM_CUSTOMER:
+                    uplinkMsg = convertEntityEventToUplink(this.tenantId, cloudEvent);
+                    break;
+                case ATTRIBUTES_UPDATED:
+                case POST_ATTRIBUTES:
+                case ATTRIBUTES_DELETED:
+                case TIMESERIES_UPDATED:
+                    uplinkMsg = telemetryProcessor.convertTelemetryEventToUplink(this.tenantId, cloudEvent);
+                    break;
+                case ATTRIBUTES_REQUEST:
+                    uplinkMsg = telemetryProcessor.convertAttributesRequestEventToUplink(cloudEvent);
+                    break;
+                case RELATION_REQUEST:
+                    uplinkMsg = relationProcessor.convertRelationRequestEventToUplink(cloudEvent);
+                    break;
+                case RULE_CHAIN_METADATA_REQUEST:
+                    uplinkMsg = ruleChainProcessor.convertRuleChainMetadataRequestEventToUplink(cloudEvent);
+                    break;
+                case CREDENTIALS_REQUEST:
+                    uplinkMsg = entityProcessor.convertCredentialsRequestEventToUplink(cloudEvent);
+                    break;
+                case RPC_CALL:
+                    uplinkMsg = deviceProcessor.convertRpcCallEventToUplink(cloudEvent);
+                    break;
+                case WIDGET_BUNDLE_TYPES_REQUEST:
+                    uplinkMsg = widgetBundleProcessor.convertWidgetBundleTypesRequestEventToUplink(cloudEvent);
+                    break;
+                case ENTITY_VIEW_REQUEST:
+                    uplinkMsg = entityViewProcessor.convertEntityViewRequestEventToUplink(cloudEvent);
+                    break;
+            }
+        } catch (Exception e) {
+            log.error("Exception during converting events from queue, skipping event [{}]", cloudEvent, e);
+        }
+        return uplinkMsg;
+    }
+
     private UplinkMsg convertEntityEventToUplink(TenantId tenantId, CloudEvent cloudEvent) {
         log.trace("Executing convertEntityEventToUplink, cloudEvent [{}], edgeEventAction [{}]", cloudEvent, cloudEvent.getAction());
         switch (cloudEvent.getType()) {
@@ -491,17 +771,24 @@ public class CloudManagerService {
                 new BaseAttributeKvEntry(new LongDataEntry(QUEUE_START_TS_ATTR_KEY, startTs), System.currentTimeMillis()),
                 new BaseAttributeKvEntry(new LongDataEntry(QUEUE_SEQ_ID_OFFSET_ATTR_KEY, seqIdOffset), System.currentTimeMillis()));
         attributesService.save(tenantId, tenantId, DataConstants.SERVER_SCOPE, attributes);
+        cloudEventService.cleanupAcknowledgedEvents(seqIdOffset);
     }
 
     private void onUplinkResponse(UplinkResponseMsg msg) {
         try {
             if (msg.getSuccess()) {
-                pendingMsgsMap.remove(msg.getUplinkMsgId());
                 log.debug("[{}] Msg has been processed successfully! {}", routingKey, msg);
             } else {
                 log.error("[{}] Msg processing failed! Error msg: {}", routingKey, msg.getErrorMsg());
             }
-            latch.countDown();
+            if (cloudEventStorageSettings.isUplinkWindowEnabled()) {
+                uplinkWindow.onUplinkResponse(msg);
+            } else {
+                if (msg.getSuccess()) {
+                    pendingMsgsMap.remove(msg.getUplinkMsgId());
+                }
+                latch.countDown();
+            }
         } catch (Exception e) {
             log.error("Can't process uplink response message [{}]", msg, e);
         }
@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.gen.edge.v1.UplinkMsg;
+import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding window of uplink messages that were sent to the cloud but not acknowledged yet.
+ * <p>
+ * Every cloud event read from the queue is registered in dispatch order. The window keeps at most
+ * {@code size} messages in flight, re-sends only messages that were rejected or timed out and exposes
+ * the latest cloud event of the contiguously acknowledged prefix, so the queue offset is never moved
+ * past an event that was not delivered yet.
+ */
+@Slf4j
+public class CloudUplinkWindow {
+
+    private final int size;
+    private final Semaphore slots;
+    private final ConcurrentMap<Integer, PendingUplink> inFlight = new ConcurrentHashMap<>();
+    private final Deque<PendingUplink> dispatchOrder = new ArrayDeque<>();
+
+    public CloudUplinkWindow(int size) {
+        this.size = size;
+        this.slots = new Semaphore(size);
+    }
+
+    /**
+     * Registers cloud event that is not going to be sent (e.g. conversion returned nothing).
+     * Such event is treated as acknowledged, but still holds its position in the dispatch order.
+     */
+    public synchronized void skip(CloudEvent cloudEvent) {
+        PendingUplink pending = new PendingUplink(cloudEvent, null);
+        pending.acked = true;
+        dispatchOrder.add(pending);
+    }
+
+    /**
+     * Waits for a free slot in the window up to the provided timeout.
+     *
+     * @return true if slot was acquired and {@link #register(CloudEvent, UplinkMsg)} must be called
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return slots.tryAcquire(timeout, unit);
+    }
+
+    /**
+     * Registers uplink message that is going to be sent. Slot must be acquired beforehand.
+     *
+     * @param cloudEvent the latest cloud event that is completely delivered by this message or null,
+     *                   if message contains only a part of the event and the offset must not be moved
+     */
+    public synchronized void register(CloudEvent cloudEvent, UplinkMsg uplinkMsg) {
+        PendingUplink pending = new PendingUplink(cloudEvent, uplinkMsg);
+        pending.sentTs = System.currentTimeMillis();
+        dispatchOrder.add(pending);
+        inFlight.put(uplinkMsg.getUplinkMsgId(), pending);
+    }
+
+    public void onUplinkResponse(UplinkResponseMsg msg) {
+        PendingUplink pending = inFlight.get(msg.getUplinkMsgId());
+        if (pending == null) {
+            log.debug("Received response for unknown or already acknowledged uplink msg [{}]", msg.getUplinkMsgId());
+            return;
+        }
+        if (msg.getSuccess()) {
+            release(pending);
+        } else {
+            pending.failed = true;
+        }
+    }
+
+    /**
+     * Collects messages that were rejected by the cloud or were not acknowledged within the timeout.
+     * Messages that exceeded the max number of attempts are discarded and treated as acknowledged.
+     *
+     * @return messages that must be sent one more time
+     */
+    public List<UplinkMsg> collectForResend(long ackTimeoutMs, int maxAttempts) {
+        long now = System.currentTimeMillis();
+        List<UplinkMsg> result = new ArrayList<>();
+        for (PendingUplink pending : inFlight.values()) {
+            if (pending.failed || now - pending.sentTs > ackTimeoutMs) {
+                if (pending.attempt >= maxAttempts) {
+                    log.warn("Failed to deliver the uplink msg after {} attempts. Message is going to be discarded {}",
+                            maxAttempts, pending.uplinkMsg);
+                    release(pending);
+                } else {
+                    pending.attempt++;
+                    pending.failed = false;
+                    pending.sentTs = now;
+                    result.add(pending.uplinkMsg);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes contiguously acknowledged messages from the head of the dispatch order.
+     *
+     * @return the latest cloud event that is safe to use as a queue offset, or null if it was not moved
+     */
+    public synchronized CloudEvent pollAcknowledgedOffset() {
+        CloudEvent latest = null;
+        while (!dispatchOrder.isEmpty() && dispatchOrder.peekFirst().acked) {
+            CloudEvent cloudEvent = dispatchOrder.pollFirst().cloudEvent;
+            if (cloudEvent != null) {
+                latest = cloudEvent;
+            }
+        }
+        return latest;
+    }
+
+    public boolean isEmpty() {
+        return inFlight.isEmpty();
+    }
+
+    /**
+     * Waits until all in-flight messages are acknowledged or discarded.
+     *
+     * @return true if window is empty
+     */
+    public synchronized boolean awaitEmpty(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (!inFlight.isEmpty() && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return inFlight.isEmpty();
+    }
+
+    /**
+     * Drops all pending messages, e.g. once the connection to the cloud was lost.
+     * Not acknowledged messages will be read from the queue again, starting from the last committed offset.
+     */
+    public synchronized void reset() {
+        inFlight.clear();
+        dispatchOrder.clear();
+        notifyAll();
+        slots.drainPermits();
+        slots.release(size);
+    }
+
+    private void release(PendingUplink pending) {
+        if (inFlight.remove(pending.uplinkMsg.getUplinkMsgId(), pending)) {
+            synchronized (this) {
+                pending.acked = true;
+                notifyAll();
+            }
+            slots.release();
+        }
+    }
+
+    private static class PendingUplink {
+        private final CloudEvent cloudEvent;
+        private final UplinkMsg uplinkMsg;
+        private volatile long sentTs;
+        private volatile boolean failed;
+        private volatile boolean acked;
+        private int attempt = 1;
+
+        private PendingUplink(CloudEvent cloudEvent, UplinkMsg uplinkMsg) {
+            this.cloudEvent = cloudEvent;
+            this.uplinkMsg = uplinkMsg;
+        }
+    }
+}
@@ -17,9 +17,13 @@ package org.thingsboard.server.service.cloud;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.edge.EdgeSettings;
@@ -28,31 +32,8 @@ import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.dao.cloud.CloudEventService;
-import org.thingsboard.server.gen.edge.v1.AdminSettingsUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.AlarmUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.AssetProfileUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.AssetUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.CustomerUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.DashboardUpdateMsg;
 import org.thingsboard.server.gen.edge.v1.DeviceCredentialsRequestMsg;
-import org.thingsboard.server.gen.edge.v1.DeviceCredentialsUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.DeviceProfileUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.DeviceRpcCallMsg;
-import org.thingsboard.server.gen.edge.v1.DeviceUpdateMsg;
 import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
-import org.thingsboard.server.gen.edge.v1.EntityDataProto;
-import org.thingsboard.server.gen.edge.v1.EntityViewUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.OtaPackageUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.QueueUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.RelationUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.RuleChainMetadataUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.RuleChainUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.TenantProfileUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.TenantUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.UserCredentialsUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.UserUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.WidgetTypeUpdateMsg;
-import org.thingsboard.server.gen.edge.v1.WidgetsBundleUpdateMsg;
 import org.thingsboard.server.service.cloud.rpc.processor.AdminSettingsCloudProcessor;
 import org.thingsboard.server.service.cloud.rpc.processor.AlarmCloudProcessor;
 import org.thingsboard.server.service.cloud.rpc.processor.AssetCloudProcessor;
@@ -75,9 +56,11 @@ import org.thingsboard.server.service.cloud.rpc.processor.WidgetBundleCloudProce
 import org.thingsboard.server.service.cloud.rpc.processor.WidgetTypeCloudProcessor;
 import org.thingsboard.server.service.executors.DbCallbackExecutorService;
 
-import java.util.ArrayList;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -153,158 +136,132 @@ public class DefaultDownlinkMessageService implements DownlinkMessageService {
     @Autowired
     private DbCallbackExecutorService dbCallbackExecutorService;
 
+    @Value("${cloud.rpc.downlink_apply_threads:1}")
+    private int downlinkApplyThreads;
+
+    private ListeningExecutorService downlinkApplyExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (downlinkApplyThreads > 1) {
+            downlinkApplyExecutor = MoreExecutors.listeningDecorator(
+                    Executors.newFixedThreadPool(downlinkApplyThreads, ThingsBoardThreadFactory.forName("downlink-apply")));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (downlinkApplyExecutor != null) {
+            downlinkApplyExecutor.shutdownNow();
+        }
+    }
+
     public ListenableFuture<List<Void>> processDownlinkMsg(TenantId tenantId,
                                                            CustomerId edgeCustomerId,
                                                            DownlinkMsg downlinkMsg,
                                                            EdgeSettings currentEdgeSettings,
                                                            Long queueStartTs) {
-        List<ListenableFuture<Void>> result = new ArrayList<>();
         try {
             log.debug("[{}] Starting process DownlinkMsg. edgeCustomerId [{}], downlinkMsgId [{}],",
                     tenantId, edgeCustomerId, downlinkMsg.getDownlinkMsgId());
             log.trace("DownlinkMsg Body {}", downlinkMsg);
+            DownlinkApplyPlan plan = new DownlinkApplyPlan();
             if (downlinkMsg.hasSyncCompletedMsg()) {
-                result.add(updateSyncRequiredState(tenantId, edgeCustomerId, currentEdgeSettings, queueStartTs));
+                plan.addStage(() -> updateSyncRequiredState(tenantId, edgeCustomerId, currentEdgeSettings, queueStartTs));
             }
             if (downlinkMsg.hasEdgeConfiguration()) {
-                result.add(edgeCloudProcessor.processEdgeConfigurationMsgFromCloud(tenantId, downlinkMsg.getEdgeConfiguration()));
-            }
-            if (downlinkMsg.getEntityDataCount() > 0) {
-                for (EntityDataProto entityData : downlinkMsg.getEntityDataList()) {
-                    result.addAll(telemetryProcessor.processTelemetryMsg(tenantId, entityData));
-                }
-            }
-            if (downlinkMsg.getDeviceRpcCallMsgCount() > 0) {
-                for (DeviceRpcCallMsg deviceRpcRequestMsg : downlinkMsg.getDeviceRpcCallMsgList()) {
-                    result.add(deviceProcessor.processDeviceRpcCallFromCloud(tenantId, deviceRpcRequestMsg));
-                }
-            }
-            if (downlinkMsg.getDeviceCredentialsRequestMsgCount() > 0) {
-                for (DeviceCredentialsRequestMsg deviceCredentialsRequestMsg : downlinkMsg.getDeviceCredentialsRequestMsgList()) {
-                    result.add(processDeviceCredentialsRequestMsg(tenantId, deviceCredentialsRequestMsg));
-                }
-            }
-            if (downlinkMsg.getDeviceProfileUpdateMsgCount() > 0) {
-                for (DeviceProfileUpdateMsg deviceProfileUpdateMsg : downlinkMsg.getDeviceProfileUpdateMsgList()) {
-                    result.add(deviceProfileProcessor.processDeviceProfileMsgFromCloud(tenantId, deviceProfileUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getDeviceUpdateMsgCount() > 0) {
-                for (DeviceUpdateMsg deviceUpdateMsg : downlinkMsg.getDeviceUpdateMsgList()) {
-                    result.add(deviceProcessor.processDeviceMsgFromCloud(tenantId, edgeCustomerId, deviceUpdateMsg, queueStartTs));
-                }
-            }
-            if (downlinkMsg.getDeviceCredentialsUpdateMsgCount() > 0) {
-                for (DeviceCredentialsUpdateMsg deviceCredentialsUpdateMsg : downlinkMsg.getDeviceCredentialsUpdateMsgList()) {
-                    result.add(deviceProcessor.processDeviceCredentialsMsg(tenantId, deviceCredentialsUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getAssetProfileUpdateMsgCount() > 0) {
-                for (AssetProfileUpdateMsg assetProfileUpdateMsg  : downlinkMsg.getAssetProfileUpdateMsgList()) {
-                    result.add(assetProfileProcessor.processAssetProfileMsgFromCloud(tenantId, assetProfileUpdateMsg, queueStartTs));
-                }
-            }
-            if (downlinkMsg.getAssetUpdateMsgCount() > 0) {
-                for (AssetUpdateMsg assetUpdateMsg : downlinkMsg.getAssetUpdateMsgList()) {
-                    result.add(assetProcessor.processAssetMsgFromCloud(tenantId, edgeCustomerId, assetUpdateMsg, queueStartTs));
-                }
-            }
-            if (downlinkMsg.getEntityViewUpdateMsgCount() > 0) {
-                for (EntityViewUpdateMsg entityViewUpdateMsg : downlinkMsg.getEntityViewUpdateMsgList()) {
-                    result.add(entityViewProcessor.processEntityViewMsgFromCloud(tenantId, edgeCustomerId, entityViewUpdateMsg, queueStartTs));
-                }
-            }
-            if (downlinkMsg.getRuleChainUpdateMsgCount() > 0) {
-                for (RuleChainUpdateMsg ruleChainUpdateMsg : downlinkMsg.getRuleChainUpdateMsgList()) {
-                    result.add(ruleChainProcessor.processRuleChainMsgFromCloud(tenantId, ruleChainUpdateMsg, queueStartTs));
-                }
-            }
-            if (downlinkMsg.getRuleChainMetadataUpdateMsgCount() > 0) {
-                for (RuleChainMetadataUpdateMsg ruleChainMetadataUpdateMsg : downlinkMsg.getRuleChainMetadataUpdateMsgList()) {
-                    result.add(ruleChainProcessor.processRuleChainMetadataMsgFromCloud(tenantId, ruleChainMetadataUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getDashboardUpdateMsgCount() > 0) {
-                for (DashboardUpdateMsg dashboardUpdateMsg : downlinkMsg.getDashboardUpdateMsgList()) {
-                    result.add(dashboardProcessor.processDashboardMsgFromCloud(tenantId, edgeCustomerId, dashboardUpdateMsg, queueStartTs));
-                }
-            }
-            if (downlinkMsg.getAlarmUpdateMsgCount() > 0) {
-                for (AlarmUpdateMsg alarmUpdateMsg : downlinkMsg.getAlarmUpdateMsgList()) {
-                    result.add(alarmProcessor.processAlarmMsg(tenantId, alarmUpdateMsg));
-                }
+                plan.addStage(() -> edgeCloudProcessor.processEdgeConfigurationMsgFromCloud(tenantId, downlinkMsg.getEdgeConfiguration()));
             }
-            if (downlinkMsg.getCustomerUpdateMsgCount() > 0) {
-                for (CustomerUpdateMsg customerUpdateMsg : downlinkMsg.getCustomerUpdateMsgList()) {
-                    sequenceDependencyLock.lock();
-                    try {
-                        result.add(customerProcessor.processCustomerMsgFromCloud(tenantId, customerUpdateMsg, queueStartTs));
-                    } finally {
-                        sequenceDependencyLock.unlock();
-                    }
+            plan.addStage(downlinkMsg.getEntityDataList(),
+                    msg -> new UUID(msg.getEntityIdMSB(), msg.getEntityIdLSB()),
+                    msg -> Futures.transform(Futures.allAsList(telemetryProcessor.processTelemetryMsg(tenantId, msg)),
+                            result -> null, MoreExecutors.directExecutor()));
+            plan.addStage(downlinkMsg.getDeviceRpcCallMsgList(),
+                    msg -> new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB()),
+                    msg -> deviceProcessor.processDeviceRpcCallFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getDeviceCredentialsRequestMsgList(),
+                    msg -> new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB()),
+                    msg -> processDeviceCredentialsRequestMsg(tenantId, msg));
+            plan.addStage(downlinkMsg.getDeviceProfileUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> deviceProfileProcessor.processDeviceProfileMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getDeviceUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> deviceProcessor.processDeviceMsgFromCloud(tenantId, edgeCustomerId, msg, queueStartTs));
+            plan.addStage(downlinkMsg.getDeviceCredentialsUpdateMsgList(),
+                    msg -> new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB()),
+                    msg -> deviceProcessor.processDeviceCredentialsMsg(tenantId, msg));
+            plan.addStage(downlinkMsg.getAssetProfileUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> assetProfileProcessor.processAssetProfileMsgFromCloud(tenantId, msg, queueStartTs));
+            plan.addStage(downlinkMsg.getAssetUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> assetProcessor.processAssetMsgFromCloud(tenantId, edgeCustomerId, msg, queueStartTs));
+            plan.addStage(downlinkMsg.getEntityViewUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> entityViewProcessor.processEntityViewMsgFromCloud(tenantId, edgeCustomerId, msg, queueStartTs));
+            plan.addStage(downlinkMsg.getRuleChainUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> ruleChainProcessor.processRuleChainMsgFromCloud(tenantId, msg, queueStartTs));
+            plan.addStage(downlinkMsg.getRuleChainMetadataUpdateMsgList(),
+                    msg -> new UUID(msg.getRuleChainIdMSB(), msg.getRuleChainIdLSB()),
+                    msg -> ruleChainProcessor.processRuleChainMetadataMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getDashboardUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> dashboardProcessor.processDashboardMsgFromCloud(tenantId, edgeCustomerId, msg, queueStartTs));
+            plan.addStage(downlinkMsg.getAlarmUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> alarmProcessor.processAlarmMsg(tenantId, msg));
+            // customers and users are applied sequentially, as they update customer of the edge and its users
+            plan.addSequentialStage(downlinkMsg.getCustomerUpdateMsgList(), msg -> {
+                sequenceDependencyLock.lock();
+                try {
+                    return customerProcessor.processCustomerMsgFromCloud(tenantId, msg, queueStartTs);
+                } finally {
+                    sequenceDependencyLock.unlock();
                 }
-            }
-            if (downlinkMsg.getRelationUpdateMsgCount() > 0) {
-                for (RelationUpdateMsg relationUpdateMsg : downlinkMsg.getRelationUpdateMsgList()) {
-                    result.add(relationProcessor.processRelationMsg(tenantId, relationUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getWidgetsBundleUpdateMsgCount() > 0) {
-                for (WidgetsBundleUpdateMsg widgetsBundleUpdateMsg : downlinkMsg.getWidgetsBundleUpdateMsgList()) {
-                    result.add(widgetsBundleProcessor.processWidgetsBundleMsgFromCloud(tenantId, widgetsBundleUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getWidgetTypeUpdateMsgCount() > 0) {
-                for (WidgetTypeUpdateMsg widgetTypeUpdateMsg : downlinkMsg.getWidgetTypeUpdateMsgList()) {
-                    result.add(widgetTypeProcessor.processWidgetTypeMsgFromCloud(tenantId, widgetTypeUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getUserUpdateMsgCount() > 0) {
-                for (UserUpdateMsg userUpdateMsg : downlinkMsg.getUserUpdateMsgList()) {
-                    sequenceDependencyLock.lock();
-                    try {
-                        result.add(userProcessor.processUserMsgFromCloud(tenantId, edgeCustomerId, userUpdateMsg, queueStartTs));
-                    } finally {
-                        sequenceDependencyLock.unlock();
-                    }
+            });
+            plan.addStage(downlinkMsg.getRelationUpdateMsgList(),
+                    msg -> new UUID(msg.getFromIdMSB(), msg.getFromIdLSB()),
+                    msg -> relationProcessor.processRelationMsg(tenantId, msg));
+            plan.addStage(downlinkMsg.getWidgetsBundleUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> widgetsBundleProcessor.processWidgetsBundleMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getWidgetTypeUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> widgetTypeProcessor.processWidgetTypeMsgFromCloud(tenantId, msg));
+            plan.addSequentialStage(downlinkMsg.getUserUpdateMsgList(), msg -> {
+                sequenceDependencyLock.lock();
+                try {
+                    return userProcessor.processUserMsgFromCloud(tenantId, edgeCustomerId, msg, queueStartTs);
+                } finally {
+                    sequenceDependencyLock.unlock();
                 }
-            }
-            if (downlinkMsg.getUserCredentialsUpdateMsgCount() > 0) {
-                for (UserCredentialsUpdateMsg userCredentialsUpdateMsg : downlinkMsg.getUserCredentialsUpdateMsgList()) {
-                    result.add(userProcessor.processUserCredentialsMsgFromCloud(tenantId, userCredentialsUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getAdminSettingsUpdateMsgCount() > 0) {
-                for (AdminSettingsUpdateMsg adminSettingsUpdateMsg : downlinkMsg.getAdminSettingsUpdateMsgList()) {
-                    result.add(adminSettingsProcessor.processAdminSettingsMsgFromCloud(tenantId, adminSettingsUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getOtaPackageUpdateMsgCount() > 0) {
-                for (OtaPackageUpdateMsg otaPackageUpdateMsg : downlinkMsg.getOtaPackageUpdateMsgList()) {
-                    result.add(otaPackageProcessor.processOtaPackageMsgFromCloud(tenantId, otaPackageUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getQueueUpdateMsgCount() > 0) {
-                for (QueueUpdateMsg queueUpdateMsg : downlinkMsg.getQueueUpdateMsgList()) {
-                    result.add(queueCloudProcessor.processQueueMsgFromCloud(tenantId, queueUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getTenantProfileUpdateMsgCount() > 0) {
-                for (TenantProfileUpdateMsg tenantProfileUpdateMsg : downlinkMsg.getTenantProfileUpdateMsgList()) {
-                    result.add(tenantProfileCloudProcessor.processTenantProfileMsgFromCloud(tenantId, tenantProfileUpdateMsg));
-                }
-            }
-            if (downlinkMsg.getTenantUpdateMsgCount() > 0) {
-                for (TenantUpdateMsg tenantUpdateMsg : downlinkMsg.getTenantUpdateMsgList()) {
-                    result.add(tenantCloudProcessor.processTenantMsgFromCloud(tenantUpdateMsg));
-                }
-            }
+            });
+            plan.addStage(downlinkMsg.getUserCredentialsUpdateMsgList(),
+                    msg -> new UUID(msg.getUserIdMSB(), msg.getUserIdLSB()),
+                    msg -> userProcessor.processUserCredentialsMsgFromCloud(tenantId, msg));
+            plan.addSequentialStage(downlinkMsg.getAdminSettingsUpdateMsgList(),
+                    msg -> adminSettingsProcessor.processAdminSettingsMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getOtaPackageUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> otaPackageProcessor.processOtaPackageMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getQueueUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> queueCloudProcessor.processQueueMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getTenantProfileUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> tenantProfileCloudProcessor.processTenantProfileMsgFromCloud(tenantId, msg));
+            plan.addStage(downlinkMsg.getTenantUpdateMsgList(),
+                    msg -> new UUID(msg.getIdMSB(), msg.getIdLSB()),
+                    msg -> tenantCloudProcessor.processTenantMsgFromCloud(msg));
+            ListenableFuture<List<Void>> result = downlinkApplyExecutor != null ? plan.apply(downlinkApplyExecutor) : plan.apply();
             log.trace("Finished processing DownlinkMsg {}", downlinkMsg.getDownlinkMsgId());
+            return result;
         } catch (Exception e) {
             log.error("Can't process downlink message [{}]", downlinkMsg, e);
             return Futures.immediateFailedFuture(new RuntimeException("Can't process downlink message", e));
         }
-        return Futures.allAsList(result);
     }
 
     private ListenableFuture<Void> updateSyncRequiredState(TenantId tenantId, CustomerId customerId, EdgeSettings currentEdgeSettings, Long queueStartTs) {
@@ -0,0 +1,178 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Updates of the downlink message grouped into stages. Stages are applied in the order they were added,
+ * that reflects dependencies between entities: profiles before devices, rule chains before their metadata,
+ * entities before relations, etc.
+ * <p>
+ * Updates of the same stage that belong to different entities are independent and may be applied concurrently,
+ * while updates of the same entity are applied in the order they were received.
+ * <p>
+ * Failed update doesn't prevent the rest of the updates from being applied, same as when all updates were started
+ * at once. Result fails once all stages are completed and reports every collected failure.
+ */
+public class DownlinkApplyPlan {
+
+    private final List<List<DownlinkTask>> stages = new ArrayList<>();
+
+    /**
+     * Adds stage of updates that are applied concurrently, if they belong to different entities.
+     *
+     * @param keyFunction returns id of the entity of the update, updates with null id are applied sequentially
+     */
+    public <T> void addStage(List<T> msgs, Function<T, UUID> keyFunction, Function<T, ListenableFuture<Void>> processFunction) {
+        if (msgs.isEmpty()) {
+            return;
+        }
+        List<DownlinkTask> stage = new ArrayList<>(msgs.size());
+        for (T msg : msgs) {
+            stage.add(new DownlinkTask(keyFunction.apply(msg), () -> processFunction.apply(msg)));
+        }
+        stages.add(stage);
+    }
+
+    /**
+     * Adds stage of updates that are applied sequentially.
+     */
+    public <T> void addSequentialStage(List<T> msgs, Function<T, ListenableFuture<Void>> processFunction) {
+        addStage(msgs, msg -> null, processFunction);
+    }
+
+    public void addStage(Supplier<ListenableFuture<Void>> processFunction) {
+        stages.add(Collections.singletonList(new DownlinkTask(null, processFunction)));
+    }
+
+    /**
+     * Applies all updates one by one in the calling thread.
+     */
+    public ListenableFuture<List<Void>> apply() {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (List<DownlinkTask> stage : stages) {
+            for (DownlinkTask task : stage) {
+                futures.add(task.start());
+            }
+        }
+        return Futures.transformAsync(whenAllComplete(futures, failures), result -> toResult(result, failures), MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Applies stages one after another. Next stage is started once all updates of the previous one are completed,
+     * even if some of them failed.
+     */
+    public ListenableFuture<List<Void>> apply(ListeningExecutorService executor) {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ListenableFuture<List<Void>> result = Futures.immediateFuture(Collections.emptyList());
+        for (List<DownlinkTask> stage : stages) {
+            result = Futures.transformAsync(result, previous -> applyStage(stage, executor, failures, previous), MoreExecutors.directExecutor());
+        }
+        return Futures.transformAsync(result, applied -> toResult(applied, failures), MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<List<Void>> applyStage(List<DownlinkTask> stage, ListeningExecutorService executor,
+                                                    Queue<Throwable> failures, List<Void> previous) {
+        Map<UUID, List<DownlinkTask>> tasksByKey = new LinkedHashMap<>();
+        for (DownlinkTask task : stage) {
+            tasksByKey.computeIfAbsent(task.key, key -> new ArrayList<>()).add(task);
+        }
+        List<ListenableFuture<List<Void>>> futures = new ArrayList<>(tasksByKey.size());
+        for (List<DownlinkTask> tasks : tasksByKey.values()) {
+            futures.add(Futures.submitAsync(() -> {
+                List<ListenableFuture<Void>> result = new ArrayList<>(tasks.size());
+                for (DownlinkTask task : tasks) {
+                    result.add(task.start());
+                }
+                return whenAllComplete(result, failures);
+            }, executor));
+        }
+        return Futures.transform(whenAllComplete(futures, failures), results -> {
+            List<Void> result = new ArrayList<>(previous);
+            results.forEach(result::addAll);
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * @return results of the successful futures once all of them are completed, failures are added to the provided queue
+     */
+    private static <T> ListenableFuture<List<T>> whenAllComplete(List<ListenableFuture<T>> futures, Queue<Throwable> failures) {
+        return Futures.whenAllComplete(futures).call(() -> {
+            List<T> result = new ArrayList<>(futures.size());
+            for (ListenableFuture<T> future : futures) {
+                try {
+                    result.add(Futures.getDone(future));
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (CancellationException e) {
+                    failures.add(e);
+                }
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static ListenableFuture<List<Void>> toResult(List<Void> result, Queue<Throwable> failures) {
+        if (failures.isEmpty()) {
+            return Futures.immediateFuture(result);
+        }
+        Throwable first = failures.poll();
+        RuntimeException e = new RuntimeException("Failed to apply " + (failures.size() + 1) + " downlink update(s): " + first.getMessage(), first);
+        failures.forEach(e::addSuppressed);
+        return Futures.immediateFailedFuture(e);
+    }
+
+    int getStagesCount() {
+        return stages.size();
+    }
+
+    private static class DownlinkTask {
+        private final UUID key;
+        private final Supplier<ListenableFuture<Void>> process;
+
+        private DownlinkTask(UUID key, Supplier<ListenableFuture<Void>> process) {
+            this.key = key;
+            this.process = process;
+        }
+
+        private ListenableFuture<Void> start() {
+            try {
+                return process.get();
+            } catch (Exception e) {
+                return Futures.immediateFailedFuture(e);
+            }
+        }
+    }
+}
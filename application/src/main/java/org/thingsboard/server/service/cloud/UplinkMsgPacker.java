@@ -0,0 +1,233 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import com.google.protobuf.Descriptors;
+import org.thingsboard.server.common.data.EdgeUtils;
+import org.thingsboard.server.gen.edge.v1.AttributeDeleteMsg;
+import org.thingsboard.server.gen.edge.v1.EntityDataProto;
+import org.thingsboard.server.gen.edge.v1.UplinkMsg;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Groups small uplink messages into a single envelope and splits oversized uplink messages into smaller ones.
+ * <p>
+ * Cloud processes every entry of the repeated fields of the {@link UplinkMsg}, so the envelope is acknowledged
+ * by a single {@link org.thingsboard.server.gen.edge.v1.UplinkResponseMsg}. Size of the envelope is limited by
+ * the server max inbound message size that is received on connect.
+ * <p>
+ * Cloud processes the repeated fields one after another, so only the messages with entries of the same field are
+ * packed together. Envelope is flushed once the field changes, e.g. device update followed by the device telemetry
+ * are sent in separate envelopes and can't be reordered.
+ */
+public class UplinkMsgPacker {
+
+    private final int maxPackSize;
+    private final int maxMsgsPerPack;
+
+    private final List<UplinkMsg> msgs = new ArrayList<>();
+    private int packSize;
+    private Descriptors.FieldDescriptor packField;
+
+    /**
+     * @param maxPackSize    max serialized size of the envelope, 0 means that size is not limited
+     * @param maxMsgsPerPack max number of uplink messages in the envelope
+     */
+    public UplinkMsgPacker(int maxPackSize, int maxMsgsPerPack) {
+        this.maxPackSize = maxPackSize;
+        this.maxMsgsPerPack = Math.max(1, maxMsgsPerPack);
+    }
+
+    public boolean isEmpty() {
+        return msgs.isEmpty();
+    }
+
+    /**
+     * @return true if message can be added to the current envelope, empty envelope accepts any message
+     */
+    public boolean fits(UplinkMsg uplinkMsg) {
+        if (msgs.isEmpty()) {
+            return true;
+        }
+        if (msgs.size() >= maxMsgsPerPack) {
+            return false;
+        }
+        Descriptors.FieldDescriptor field = getPackField(uplinkMsg);
+        if (field == null || !field.equals(packField)) {
+            return false;
+        }
+        return maxPackSize <= 0 || packSize + uplinkMsg.getSerializedSize() <= maxPackSize;
+    }
+
+    public void add(UplinkMsg uplinkMsg) {
+        if (msgs.isEmpty()) {
+            packField = getPackField(uplinkMsg);
+        }
+        msgs.add(uplinkMsg);
+        packSize += uplinkMsg.getSerializedSize();
+    }
+
+    /**
+     * @return envelope with all added messages or null if nothing was added. Single message is returned as is
+     */
+    public UplinkMsg flush() {
+        if (msgs.isEmpty()) {
+            return null;
+        }
+        UplinkMsg result;
+        if (msgs.size() == 1) {
+            result = msgs.get(0);
+        } else {
+            UplinkMsg.Builder builder = UplinkMsg.newBuilder();
+            for (UplinkMsg uplinkMsg : msgs) {
+                builder.mergeFrom(uplinkMsg);
+            }
+            result = builder.setUplinkMsgId(EdgeUtils.nextPositiveInt()).build();
+        }
+        msgs.clear();
+        packSize = 0;
+        packField = null;
+        return result;
+    }
+
+    /**
+     * @return the only repeated field that is set in the message or null if message has entries of several fields
+     */
+    private static Descriptors.FieldDescriptor getPackField(UplinkMsg uplinkMsg) {
+        Descriptors.FieldDescriptor result = null;
+        for (Descriptors.FieldDescriptor field : uplinkMsg.getAllFields().keySet()) {
+            if (field.isRepeated()) {
+                if (result != null) {
+                    return null;
+                }
+                result = field;
+            }
+        }
+        return result;
+    }
+
+    public static List<UplinkMsg> pack(List<UplinkMsg> uplinkMsgs, int maxPackSize, int maxMsgsPerPack) {
+        UplinkMsgPacker packer = new UplinkMsgPacker(maxPackSize, maxMsgsPerPack);
+        List<UplinkMsg> result = new ArrayList<>();
+        for (UplinkMsg uplinkMsg : uplinkMsgs) {
+            if (!packer.fits(uplinkMsg)) {
+                result.add(packer.flush());
+            }
+            packer.add(uplinkMsg);
+        }
+        if (!packer.isEmpty()) {
+            result.add(packer.flush());
+        }
+        return result;
+    }
+
+    /**
+     * Splits uplink message that exceeds the max size: every entry of the repeated fields is sent as a separate message,
+     * telemetry and attributes of the single entity are divided into several messages.
+     * Entities that can't be divided (e.g. a huge dashboard) are returned as is.
+     */
+    public static List<UplinkMsg> split(UplinkMsg uplinkMsg, int maxSize) {
+        if (maxSize <= 0 || uplinkMsg.getSerializedSize() <= maxSize) {
+            return Collections.singletonList(uplinkMsg);
+        }
+        List<UplinkMsg> parts = splitByEntries(uplinkMsg);
+        if (parts.size() == 1 && uplinkMsg.getEntityDataCount() == 1) {
+            parts = new ArrayList<>();
+            for (EntityDataProto entityData : splitEntityData(uplinkMsg.getEntityData(0))) {
+                parts.add(UplinkMsg.newBuilder().setUplinkMsgId(EdgeUtils.nextPositiveInt()).addEntityData(entityData).build());
+            }
+        }
+        if (parts.size() == 1) {
+            return Collections.singletonList(uplinkMsg);
+        }
+        List<UplinkMsg> result = new ArrayList<>();
+        for (UplinkMsg part : parts) {
+            result.addAll(split(part, maxSize));
+        }
+        return result;
+    }
+
+    private static List<UplinkMsg> splitByEntries(UplinkMsg uplinkMsg) {
+        List<UplinkMsg> result = new ArrayList<>();
+        for (Descriptors.FieldDescriptor field : UplinkMsg.getDescriptor().getFields()) {
+            if (field.isRepeated()) {
+                int count = uplinkMsg.getRepeatedFieldCount(field);
+                for (int i = 0; i < count; i++) {
+                    result.add(UplinkMsg.newBuilder()
+                            .setUplinkMsgId(EdgeUtils.nextPositiveInt())
+                            .addRepeatedField(field, uplinkMsg.getRepeatedField(field, i))
+                            .build());
+                }
+            }
+        }
+        return result.size() > 1 ? result : Collections.singletonList(uplinkMsg);
+    }
+
+    private static List<EntityDataProto> splitEntityData(EntityDataProto entityData) {
+        List<EntityDataProto> result = new ArrayList<>();
+        if (entityData.hasPostTelemetryMsg()) {
+            TransportProtos.PostTelemetryMsg telemetryMsg = entityData.getPostTelemetryMsg();
+            if (telemetryMsg.getTsKvListCount() > 1) {
+                for (List<TransportProtos.TsKvListProto> half : halves(telemetryMsg.getTsKvListList())) {
+                    result.add(entityData.toBuilder()
+                            .setPostTelemetryMsg(TransportProtos.PostTelemetryMsg.newBuilder().addAllTsKvList(half)).build());
+                }
+            } else if (telemetryMsg.getTsKvListCount() == 1 && telemetryMsg.getTsKvList(0).getKvCount() > 1) {
+                TransportProtos.TsKvListProto tsKvList = telemetryMsg.getTsKvList(0);
+                for (List<TransportProtos.KeyValueProto> half : halves(tsKvList.getKvList())) {
+                    result.add(entityData.toBuilder()
+                            .setPostTelemetryMsg(TransportProtos.PostTelemetryMsg.newBuilder()
+                                    .addTsKvList(TransportProtos.TsKvListProto.newBuilder().setTs(tsKvList.getTs()).addAllKv(half))).build());
+                }
+            }
+        } else if (entityData.hasPostAttributesMsg() && entityData.getPostAttributesMsg().getKvCount() > 1) {
+            for (TransportProtos.PostAttributeMsg half : halves(entityData.getPostAttributesMsg())) {
+                result.add(entityData.toBuilder().setPostAttributesMsg(half).build());
+            }
+        } else if (entityData.hasAttributesUpdatedMsg() && entityData.getAttributesUpdatedMsg().getKvCount() > 1) {
+            for (TransportProtos.PostAttributeMsg half : halves(entityData.getAttributesUpdatedMsg())) {
+                result.add(entityData.toBuilder().setAttributesUpdatedMsg(half).build());
+            }
+        } else if (entityData.hasAttributeDeleteMsg() && entityData.getAttributeDeleteMsg().getAttributeNamesCount() > 1) {
+            AttributeDeleteMsg deleteMsg = entityData.getAttributeDeleteMsg();
+            for (List<String> half : halves(deleteMsg.getAttributeNamesList())) {
+                result.add(entityData.toBuilder()
+                        .setAttributeDeleteMsg(AttributeDeleteMsg.newBuilder().setScope(deleteMsg.getScope()).addAllAttributeNames(half)).build());
+            }
+        }
+        return result.isEmpty() ? Collections.singletonList(entityData) : result;
+    }
+
+    private static List<TransportProtos.PostAttributeMsg> halves(TransportProtos.PostAttributeMsg attributeMsg) {
+        List<TransportProtos.PostAttributeMsg> result = new ArrayList<>();
+        for (List<TransportProtos.KeyValueProto> half : halves(attributeMsg.getKvList())) {
+            result.add(TransportProtos.PostAttributeMsg.newBuilder().setShared(attributeMsg.getShared()).addAllKv(half).build());
+        }
+        return result;
+    }
+
+    private static <T> List<List<T>> halves(List<T> list) {
+        int middle = list.size() / 2;
+        List<List<T>> result = new ArrayList<>();
+        result.add(list.subList(0, middle));
+        result.add(list.subList(middle, list.size()));
+        return result;
+    }
+}
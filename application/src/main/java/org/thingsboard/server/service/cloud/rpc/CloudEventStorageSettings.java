@@ -19,6 +19,7 @@ package org.thingsboard.server.service.cloud.rpc;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 
 @Component
 @Data
@@ -29,4 +30,54 @@ public class CloudEventStorageSettings {
     private long noRecordsSleepInterval;
     @Value("${cloud.rpc.storage.sleep_between_batches}")
     private long sleepIntervalBetweenBatches;
+    @Value("${cloud.rpc.storage.fallback_poll_interval:1000}")
+    private long fallbackPollInterval;
+    @Value("${cloud.rpc.storage.coalesce_events:true}")
+    private boolean coalesceEvents;
+    @Value("${cloud.rpc.uplink_window.enabled:false}")
+    private boolean uplinkWindowEnabled;
+    @Value("${cloud.rpc.uplink_window.size:100}")
+    private int uplinkWindowSize;
+    @Value("${cloud.rpc.uplink_window.ack_timeout:10000}")
+    private long uplinkAckTimeoutMs;
+    @Value("${cloud.rpc.uplink_pack.enabled:false}")
+    private boolean uplinkPackEnabled;
+    @Value("${cloud.rpc.uplink_pack.max_msgs:100}")
+    private int uplinkPackMaxMsgs;
+    @Value("${cloud.rpc.lanes.enabled:false}")
+    private boolean lanesEnabled;
+    @Value("${cloud.rpc.lanes.control.max_read_records_count:50}")
+    private int controlLaneMaxReadRecordsCount;
+    @Value("${cloud.rpc.lanes.control.weight:4}")
+    private int controlLaneWeight;
+    @Value("${cloud.rpc.lanes.alarm.max_read_records_count:50}")
+    private int alarmLaneMaxReadRecordsCount;
+    @Value("${cloud.rpc.lanes.alarm.weight:2}")
+    private int alarmLaneWeight;
+    @Value("${cloud.rpc.lanes.telemetry.max_read_records_count:100}")
+    private int telemetryLaneMaxReadRecordsCount;
+    @Value("${cloud.rpc.lanes.telemetry.weight:1}")
+    private int telemetryLaneWeight;
+
+    public int getLaneMaxReadRecordsCount(CloudEventLane lane) {
+        switch (lane) {
+            case CONTROL:
+                return controlLaneMaxReadRecordsCount;
+            case ALARM:
+                return alarmLaneMaxReadRecordsCount;
+            default:
+                return telemetryLaneMaxReadRecordsCount;
+        }
+    }
+
+    public int getLaneWeight(CloudEventLane lane) {
+        switch (lane) {
+            case CONTROL:
+                return controlLaneWeight;
+            case ALARM:
+                return alarmLaneWeight;
+            default:
+                return telemetryLaneWeight;
+        }
+    }
 }
@@ -56,7 +56,7 @@ public class EntityDataMsgConstructor {
                     } else {
                         ts = System.currentTimeMillis();
                     }
-                    builder.setPostTelemetryMsg(JsonConverter.convertToTelemetryProto(data.getAsJsonObject("data"), ts));
+                    builder.setPostTelemetryMsg(JsonConverter.convertToTelemetryProto(data.get("data"), ts));
                 } catch (Exception e) {
                     log.warn("[{}][{}] Can't convert to telemetry proto, entityData [{}]", tenantId, entityId, entityData, e);
                 }
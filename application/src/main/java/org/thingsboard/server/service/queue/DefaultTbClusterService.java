@@ -23,6 +23,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.thingsboard.rule.engine.api.msg.DeviceEdgeUpdateMsg;
 import org.thingsboard.rule.engine.api.msg.DeviceNameOrTypeUpdateMsg;
 import org.thingsboard.server.cluster.TbClusterService;
@@ -37,6 +38,7 @@ import org.thingsboard.server.common.data.HasRuleEngineProfile;
 import org.thingsboard.server.common.data.TbResource;
 import org.thingsboard.server.common.data.Tenant;
 import org.thingsboard.server.common.data.TenantProfile;
+import org.thingsboard.server.common.data.audit.ActionType;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.edge.EdgeEventType;
@@ -59,6 +61,7 @@ import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.msg.rpc.FromDeviceRpcResponse;
+import org.thingsboard.server.dao.eventsourcing.ActionEntityEvent;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.FromDeviceRPCResponseProto;
 import org.thingsboard.server.gen.transport.TransportProtos.ToCoreMsg;
@@ -302,6 +305,28 @@ public class DefaultTbClusterService implements TbClusterService {
         broadcastEntityStateChangeEvent(device.getTenantId(), device.getId(), ComponentLifecycleEvent.DELETED);
     }
 
+    @Override
+    public void onDeviceCredentialsChange(TenantId tenantId, DeviceId deviceId, TbQueueCallback callback) {
+        log.trace("[{}][{}] Processing device credentials change", tenantId, deviceId);
+        TransportProtos.DeviceCredentialsChangeMsg deviceCredentialsChangeMsg = TransportProtos.DeviceCredentialsChangeMsg.newBuilder()
+                .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits())
+                .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                .build();
+        ToTransportMsg transportMsg = ToTransportMsg.newBuilder().setDeviceCredentialsChangeMsg(deviceCredentialsChangeMsg).build();
+        broadcast(transportMsg, callback);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(ActionEntityEvent event) {
+        // Transports cache the validated credentials, so they should forget the old ones of the device.
+        if (ActionType.CREDENTIALS_UPDATED.equals(event.getActionType()) && event.getEntityId() != null
+                && EntityType.DEVICE.equals(event.getEntityId().getEntityType())) {
+            onDeviceCredentialsChange(event.getTenantId(), new DeviceId(event.getEntityId().getId()), null);
+        }
+    }
+
     @Override
     public void onResourceChange(TbResource resource, TbQueueCallback callback) {
         TenantId tenantId = resource.getTenantId();
@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule.store;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.rule.engine.api.store.InMemoryTbMsgStore;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.dao.rule.RuleChainService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultTbMsgStoreService implements TbMsgStoreService {
+
+    private static final String FILE_STORE_TYPE = "file";
+
+    private final RuleChainService ruleChainService;
+
+    @Value("${actors.rule.msg_store.type:memory}")
+    private String type;
+
+    @Value("${actors.rule.msg_store.dir:data/rule_node_msgs}")
+    private String dir;
+
+    @Value("${actors.rule.msg_store.memory_budget:67108864}")
+    private long memoryBudget;
+
+    private final ConcurrentMap<RuleNodeId, TbMsgStore> stores = new ConcurrentHashMap<>();
+    private final AtomicLong usedMemory = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (isFileStore()) {
+            Files.createDirectories(Paths.get(dir));
+            removeStoresOfDeletedRuleNodes();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stores.values().forEach(store -> {
+            if (store instanceof FileTbMsgStore) {
+                ((FileTbMsgStore) store).close();
+            }
+        });
+        stores.clear();
+    }
+
+    @Override
+    public TbMsgStore getStore(RuleNodeId ruleNodeId) {
+        return stores.computeIfAbsent(ruleNodeId, this::createStore);
+    }
+
+    @Override
+    public void closeStore(RuleNodeId ruleNodeId) {
+        TbMsgStore store = stores.remove(ruleNodeId);
+        if (store instanceof FileTbMsgStore) {
+            ((FileTbMsgStore) store).close();
+        }
+    }
+
+    @Override
+    public void deleteStore(RuleNodeId ruleNodeId) {
+        TbMsgStore store = stores.remove(ruleNodeId);
+        try {
+            if (store instanceof FileTbMsgStore) {
+                ((FileTbMsgStore) store).delete();
+            } else if (isFileStore()) {
+                // store is already closed by the stop of the rule node
+                deleteStoreDir(Paths.get(dir, ruleNodeId.getId().toString()));
+            }
+        } catch (IOException e) {
+            log.warn("[{}] Failed to delete message store", ruleNodeId, e);
+        }
+    }
+
+    private TbMsgStore createStore(RuleNodeId ruleNodeId) {
+        if (isFileStore()) {
+            try {
+                return FileTbMsgStore.open(Paths.get(dir, ruleNodeId.getId().toString()), usedMemory, memoryBudget);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open message store of the rule node " + ruleNodeId, e);
+            }
+        } else {
+            return new InMemoryTbMsgStore();
+        }
+    }
+
+    private void removeStoresOfDeletedRuleNodes() throws IOException {
+        List<Path> storeDirs;
+        try (Stream<Path> paths = Files.list(Paths.get(dir))) {
+            storeDirs = paths.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path storeDir : storeDirs) {
+            RuleNodeId ruleNodeId;
+            try {
+                ruleNodeId = new RuleNodeId(UUID.fromString(storeDir.getFileName().toString()));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (ruleChainService.findRuleNodeById(TenantId.SYS_TENANT_ID, ruleNodeId) == null) {
+                log.info("[{}] Removing message store of the deleted rule node", ruleNodeId);
+                deleteStoreDir(storeDir);
+            }
+        }
+    }
+
+    private void deleteStoreDir(Path storeDir) throws IOException {
+        if (!Files.isDirectory(storeDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(storeDir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(storeDir);
+    }
+
+    private boolean isFileStore() {
+        return FILE_STORE_TYPE.equalsIgnoreCase(type);
+    }
+
+}
@@ -0,0 +1,385 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Message store that is backed by the append-only log file.
+ * <p>
+ * Every put and remove is appended to the log as a record: [int length][int crc][byte op][key][queue name][msg].
+ * Only the index of the record offsets is kept in heap, while messages are cached in memory as long as the shared
+ * memory budget allows it, otherwise they are read from the log on demand. On open, the log is replayed to restore
+ * the index and the torn tail is truncated. Log is compacted once the removed records take more than a half of it.
+ * Log is not synced on every write, so messages survive restart of the process, but may be lost on power failure.
+ */
+@Slf4j
+public class FileTbMsgStore implements TbMsgStore {
+
+    static final String LOG_FILE = "msgs.log";
+    private static final String COMPACTED_LOG_FILE = "msgs.log.compacted";
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final Path dir;
+    private final AtomicLong usedMemory;
+    private final long memoryBudget;
+    private final Map<String, List<Entry>> index = new HashMap<>();
+    private FileChannel channel;
+    private long position;
+    private long liveBytes;
+    private int size;
+
+    private FileTbMsgStore(Path dir, AtomicLong usedMemory, long memoryBudget) {
+        this.dir = dir;
+        this.usedMemory = usedMemory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public static FileTbMsgStore open(Path dir, AtomicLong usedMemory, long memoryBudget) throws IOException {
+        Files.createDirectories(dir);
+        FileTbMsgStore store = new FileTbMsgStore(dir, usedMemory, memoryBudget);
+        store.channel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            store.recover();
+        } catch (IOException | RuntimeException e) {
+            store.channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    @Override
+    public synchronized void put(String key, TbMsg msg) {
+        byte[] record = encode(PUT, key, msg.getQueueName(), TbMsg.toByteArray(msg));
+        Entry entry = new Entry(append(record), record.length);
+        cache(entry, msg);
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        liveBytes += record.length;
+        size++;
+    }
+
+    @Override
+    public synchronized List<TbMsg> get(String key) {
+        List<Entry> entries = index.get(key);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        List<TbMsg> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            result.add(load(entry));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<TbMsg> remove(String key) {
+        List<Entry> entries = index.remove(key);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        List<TbMsg> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            result.add(load(entry));
+            uncache(entry);
+            liveBytes -= entry.length;
+        }
+        size -= entries.size();
+        append(encode(REMOVE, key, null, null));
+        compactIfRequired();
+        return result;
+    }
+
+    @Override
+    public synchronized void replace(String key, List<TbMsg> msgs) {
+        if (index.containsKey(key)) {
+            remove(key);
+        }
+        for (TbMsg msg : msgs) {
+            put(key, msg);
+        }
+    }
+
+    @Override
+    public synchronized int size(String key) {
+        List<Entry> entries = index.get(key);
+        return entries != null ? entries.size() : 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized Set<String> getKeys() {
+        return new HashSet<>(index.keySet());
+    }
+
+    @Override
+    public synchronized void clear() {
+        index.values().forEach(entries -> entries.forEach(this::uncache));
+        index.clear();
+        size = 0;
+        liveBytes = 0;
+        try {
+            channel.truncate(0);
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void close() {
+        index.values().forEach(entries -> entries.forEach(this::uncache));
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("[{}] Failed to close message store", dir, e);
+        }
+    }
+
+    public synchronized void delete() throws IOException {
+        close();
+        index.clear();
+        Files.deleteIfExists(dir.resolve(COMPACTED_LOG_FILE));
+        Files.deleteIfExists(dir.resolve(LOG_FILE));
+        Files.deleteIfExists(dir);
+    }
+
+    private void recover() throws IOException {
+        long fileSize = channel.size();
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dir.resolve(LOG_FILE))))) {
+            while (offset + HEADER_SIZE <= fileSize) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length <= 0 || offset + HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (crc(payload) != crc) {
+                    break;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(payload);
+                byte op = buffer.get();
+                String key = readString(buffer);
+                if (op == PUT) {
+                    index.computeIfAbsent(key, k -> new ArrayList<>()).add(new Entry(offset, HEADER_SIZE + length));
+                    liveBytes += HEADER_SIZE + length;
+                    size++;
+                } else {
+                    List<Entry> removed = index.remove(key);
+                    if (removed != null) {
+                        size -= removed.size();
+                        liveBytes -= removed.stream().mapToLong(entry -> entry.length).sum();
+                    }
+                }
+                offset += HEADER_SIZE + length;
+            }
+        } catch (EOFException e) {
+            log.debug("[{}] Reached the end of the message log", dir);
+        }
+        if (offset < fileSize) {
+            log.warn("[{}] Message log is truncated from {} to {} bytes due to incomplete record", dir, fileSize, offset);
+            channel.truncate(offset);
+        }
+        position = offset;
+        if (size > 0) {
+            log.info("[{}] Recovered {} messages of {} keys", dir, size, index.size());
+        }
+    }
+
+    private long append(byte[] record) {
+        long offset = position;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position += record.length;
+        return offset;
+    }
+
+    private TbMsg load(Entry entry) {
+        if (entry.msg != null) {
+            return entry.msg;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of the message log at " + entry.offset);
+                }
+            }
+            buffer.position(HEADER_SIZE + 1);
+            readString(buffer);
+            String queueName = readString(buffer);
+            byte[] msgBytes = new byte[buffer.remaining()];
+            buffer.get(msgBytes);
+            return TbMsg.fromBytes(queueName, msgBytes, TbMsgCallback.EMPTY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void cache(Entry entry, TbMsg msg) {
+        if (usedMemory.addAndGet(entry.length) <= memoryBudget) {
+            entry.msg = msg;
+        } else {
+            usedMemory.addAndGet(-entry.length);
+        }
+    }
+
+    private void uncache(Entry entry) {
+        if (entry.msg != null) {
+            entry.msg = null;
+            usedMemory.addAndGet(-entry.length);
+        }
+    }
+
+    private void compactIfRequired() {
+        if (position < MIN_COMPACTION_SIZE || liveBytes > position / 2) {
+            return;
+        }
+        Path compacted = dir.resolve(COMPACTED_LOG_FILE);
+        long[] newOffsets = new long[size];
+        long offset = 0;
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int i = 0;
+            for (List<Entry> entries : index.values()) {
+                for (Entry entry : entries) {
+                    long transferred = 0;
+                    while (transferred < entry.length) {
+                        transferred += channel.transferTo(entry.offset + transferred, entry.length - transferred, out);
+                    }
+                    newOffsets[i++] = offset;
+                    offset += entry.length;
+                }
+            }
+            out.force(false);
+        } catch (IOException e) {
+            log.warn("[{}] Failed to compact message log", dir, e);
+            return;
+        }
+        try {
+            channel.close();
+            Files.move(compacted, dir.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int i = 0;
+        for (List<Entry> entries : index.values()) {
+            for (Entry entry : entries) {
+                entry.offset = newOffsets[i++];
+            }
+        }
+        log.debug("[{}] Compacted message log from {} to {} bytes", dir, position, offset);
+        position = offset;
+    }
+
+    private static byte[] encode(byte op, String key, String queueName, byte[] msgBytes) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] queueNameBytes = queueName != null ? queueName.getBytes(StandardCharsets.UTF_8) : null;
+        int length = 1 + 4 + keyBytes.length;
+        if (op == PUT) {
+            length += 4 + (queueNameBytes != null ? queueNameBytes.length : 0) + msgBytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.put(op);
+        writeBytes(buffer, keyBytes);
+        if (op == PUT) {
+            writeBytes(buffer, queueNameBytes);
+            buffer.put(msgBytes);
+        }
+        byte[] record = buffer.array();
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, length);
+        buffer.putInt(4, (int) crc.getValue());
+        return record;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        private long offset;
+        private final int length;
+        private TbMsg msg;
+
+        private Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule.store;
+
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+
+public interface TbMsgStoreService {
+
+    TbMsgStore getStore(RuleNodeId ruleNodeId);
+
+    /**
+     * Releases the store of the stopped rule node. Disk based store is reopened once the rule node is started again.
+     */
+    void closeStore(RuleNodeId ruleNodeId);
+
+    void deleteStore(RuleNodeId ruleNodeId);
+
+}
@@ -27,10 +27,15 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.TbMsg;
 
 import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
 
 
 @Slf4j
@@ -65,6 +70,11 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
                 MoreExecutors.directExecutor());
     }
 
+    @Override
+    public List<ListenableFuture<List<TbMsg>>> executeUpdateAsync(List<TbMsg> msgs) {
+        return transformResults(msgs, executeScriptsAsync(msgs), this::executeUpdateTransform);
+    }
+
     protected abstract ListenableFuture<List<TbMsg>> executeUpdateTransform(TbMsg msg, R result);
 
     @Override
@@ -89,6 +99,11 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
                 MoreExecutors.directExecutor());
     }
 
+    @Override
+    public List<ListenableFuture<Boolean>> executeFilterAsync(List<TbMsg> msgs) {
+        return transformResults(msgs, executeScriptsAsync(msgs), (msg, result) -> executeFilterTransform(result));
+    }
+
     protected abstract ListenableFuture<String> executeToStringTransform(R result);
 
     protected abstract ListenableFuture<Boolean> executeFilterTransform(R result);
@@ -102,6 +117,11 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
                 MoreExecutors.directExecutor()); //usually runs in a callbackExecutor
     }
 
+    @Override
+    public List<ListenableFuture<Set<String>>> executeSwitchAsync(List<TbMsg> msgs) {
+        return transformResults(msgs, executeScriptsAsync(msgs), (msg, result) -> executeSwitchTransform(result));
+    }
+
     ListenableFuture<R> executeScriptAsync(TbMsg msg) {
         log.trace("execute script async, msg {}", msg);
         Object[] inArgs = prepareArgs(msg);
@@ -109,7 +129,48 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
     }
 
     ListenableFuture<R> executeScriptAsync(CustomerId customerId, Object... args) {
-        return Futures.transformAsync(scriptInvokeService.invokeScript(tenantId, customerId, this.scriptId, args),
+        return convertResultAsync(scriptInvokeService.invokeScript(tenantId, customerId, this.scriptId, args));
+    }
+
+    List<ListenableFuture<R>> executeScriptsAsync(List<TbMsg> msgs) {
+        log.trace("execute script async, msgs count {}", msgs.size());
+        List<ListenableFuture<R>> results = new ArrayList<>(Collections.nCopies(msgs.size(), null));
+        // api usage is reported per customer, so the messages are invoked in one pack per customer
+        Map<CustomerId, List<Integer>> msgIdxsByCustomer = new HashMap<>();
+        Map<CustomerId, List<Object[]>> argsByCustomer = new HashMap<>();
+        for (int i = 0; i < msgs.size(); i++) {
+            TbMsg msg = msgs.get(i);
+            Object[] inArgs;
+            try {
+                inArgs = prepareArgs(msg);
+            } catch (Exception e) {
+                results.set(i, Futures.immediateFailedFuture(e));
+                continue;
+            }
+            msgIdxsByCustomer.computeIfAbsent(msg.getCustomerId(), id -> new ArrayList<>()).add(i);
+            argsByCustomer.computeIfAbsent(msg.getCustomerId(), id -> new ArrayList<>()).add(inArgs);
+        }
+        msgIdxsByCustomer.forEach((customerId, msgIdxs) -> {
+            List<ListenableFuture<Object>> outputs = scriptInvokeService.invokeScripts(tenantId, customerId, this.scriptId, argsByCustomer.get(customerId));
+            for (int i = 0; i < msgIdxs.size(); i++) {
+                results.set(msgIdxs.get(i), convertResultAsync(outputs.get(i)));
+            }
+        });
+        return results;
+    }
+
+    private <V> List<ListenableFuture<V>> transformResults(List<TbMsg> msgs, List<ListenableFuture<R>> results,
+                                                           BiFunction<TbMsg, R, ListenableFuture<V>> transform) {
+        List<ListenableFuture<V>> transformed = new ArrayList<>(msgs.size());
+        for (int i = 0; i < msgs.size(); i++) {
+            TbMsg msg = msgs.get(i);
+            transformed.add(Futures.transformAsync(results.get(i), result -> transform.apply(msg, result), MoreExecutors.directExecutor()));
+        }
+        return transformed;
+    }
+
+    private ListenableFuture<R> convertResultAsync(ListenableFuture<Object> output) {
+        return Futures.transformAsync(output,
                 o -> {
                     try {
                         return Futures.immediateFuture(convertResult(o));
@@ -123,7 +123,10 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
     @Override
     protected Object[] prepareArgs(TbMsg msg) {
         Object[] args = new Object[3];
-        if (msg.getData() != null) {
+        JsonNode data = msg.getJsonData();
+        if (data != null && !data.isMissingNode()) {
+            args[0] = JacksonUtil.convertValue(data, Object.class);
+        } else if (msg.getData() != null) {
             args[0] = JacksonUtil.fromString(msg.getData(), Object.class);
         } else {
             args[0] = new HashMap<>();
@@ -134,11 +137,14 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
     }
 
     private static TbMsg unbindMsg(Map msgData, TbMsg msg) {
-        String data = null;
+        JsonNode data = null;
         Map<String, String> metadata = null;
         String messageType = null;
         if (msgData.containsKey(RuleNodeScriptFactory.MSG)) {
-            data = JacksonUtil.toString(msgData.get(RuleNodeScriptFactory.MSG));
+            Object msgDataObj = msgData.get(RuleNodeScriptFactory.MSG);
+            if (msgDataObj != null) {
+                data = JacksonUtil.valueToTree(msgDataObj);
+            }
         }
         if (msgData.containsKey(RuleNodeScriptFactory.METADATA)) {
             Object msgMetadataObj = msgData.get(RuleNodeScriptFactory.METADATA);
@@ -153,10 +159,12 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
         if (msgData.containsKey(RuleNodeScriptFactory.MSG_TYPE)) {
             messageType = msgData.get(RuleNodeScriptFactory.MSG_TYPE).toString();
         }
-        String newData = data != null ? data : msg.getData();
         TbMsgMetaData newMetadata = metadata != null ? new TbMsgMetaData(metadata) : msg.getMetaData().copy();
         String newMessageType = !StringUtils.isEmpty(messageType) ? messageType : msg.getType();
-        return TbMsg.transformMsg(msg, newMessageType, msg.getOriginator(), newMetadata, newData);
+        if (data != null) {
+            return TbMsg.transformMsg(msg, newMessageType, newMetadata, data);
+        }
+        return TbMsg.transformMsg(msg, newMessageType, msg.getOriginator(), newMetadata, msg.getData());
     }
 
     private static <T> ListenableFuture<T> wrongResultType(Object result) {
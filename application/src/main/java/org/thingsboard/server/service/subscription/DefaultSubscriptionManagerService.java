@@ -69,16 +69,19 @@ import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpda
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -98,7 +101,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     private final DeviceStateService deviceStateService;
     private final TbClusterService clusterService;
 
-    private final Map<EntityId, Set<TbSubscription>> subscriptionsByEntityId = new ConcurrentHashMap<>();
+    private final Map<EntityId, TbEntitySubscriptions> subscriptionsByEntityId = new ConcurrentHashMap<>();
     private final Map<String, Map<Integer, TbSubscription>> subscriptionsByWsSessionId = new ConcurrentHashMap<>();
     private final ConcurrentMap<TopicPartitionInfo, Set<TbSubscription>> partitionedSubscriptions = new ConcurrentHashMap<>();
     private final Set<TopicPartitionInfo> currentPartitions = ConcurrentHashMap.newKeySet();
@@ -134,8 +137,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
                     , subscription.getTenantId(), subscription.getEntityId(), tpi.getFullTopicName());
             callback.onFailure(new RuntimeException("Entity belongs to external partition " + tpi.getFullTopicName() + "!"));
         }
-        boolean newSubscription = subscriptionsByEntityId
-                .computeIfAbsent(subscription.getEntityId(), k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        boolean newSubscription = addSubscriptionToEntityMap(subscription);
         subscriptionsByWsSessionId.computeIfAbsent(subscription.getSessionId(), k -> new ConcurrentHashMap<>()).put(subscription.getSubscriptionId(), subscription);
         if (newSubscription) {
             switch (subscription.getType()) {
@@ -198,25 +200,8 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
 
     @Override
     public void onTimeSeriesUpdate(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, TbCallback callback) {
-        onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.TIMESERIES.equals(s.getType())) {
-                        return (TbTimeseriesSubscription) s;
-                    } else {
-                        return null;
-                    }
-                }, s -> true, s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (TsKvEntry kv : ts) {
-                        if ((s.isAllKeys() || s.getKeyStates().containsKey((kv.getKey())))) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(kv);
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, true);
+        onLocalTelemetrySubUpdate(entityId, (subscriptions, updates) ->
+                collectUpdates(updates, subscriptions.getTimeseries(), ts, TsKvEntry::getKey, Function.identity()), true);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             updateDeviceInactivityTimeout(tenantId, entityId, ts);
         }
@@ -230,27 +215,9 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
 
     @Override
     public void onAttributesUpdate(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes, boolean notifyDevice, TbCallback callback) {
-        onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.ATTRIBUTES.equals(s.getType())) {
-                        return (TbAttributeSubscription) s;
-                    } else {
-                        return null;
-                    }
-                },
-                s -> (TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || scope.equals(s.getScope().name())),
-                s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (AttributeKvEntry kv : attributes) {
-                        if (s.isAllKeys() || s.getKeyStates().containsKey(kv.getKey())) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(new BasicTsKvEntry(kv.getLastUpdateTs(), kv));
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, true);
+        onLocalTelemetrySubUpdate(entityId, (subscriptions, updates) ->
+                collectAttributeUpdates(updates, subscriptions, scope, attributes, AttributeKvEntry::getKey,
+                        kv -> new BasicTsKvEntry(kv.getLastUpdateTs(), kv)), true);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             if (TbAttributeSubscriptionScope.SERVER_SCOPE.name().equalsIgnoreCase(scope)) {
                 updateDeviceInactivityTimeout(tenantId, entityId, attributes);
@@ -282,13 +249,6 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onAlarmUpdate(TenantId tenantId, EntityId entityId, AlarmInfo alarm, TbCallback callback) {
         onLocalAlarmSubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.ALARMS.equals(s.getType())) {
-                        return (TbAlarmsSubscription) s;
-                    } else {
-                        return null;
-                    }
-                },
                 s -> alarm.getCreatedTime() >= s.getTs() || alarm.getAssignTs() >= s.getTs(),
                 alarm, false
         );
@@ -298,13 +258,6 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onAlarmDeleted(TenantId tenantId, EntityId entityId, AlarmInfo alarm, TbCallback callback) {
         onLocalAlarmSubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.ALARMS.equals(s.getType())) {
-                        return (TbAlarmsSubscription) s;
-                    } else {
-                        return null;
-                    }
-                },
                 s -> alarm.getCreatedTime() >= s.getTs(),
                 alarm, true
         );
@@ -313,14 +266,11 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
 
     @Override
     public void onNotificationUpdate(TenantId tenantId, UserId recipientId, NotificationUpdate notificationUpdate, TbCallback callback) {
-        Set<TbSubscription> subscriptions = subscriptionsByEntityId.get(recipientId);
+        TbEntitySubscriptions subscriptions = subscriptionsByEntityId.get(recipientId);
         if (subscriptions != null) {
             NotificationsSubscriptionUpdate subscriptionUpdate = new NotificationsSubscriptionUpdate(notificationUpdate);
             log.trace("Handling notificationUpdate for user {}: {}", recipientId, notificationUpdate);
-            subscriptions.stream()
-                    .filter(subscription -> subscription.getType() == TbSubscriptionType.NOTIFICATIONS
-                            || subscription.getType() == TbSubscriptionType.NOTIFICATIONS_COUNT)
-                    .forEach(subscription -> onNotificationsSubUpdate(subscriptionUpdate, subscription));
+            subscriptions.getNotifications().forEach(subscription -> onNotificationsSubUpdate(subscriptionUpdate, subscription));
         }
         callback.onSuccess();
     }
@@ -333,11 +283,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
                 return;
             }
             log.trace("Handling notificationRequestUpdate for user {}: {}", entityId, notificationRequestUpdate);
-            subscriptions.forEach(subscription -> {
-                if (subscription.getType() != TbSubscriptionType.NOTIFICATIONS &&
-                        subscription.getType() != TbSubscriptionType.NOTIFICATIONS_COUNT) {
-                    return;
-                }
+            subscriptions.getNotifications().forEach(subscription -> {
                 if (!subscription.getTenantId().equals(tenantId)) {
                     return;
                 }
@@ -365,27 +311,8 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
 
     @Override
     public void onAttributesDelete(TenantId tenantId, EntityId entityId, String scope, List<String> keys, boolean notifyDevice, TbCallback callback) {
-        onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.ATTRIBUTES.equals(s.getType())) {
-                        return (TbAttributeSubscription) s;
-                    } else {
-                        return null;
-                    }
-                },
-                s -> (TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || scope.equals(s.getScope().name())),
-                s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (String key : keys) {
-                        if (s.isAllKeys() || s.getKeyStates().containsKey(key)) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(new BasicTsKvEntry(0, new StringDataEntry(key, "")));
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, false);
+        onLocalTelemetrySubUpdate(entityId, (subscriptions, updates) ->
+                collectAttributeUpdates(updates, subscriptions, scope, keys, Function.identity(), DefaultSubscriptionManagerService::toDeletedEntry), false);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             if (TbAttributeSubscriptionScope.SERVER_SCOPE.name().equalsIgnoreCase(scope)
                     || TbAttributeSubscriptionScope.ANY_SCOPE.name().equalsIgnoreCase(scope)) {
@@ -400,66 +327,85 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
 
     @Override
     public void onTimeSeriesDelete(TenantId tenantId, EntityId entityId, List<String> keys, TbCallback callback) {
-        onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.TIMESERIES.equals(s.getType())) {
-                        return (TbTimeseriesSubscription) s;
-                    } else {
-                        return null;
-                    }
-                }, s -> true, s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (String key : keys) {
-                        if (s.isAllKeys() || s.getKeyStates().containsKey(key)) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(new BasicTsKvEntry(0, new StringDataEntry(key, "")));
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, false);
+        onLocalTelemetrySubUpdate(entityId, (subscriptions, updates) ->
+                collectUpdates(updates, subscriptions.getTimeseries(), keys, Function.identity(), DefaultSubscriptionManagerService::toDeletedEntry), false);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             deleteDeviceInactivityTimeout(tenantId, entityId, keys);
         }
         callback.onSuccess();
     }
 
-    private <T extends TbSubscription> void onLocalTelemetrySubUpdate(EntityId entityId,
-                                                                      Function<TbSubscription, T> castFunction,
-                                                                      Predicate<T> filterFunction,
-                                                                      Function<T, List<TsKvEntry>> processFunction,
-                                                                      boolean ignoreEmptyUpdates) {
-        Set<TbSubscription> entitySubscriptions = subscriptionsByEntityId.get(entityId);
+    private void onLocalTelemetrySubUpdate(EntityId entityId,
+                                           BiConsumer<TbEntitySubscriptions, Map<TbSubscription, List<TsKvEntry>>> collectFunction,
+                                           boolean ignoreEmptyUpdates) {
+        TbEntitySubscriptions entitySubscriptions = subscriptionsByEntityId.get(entityId);
         if (entitySubscriptions != null) {
-            entitySubscriptions.stream().map(castFunction).filter(Objects::nonNull).filter(filterFunction).forEach(s -> {
-                List<TsKvEntry> subscriptionUpdate = processFunction.apply(s);
-                if (subscriptionUpdate != null && !subscriptionUpdate.isEmpty()) {
-                    if (serviceId.equals(s.getServiceId())) {
-                        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(s.getSubscriptionId(), subscriptionUpdate);
-                        localSubscriptionService.onSubscriptionUpdate(s.getSessionId(), update, TbCallback.EMPTY);
-                    } else {
-                        TopicPartitionInfo tpi = notificationsTopicService.getNotificationsTopic(ServiceType.TB_CORE, s.getServiceId());
-                        toCoreNotificationsProducer.send(tpi, toProto(s, subscriptionUpdate, ignoreEmptyUpdates), null);
-                    }
+            Map<TbSubscription, List<TsKvEntry>> updates = new LinkedHashMap<>();
+            collectFunction.accept(entitySubscriptions, updates);
+            Map<String, List<TelemetrySubscriptionUpdate>> localUpdates = new HashMap<>();
+            // Subscribers of the same keys share the data, so it is converted and serialized once.
+            Map<List<TsKvEntry>, TelemetrySubscriptionUpdate.SharedData> sharedData = new HashMap<>();
+            updates.forEach((s, subscriptionUpdate) -> {
+                if (serviceId.equals(s.getServiceId())) {
+                    localUpdates.computeIfAbsent(s.getSessionId(), k -> new ArrayList<>())
+                            .add(new TelemetrySubscriptionUpdate(s.getSubscriptionId(),
+                                    sharedData.computeIfAbsent(subscriptionUpdate, TelemetrySubscriptionUpdate.SharedData::new)));
+                } else {
+                    TopicPartitionInfo tpi = notificationsTopicService.getNotificationsTopic(ServiceType.TB_CORE, s.getServiceId());
+                    toCoreNotificationsProducer.send(tpi, toProto(s, subscriptionUpdate, ignoreEmptyUpdates), null);
                 }
             });
+            localUpdates.forEach((sessionId, sessionUpdates) ->
+                    localSubscriptionService.onSubscriptionUpdates(sessionId, sessionUpdates, TbCallback.EMPTY));
         } else {
             log.debug("[{}] No device subscriptions to process!", entityId);
         }
     }
 
+    private static <E> void collectAttributeUpdates(Map<TbSubscription, List<TsKvEntry>> updates, TbEntitySubscriptions subscriptions, String scope,
+                                                    List<E> entries, Function<E, String> keyFunction, Function<E, TsKvEntry> entryFunction) {
+        collectUpdates(updates, subscriptions.getAttributes(TbAttributeSubscriptionScope.ANY_SCOPE), entries, keyFunction, entryFunction);
+        for (TbAttributeSubscriptionScope subscriptionScope : TbAttributeSubscriptionScope.values()) {
+            if (subscriptionScope != TbAttributeSubscriptionScope.ANY_SCOPE && subscriptionScope.name().equals(scope)) {
+                collectUpdates(updates, subscriptions.getAttributes(subscriptionScope), entries, keyFunction, entryFunction);
+            }
+        }
+    }
+
+    private static <T extends TbSubscription, E> void collectUpdates(Map<TbSubscription, List<TsKvEntry>> updates, TbEntitySubscriptions.KeyIndex<T> index,
+                                                                     List<E> entries, Function<E, String> keyFunction, Function<E, TsKvEntry> entryFunction) {
+        if (index == null) {
+            return;
+        }
+        for (E entry : entries) {
+            List<T> keySubscriptions = index.getByKey(keyFunction.apply(entry));
+            if (keySubscriptions.isEmpty() && index.getAllKeys().isEmpty()) {
+                continue;
+            }
+            TsKvEntry tsKvEntry = entryFunction.apply(entry);
+            for (T s : index.getAllKeys()) {
+                updates.computeIfAbsent(s, k -> new ArrayList<>()).add(tsKvEntry);
+            }
+            for (T s : keySubscriptions) {
+                updates.computeIfAbsent(s, k -> new ArrayList<>()).add(tsKvEntry);
+            }
+        }
+    }
+
+    private static TsKvEntry toDeletedEntry(String key) {
+        return new BasicTsKvEntry(0, new StringDataEntry(key, ""));
+    }
+
     private void onLocalAlarmSubUpdate(EntityId entityId,
-                                       Function<TbSubscription, TbAlarmsSubscription> castFunction,
                                        Predicate<TbAlarmsSubscription> filterFunction,
                                        AlarmInfo alarm, boolean deleted) {
-        Set<TbSubscription> entitySubscriptions = subscriptionsByEntityId.get(entityId);
+        TbEntitySubscriptions entitySubscriptions = subscriptionsByEntityId.get(entityId);
         if (alarm == null) {
             log.warn("[{}] empty alarm update!", entityId);
             return;
         }
         if (entitySubscriptions != null) {
-            entitySubscriptions.stream().map(castFunction).filter(Objects::nonNull).filter(filterFunction).forEach(s -> {
+            entitySubscriptions.getAlarms().stream().filter(filterFunction).forEach(s -> {
                 if (serviceId.equals(s.getServiceId())) {
                     AlarmSubscriptionUpdate update = new AlarmSubscriptionUpdate(s.getSubscriptionId(), alarm, deleted);
                     localSubscriptionService.onSubscriptionUpdate(s.getSessionId(), update, TbCallback.EMPTY);
@@ -473,14 +419,26 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
         }
     }
 
-    private void removeSubscriptionFromEntityMap(TbSubscription sub) {
-        Set<TbSubscription> entitySubSet = subscriptionsByEntityId.get(sub.getEntityId());
-        if (entitySubSet != null) {
-            entitySubSet.remove(sub);
-            if (entitySubSet.isEmpty()) {
-                subscriptionsByEntityId.remove(sub.getEntityId());
+    private boolean addSubscriptionToEntityMap(TbSubscription sub) {
+        AtomicBoolean added = new AtomicBoolean();
+        subscriptionsByEntityId.compute(sub.getEntityId(), (entityId, subscriptions) -> {
+            if (subscriptions == null) {
+                subscriptions = TbEntitySubscriptions.EMPTY;
             }
-        }
+            if (subscriptions.contains(sub)) {
+                return subscriptions;
+            }
+            added.set(true);
+            return subscriptions.add(sub);
+        });
+        return added.get();
+    }
+
+    private void removeSubscriptionFromEntityMap(TbSubscription sub) {
+        subscriptionsByEntityId.computeIfPresent(sub.getEntityId(), (entityId, subscriptions) -> {
+            TbEntitySubscriptions newSubscriptions = subscriptions.remove(sub);
+            return newSubscriptions.isEmpty() ? null : newSubscriptions;
+        });
     }
 
     private void removeSubscriptionFromPartitionMap(TbSubscription sub) {
@@ -28,8 +28,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.socket.CloseStatus;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
@@ -45,6 +48,10 @@ import org.thingsboard.server.common.data.query.TsValue;
 import org.thingsboard.server.dao.alarm.AlarmService;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.entity.EntityService;
+import org.thingsboard.server.dao.eventsourcing.ActionEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.RelationActionEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
 import org.thingsboard.server.queue.util.TbCoreComponent;
@@ -70,6 +77,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -94,6 +102,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
 
     private static final int DEFAULT_LIMIT = 100;
     private final Map<String, Map<Integer, TbAbstractSubCtx>> subscriptionsBySessionId = new ConcurrentHashMap<>();
+    private final Map<TenantId, Set<TbAbstractSubCtx<?>>> dynamicSubCtxByTenantId = new ConcurrentHashMap<>();
 
     @Autowired @Lazy
     private WebSocketService wsService;
@@ -129,6 +138,8 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
      */
     @Value("${server.ws.dynamic_page_link.refresh_interval:6}")
     private long dynamicPageLinkRefreshInterval;
+    @Value("${server.ws.dynamic_page_link.max_refresh_interval:600}")
+    private long dynamicPageLinkMaxRefreshInterval;
     @Value("${server.ws.dynamic_page_link.refresh_pool_size:1}")
     private int dynamicPageLinkRefreshPoolSize;
     @Value("${server.ws.max_entities_per_data_subscription:1000}")
@@ -137,6 +148,8 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private int maxEntitiesPerAlarmSubscription;
     @Value("${server.ws.dynamic_page_link.max_alarm_queries_per_refresh_interval:10}")
     private int maxAlarmQueriesPerRefreshInterval;
+    @Value("${server.ws.shared_query_results_ttl:1000}")
+    private long sharedQueryResultsTtl;
     @Value("${ui.dashboard.max_datapoints_limit:50000}")
     private int maxDatapointLimit;
 
@@ -144,6 +157,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private boolean tsInSqlDB;
     private String serviceId;
     private SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+    private TbSharedQueryResults sharedQueryResults;
 
     @PostConstruct
     public void initExecutor() {
@@ -154,6 +168,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         tsInSqlDB = databaseTsType.equalsIgnoreCase("sql") || databaseTsType.equalsIgnoreCase("timescale");
          */
         tsInSqlDB = true;
+        sharedQueryResults = new TbSharedQueryResults(sharedQueryResultsTtl, TimeUnit.SECONDS.toMillis(dynamicPageLinkRefreshInterval));
 
         ThreadFactory tbThreadFactory = ThingsBoardThreadFactory.forName("ws-entity-sub-scheduler");
         if (dynamicPageLinkRefreshPoolSize == 1) {
@@ -212,11 +227,9 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
             ctx.cancelTasks();
             if (ctx.getQuery().getPageLink().isDynamic()) {
                 //TODO: validate number of dynamic page links against rate limits. Ignore dynamic flag if limit is reached.
-                TbEntityDataSubCtx finalCtx = ctx;
-                ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
-                        () -> refreshDynamicQuery(finalCtx),
-                        dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
-                finalCtx.setRefreshTask(task);
+                scheduleDynamicQueryRefresh(ctx);
+            } else {
+                removeDynamicSubCtx(ctx);
             }
         }
 
@@ -307,7 +320,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         List<EntityData> entityDataList = ctx.getData().getData();
         List<ReadTsKvQuery> queryList = queries.values().stream().map(ReadTsKvQueryInfo::getQuery).collect(Collectors.toList());
         entityDataList.forEach(entityData -> fetchResultMap.put(entityData,
-                tsService.findAllByQueries(ctx.getTenantId(), entityData.getEntityId(), queryList)));
+                findAllByQueries(ctx.getTenantId(), entityData.getEntityId(), queryList)));
         return Futures.transform(Futures.allAsList(fetchResultMap.values()), f -> {
             // Map that holds last ts for each key for each entity.
             Map<EntityData, Map<String, Long>> lastTsEntityMap = new HashMap<>();
@@ -359,6 +372,39 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         }, wsCallBackExecutor);
     }
 
+    private ListenableFuture<List<ReadTsKvQueryResult>> findAllByQueries(TenantId tenantId, EntityId entityId, List<ReadTsKvQuery> queries) {
+        // Query ids are unique per session, so the shared results refer to the queries by their position in the sorted list.
+        List<ReadTsKvQuery> sortedQueries = new ArrayList<>(queries);
+        sortedQueries.sort(Comparator.comparing(this::toQueryKey));
+        String queryKey = entityId + ":" + sortedQueries.stream().map(this::toQueryKey).collect(Collectors.joining(";"));
+        ListenableFuture<List<ReadTsKvQueryResult>> sharedResults = sharedQueryResults.getAsync(tenantId, null, "timeseries", queryKey,
+                sharedQueryResultsTtl, () -> Futures.transform(tsService.findAllByQueries(tenantId, entityId, sortedQueries),
+                        results -> remapQueryIds(results, sortedQueries, true), MoreExecutors.directExecutor()));
+        return Futures.transform(sharedResults, results -> remapQueryIds(results, sortedQueries, false), MoreExecutors.directExecutor());
+    }
+
+    private String toQueryKey(ReadTsKvQuery query) {
+        return query.getKey() + "," + query.getStartTs() + "," + query.getEndTs() + "," + query.getInterval() + ","
+                + query.getLimit() + "," + query.getAggregation() + "," + query.getOrder();
+    }
+
+    private List<ReadTsKvQueryResult> remapQueryIds(List<ReadTsKvQueryResult> results, List<ReadTsKvQuery> queries, boolean toPosition) {
+        if (results == null) {
+            return null;
+        }
+        Map<Integer, Integer> queryIds = new HashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            if (toPosition) {
+                queryIds.put(queries.get(i).getId(), i);
+            } else {
+                queryIds.put(i, queries.get(i).getId());
+            }
+        }
+        return results.stream()
+                .map(result -> new ReadTsKvQueryResult(queryIds.getOrDefault(result.getQueryId(), -1), result.getData(), result.getLastEntryTs()))
+                .collect(Collectors.toList());
+    }
+
     private void handleWsCmdRuntimeException(String sessionId, RuntimeException e, EntityDataCmd cmd) {
         log.debug("[{}] Failed to process ws cmd: {}", sessionId, cmd, e);
         wsService.close(sessionId, CloseStatus.SERVICE_RESTARTED);
@@ -374,11 +420,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
             long end = System.currentTimeMillis();
             stats.getRegularQueryInvocationCnt().incrementAndGet();
             stats.getRegularQueryTimeSpent().addAndGet(end - start);
-            TbEntityCountSubCtx finalCtx = ctx;
-            ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
-                    () -> refreshDynamicQuery(finalCtx),
-                    dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
-            finalCtx.setRefreshTask(task);
+            scheduleDynamicQueryRefresh(ctx);
         } else {
             log.debug("[{}][{}] Received duplicate command: {}", session.getSessionId(), cmd.getCmdId(), cmd);
         }
@@ -426,16 +468,73 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
             long end = System.currentTimeMillis();
             stats.getAlarmQueryInvocationCnt().incrementAndGet();
             stats.getAlarmQueryTimeSpent().addAndGet(end - start);
-            TbAlarmCountSubCtx finalCtx = ctx;
-            ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
-                    () -> refreshDynamicQuery(finalCtx),
-                    dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
-            finalCtx.setRefreshTask(task);
+            scheduleDynamicQueryRefresh(ctx);
         } else {
             log.debug("[{}][{}] Received duplicate command: {}", session.getSessionId(), cmd.getCmdId(), cmd);
         }
     }
 
+    private void scheduleDynamicQueryRefresh(TbAbstractSubCtx<?> ctx) {
+        dynamicSubCtxByTenantId.computeIfAbsent(ctx.getTenantId(), id -> ConcurrentHashMap.newKeySet()).add(ctx);
+        ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
+                () -> refreshDynamicQuery(ctx),
+                dynamicPageLinkRefreshInterval, dynamicPageLinkRefreshInterval, TimeUnit.SECONDS);
+        ctx.setRefreshTask(task);
+    }
+
+    private void removeDynamicSubCtx(TbAbstractSubCtx<?> ctx) {
+        Set<TbAbstractSubCtx<?>> tenantSubs = dynamicSubCtxByTenantId.get(ctx.getTenantId());
+        if (tenantSubs != null) {
+            tenantSubs.remove(ctx);
+            if (tenantSubs.isEmpty()) {
+                dynamicSubCtxByTenantId.remove(ctx.getTenantId(), tenantSubs);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(SaveEntityEvent<?> event) {
+        onEntityChange(event.getTenantId(), event.getEntityId(), false);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        // Relations of the deleted entity are removed as well.
+        onEntityChange(event.getTenantId(), event.getEntityId(), true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(ActionEntityEvent event) {
+        onEntityChange(event.getTenantId(), event.getEntityId(), false);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(RelationActionEvent event) {
+        onEntityChange(event.getTenantId(), null, true);
+    }
+
+    private void onEntityChange(TenantId tenantId, EntityId entityId, boolean relationsChanged) {
+        if (tenantId == null || (entityId == null && !relationsChanged)) {
+            return;
+        }
+        Set<TbAbstractSubCtx<?>> tenantSubs = dynamicSubCtxByTenantId.get(tenantId);
+        if (tenantSubs == null) {
+            return;
+        }
+        boolean invalidated = false;
+        for (TbAbstractSubCtx<?> ctx : tenantSubs) {
+            TbEntityQueryDependencies dependencies = ctx.getQueryDependencies();
+            if ((entityId != null && dependencies.dependsOn(entityId.getEntityType())) || (relationsChanged && dependencies.isRelations())) {
+                log.trace("[{}][{}] Invalidating dynamic query due to change of {}", ctx.getSessionId(), ctx.getCmdId(), entityId);
+                ctx.invalidate();
+                invalidated = true;
+            }
+        }
+        if (invalidated) {
+            sharedQueryResults.invalidate(tenantId);
+        }
+    }
+
     private boolean validate(TbAbstractSubCtx<?> finalCtx) {
         if (finalCtx.isStopped()) {
             log.warn("[{}][{}][{}] Received validation task for already stopped context.", finalCtx.getTenantId(), finalCtx.getSessionId(), finalCtx.getCmdId());
@@ -455,6 +554,10 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private void refreshDynamicQuery(TbAbstractSubCtx<?> finalCtx) {
         try {
             if (validate(finalCtx)) {
+                if (!finalCtx.checkAndResetRefreshRequired(TimeUnit.SECONDS.toMillis(dynamicPageLinkMaxRefreshInterval))) {
+                    stats.getDynamicQuerySkippedCnt().incrementAndGet();
+                    return;
+                }
                 long start = System.currentTimeMillis();
                 finalCtx.update();
                 long end = System.currentTimeMillis();
@@ -485,15 +588,17 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         long regularQueryInvocationTimeValue = stats.getRegularQueryTimeSpent().getAndSet(0);
         int dynamicQueryInvocationCntValue = stats.getDynamicQueryInvocationCnt().getAndSet(0);
         long dynamicQueryInvocationTimeValue = stats.getDynamicQueryTimeSpent().getAndSet(0);
+        int dynamicQuerySkippedCntValue = stats.getDynamicQuerySkippedCnt().getAndSet(0);
         long dynamicQueryCnt = subscriptionsBySessionId.values().stream().mapToLong(m -> m.values().stream().filter(TbAbstractSubCtx::isDynamic).count()).sum();
         if (regularQueryInvocationCntValue > 0 || dynamicQueryInvocationCntValue > 0 || dynamicQueryCnt > 0 || alarmQueryInvocationCntValue > 0) {
             log.info("Stats: regularQueryInvocationCnt = [{}], regularQueryInvocationTime = [{}], " +
                             "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], " +
-                            "alarmQueryInvocationCnt = [{}], alarmQueryInvocationTime = [{}]",
+                            "dynamicQuerySkippedCnt = [{}], alarmQueryInvocationCnt = [{}], alarmQueryInvocationTime = [{}]",
                     regularQueryInvocationCntValue, regularQueryInvocationTimeValue,
                     dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
-                    alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
+                    dynamicQuerySkippedCntValue, alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
         }
+        sharedQueryResults.cleanUp();
     }
 
     private TbEntityDataSubCtx createSubCtx(WebSocketSessionRef sessionRef, EntityDataCmd cmd) {
@@ -503,6 +608,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         if (cmd.getQuery() != null) {
             ctx.setAndResolveQuery(cmd.getQuery());
         }
+        ctx.setSharedQueryResults(sharedQueryResults);
         sessionSubs.put(cmd.getCmdId(), ctx);
         return ctx;
     }
@@ -514,6 +620,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         if (cmd.getQuery() != null) {
             ctx.setAndResolveQuery(cmd.getQuery());
         }
+        ctx.setSharedQueryResults(sharedQueryResults);
         sessionSubs.put(cmd.getCmdId(), ctx);
         return ctx;
     }
@@ -525,6 +632,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
                 attributesService, stats, alarmService, sessionRef, cmd.getCmdId(), maxEntitiesPerAlarmSubscription,
                 maxAlarmQueriesPerRefreshInterval);
         ctx.setAndResolveQuery(cmd.getQuery());
+        ctx.setSharedQueryResults(sharedQueryResults);
         sessionSubs.put(cmd.getCmdId(), ctx);
         return ctx;
     }
@@ -536,6 +644,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         if (cmd.getQuery() != null) {
             ctx.setAndResolveQuery(cmd.getQuery());
         }
+        ctx.setSharedQueryResults(sharedQueryResults);
         sessionSubs.put(cmd.getCmdId(), ctx);
         return ctx;
     }
@@ -588,7 +697,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         Map<EntityData, ListenableFuture<List<ReadTsKvQueryResult>>> fetchResultMap = new HashMap<>();
         List<EntityData> entityDataList = ctx.getData().getData();
         entityDataList.forEach(entityData -> fetchResultMap.put(entityData,
-                tsService.findAllByQueries(ctx.getTenantId(), entityData.getEntityId(), finalTsKvQueryList)));
+                findAllByQueries(ctx.getTenantId(), entityData.getEntityId(), finalTsKvQueryList)));
         return Futures.transform(Futures.allAsList(fetchResultMap.values()), f -> {
             // Map that holds last ts for each key for each entity.
             Map<EntityData, Map<String, Long>> lastTsEntityMap = new HashMap<>();
@@ -725,6 +834,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private void cleanupAndCancel(TbAbstractSubCtx ctx) {
         if (ctx != null) {
             ctx.stop();
+            removeDynamicSubCtx(ctx);
             if (ctx.getSessionId() != null) {
                 Map<Integer, TbAbstractSubCtx> sessionSubs = subscriptionsBySessionId.get(ctx.getSessionId());
                 if (sessionSubs != null) {
@@ -37,8 +37,10 @@ import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpda
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -143,21 +145,48 @@ public class DefaultTbLocalSubscriptionService implements TbLocalSubscriptionSer
         TbSubscription subscription = subscriptionsBySessionId
                 .getOrDefault(sessionId, Collections.emptyMap()).get(update.getSubscriptionId());
         if (subscription != null) {
-            switch (subscription.getType()) {
-                case TIMESERIES:
-                    TbTimeseriesSubscription tsSub = (TbTimeseriesSubscription) subscription;
-                    update.getLatestValues().forEach((key, value) -> tsSub.getKeyStates().put(key, value));
-                    break;
-                case ATTRIBUTES:
-                    TbAttributeSubscription attrSub = (TbAttributeSubscription) subscription;
-                    update.getLatestValues().forEach((key, value) -> attrSub.getKeyStates().put(key, value));
-                    break;
-            }
+            updateKeyStates(subscription, update);
             subscriptionUpdateExecutor.submit(() -> subscription.getUpdateProcessor().accept(subscription, update));
         }
         callback.onSuccess();
     }
 
+    @Override
+    public void onSubscriptionUpdates(String sessionId, List<TelemetrySubscriptionUpdate> updates, TbCallback callback) {
+        Map<Integer, TbSubscription> sessionSubscriptions = subscriptionsBySessionId.getOrDefault(sessionId, Collections.emptyMap());
+        List<Runnable> sessionTasks = new ArrayList<>(updates.size());
+        for (TelemetrySubscriptionUpdate update : updates) {
+            TbSubscription subscription = sessionSubscriptions.get(update.getSubscriptionId());
+            if (subscription != null) {
+                updateKeyStates(subscription, update);
+                sessionTasks.add(() -> subscription.getUpdateProcessor().accept(subscription, update));
+            }
+        }
+        if (!sessionTasks.isEmpty()) {
+            subscriptionUpdateExecutor.submit(() -> sessionTasks.forEach(task -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to process subscription update", sessionId, e);
+                }
+            }));
+        }
+        callback.onSuccess();
+    }
+
+    private void updateKeyStates(TbSubscription subscription, TelemetrySubscriptionUpdate update) {
+        switch (subscription.getType()) {
+            case TIMESERIES:
+                TbTimeseriesSubscription tsSub = (TbTimeseriesSubscription) subscription;
+                update.getLatestValues().forEach((key, value) -> tsSub.getKeyStates().put(key, value));
+                break;
+            case ATTRIBUTES:
+                TbAttributeSubscription attrSub = (TbAttributeSubscription) subscription;
+                update.getLatestValues().forEach((key, value) -> attrSub.getKeyStates().put(key, value));
+                break;
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void onSubscriptionUpdate(String sessionId, AlarmSubscriptionUpdate update, TbCallback callback) {
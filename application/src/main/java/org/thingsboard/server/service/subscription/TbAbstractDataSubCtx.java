@@ -64,13 +64,28 @@ public abstract class TbAbstractDataSubCtx<T extends AbstractDataQuery<? extends
     }
 
     protected PageData<EntityData> findEntityData() {
-        PageData<EntityData> result = entityService.findEntityDataByQuery(getTenantId(), getCustomerId(), buildEntityDataQuery());
+        EntityDataQuery entityDataQuery = buildEntityDataQuery();
+        PageData<EntityData> result = getSharedQueryResult("entityData", entityDataQuery,
+                () -> entityService.findEntityDataByQuery(getTenantId(), getCustomerId(), entityDataQuery));
         if (log.isTraceEnabled()) {
             result.getData().forEach(ed -> {
                 log.trace("[{}][{}] EntityData: {}", getSessionId(), getCmdId(), ed);
             });
         }
-        return result;
+        // The shared result is read-only, while the context updates latest values of its own entity data.
+        return result.mapData(this::copyEntityData);
+    }
+
+    private EntityData copyEntityData(EntityData entityData) {
+        Map<EntityKeyType, Map<String, TsValue>> latest = null;
+        if (entityData.getLatest() != null) {
+            latest = new HashMap<>();
+            for (Map.Entry<EntityKeyType, Map<String, TsValue>> entry : entityData.getLatest().entrySet()) {
+                latest.put(entry.getKey(), new HashMap<>(entry.getValue()));
+            }
+        }
+        Map<String, TsValue[]> timeseries = entityData.getTimeseries() != null ? new HashMap<>(entityData.getTimeseries()) : null;
+        return new EntityData(entityData.getEntityId(), latest, timeseries);
     }
 
     @Override
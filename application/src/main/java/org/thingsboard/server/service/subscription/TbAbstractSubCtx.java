@@ -52,8 +52,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Slf4j
 @Data
@@ -78,6 +80,12 @@ public abstract class TbAbstractSubCtx<T extends EntityCountQuery> {
     @Setter
     protected volatile ScheduledFuture<?> refreshTask;
     protected volatile boolean stopped;
+    @Getter
+    protected volatile TbEntityQueryDependencies queryDependencies = TbEntityQueryDependencies.PERIODIC;
+    @Setter
+    protected volatile TbSharedQueryResults sharedQueryResults;
+    private final AtomicBoolean invalidated = new AtomicBoolean();
+    private volatile long lastRefreshTs;
 
     public TbAbstractSubCtx(String serviceId, WebSocketService wsService,
                             EntityService entityService, TbLocalSubscriptionService localSubscriptionService,
@@ -98,6 +106,8 @@ public abstract class TbAbstractSubCtx<T extends EntityCountQuery> {
     public void setAndResolveQuery(T query) {
         dynamicValues.clear();
         this.query = query;
+        this.queryDependencies = TbEntityQueryDependencies.of(query);
+        this.lastRefreshTs = System.currentTimeMillis();
         if (query != null && query.getKeyFilters() != null) {
             for (KeyFilter filter : query.getKeyFilters()) {
                 registerDynamicValues(filter.getPredicate());
@@ -181,6 +191,29 @@ public abstract class TbAbstractSubCtx<T extends EntityCountQuery> {
 
     public abstract boolean isDynamic();
 
+    public void invalidate() {
+        invalidated.set(true);
+    }
+
+    public boolean checkAndResetRefreshRequired(long maxRefreshIntervalMs) {
+        long ts = System.currentTimeMillis();
+        boolean refreshRequired = invalidated.getAndSet(false) || queryDependencies.isPeriodic()
+                || (maxRefreshIntervalMs > 0 && ts - lastRefreshTs >= maxRefreshIntervalMs);
+        if (refreshRequired) {
+            lastRefreshTs = ts;
+        }
+        return refreshRequired;
+    }
+
+    protected <R> R getSharedQueryResult(String queryType, Object query, Supplier<R> loader) {
+        TbSharedQueryResults sharedResults = this.sharedQueryResults;
+        if (sharedResults == null || !dynamicValues.isEmpty()) {
+            return loader.get();
+        }
+        long ttlMs = queryDependencies.isPeriodic() ? sharedResults.getTtlMs() : sharedResults.getTrackedTtlMs();
+        return sharedResults.get(getTenantId(), getCustomerId(), queryType, query, ttlMs, loader);
+    }
+
     public abstract void fetchData();
 
     protected abstract void update();
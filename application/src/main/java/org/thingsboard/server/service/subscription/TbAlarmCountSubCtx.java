@@ -47,19 +47,24 @@ public class TbAlarmCountSubCtx extends TbAbstractSubCtx<AlarmCountQuery> {
 
     @Override
     public void fetchData() {
-        result = (int) alarmService.countAlarmsByQuery(getTenantId(), getCustomerId(), query);
+        result = countAlarms();
         sendWsMsg(new AlarmCountUpdate(cmdId, result));
     }
 
     @Override
     protected void update() {
-        int newCount = (int) alarmService.countAlarmsByQuery(getTenantId(), getCustomerId(), query);
+        int newCount = countAlarms();
         if (newCount != result) {
             result = newCount;
             sendWsMsg(new AlarmCountUpdate(cmdId, result));
         }
     }
 
+    private int countAlarms() {
+        return getSharedQueryResult("alarmCount", query,
+                () -> (int) alarmService.countAlarmsByQuery(getTenantId(), getCustomerId(), query));
+    }
+
     @Override
     public boolean isDynamic() {
         return true;
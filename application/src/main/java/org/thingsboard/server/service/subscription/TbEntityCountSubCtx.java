@@ -36,19 +36,24 @@ public class TbEntityCountSubCtx extends TbAbstractSubCtx<EntityCountQuery> {
 
     @Override
     public void fetchData() {
-        result = (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+        result = countEntities();
         sendWsMsg(new EntityCountUpdate(cmdId, result));
     }
 
     @Override
     protected void update() {
-        int newCount = (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query);
+        int newCount = countEntities();
         if (newCount != result) {
             result = newCount;
             sendWsMsg(new EntityCountUpdate(cmdId, result));
         }
     }
 
+    private int countEntities() {
+        return getSharedQueryResult("entityCount", query,
+                () -> (int) entityService.countEntitiesByQuery(getTenantId(), getCustomerId(), query));
+    }
+
     @Override
     public boolean isDynamic() {
         return true;
@@ -126,7 +126,13 @@ public class TbEntityDataSubCtx extends TbAbstractDataSubCtx<EntityDataQuery> {
         }
         if (!latestUpdate.isEmpty()) {
             Map<EntityKeyType, Map<String, TsValue>> latestMap = Collections.singletonMap(keyType, latestUpdate);
-            entityData = new EntityData(entityId, latestMap, null);
+            TelemetrySubscriptionUpdate.SharedData sharedData = subscriptionUpdate.getSharedData();
+            if (sharedData != null && latestUpdate.size() == subscriptionUpdate.getData().size()) {
+                // Nothing is filtered out, so other sessions subscribed to the same keys send the same entity data.
+                entityData = sharedData.getPayload(keyType, k -> new TbSerializedEntityData(entityId, latestMap));
+            } else {
+                entityData = new EntityData(entityId, latestMap, null);
+            }
             sendWsMsg(new EntityDataUpdate(cmdId, null, Collections.singletonList(entityData), maxEntitiesPerDataSubscription));
         }
     }
@@ -0,0 +1,173 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.query.AbstractDataQuery;
+import org.thingsboard.server.common.data.query.AlarmCountQuery;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityListFilter;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.RelationsQueryFilter;
+import org.thingsboard.server.common.data.query.SingleEntityFilter;
+import org.thingsboard.server.common.data.relation.RelationEntityTypeFilter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Describes which entity lifecycle events may change the result of an entity (or alarm) count/data query.
+ * Queries that filter or sort by attribute and time series values, as well as the ones bound to a time window,
+ * can't be tracked by the lifecycle events and are marked as {@link #isPeriodic() periodic}.
+ */
+final class TbEntityQueryDependencies {
+
+    static final TbEntityQueryDependencies PERIODIC = new TbEntityQueryDependencies(Collections.emptySet(), true, true, true);
+
+    private final Set<EntityType> entityTypes;
+    private final boolean anyEntityType;
+    @Getter
+    private final boolean relations;
+    @Getter
+    private final boolean periodic;
+
+    private TbEntityQueryDependencies(Set<EntityType> entityTypes, boolean anyEntityType, boolean relations, boolean periodic) {
+        this.entityTypes = entityTypes;
+        this.anyEntityType = anyEntityType;
+        this.relations = relations;
+        this.periodic = periodic;
+    }
+
+    boolean dependsOn(EntityType entityType) {
+        return anyEntityType || entityTypes.contains(entityType);
+    }
+
+    static TbEntityQueryDependencies of(EntityCountQuery query) {
+        if (query == null || query.getEntityFilter() == null) {
+            return PERIODIC;
+        }
+        Set<EntityType> entityTypes = EnumSet.noneOf(EntityType.class);
+        boolean anyEntityType = false;
+        boolean relations = false;
+        boolean periodic = false;
+        EntityFilter filter = query.getEntityFilter();
+        switch (filter.getType()) {
+            case SINGLE_ENTITY:
+                SingleEntityFilter singleEntityFilter = (SingleEntityFilter) filter;
+                if (singleEntityFilter.getSingleEntity() != null) {
+                    addEntityType(entityTypes, singleEntityFilter.getSingleEntity().getEntityType());
+                }
+                break;
+            case ENTITY_LIST:
+                addEntityType(entityTypes, ((EntityListFilter) filter).getEntityType());
+                break;
+            case ENTITY_NAME:
+                addEntityType(entityTypes, ((EntityNameFilter) filter).getEntityType());
+                break;
+            case ENTITY_TYPE:
+                addEntityType(entityTypes, ((EntityTypeFilter) filter).getEntityType());
+                break;
+            case ASSET_TYPE:
+                addEntityType(entityTypes, EntityType.ASSET);
+                break;
+            case DEVICE_TYPE:
+                addEntityType(entityTypes, EntityType.DEVICE);
+                break;
+            case ENTITY_VIEW_TYPE:
+                addEntityType(entityTypes, EntityType.ENTITY_VIEW);
+                break;
+            case EDGE_TYPE:
+                addEntityType(entityTypes, EntityType.EDGE);
+                break;
+            case RELATIONS_QUERY:
+                relations = true;
+                RelationsQueryFilter relationsQueryFilter = (RelationsQueryFilter) filter;
+                if (relationsQueryFilter.getFilters() == null || relationsQueryFilter.getFilters().isEmpty()) {
+                    anyEntityType = true;
+                } else {
+                    for (RelationEntityTypeFilter relationFilter : relationsQueryFilter.getFilters()) {
+                        if (relationFilter.getEntityTypes() == null || relationFilter.getEntityTypes().isEmpty()) {
+                            anyEntityType = true;
+                        } else {
+                            relationFilter.getEntityTypes().forEach(entityType -> addEntityType(entityTypes, entityType));
+                        }
+                    }
+                }
+                break;
+            case ASSET_SEARCH_QUERY:
+                relations = true;
+                addEntityType(entityTypes, EntityType.ASSET);
+                break;
+            case DEVICE_SEARCH_QUERY:
+                relations = true;
+                addEntityType(entityTypes, EntityType.DEVICE);
+                break;
+            case ENTITY_VIEW_SEARCH_QUERY:
+                relations = true;
+                addEntityType(entityTypes, EntityType.ENTITY_VIEW);
+                break;
+            case EDGE_SEARCH_QUERY:
+                relations = true;
+                addEntityType(entityTypes, EntityType.EDGE);
+                break;
+            default:
+                // API usage state and other entities that are not covered by the lifecycle events.
+                periodic = true;
+        }
+        if (query.getKeyFilters() != null) {
+            for (KeyFilter keyFilter : query.getKeyFilters()) {
+                if (keyFilter.getKey() == null || !EntityKeyType.ENTITY_FIELD.equals(keyFilter.getKey().getType())) {
+                    periodic = true;
+                }
+            }
+        }
+        if (query instanceof AbstractDataQuery) {
+            AbstractDataQuery<?> dataQuery = (AbstractDataQuery<?>) query;
+            EntityDataSortOrder sortOrder = dataQuery.getPageLink() != null ? dataQuery.getPageLink().getSortOrder() : null;
+            if (sortOrder != null && sortOrder.getKey() != null && !EntityKeyType.ENTITY_FIELD.equals(sortOrder.getKey().getType())) {
+                periodic = true;
+            }
+        }
+        if (query instanceof AlarmCountQuery) {
+            entityTypes.add(EntityType.ALARM);
+            if (((AlarmCountQuery) query).getTimeWindow() > 0) {
+                periodic = true;
+            }
+        }
+        return new TbEntityQueryDependencies(entityTypes, anyEntityType, relations, periodic);
+    }
+
+    private static void addEntityType(Set<EntityType> entityTypes, EntityType entityType) {
+        if (entityType == null) {
+            return;
+        }
+        entityTypes.add(entityType);
+        // Profile updates change the type names the queries are filtered and sorted by.
+        if (EntityType.DEVICE.equals(entityType)) {
+            entityTypes.add(EntityType.DEVICE_PROFILE);
+        } else if (EntityType.ASSET.equals(entityType)) {
+            entityTypes.add(EntityType.ASSET_PROFILE);
+        }
+    }
+
+}
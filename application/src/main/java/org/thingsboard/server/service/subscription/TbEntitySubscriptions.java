@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of the subscriptions of one entity indexed by subscription type, attribute scope and key.
+ * The snapshot is replaced on every subscribe/unsubscribe, so the updates are dispatched without locking
+ * and reach only the subscribers of the changed keys.
+ */
+final class TbEntitySubscriptions {
+
+    static final TbEntitySubscriptions EMPTY = new TbEntitySubscriptions(Collections.emptySet());
+
+    @Getter
+    private final Set<TbSubscription> all;
+    @Getter
+    private final KeyIndex<TbTimeseriesSubscription> timeseries;
+    private final Map<TbAttributeSubscriptionScope, KeyIndex<TbAttributeSubscription>> attributes;
+    @Getter
+    private final List<TbAlarmsSubscription> alarms;
+    @Getter
+    private final List<TbSubscription> notifications;
+
+    private TbEntitySubscriptions(Set<TbSubscription> all) {
+        this.all = Collections.unmodifiableSet(all);
+        List<TbTimeseriesSubscription> tsSubscriptions = new ArrayList<>();
+        Map<TbAttributeSubscriptionScope, List<TbAttributeSubscription>> attrSubscriptions = new EnumMap<>(TbAttributeSubscriptionScope.class);
+        List<TbAlarmsSubscription> alarms = new ArrayList<>();
+        List<TbSubscription> notifications = new ArrayList<>();
+        for (TbSubscription subscription : all) {
+            switch (subscription.getType()) {
+                case TIMESERIES:
+                    tsSubscriptions.add((TbTimeseriesSubscription) subscription);
+                    break;
+                case ATTRIBUTES:
+                    TbAttributeSubscription attrSubscription = (TbAttributeSubscription) subscription;
+                    attrSubscriptions.computeIfAbsent(attrSubscription.getScope(), scope -> new ArrayList<>()).add(attrSubscription);
+                    break;
+                case ALARMS:
+                    alarms.add((TbAlarmsSubscription) subscription);
+                    break;
+                case NOTIFICATIONS:
+                case NOTIFICATIONS_COUNT:
+                    notifications.add(subscription);
+                    break;
+            }
+        }
+        this.timeseries = new KeyIndex<>(tsSubscriptions, TbTimeseriesSubscription::isAllKeys, s -> s.getKeyStates().keySet());
+        this.attributes = new EnumMap<>(TbAttributeSubscriptionScope.class);
+        attrSubscriptions.forEach((scope, subscriptions) ->
+                attributes.put(scope, new KeyIndex<>(subscriptions, TbAttributeSubscription::isAllKeys, s -> s.getKeyStates().keySet())));
+        this.alarms = Collections.unmodifiableList(alarms);
+        this.notifications = Collections.unmodifiableList(notifications);
+    }
+
+    KeyIndex<TbAttributeSubscription> getAttributes(TbAttributeSubscriptionScope scope) {
+        return attributes.get(scope);
+    }
+
+    boolean isEmpty() {
+        return all.isEmpty();
+    }
+
+    boolean contains(TbSubscription subscription) {
+        return all.contains(subscription);
+    }
+
+    TbEntitySubscriptions add(TbSubscription subscription) {
+        Set<TbSubscription> newAll = new LinkedHashSet<>(all);
+        newAll.add(subscription);
+        return new TbEntitySubscriptions(newAll);
+    }
+
+    TbEntitySubscriptions remove(TbSubscription subscription) {
+        Set<TbSubscription> newAll = new LinkedHashSet<>(all);
+        newAll.remove(subscription);
+        return new TbEntitySubscriptions(newAll);
+    }
+
+    static final class KeyIndex<T extends TbSubscription> {
+
+        @Getter
+        private final List<T> allKeys;
+        private final Map<String, List<T>> byKey;
+
+        private KeyIndex(List<T> subscriptions, Function<T, Boolean> allKeysFunction, Function<T, Set<String>> keysFunction) {
+            List<T> allKeys = new ArrayList<>();
+            Map<String, List<T>> byKey = new HashMap<>();
+            for (T subscription : subscriptions) {
+                if (allKeysFunction.apply(subscription)) {
+                    allKeys.add(subscription);
+                } else {
+                    keysFunction.apply(subscription).forEach(key -> byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(subscription));
+                }
+            }
+            this.allKeys = Collections.unmodifiableList(allKeys);
+            this.byKey = byKey;
+        }
+
+        List<T> getByKey(String key) {
+            return byKey.getOrDefault(key, Collections.emptyList());
+        }
+
+    }
+
+}
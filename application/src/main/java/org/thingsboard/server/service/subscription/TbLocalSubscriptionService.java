@@ -22,6 +22,8 @@ import org.thingsboard.server.service.ws.notification.sub.NotificationsSubscript
 import org.thingsboard.server.service.ws.telemetry.sub.AlarmSubscriptionUpdate;
 import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
 
+import java.util.List;
+
 public interface TbLocalSubscriptionService {
 
     void addSubscription(TbSubscription subscription);
@@ -32,6 +34,11 @@ public interface TbLocalSubscriptionService {
 
     void onSubscriptionUpdate(String sessionId, TelemetrySubscriptionUpdate update, TbCallback callback);
 
+    /**
+     * Processes the updates of the subscriptions that belong to the same session as one task.
+     */
+    void onSubscriptionUpdates(String sessionId, List<TelemetrySubscriptionUpdate> updates, TbCallback callback);
+
     void onSubscriptionUpdate(String sessionId, AlarmSubscriptionUpdate update, TbCallback callback);
 
     void onSubscriptionUpdate(String sessionId, int subscriptionId, NotificationsSubscriptionUpdate update, TbCallback callback);
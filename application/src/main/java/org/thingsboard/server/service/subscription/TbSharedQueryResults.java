@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.Data;
+import lombok.Getter;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived results of the queries shared between the identical queries of different sessions.
+ * The concurrent identical queries wait for the single query in progress instead of hitting the database on their own.
+ * A result is reused until it expires or until an entity the queries of the tenant depend on is changed.
+ */
+final class TbSharedQueryResults {
+
+    @Getter
+    private final long ttlMs;
+    @Getter
+    private final long trackedTtlMs;
+    private final ConcurrentMap<TenantId, AtomicLong> tenantVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<QueryKey, QueryResult> results = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlMs        time to live of the results that may change without any entity lifecycle event.
+     * @param trackedTtlMs time to live of the results of the queries that are invalidated on entity changes.
+     */
+    TbSharedQueryResults(long ttlMs, long trackedTtlMs) {
+        this.ttlMs = ttlMs;
+        this.trackedTtlMs = trackedTtlMs;
+    }
+
+    <R> R get(TenantId tenantId, CustomerId customerId, String queryType, Object query, long ttlMs, Supplier<R> loader) {
+        if (ttlMs <= 0) {
+            return loader.get();
+        }
+        ListenableFuture<R> future = getAsync(tenantId, customerId, queryType, JacksonUtil.toString(query), ttlMs,
+                () -> Futures.immediateFuture(loader.get()));
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <R> ListenableFuture<R> getAsync(TenantId tenantId, CustomerId customerId, String queryType, String query, long ttlMs,
+                                     Supplier<ListenableFuture<R>> loader) {
+        if (ttlMs <= 0) {
+            return loader.get();
+        }
+        QueryKey key = new QueryKey(tenantId, customerId, queryType, query);
+        long version = getVersion(tenantId).get();
+        long ts = System.currentTimeMillis();
+        QueryResult cached = results.get(key);
+        if (cached != null && cached.getVersion() == version && (cached.getCompletedTs() == 0 || ts - cached.getCompletedTs() < ttlMs)) {
+            return (ListenableFuture<R>) cached.getFuture();
+        }
+        SettableFuture<Object> future = SettableFuture.create();
+        QueryResult result = new QueryResult(future, version);
+        boolean added = cached == null ? results.putIfAbsent(key, result) == null : results.replace(key, cached, result);
+        if (!added) {
+            // Lost the race to another identical query, the one that is just started is good enough for us.
+            QueryResult concurrent = results.get(key);
+            return concurrent != null ? (ListenableFuture<R>) concurrent.getFuture() : loader.get();
+        }
+        try {
+            future.setFuture(loader.get());
+        } catch (Throwable t) {
+            future.setException(t);
+        }
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Object value) {
+                // The result lives for the ttl after it is loaded, the slow queries are not re-executed right away
+                result.setCompletedTs(System.currentTimeMillis());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                results.remove(key, result);
+            }
+        }, MoreExecutors.directExecutor());
+        return (ListenableFuture<R>) future;
+    }
+
+    void invalidate(TenantId tenantId) {
+        getVersion(tenantId).incrementAndGet();
+        results.keySet().removeIf(key -> key.getTenantId().equals(tenantId));
+    }
+
+    void cleanUp() {
+        long expirationTs = System.currentTimeMillis() - Math.max(ttlMs, trackedTtlMs);
+        results.values().removeIf(result -> result.getCompletedTs() > 0 && result.getCompletedTs() < expirationTs);
+    }
+
+    private AtomicLong getVersion(TenantId tenantId) {
+        return tenantVersions.computeIfAbsent(tenantId, id -> new AtomicLong());
+    }
+
+    @Data
+    private static class QueryKey {
+        private final TenantId tenantId;
+        private final CustomerId customerId;
+        private final String queryType;
+        private final String query;
+    }
+
+    @Data
+    private static class QueryResult {
+        private final ListenableFuture<Object> future;
+        private final long version;
+        private volatile long completedTs;
+    }
+
+}
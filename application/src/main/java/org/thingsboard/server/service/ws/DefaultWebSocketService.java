@@ -43,6 +43,7 @@ import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
@@ -62,6 +63,7 @@ import org.thingsboard.server.service.subscription.TbAttributeSubscription;
 import org.thingsboard.server.service.subscription.TbAttributeSubscriptionScope;
 import org.thingsboard.server.service.subscription.TbEntityDataSubscriptionService;
 import org.thingsboard.server.service.subscription.TbLocalSubscriptionService;
+import org.thingsboard.server.service.subscription.TbSerializedEntityData;
 import org.thingsboard.server.service.subscription.TbTimeseriesSubscription;
 import org.thingsboard.server.service.ws.notification.NotificationCommandsHandler;
 import org.thingsboard.server.service.ws.notification.cmd.NotificationCmdsWrapper;
@@ -899,9 +901,10 @@ public class DefaultWebSocketService implements WebSocketService {
     private void sendWsMsg(WebSocketSessionRef sessionRef, int cmdId, Object update) {
         try {
             String msg = JacksonUtil.OBJECT_MAPPER.writeValueAsString(update);
+            WsSharedJson sharedJson = getSharedJson(update);
             executor.submit(() -> {
                 try {
-                    msgEndpoint.send(sessionRef, cmdId, msg);
+                    msgEndpoint.send(sessionRef, cmdId, msg, sharedJson);
                 } catch (IOException e) {
                     log.warn("[{}] Failed to send reply: {}", sessionRef.getSessionId(), update, e);
                 }
@@ -911,6 +914,19 @@ public class DefaultWebSocketService implements WebSocketService {
         }
     }
 
+    private static WsSharedJson getSharedJson(Object update) {
+        if (update instanceof TelemetrySubscriptionUpdate) {
+            TelemetrySubscriptionUpdate.SharedData sharedData = ((TelemetrySubscriptionUpdate) update).getSharedData();
+            return sharedData != null ? sharedData.getSharedJson() : null;
+        } else if (update instanceof EntityDataUpdate) {
+            List<EntityData> entityData = ((EntityDataUpdate) update).getUpdate();
+            if (entityData != null && entityData.size() == 1 && entityData.get(0) instanceof TbSerializedEntityData) {
+                return ((TbSerializedEntityData) entityData.get(0)).getSharedJson();
+            }
+        }
+        return null;
+    }
+
     private void sendPing() {
         long currentTime = System.currentTimeMillis();
         wsSessionsMap.values().forEach(md ->
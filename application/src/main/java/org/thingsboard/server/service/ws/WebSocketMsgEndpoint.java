@@ -24,7 +24,14 @@ import java.io.IOException;
  */
 public interface WebSocketMsgEndpoint {
 
-    void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException;
+    default void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
+        send(sessionRef, subscriptionId, msg, null);
+    }
+
+    /**
+     * @param sharedJson the part of the message shared with the messages of other sessions or null.
+     */
+    void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg, WsSharedJson sharedJson) throws IOException;
 
     void sendPing(WebSocketSessionRef sessionRef, long currentTime) throws IOException;
 
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the WebSocket messages to the zlib format (RFC 1950) the client inflates before parsing.
+ * The message that contains the JSON shared with other sessions is compressed as three independent deflate segments:
+ * the part of the message before the shared JSON, the shared JSON deflated once and the part after it.
+ */
+public final class WsDeflateUtils {
+
+    private static final byte[] ZLIB_HEADER = {0x78, 0x01};
+    private static final int BUFFER_SIZE = 4096;
+
+    private WsDeflateUtils() {
+    }
+
+    public static ByteBuffer deflate(String msg, WsSharedJson sharedJson) {
+        int sharedIdx = sharedJson != null ? msg.indexOf(sharedJson.getJson()) : -1;
+        if (sharedIdx < 0) {
+            return deflate(msg.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] prefix = msg.substring(0, sharedIdx).getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = msg.substring(sharedIdx + sharedJson.getJson().length()).getBytes(StandardCharsets.UTF_8);
+        byte[] shared = sharedJson.getDeflated();
+
+        Adler32 checksum = new Adler32();
+        checksum.update(prefix);
+        checksum.update(sharedJson.getBytes());
+        checksum.update(suffix);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(shared.length + prefix.length + suffix.length + 16);
+        out.writeBytes(ZLIB_HEADER);
+        out.writeBytes(deflateRaw(prefix, false));
+        out.writeBytes(shared);
+        out.writeBytes(deflateRaw(suffix, true));
+        writeInt(out, (int) checksum.getValue());
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    static ByteBuffer deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Deflates the data without the zlib header and checksum. The segment that is not the last one is ended
+     * with the sync flush, so it is aligned to the byte boundary and the next segment may be appended to it.
+     */
+    static byte[] deflateRaw(byte[] data, boolean last) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    out.write(buffer, 0, length);
+                }
+            } else {
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+}
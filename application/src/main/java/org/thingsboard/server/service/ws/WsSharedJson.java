@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * JSON part of the update sent to several sessions at once. The JSON is serialized once and, for the sessions
+ * that receive the deflated frames, compressed once: the deflated bytes are reused by the messages of all the sessions.
+ */
+public final class WsSharedJson {
+
+    private final Supplier<String> jsonSupplier;
+    private volatile String json;
+    private volatile byte[] bytes;
+    private volatile byte[] deflated;
+
+    public WsSharedJson(Supplier<String> jsonSupplier) {
+        this.jsonSupplier = jsonSupplier;
+    }
+
+    public String getJson() {
+        String result = json;
+        if (result == null) {
+            result = jsonSupplier.get();
+            json = result;
+        }
+        return result;
+    }
+
+    byte[] getBytes() {
+        byte[] result = bytes;
+        if (result == null) {
+            result = getJson().getBytes(StandardCharsets.UTF_8);
+            bytes = result;
+        }
+        return result;
+    }
+
+    byte[] getDeflated() {
+        byte[] result = deflated;
+        if (result == null) {
+            synchronized (this) {
+                result = deflated;
+                if (result == null) {
+                    result = WsDeflateUtils.deflateRaw(getBytes(), false);
+                    deflated = result;
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -15,14 +15,21 @@
  */
 package org.thingsboard.server.service.ws.telemetry.sub;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.WsSharedJson;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class TelemetrySubscriptionUpdate {
@@ -31,20 +38,12 @@ public class TelemetrySubscriptionUpdate {
     private int errorCode;
     private String errorMsg;
     private Map<String, List<Object>> data;
+    private SharedData sharedData;
 
     public TelemetrySubscriptionUpdate(int subscriptionId, List<TsKvEntry> data) {
         super();
         this.subscriptionId = subscriptionId;
-        this.data = new TreeMap<>();
-        if (data != null) {
-            for (TsKvEntry tsEntry : data) {
-                List<Object> values = this.data.computeIfAbsent(tsEntry.getKey(), k -> new ArrayList<>());
-                Object[] value = new Object[2];
-                value[0] = tsEntry.getTs();
-                value[1] = tsEntry.getValueAsString();
-                values.add(value);
-            }
-        }
+        this.data = toData(data);
     }
 
     public TelemetrySubscriptionUpdate(int subscriptionId, Map<String, List<Object>> data) {
@@ -53,6 +52,13 @@ public class TelemetrySubscriptionUpdate {
         this.data = data;
     }
 
+    public TelemetrySubscriptionUpdate(int subscriptionId, SharedData sharedData) {
+        super();
+        this.subscriptionId = subscriptionId;
+        this.data = sharedData.data;
+        this.sharedData = sharedData;
+    }
+
     public TelemetrySubscriptionUpdate(int subscriptionId, SubscriptionErrorCode errorCode) {
         this(subscriptionId, errorCode, null);
     }
@@ -68,20 +74,27 @@ public class TelemetrySubscriptionUpdate {
         return subscriptionId;
     }
 
+    @JsonIgnore
     public Map<String, List<Object>> getData() {
         return data;
     }
 
-    public Map<String, Long> getLatestValues() {
+    @JsonProperty("data")
+    @JsonRawValue
+    public String getDataJson() {
         if (data == null) {
-            return Collections.emptyMap();
-        } else {
-            return data.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> {
-                List<Object> data = e.getValue();
-                Object[] latest = (Object[]) data.get(data.size() - 1);
-                return (long) latest[0];
-            }));
+            return null;
         }
+        return sharedData != null ? sharedData.getJson() : JacksonUtil.toString(data);
+    }
+
+    @JsonIgnore
+    public SharedData getSharedData() {
+        return sharedData;
+    }
+
+    public Map<String, Long> getLatestValues() {
+        return sharedData != null ? sharedData.getLatestValues() : toLatestValues(data);
     }
 
     public int getErrorCode() {
@@ -92,9 +105,80 @@ public class TelemetrySubscriptionUpdate {
         return errorMsg;
     }
 
+    private static Map<String, List<Object>> toData(List<TsKvEntry> entries) {
+        Map<String, List<Object>> data = new TreeMap<>();
+        if (entries != null) {
+            for (TsKvEntry tsEntry : entries) {
+                List<Object> values = data.computeIfAbsent(tsEntry.getKey(), k -> new ArrayList<>());
+                Object[] value = new Object[2];
+                value[0] = tsEntry.getTs();
+                value[1] = tsEntry.getValueAsString();
+                values.add(value);
+            }
+        }
+        return data;
+    }
+
+    private static Map<String, Long> toLatestValues(Map<String, List<Object>> data) {
+        if (data == null) {
+            return Collections.emptyMap();
+        } else {
+            return data.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> {
+                List<Object> values = e.getValue();
+                Object[] latest = (Object[]) values.get(values.size() - 1);
+                return (long) latest[0];
+            }));
+        }
+    }
+
     @Override
     public String toString() {
         return "TsSubscriptionUpdate [subscriptionId=" + subscriptionId + ", errorCode=" + errorCode + ", errorMsg=" + errorMsg + ", data="
                 + data + "]";
     }
+
+    /**
+     * Data of the update delivered to several subscriptions at once.
+     * The latest values and the JSON of the data are calculated once and reused by all the subscribers.
+     */
+    public static class SharedData {
+
+        private final Map<String, List<Object>> data;
+        private final Map<Object, Object> payloads = new ConcurrentHashMap<>();
+        private final WsSharedJson json;
+        private volatile Map<String, Long> latestValues;
+
+        public SharedData(List<TsKvEntry> entries) {
+            this.data = toData(entries);
+            this.json = new WsSharedJson(() -> JacksonUtil.toString(data));
+        }
+
+        Map<String, Long> getLatestValues() {
+            Map<String, Long> result = latestValues;
+            if (result == null) {
+                result = Collections.unmodifiableMap(toLatestValues(data));
+                latestValues = result;
+            }
+            return result;
+        }
+
+        /**
+         * Returns the payload derived from the data by the subscribers that would build the same payload,
+         * e.g. the entity data sent to the entity data subscriptions of the same keys.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getPayload(Object key, Function<Object, T> payloadFunction) {
+            return (T) payloads.computeIfAbsent(key, payloadFunction);
+        }
+
+        public WsSharedJson getSharedJson() {
+            return json;
+        }
+
+        String getJson() {
+            return json.getJson();
+        }
+
+    }
+
 }
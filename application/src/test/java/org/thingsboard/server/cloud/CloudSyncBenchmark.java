@@ -0,0 +1,242 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cloud;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.cloud.imitator.CloudImitator;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+import org.thingsboard.server.common.data.edge.EdgeSettings;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.controller.AbstractControllerTest;
+import org.thingsboard.server.dao.cloud.CloudEventService;
+import org.thingsboard.server.dao.device.DeviceProfileService;
+import org.thingsboard.server.dao.service.DaoSqlTest;
+import org.thingsboard.server.dao.tenant.TenantService;
+import org.thingsboard.server.gen.edge.v1.DeviceUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
+import org.thingsboard.server.gen.edge.v1.UpdateMsgType;
+import org.thingsboard.server.service.cloud.DownlinkMessageService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Throughput benchmark of the edge-to-cloud synchronization against a local {@link CloudImitator}.
+ * <p>
+ * The class is intentionally not matched by the default surefire includes and must be started explicitly, e.g.
+ * {@code mvn test -pl application -Dtest=CloudSyncBenchmark -Dbenchmark.events=50000 -Dbenchmark.rttMs=20}.
+ * It runs offline, so it could be used as a regression check in CI with
+ * {@code -Dbenchmark.minEventsPerSec} and {@code -Dbenchmark.minDownlinkUpdatesPerSec}.
+ */
+@Slf4j
+@DaoSqlTest
+@TestPropertySource(properties = {
+        "cloud.routingKey=" + CloudSyncBenchmark.ROUTING_KEY,
+        "cloud.secret=" + CloudSyncBenchmark.SECRET,
+        "cloud.rpc.host=localhost",
+        "cloud.reconnect_timeout=1000",
+        "cloud.rpc.storage.no_read_records_sleep=100",
+        "cloud.rpc.storage.sleep_between_batches=0",
+})
+public class CloudSyncBenchmark extends AbstractControllerTest {
+
+    static final String ROUTING_KEY = "benchmark-routing-key";
+    static final String SECRET = "benchmark-secret";
+
+    private static final int EVENTS_COUNT = Integer.getInteger("benchmark.events", 10000);
+    private static final int DEVICES_COUNT = Integer.getInteger("benchmark.devices", 100);
+    private static final long RTT_MS = Long.getLong("benchmark.rttMs", 0L);
+    private static final double LOSS_RATE = Double.parseDouble(System.getProperty("benchmark.loss", "0"));
+    private static final int MAX_INBOUND_MESSAGE_SIZE = Integer.getInteger("benchmark.maxInboundMessageSize", 4194304);
+    private static final int DOWNLINKS_COUNT = Integer.getInteger("benchmark.downlinks", 100);
+    private static final int UPDATES_PER_DOWNLINK = Integer.getInteger("benchmark.updatesPerDownlink", 50);
+    private static final double MIN_EVENTS_PER_SEC = Double.parseDouble(System.getProperty("benchmark.minEventsPerSec", "0"));
+    private static final double MIN_DOWNLINK_UPDATES_PER_SEC = Double.parseDouble(System.getProperty("benchmark.minDownlinkUpdatesPerSec", "0"));
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+    private static CloudImitator cloudImitator;
+
+    @SpyBean
+    private CloudEventService cloudEventService;
+    @Autowired
+    private DownlinkMessageService downlinkMessageService;
+    @Autowired
+    private DeviceProfileService deviceProfileService;
+    @Autowired
+    private TenantService tenantService;
+
+    @BeforeClass
+    public static void startCloudImitator() throws Exception {
+        // must be started before the context is ready, because the edge connects to the cloud on application ready event
+        cloudImitator = new CloudImitator(0, TENANT_ID.getId(), UUID.randomUUID(), ROUTING_KEY, SECRET);
+        cloudImitator.setRttMs(RTT_MS);
+        cloudImitator.setLossRate(LOSS_RATE);
+        cloudImitator.setMaxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE);
+        cloudImitator.start();
+    }
+
+    @DynamicPropertySource
+    static void cloudRpcProperties(DynamicPropertyRegistry registry) {
+        // imitator is bound to a free port, so parallel builds don't clash
+        registry.add("cloud.rpc.port", () -> cloudImitator.getPort());
+    }
+
+    @AfterClass
+    public static void stopCloudImitator() {
+        if (cloudImitator != null) {
+            cloudImitator.stop();
+        }
+    }
+
+    @Test
+    public void benchmarkUplinkAndDownlinkThroughput() throws Exception {
+        Assert.assertTrue("Edge is not connected to the cloud imitator", cloudImitator.waitForConnection(1, TimeUnit.MINUTES));
+        await().atMost(1, TimeUnit.MINUTES).until(() -> tenantService.findTenantById(TENANT_ID) != null);
+
+        benchmarkUplink();
+        benchmarkDownlink();
+    }
+
+    private void benchmarkUplink() throws Exception {
+        List<DeviceId> deviceIds = new ArrayList<>();
+        for (int i = 0; i < DEVICES_COUNT; i++) {
+            deviceIds.add(new DeviceId(UUID.randomUUID()));
+        }
+        cloudImitator.resetStats();
+        Mockito.clearInvocations(cloudEventService);
+
+        long startTs = System.currentTimeMillis();
+        int timeseriesCount = 0;
+        for (int i = 0; i < EVENTS_COUNT; i++) {
+            DeviceId deviceId = deviceIds.get(i % deviceIds.size());
+            int kind = ThreadLocalRandom.current().nextInt(100);
+            if (kind < 80) {
+                ObjectNode data = JacksonUtil.newObjectNode();
+                data.put(CloudImitator.SEQ_KEY, timeseriesCount++);
+                data.put("temperature", ThreadLocalRandom.current().nextDouble(-20, 40));
+                data.put("humidity", ThreadLocalRandom.current().nextInt(100));
+                ObjectNode body = JacksonUtil.newObjectNode();
+                body.set("data", data);
+                body.put("ts", System.currentTimeMillis());
+                cloudEventService.saveCloudEventAsync(TENANT_ID, CloudEventType.DEVICE, EdgeEventActionType.TIMESERIES_UPDATED, deviceId, body, 0L);
+            } else if (kind < 95) {
+                ObjectNode kv = JacksonUtil.newObjectNode();
+                kv.put("firmwareVersion", "1.0." + i);
+                kv.put("active", true);
+                ObjectNode body = JacksonUtil.newObjectNode();
+                body.set("kv", kv);
+                body.put("scope", DataConstants.SERVER_SCOPE);
+                cloudEventService.saveCloudEventAsync(TENANT_ID, CloudEventType.DEVICE, EdgeEventActionType.ATTRIBUTES_UPDATED, deviceId, body, 0L);
+            } else {
+                cloudEventService.saveCloudEventAsync(TENANT_ID, CloudEventType.DEVICE, EdgeEventActionType.ATTRIBUTES_REQUEST, deviceId, null, 0L);
+            }
+        }
+        long prefillTs = System.currentTimeMillis();
+
+        int expectedTimeseries = timeseriesCount;
+        await().atMost(10, TimeUnit.MINUTES).pollInterval(100, TimeUnit.MILLISECONDS)
+                .until(() -> cloudImitator.getReceivedSeqsCount() >= expectedTimeseries);
+        long endTs = System.currentTimeMillis();
+
+        double durationSec = Math.max(1, endTs - startTs) / 1000.0;
+        double eventsPerSec = EVENTS_COUNT / durationSec;
+        long queries = countInvocations("findCloudEvents");
+        log.info("Uplink benchmark: events [{}], devices [{}], rtt [{}] ms, loss [{}], prefill [{}] ms, total [{}] ms",
+                EVENTS_COUNT, DEVICES_COUNT, RTT_MS, LOSS_RATE, prefillTs - startTs, endTs - startTs);
+        log.info("Uplink benchmark: [{}] events/sec, [{}] bytes/sec, uplink msgs [{}], entries [{}], lost responses [{}]",
+                String.format("%.1f", eventsPerSec), String.format("%.1f", cloudImitator.getUplinkBytes().get() / durationSec),
+                cloudImitator.getUplinkMsgsCount().get(), cloudImitator.getUplinkEntriesCount().get(),
+                cloudImitator.getLostResponsesCount().get());
+        log.info("Uplink benchmark: latency p50 [{}] ms, p99 [{}] ms, cloud event queries [{}] ([{}] events per query)",
+                cloudImitator.getLatencyPercentile(50), cloudImitator.getLatencyPercentile(99),
+                queries, queries > 0 ? EVENTS_COUNT / queries : 0);
+
+        if (MIN_EVENTS_PER_SEC > 0) {
+            Assert.assertTrue("Uplink throughput " + eventsPerSec + " events/sec is below " + MIN_EVENTS_PER_SEC,
+                    eventsPerSec >= MIN_EVENTS_PER_SEC);
+        }
+    }
+
+    private void benchmarkDownlink() throws Exception {
+        DeviceProfile deviceProfile = deviceProfileService.findOrCreateDeviceProfile(TENANT_ID, "default");
+        EdgeSettings edgeSettings = cloudEventService.findEdgeSettings(TENANT_ID);
+        List<DownlinkMsg> downlinkMsgs = new ArrayList<>(DOWNLINKS_COUNT);
+        for (int i = 0; i < DOWNLINKS_COUNT; i++) {
+            DownlinkMsg.Builder builder = DownlinkMsg.newBuilder().setDownlinkMsgId(i);
+            for (int j = 0; j < UPDATES_PER_DOWNLINK; j++) {
+                UUID deviceUuid = UUID.randomUUID();
+                builder.addDeviceUpdateMsg(DeviceUpdateMsg.newBuilder()
+                        .setMsgType(UpdateMsgType.ENTITY_CREATED_RPC_MESSAGE)
+                        .setIdMSB(deviceUuid.getMostSignificantBits())
+                        .setIdLSB(deviceUuid.getLeastSignificantBits())
+                        .setName("Benchmark Device " + deviceUuid)
+                        .setType(deviceProfile.getName())
+                        .setDeviceProfileIdMSB(deviceProfile.getUuidId().getMostSignificantBits())
+                        .setDeviceProfileIdLSB(deviceProfile.getUuidId().getLeastSignificantBits())
+                        .build());
+            }
+            downlinkMsgs.add(builder.build());
+        }
+
+        long startTs = System.currentTimeMillis();
+        for (DownlinkMsg downlinkMsg : downlinkMsgs) {
+            downlinkMessageService.processDownlinkMsg(TENANT_ID, null, downlinkMsg, edgeSettings, 0L).get(1, TimeUnit.MINUTES);
+        }
+        long durationMs = Math.max(1, System.currentTimeMillis() - startTs);
+
+        int updatesCount = DOWNLINKS_COUNT * UPDATES_PER_DOWNLINK;
+        double updatesPerSec = updatesCount * 1000.0 / durationMs;
+        log.info("Downlink benchmark: downlinks [{}], updates [{}], total [{}] ms, [{}] updates/sec",
+                DOWNLINKS_COUNT, updatesCount, durationMs, String.format("%.1f", updatesPerSec));
+
+        if (MIN_DOWNLINK_UPDATES_PER_SEC > 0) {
+            Assert.assertTrue("Downlink apply rate " + updatesPerSec + " updates/sec is below " + MIN_DOWNLINK_UPDATES_PER_SEC,
+                    updatesPerSec >= MIN_DOWNLINK_UPDATES_PER_SEC);
+        }
+    }
+
+    private long countInvocations(String methodName) {
+        long count = 0;
+        for (Invocation invocation : Mockito.mockingDetails(cloudEventService).getInvocations()) {
+            if (methodName.equals(invocation.getMethod().getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cloud.imitator;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.Descriptors;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.gen.edge.v1.ConnectResponseCode;
+import org.thingsboard.server.gen.edge.v1.ConnectResponseMsg;
+import org.thingsboard.server.gen.edge.v1.DownlinkMsg;
+import org.thingsboard.server.gen.edge.v1.DownlinkResponseMsg;
+import org.thingsboard.server.gen.edge.v1.EdgeConfiguration;
+import org.thingsboard.server.gen.edge.v1.EdgeRpcServiceGrpc;
+import org.thingsboard.server.gen.edge.v1.EntityDataProto;
+import org.thingsboard.server.gen.edge.v1.RequestMsg;
+import org.thingsboard.server.gen.edge.v1.ResponseMsg;
+import org.thingsboard.server.gen.edge.v1.SyncCompletedMsg;
+import org.thingsboard.server.gen.edge.v1.UplinkMsg;
+import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stub of the cloud side of the edge protocol.
+ * <p>
+ * Accepts connection of the edge, completes sync requests right away and acknowledges uplink messages
+ * with the configured round trip time and loss rate, while collecting statistics of the received uplinks.
+ * Timeseries values of the uplinks are expected to be posted with the ts of the cloud event creation
+ * and a unique {@link #SEQ_KEY} value, so the difference between receive time and ts of the first delivery
+ * is the end-to-end uplink latency, and re-sent duplicates are not counted twice.
+ */
+@Slf4j
+public class CloudImitator {
+
+    public static final String SEQ_KEY = "seq";
+
+    private final int port;
+    private final EdgeConfiguration configuration;
+
+    @Setter
+    private long rttMs = 0;
+    @Setter
+    private double lossRate = 0.0;
+    @Setter
+    private int maxInboundMessageSize = 4194304;
+
+    private Server server;
+    private ScheduledExecutorService responseScheduler;
+    private volatile StreamObserver<ResponseMsg> outputStream;
+    private final AtomicInteger downlinkMsgIdSeq = new AtomicInteger();
+    private final ConcurrentMap<Integer, SettableFuture<DownlinkResponseMsg>> pendingDownlinks = new ConcurrentHashMap<>();
+
+    private volatile CountDownLatch connectLatch = new CountDownLatch(1);
+    @Getter
+    private final AtomicLong uplinkMsgsCount = new AtomicLong();
+    @Getter
+    private final AtomicLong uplinkEntriesCount = new AtomicLong();
+    @Getter
+    private final AtomicLong uplinkBytes = new AtomicLong();
+    @Getter
+    private final AtomicLong lostResponsesCount = new AtomicLong();
+    private final Set<Long> receivedSeqs = ConcurrentHashMap.newKeySet();
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+    public CloudImitator(int port, UUID tenantId, UUID edgeId, String routingKey, String secret) {
+        this.port = port;
+        this.configuration = EdgeConfiguration.newBuilder()
+                .setTenantIdMSB(tenantId.getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getLeastSignificantBits())
+                .setEdgeIdMSB(edgeId.getMostSignificantBits())
+                .setEdgeIdLSB(edgeId.getLeastSignificantBits())
+                .setName("Benchmark Edge")
+                .setType("default")
+                .setRoutingKey(routingKey)
+                .setSecret(secret)
+                .setCloudType("CE")
+                .build();
+    }
+
+    public void start() throws IOException {
+        responseScheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("cloud-imitator"));
+        server = NettyServerBuilder.forPort(port)
+                .maxInboundMessageSize(maxInboundMessageSize)
+                .addService(new EdgeRpcServiceGrpc.EdgeRpcServiceImplBase() {
+                    @Override
+                    public StreamObserver<RequestMsg> handleMsgs(StreamObserver<ResponseMsg> responseObserver) {
+                        return new StreamObserver<>() {
+                            @Override
+                            public void onNext(RequestMsg requestMsg) {
+                                onRequestMsg(responseObserver, requestMsg);
+                            }
+
+                            @Override
+                            public void onError(Throwable t) {
+                                log.warn("Edge stream was terminated", t);
+                            }
+
+                            @Override
+                            public void onCompleted() {
+                                responseObserver.onCompleted();
+                            }
+                        };
+                    }
+                })
+                .build()
+                .start();
+        log.info("Cloud imitator started on port {}", server.getPort());
+    }
+
+    /**
+     * @return actual port of the started server, so the imitator could be bound to port 0
+     */
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.shutdownNow();
+        }
+        if (responseScheduler != null) {
+            responseScheduler.shutdownNow();
+        }
+    }
+
+    public boolean waitForConnection(long timeout, TimeUnit unit) throws InterruptedException {
+        return connectLatch.await(timeout, unit);
+    }
+
+    /**
+     * Sends downlink to the edge.
+     *
+     * @return future that is completed once the edge acknowledges the downlink
+     */
+    public ListenableFuture<DownlinkResponseMsg> sendDownlinkMsg(DownlinkMsg downlinkMsg) {
+        int downlinkMsgId = downlinkMsgIdSeq.incrementAndGet();
+        SettableFuture<DownlinkResponseMsg> future = SettableFuture.create();
+        pendingDownlinks.put(downlinkMsgId, future);
+        send(ResponseMsg.newBuilder().setDownlinkMsg(downlinkMsg.toBuilder().setDownlinkMsgId(downlinkMsgId)).build());
+        return future;
+    }
+
+    /**
+     * @return number of unique timeseries entries, identified by {@link #SEQ_KEY}, that were received
+     */
+    public int getReceivedSeqsCount() {
+        return receivedSeqs.size();
+    }
+
+    public void resetStats() {
+        uplinkMsgsCount.set(0);
+        uplinkEntriesCount.set(0);
+        uplinkBytes.set(0);
+        lostResponsesCount.set(0);
+        receivedSeqs.clear();
+        latencies.clear();
+    }
+
+    /**
+     * @return end-to-end uplink latency percentile in milliseconds, or -1 if no timeseries were received
+     */
+    public long getLatencyPercentile(double percentile) {
+        List<Long> sorted;
+        synchronized (latencies) {
+            sorted = new ArrayList<>(latencies);
+        }
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private void onRequestMsg(StreamObserver<ResponseMsg> responseObserver, RequestMsg requestMsg) {
+        if (requestMsg.hasConnectRequestMsg()) {
+            outputStream = responseObserver;
+            send(ResponseMsg.newBuilder()
+                    .setConnectResponseMsg(ConnectResponseMsg.newBuilder()
+                            .setResponseCode(ConnectResponseCode.ACCEPTED)
+                            .setConfiguration(configuration)
+                            .setMaxInboundMessageSize(maxInboundMessageSize)
+                            .build())
+                    .build());
+            connectLatch.countDown();
+        } else if (requestMsg.hasSyncRequestMsg()) {
+            sendDownlinkMsg(DownlinkMsg.newBuilder().setSyncCompletedMsg(SyncCompletedMsg.newBuilder().build()).build());
+        } else if (requestMsg.hasDownlinkResponseMsg()) {
+            DownlinkResponseMsg downlinkResponseMsg = requestMsg.getDownlinkResponseMsg();
+            SettableFuture<DownlinkResponseMsg> future = pendingDownlinks.remove(downlinkResponseMsg.getDownlinkMsgId());
+            if (future != null) {
+                future.set(downlinkResponseMsg);
+            }
+        } else if (requestMsg.hasUplinkMsg()) {
+            onUplinkMsg(requestMsg.getUplinkMsg());
+        }
+    }
+
+    private void onUplinkMsg(UplinkMsg uplinkMsg) {
+        long receivedTs = System.currentTimeMillis();
+        uplinkMsgsCount.incrementAndGet();
+        uplinkBytes.addAndGet(uplinkMsg.getSerializedSize());
+        uplinkEntriesCount.addAndGet(countEntries(uplinkMsg));
+        for (EntityDataProto entityData : uplinkMsg.getEntityDataList()) {
+            for (TransportProtos.TsKvListProto tsKvList : entityData.getPostTelemetryMsg().getTsKvListList()) {
+                for (TransportProtos.KeyValueProto kv : tsKvList.getKvList()) {
+                    if (SEQ_KEY.equals(kv.getKey()) && receivedSeqs.add(kv.getLongV())) {
+                        latencies.add(receivedTs - tsKvList.getTs());
+                    }
+                }
+            }
+        }
+        if (lossRate > 0 && ThreadLocalRandom.current().nextDouble() < lossRate) {
+            lostResponsesCount.incrementAndGet();
+            return;
+        }
+        ResponseMsg response = ResponseMsg.newBuilder()
+                .setUplinkResponseMsg(UplinkResponseMsg.newBuilder()
+                        .setUplinkMsgId(uplinkMsg.getUplinkMsgId())
+                        .setSuccess(true)
+                        .build())
+                .build();
+        if (rttMs > 0) {
+            responseScheduler.schedule(() -> send(response), rttMs, TimeUnit.MILLISECONDS);
+        } else {
+            send(response);
+        }
+    }
+
+    private static int countEntries(UplinkMsg uplinkMsg) {
+        int count = 0;
+        for (Descriptors.FieldDescriptor field : uplinkMsg.getDescriptorForType().getFields()) {
+            if (field.isRepeated()) {
+                count += uplinkMsg.getRepeatedFieldCount(field);
+            }
+        }
+        return count;
+    }
+
+    private synchronized void send(ResponseMsg responseMsg) {
+        StreamObserver<ResponseMsg> stream = outputStream;
+        if (stream != null) {
+            stream.onNext(responseMsg);
+        }
+    }
+}
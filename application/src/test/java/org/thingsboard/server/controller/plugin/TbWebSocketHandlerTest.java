@@ -22,15 +22,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.adapter.NativeWebSocketSession;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.service.ws.WebSocketSessionRef;
+import org.thingsboard.server.service.ws.WsSharedJson;
 
 import javax.websocket.RemoteEndpoint;
 import javax.websocket.SendHandler;
 import javax.websocket.SendResult;
 import javax.websocket.Session;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -41,6 +47,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.Inflater;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -79,7 +86,7 @@ class TbWebSocketHandlerTest {
         asyncRemote = mock(RemoteEndpoint.Async.class);
         willReturn(asyncRemote).given(nativeSession).getAsyncRemote();
         sessionRef = mock(WebSocketSessionRef.class, Mockito.RETURNS_DEEP_STUBS); //prevent NPE on logs
-        sendHandler = spy(wsHandler.new SessionMetaData(session, sessionRef, maxMsgQueuePerSession));
+        sendHandler = spy(wsHandler.new SessionMetaData(session, sessionRef, maxMsgQueuePerSession, false));
     }
 
     @AfterEach
@@ -157,4 +164,74 @@ class TbWebSocketHandlerTest {
         verify(asyncRemote, times(1)).sendText(anyString(), any());
     }
 
+    @Test
+    void compression_requested_by_query_param() {
+        ReflectionTestUtils.setField(wsHandler, "compressionEnabled", true);
+
+        willReturn(URI.create("ws://localhost/api/ws/plugins/telemetry?token=abc&compression=deflate")).given(session).getUri();
+        assertThat(wsHandler.isCompressionRequested(session)).isTrue();
+
+        willReturn(URI.create("ws://localhost/api/ws/plugins/telemetry?token=abc")).given(session).getUri();
+        assertThat(wsHandler.isCompressionRequested(session)).isFalse();
+
+        willReturn(URI.create("ws://localhost/api/ws/plugins/telemetry?token=abc&compression=gzip")).given(session).getUri();
+        assertThat(wsHandler.isCompressionRequested(session)).isFalse();
+
+        willReturn(null).given(session).getUri();
+        assertThat(wsHandler.isCompressionRequested(session)).isFalse();
+    }
+
+    @Test
+    void compression_not_requested_when_disabled() {
+        ReflectionTestUtils.setField(wsHandler, "compressionEnabled", false);
+        willReturn(URI.create("ws://localhost/api/ws/plugins/telemetry?token=abc&compression=deflate")).given(session).getUri();
+
+        assertThat(wsHandler.isCompressionRequested(session)).isFalse();
+    }
+
+    @Test
+    void compressed_session_sends_large_msgs_as_deflated_binary_frames() throws Exception {
+        ReflectionTestUtils.setField(wsHandler, "compressionMinSize", 64);
+        TbWebSocketHandler.SessionMetaData compressedHandler = wsHandler.new SessionMetaData(session, sessionRef, maxMsgQueuePerSession, true);
+        Collection<String> outputs = new ConcurrentLinkedQueue<>();
+        willAnswer(invocation -> {
+            outputs.add(invocation.getArgument(0));
+            invocation.<SendHandler>getArgument(1).onResult(new SendResult());
+            return null;
+        }).given(asyncRemote).sendText(anyString(), any());
+        willAnswer(invocation -> {
+            outputs.add(inflate(invocation.getArgument(0)));
+            invocation.<SendHandler>getArgument(1).onResult(new SendResult());
+            return null;
+        }).given(asyncRemote).sendBinary(any(), any());
+
+        String shared = "{\"temperature\":[[1000,\"22.5\"]],\"humidity\":[[1000,\"45\"]]}";
+        String small = "{\"subscriptionId\":1}";
+        String large = "{\"subscriptionId\":1,\"errorCode\":0,\"data\":" + shared + "}";
+        compressedHandler.sendMsg(small);
+        compressedHandler.sendMsg(large, new WsSharedJson(() -> shared));
+        compressedHandler.sendMsg(large);
+
+        assertThat(outputs).containsExactly(small, large, large);
+        verify(asyncRemote, times(1)).sendText(anyString(), any());
+        verify(asyncRemote, times(2)).sendBinary(any(), any());
+    }
+
+    static String inflate(ByteBuffer buffer) throws Exception {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1024];
+            while (!inflater.finished()) {
+                out.write(chunk, 0, inflater.inflate(chunk));
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
 }
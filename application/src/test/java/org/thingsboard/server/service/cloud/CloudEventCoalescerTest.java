@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+import org.thingsboard.server.common.data.id.CloudEventId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.gen.edge.v1.EntityDataProto;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.service.edge.rpc.constructor.EntityDataMsgConstructor;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class CloudEventCoalescerTest {
+
+    private final UUID deviceId = UUID.randomUUID();
+    private final UUID otherDeviceId = UUID.randomUUID();
+
+    @Test
+    public void testConsecutiveEntityUpdatesAreMergedIntoLatest() {
+        List<CloudEvent> events = List.of(
+                event(1, deviceId, EdgeEventActionType.UPDATED, null),
+                event(2, otherDeviceId, EdgeEventActionType.UPDATED, null),
+                event(3, deviceId, EdgeEventActionType.UPDATED, null));
+
+        List<CloudEvent> result = CloudEventCoalescer.coalesce(events);
+
+        Assert.assertNull(result.get(0));
+        Assert.assertSame(events.get(1), result.get(1));
+        Assert.assertSame(events.get(2), result.get(2));
+    }
+
+    @Test
+    public void testEntityUpdateIsNotMergedAcrossOtherEventOfSameEntity() {
+        List<CloudEvent> events = List.of(
+                event(1, deviceId, EdgeEventActionType.UPDATED, null),
+                event(2, deviceId, EdgeEventActionType.ASSIGNED_TO_CUSTOMER, null),
+                event(3, deviceId, EdgeEventActionType.UPDATED, null));
+
+        Assert.assertEquals(events, CloudEventCoalescer.coalesce(events));
+    }
+
+    @Test
+    public void testTimeseriesEventsArePackedIntoFirstEvent() {
+        List<CloudEvent> events = List.of(
+                event(1, deviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":{\"temperature\":1},\"ts\":1000}"),
+                event(2, otherDeviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":{\"temperature\":5},\"ts\":1500}"),
+                event(3, deviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":[{\"ts\":2000,\"values\":{\"temperature\":2}}],\"ts\":2000}"),
+                event(4, deviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":{\"temperature\":3},\"ts\":3000}"));
+
+        List<CloudEvent> result = CloudEventCoalescer.coalesce(events);
+
+        Assert.assertSame(events.get(1), result.get(1));
+        Assert.assertNull(result.get(2));
+        Assert.assertNull(result.get(3));
+        CloudEvent merged = result.get(0);
+        Assert.assertEquals(1, merged.getSeqId());
+        Assert.assertEquals(JacksonUtil.toJsonNode("{\"data\":[" +
+                "{\"ts\":1000,\"values\":{\"temperature\":1}}," +
+                "{\"ts\":2000,\"values\":{\"temperature\":2}}," +
+                "{\"ts\":3000,\"values\":{\"temperature\":3}}],\"ts\":3000}"), merged.getEntityBody());
+    }
+
+    @Test
+    public void testAllTimestampsOfPackedTimeseriesEventReachTelemetryMsg() {
+        List<CloudEvent> events = List.of(
+                event(1, deviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":{\"temperature\":1},\"ts\":1000}"),
+                event(2, deviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":[{\"ts\":2000,\"values\":{\"temperature\":2}}],\"ts\":2000}"),
+                event(3, deviceId, EdgeEventActionType.TIMESERIES_UPDATED, "{\"data\":{\"temperature\":3,\"humidity\":50},\"ts\":3000}"));
+
+        CloudEvent merged = CloudEventCoalescer.coalesce(events).get(0);
+        EntityDataProto entityData = new EntityDataMsgConstructor().constructEntityDataMsg(TenantId.SYS_TENANT_ID,
+                new DeviceId(deviceId), EdgeEventActionType.TIMESERIES_UPDATED,
+                JsonParser.parseString(JacksonUtil.toString(merged.getEntityBody())));
+
+        Assert.assertTrue(entityData.hasPostTelemetryMsg());
+        List<TransportProtos.TsKvListProto> tsKvList = entityData.getPostTelemetryMsg().getTsKvListList();
+        Assert.assertEquals(List.of(1000L, 2000L, 3000L),
+                tsKvList.stream().map(TransportProtos.TsKvListProto::getTs).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(1L, 2L, 3L),
+                tsKvList.stream().map(tsKv -> tsKv.getKv(0).getLongV()).collect(Collectors.toList()));
+        Assert.assertEquals(2, tsKvList.get(2).getKvCount());
+    }
+
+    @Test
+    public void testAttributesOfSameScopeAreMergedAndLatestValueWins() {
+        List<CloudEvent> events = List.of(
+                event(1, deviceId, EdgeEventActionType.ATTRIBUTES_UPDATED, "{\"kv\":{\"a\":1,\"b\":1},\"scope\":\"SERVER_SCOPE\"}"),
+                event(2, deviceId, EdgeEventActionType.ATTRIBUTES_UPDATED, "{\"kv\":{\"a\":2},\"scope\":\"SERVER_SCOPE\"}"),
+                event(3, deviceId, EdgeEventActionType.ATTRIBUTES_UPDATED, "{\"kv\":{\"a\":3},\"scope\":\"SHARED_SCOPE\"}"));
+
+        List<CloudEvent> result = CloudEventCoalescer.coalesce(events);
+
+        Assert.assertEquals(JacksonUtil.toJsonNode("{\"kv\":{\"a\":2,\"b\":1},\"scope\":\"SERVER_SCOPE\"}"), result.get(0).getEntityBody());
+        Assert.assertNull(result.get(1));
+        Assert.assertSame(events.get(2), result.get(2));
+    }
+
+    private CloudEvent event(long seqId, UUID entityId, EdgeEventActionType action, String body) {
+        CloudEvent cloudEvent = new CloudEvent(new CloudEventId(UUID.randomUUID()));
+        cloudEvent.setSeqId(seqId);
+        cloudEvent.setType(CloudEventType.DEVICE);
+        cloudEvent.setEntityId(entityId);
+        cloudEvent.setAction(action);
+        JsonNode entityBody = body != null ? JacksonUtil.toJsonNode(body) : null;
+        cloudEvent.setEntityBody(entityBody);
+        return cloudEvent;
+    }
+}
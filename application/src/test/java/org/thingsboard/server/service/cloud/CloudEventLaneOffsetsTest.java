@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
+import org.thingsboard.server.service.cloud.CloudEventLaneOffsets.QueueOffset;
+
+public class CloudEventLaneOffsetsTest {
+
+    @Test
+    public void testQueueOffsetIsKeptBehindLanesWithPendingEvents() {
+        CloudEventLaneOffsets offsets = offsets(10);
+
+        offsets.update(CloudEventLane.CONTROL, new QueueOffset(2000L, 20L));
+        offsets.update(CloudEventLane.TELEMETRY, new QueueOffset(3000L, 30L));
+
+        Assert.assertEquals(new QueueOffset(1000L, 10L), offsets.getQueueOffset());
+    }
+
+    @Test
+    public void testIdleLaneDoesNotPinQueueOffset() {
+        CloudEventLaneOffsets offsets = offsets(10);
+        offsets.markIdle(CloudEventLane.ALARM);
+
+        for (int i = 1; i <= 5; i++) {
+            offsets.update(CloudEventLane.CONTROL, new QueueOffset(1000L + i * 100, 10L + i * 2));
+            offsets.update(CloudEventLane.TELEMETRY, new QueueOffset(1000L + i * 100 + 50, 11L + i * 2));
+            // alarm lane gets no events, the queue offset still moves on
+            Assert.assertEquals(new QueueOffset(1000L + i * 100, 10L + i * 2), offsets.getQueueOffset());
+        }
+    }
+
+    @Test
+    public void testQueueOffsetMovesToLatestLaneOffsetOnceAllLanesAreIdle() {
+        CloudEventLaneOffsets offsets = offsets(10);
+        offsets.update(CloudEventLane.TELEMETRY, new QueueOffset(3000L, 30L));
+        for (CloudEventLane lane : CloudEventLane.values()) {
+            offsets.markIdle(lane);
+        }
+
+        Assert.assertEquals(new QueueOffset(3000L, 30L), offsets.getQueueOffset());
+    }
+
+    @Test
+    public void testLaneWithNewEventsHoldsQueueOffsetAgain() {
+        CloudEventLaneOffsets offsets = offsets(10);
+        offsets.markIdle(CloudEventLane.ALARM);
+        offsets.update(CloudEventLane.CONTROL, new QueueOffset(2000L, 20L));
+        offsets.update(CloudEventLane.TELEMETRY, new QueueOffset(3000L, 30L));
+        Assert.assertEquals(new QueueOffset(2000L, 20L), offsets.getQueueOffset());
+
+        offsets.update(CloudEventLane.ALARM, new QueueOffset(1500L, 15L));
+
+        Assert.assertEquals(new QueueOffset(1500L, 15L), offsets.getQueueOffset());
+    }
+
+    private CloudEventLaneOffsets offsets(long seqId) {
+        CloudEventLaneOffsets offsets = new CloudEventLaneOffsets();
+        for (CloudEventLane lane : CloudEventLane.values()) {
+            offsets.update(lane, new QueueOffset(seqId * 100, seqId));
+        }
+        return offsets;
+    }
+}
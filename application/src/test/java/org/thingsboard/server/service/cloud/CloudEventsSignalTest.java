@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CloudEventsSignalTest {
+
+    private static final long FALLBACK_POLL_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+
+    @Test
+    public void testPersistedEventWakesUpReaderBeforeFallbackInterval() throws Exception {
+        CloudEventsSignal signal = new CloudEventsSignal();
+        CountDownLatch readerStarted = new CountDownLatch(1);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> notified = reader.submit(() -> {
+                readerStarted.countDown();
+                return signal.await(FALLBACK_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            });
+            Assert.assertTrue(readerStarted.await(5, TimeUnit.SECONDS));
+
+            long publishTs = System.currentTimeMillis();
+            signal.onPersisted(10L);
+
+            Assert.assertTrue(notified.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() - publishTs < FALLBACK_POLL_INTERVAL_MS);
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEventPersistedBeforeWaitIsNotLost() throws InterruptedException {
+        CloudEventsSignal signal = new CloudEventsSignal();
+        signal.onPersisted(10L);
+        signal.onPersisted(11L);
+
+        Assert.assertTrue(signal.await(FALLBACK_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(signal.await(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPersistedSeqIdIsConsumedOnce() {
+        CloudEventsSignal signal = new CloudEventsSignal();
+        signal.onPersisted(10L);
+
+        Assert.assertFalse(signal.isNewEventPersisted(10L));
+
+        signal.onPersisted(11L);
+        Assert.assertTrue(signal.isNewEventPersisted(10L));
+        Assert.assertFalse(signal.isNewEventPersisted(10L));
+
+        signal.onPersisted(12L);
+        signal.reset();
+        Assert.assertFalse(signal.isNewEventPersisted(10L));
+    }
+}
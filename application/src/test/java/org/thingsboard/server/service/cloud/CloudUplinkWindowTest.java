@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.gen.edge.v1.UplinkMsg;
+import org.thingsboard.server.gen.edge.v1.UplinkResponseMsg;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class CloudUplinkWindowTest {
+
+    @Test
+    public void testOffsetMovesOnlyToContiguouslyAcknowledgedEvent() throws InterruptedException {
+        CloudUplinkWindow window = new CloudUplinkWindow(10);
+        send(window, 1, 101);
+        CloudEvent second = send(window, 2, 102);
+        CloudEvent third = send(window, 3, 103);
+
+        window.onUplinkResponse(response(102, true));
+        Assert.assertNull(window.pollAcknowledgedOffset());
+
+        window.onUplinkResponse(response(101, true));
+        Assert.assertEquals(second, window.pollAcknowledgedOffset());
+
+        window.onUplinkResponse(response(103, true));
+        Assert.assertEquals(third, window.pollAcknowledgedOffset());
+        Assert.assertTrue(window.isEmpty());
+    }
+
+    @Test
+    public void testSkippedEventDoesNotBlockOffset() throws InterruptedException {
+        CloudUplinkWindow window = new CloudUplinkWindow(10);
+        send(window, 1, 101);
+        CloudEvent skipped = cloudEvent(2);
+        window.skip(skipped);
+
+        window.onUplinkResponse(response(101, true));
+        Assert.assertEquals(skipped, window.pollAcknowledgedOffset());
+    }
+
+    @Test
+    public void testPartOfEventDoesNotMoveOffset() throws InterruptedException {
+        CloudUplinkWindow window = new CloudUplinkWindow(10);
+        Assert.assertTrue(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+        window.register(null, UplinkMsg.newBuilder().setUplinkMsgId(101).build());
+        CloudEvent event = send(window, 1, 102);
+
+        window.onUplinkResponse(response(101, true));
+        Assert.assertNull(window.pollAcknowledgedOffset());
+
+        window.onUplinkResponse(response(102, true));
+        Assert.assertEquals(event, window.pollAcknowledgedOffset());
+    }
+
+    @Test
+    public void testOnlyFailedMessagesAreResent() throws InterruptedException {
+        CloudUplinkWindow window = new CloudUplinkWindow(10);
+        send(window, 1, 101);
+        send(window, 2, 102);
+
+        window.onUplinkResponse(response(101, false));
+        List<UplinkMsg> resend = window.collectForResend(TimeUnit.MINUTES.toMillis(1), 10);
+        Assert.assertEquals(1, resend.size());
+        Assert.assertEquals(101, resend.get(0).getUplinkMsgId());
+
+        Assert.assertTrue(window.collectForResend(TimeUnit.MINUTES.toMillis(1), 10).isEmpty());
+    }
+
+    @Test
+    public void testMessageIsDiscardedAfterMaxAttempts() throws InterruptedException {
+        CloudUplinkWindow window = new CloudUplinkWindow(1);
+        CloudEvent event = send(window, 1, 101);
+        Assert.assertFalse(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+        window.onUplinkResponse(response(101, false));
+        Assert.assertEquals(1, window.collectForResend(TimeUnit.MINUTES.toMillis(1), 2).size());
+        window.onUplinkResponse(response(101, false));
+        Assert.assertTrue(window.collectForResend(TimeUnit.MINUTES.toMillis(1), 2).isEmpty());
+
+        Assert.assertTrue(window.isEmpty());
+        Assert.assertEquals(event, window.pollAcknowledgedOffset());
+        Assert.assertTrue(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWindowLimitsInFlightMessages() throws InterruptedException {
+        CloudUplinkWindow window = new CloudUplinkWindow(2);
+        send(window, 1, 101);
+        send(window, 2, 102);
+        Assert.assertFalse(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+        window.onUplinkResponse(response(101, true));
+        Assert.assertTrue(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+    }
+
+    private CloudEvent send(CloudUplinkWindow window, long seqId, int uplinkMsgId) throws InterruptedException {
+        CloudEvent cloudEvent = cloudEvent(seqId);
+        Assert.assertTrue(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+        window.register(cloudEvent, UplinkMsg.newBuilder().setUplinkMsgId(uplinkMsgId).build());
+        return cloudEvent;
+    }
+
+    private CloudEvent cloudEvent(long seqId) {
+        CloudEvent cloudEvent = new CloudEvent();
+        cloudEvent.setSeqId(seqId);
+        return cloudEvent;
+    }
+
+    private UplinkResponseMsg response(int uplinkMsgId, boolean success) {
+        return UplinkResponseMsg.newBuilder().setUplinkMsgId(uplinkMsgId).setSuccess(success).build();
+    }
+}
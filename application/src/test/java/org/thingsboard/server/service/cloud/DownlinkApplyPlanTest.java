@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class DownlinkApplyPlanTest {
+
+    private ListeningExecutorService executor;
+
+    @Before
+    public void before() {
+        executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testUpdatesOfDifferentEntitiesAreAppliedConcurrently() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        DownlinkApplyPlan plan = new DownlinkApplyPlan();
+        plan.addStage(List.of(UUID.randomUUID(), UUID.randomUUID()), id -> id, id -> {
+            started.countDown();
+            try {
+                // both updates have to be started before any of them is completed
+                Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return Futures.immediateFuture(null);
+        });
+        plan.apply(executor).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testStagesAndUpdatesOfSameEntityAreApplied() throws Exception {
+        UUID profileId = UUID.randomUUID();
+        UUID deviceId = UUID.randomUUID();
+        List<String> applied = new CopyOnWriteArrayList<>();
+        DownlinkApplyPlan plan = new DownlinkApplyPlan();
+        plan.addStage(List.of("profile"), msg -> profileId, msg -> executor.submit(() -> {
+            Thread.sleep(100);
+            applied.add(msg);
+            return null;
+        }));
+        plan.addStage(List.of("device-1", "device-2", "device-3"), msg -> deviceId, msg -> {
+            applied.add(msg);
+            return Futures.immediateFuture(null);
+        });
+        plan.addStage(List.of(), msg -> null, msg -> Futures.immediateFailedFuture(new RuntimeException()));
+
+        Assert.assertEquals(2, plan.getStagesCount());
+        plan.apply(executor).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(List.of("profile", "device-1", "device-2", "device-3"), applied);
+    }
+
+    @Test
+    public void testStagesAfterFailedStageAreAppliedInOrder() {
+        List<String> applied = new CopyOnWriteArrayList<>();
+        DownlinkApplyPlan plan = new DownlinkApplyPlan();
+        plan.addStage(() -> {
+            applied.add("profile");
+            return Futures.immediateFuture(null);
+        });
+        plan.addStage(List.of("device-1", "device-2"), msg -> UUID.randomUUID(), msg -> {
+            if (msg.equals("device-1")) {
+                return Futures.immediateFailedFuture(new RuntimeException("device-1 failed"));
+            }
+            return executor.submit(() -> {
+                Thread.sleep(100);
+                applied.add(msg);
+                return null;
+            });
+        });
+        plan.addStage(() -> {
+            throw new RuntimeException("relation failed");
+        });
+        plan.addStage(() -> {
+            applied.add("alarm");
+            return Futures.immediateFuture(null);
+        });
+
+        ListenableFuture<List<Void>> result = plan.apply(executor);
+        ExecutionException e = Assert.assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(List.of("profile", "device-2", "alarm"), applied);
+        Assert.assertEquals("device-1 failed", e.getCause().getCause().getMessage());
+        Assert.assertEquals(1, e.getCause().getSuppressed().length);
+        Assert.assertEquals("relation failed", e.getCause().getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    public void testFailedUpdateIsReportedWithoutExecutor() {
+        List<String> applied = new CopyOnWriteArrayList<>();
+        DownlinkApplyPlan plan = new DownlinkApplyPlan();
+        plan.addStage(() -> {
+            throw new RuntimeException("failed");
+        });
+        plan.addStage(() -> {
+            applied.add("next");
+            return Futures.immediateFuture(null);
+        });
+        Assert.assertThrows(ExecutionException.class, () -> plan.apply().get());
+        Assert.assertEquals(List.of("next"), applied);
+    }
+
+    @Test
+    public void testUpdatesAreAppliedSequentiallyWithoutExecutor() throws Exception {
+        List<String> applied = new CopyOnWriteArrayList<>();
+        DownlinkApplyPlan plan = new DownlinkApplyPlan();
+        plan.addSequentialStage(List.of("customer-1", "customer-2"), msg -> {
+            applied.add(msg);
+            return Futures.immediateFuture(null);
+        });
+        plan.addStage(() -> {
+            applied.add("relation");
+            return Futures.immediateFuture(null);
+        });
+        Assert.assertEquals(3, plan.apply().get().size());
+        Assert.assertEquals(List.of("customer-1", "customer-2", "relation"), applied);
+    }
+}
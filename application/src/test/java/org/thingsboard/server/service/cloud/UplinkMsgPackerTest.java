@@ -0,0 +1,139 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.cloud;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.gen.edge.v1.DashboardUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.DeviceUpdateMsg;
+import org.thingsboard.server.gen.edge.v1.EntityDataProto;
+import org.thingsboard.server.gen.edge.v1.UpdateMsgType;
+import org.thingsboard.server.gen.edge.v1.UplinkMsg;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UplinkMsgPackerTest {
+
+    @Test
+    public void testSmallMessagesArePackedUpToMaxMsgs() {
+        List<UplinkMsg> uplinkMsgs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            uplinkMsgs.add(telemetryUplinkMsg(i, 1, 1));
+        }
+        List<UplinkMsg> packs = UplinkMsgPacker.pack(uplinkMsgs, 0, 2);
+        Assert.assertEquals(3, packs.size());
+        Assert.assertEquals(2, packs.get(0).getEntityDataCount());
+        Assert.assertEquals(2, packs.get(1).getEntityDataCount());
+        Assert.assertEquals(uplinkMsgs.get(4), packs.get(2));
+        Assert.assertNotEquals(packs.get(0).getUplinkMsgId(), packs.get(1).getUplinkMsgId());
+    }
+
+    @Test
+    public void testPackDoesNotExceedMaxSize() {
+        List<UplinkMsg> uplinkMsgs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            uplinkMsgs.add(telemetryUplinkMsg(100 + i, 1, 5));
+        }
+        int maxSize = uplinkMsgs.get(0).getSerializedSize() * 3;
+        List<UplinkMsg> packs = UplinkMsgPacker.pack(uplinkMsgs, maxSize, 100);
+        int entityDataCount = 0;
+        for (UplinkMsg pack : packs) {
+            Assert.assertTrue(pack.getSerializedSize() <= maxSize);
+            entityDataCount += pack.getEntityDataCount();
+        }
+        Assert.assertEquals(10, entityDataCount);
+        Assert.assertEquals(4, packs.size());
+    }
+
+    @Test
+    public void testEntityAndItsTelemetryAreNotReordered() {
+        List<UplinkMsg> uplinkMsgs = List.of(
+                deviceUplinkMsg(1, "Device A"),
+                telemetryUplinkMsg(2, 1, 1),
+                telemetryUplinkMsg(3, 1, 1),
+                deviceUplinkMsg(4, "Device B"),
+                deviceUplinkMsg(5, "Device C"),
+                telemetryUplinkMsg(6, 1, 1));
+
+        List<UplinkMsg> packs = UplinkMsgPacker.pack(uplinkMsgs, 0, 100);
+
+        Assert.assertEquals(4, packs.size());
+        Assert.assertEquals(uplinkMsgs.get(0), packs.get(0));
+        Assert.assertEquals(2, packs.get(1).getEntityDataCount());
+        Assert.assertEquals(0, packs.get(1).getDeviceUpdateMsgCount());
+        Assert.assertEquals(List.of("Device B", "Device C"),
+                List.of(packs.get(2).getDeviceUpdateMsg(0).getName(), packs.get(2).getDeviceUpdateMsg(1).getName()));
+        Assert.assertEquals(0, packs.get(2).getEntityDataCount());
+        Assert.assertEquals(uplinkMsgs.get(5), packs.get(3));
+    }
+
+    @Test
+    public void testMessageWithSeveralFieldsIsNotPacked() {
+        UplinkMsg mixed = deviceUplinkMsg(2, "Device A").toBuilder()
+                .addEntityData(telemetryUplinkMsg(2, 1, 1).getEntityData(0))
+                .build();
+        List<UplinkMsg> uplinkMsgs = List.of(deviceUplinkMsg(1, "Device B"), mixed, deviceUplinkMsg(3, "Device C"));
+
+        Assert.assertEquals(uplinkMsgs, UplinkMsgPacker.pack(uplinkMsgs, 0, 100));
+    }
+
+    @Test
+    public void testOversizedTelemetryIsSplit() {
+        UplinkMsg uplinkMsg = telemetryUplinkMsg(1, 100, 10);
+        int maxSize = uplinkMsg.getSerializedSize() / 5;
+        List<UplinkMsg> parts = UplinkMsgPacker.split(uplinkMsg, maxSize);
+        Assert.assertTrue(parts.size() > 1);
+        int tsKvCount = 0;
+        for (UplinkMsg part : parts) {
+            Assert.assertTrue(part.getSerializedSize() <= maxSize);
+            tsKvCount += part.getEntityData(0).getPostTelemetryMsg().getTsKvListCount();
+        }
+        Assert.assertEquals(100, tsKvCount);
+    }
+
+    @Test
+    public void testIndivisibleMessageIsReturnedAsIs() {
+        UplinkMsg uplinkMsg = UplinkMsg.newBuilder().setUplinkMsgId(1)
+                .addDashboardUpdateMsg(DashboardUpdateMsg.newBuilder().setTitle("Dashboard").setConfiguration("{\"widgets\":{}}"))
+                .build();
+        List<UplinkMsg> parts = UplinkMsgPacker.split(uplinkMsg, 10);
+        Assert.assertEquals(1, parts.size());
+        Assert.assertEquals(uplinkMsg, parts.get(0));
+    }
+
+    private UplinkMsg deviceUplinkMsg(int uplinkMsgId, String name) {
+        return UplinkMsg.newBuilder().setUplinkMsgId(uplinkMsgId)
+                .addDeviceUpdateMsg(DeviceUpdateMsg.newBuilder().setMsgType(UpdateMsgType.ENTITY_CREATED_RPC_MESSAGE).setName(name))
+                .build();
+    }
+
+    private UplinkMsg telemetryUplinkMsg(int uplinkMsgId, int tsCount, int kvCount) {
+        TransportProtos.PostTelemetryMsg.Builder telemetryMsg = TransportProtos.PostTelemetryMsg.newBuilder();
+        for (int ts = 0; ts < tsCount; ts++) {
+            TransportProtos.TsKvListProto.Builder tsKvList = TransportProtos.TsKvListProto.newBuilder().setTs(ts);
+            for (int kv = 0; kv < kvCount; kv++) {
+                tsKvList.addKv(TransportProtos.KeyValueProto.newBuilder()
+                        .setKey("key" + kv).setType(TransportProtos.KeyValueType.LONG_V).setLongV(kv));
+            }
+            telemetryMsg.addTsKvList(tsKvList);
+        }
+        return UplinkMsg.newBuilder().setUplinkMsgId(uplinkMsgId)
+                .addEntityData(EntityDataProto.newBuilder().setEntityType("DEVICE").setPostTelemetryMsg(telemetryMsg))
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule.store;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.dao.rule.RuleChainService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+public class DefaultTbMsgStoreServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+    private Path dir;
+    private DefaultTbMsgStoreService service;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.getRoot().toPath();
+        service = new DefaultTbMsgStoreService(Mockito.mock(RuleChainService.class));
+        ReflectionTestUtils.setField(service, "type", "file");
+        ReflectionTestUtils.setField(service, "dir", dir.toString());
+        ReflectionTestUtils.setField(service, "memoryBudget", Long.MAX_VALUE);
+        service.init();
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void testPendingMsgsAreRestoredAfterRuleNodeRestart() {
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{\"temperature\":22}");
+        TbMsgStore store = service.getStore(ruleNodeId);
+        store.put("key", msg);
+
+        service.closeStore(ruleNodeId);
+        TbMsgStore reopened = service.getStore(ruleNodeId);
+
+        Assert.assertNotSame(store, reopened);
+        List<TbMsg> msgs = reopened.get("key");
+        Assert.assertEquals(1, msgs.size());
+        Assert.assertEquals(msg.getId(), msgs.get(0).getId());
+        Assert.assertEquals(msg.getData(), msgs.get(0).getData());
+    }
+
+    @Test
+    public void testStoreOfStoppedRuleNodeIsDeleted() {
+        service.getStore(ruleNodeId).put("key", TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), "{}"));
+        Path storeDir = dir.resolve(ruleNodeId.getId().toString());
+        Assert.assertTrue(Files.isDirectory(storeDir));
+
+        // rule node is stopped before it is deleted
+        service.closeStore(ruleNodeId);
+        service.deleteStore(ruleNodeId);
+
+        Assert.assertFalse(Files.exists(storeDir));
+        Assert.assertEquals(0, service.getStore(ruleNodeId).size());
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.rule.store;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FileTbMsgStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong usedMemory = new AtomicLong();
+    private Path dir;
+    private FileTbMsgStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.getRoot().toPath().resolve("node");
+        store = FileTbMsgStore.open(dir, usedMemory, Long.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        TbMsg first = newMsg("1");
+        TbMsg second = newMsg("2");
+        store.put("a", first);
+        store.put("a", second);
+        store.put("b", newMsg("3"));
+
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(2, store.size("a"));
+        assertData(store.get("a"), "1", "2");
+
+        assertData(store.remove("a"), "1", "2");
+        Assert.assertEquals(1, store.size());
+        Assert.assertTrue(store.get("a").isEmpty());
+        Assert.assertEquals(Collections.singleton("b"), store.getKeys());
+    }
+
+    @Test
+    public void testContentIsRecoveredAfterReopen() throws IOException {
+        store.put("a", newMsg("1"));
+        store.put("a", newMsg("2"));
+        store.put("b", newMsg("3"));
+        store.replace("a", List.of(newMsg("4")));
+        store.remove("b");
+        store.close();
+
+        store = FileTbMsgStore.open(dir, usedMemory, Long.MAX_VALUE);
+        Assert.assertEquals(1, store.size());
+        TbMsg restored = store.get("a").get(0);
+        Assert.assertEquals("4", restored.getData());
+        Assert.assertEquals(TbMsgType.POST_TELEMETRY_REQUEST.name(), restored.getType());
+        Assert.assertEquals("v", restored.getMetaData().getValue("k"));
+    }
+
+    @Test
+    public void testTornTailIsDiscarded() throws IOException {
+        store.put("a", newMsg("1"));
+        store.put("a", newMsg("2"));
+        store.close();
+
+        Path log = dir.resolve(FileTbMsgStore.LOG_FILE);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(log) - 3);
+        }
+
+        store = FileTbMsgStore.open(dir, usedMemory, Long.MAX_VALUE);
+        assertData(store.get("a"), "1");
+        store.put("a", newMsg("3"));
+        store.close();
+
+        store = FileTbMsgStore.open(dir, usedMemory, Long.MAX_VALUE);
+        assertData(store.get("a"), "1", "3");
+    }
+
+    @Test
+    public void testMessagesAreReadFromDiskWhenMemoryBudgetIsExceeded() throws IOException {
+        store.close();
+        store = FileTbMsgStore.open(dir, usedMemory, 0);
+        store.put("a", newMsg("1"));
+        store.put("a", newMsg("2"));
+
+        Assert.assertEquals(0, usedMemory.get());
+        assertData(store.get("a"), "1", "2");
+    }
+
+    @Test
+    public void testLogIsCompacted() {
+        String payload = "x".repeat(1024);
+        for (int i = 0; i < 2048; i++) {
+            store.put("k" + i, newMsg(payload));
+            store.remove("k" + i);
+        }
+        store.put("a", newMsg("1"));
+
+        Assert.assertTrue(dir.resolve(FileTbMsgStore.LOG_FILE).toFile().length() < 1024 * 1024);
+        assertData(store.get("a"), "1");
+    }
+
+    private static void assertData(List<TbMsg> msgs, String... data) {
+        Assert.assertEquals(data.length, msgs.size());
+        for (int i = 0; i < data.length; i++) {
+            Assert.assertEquals(data[i], msgs.get(i).getData());
+        }
+    }
+
+    private static TbMsg newMsg(String data) {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("k", "v");
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), metaData, data);
+    }
+
+}
@@ -84,6 +84,24 @@ class TbelInvokeServiceTest extends AbstractControllerTest {
         Assert.assertTrue(duration < TimeUnit.MINUTES.toMillis(1));
     }
 
+    @Test
+    void givenPackOfArgs_thenInvokeScriptForEachOfThem() throws Exception {
+        UUID scriptId = evalScript("return msg.temperature > 20");
+        List<Object[]> argsList = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            argsList.add(new Object[]{Map.of("temperature", i), "{}", POST_TELEMETRY_REQUEST.name()});
+        }
+        argsList.add(new Object[]{Map.of("input", "123456781234349123456781234349"), "{}", POST_TELEMETRY_REQUEST.name()});
+
+        var results = invokeService.invokeScripts(TenantId.SYS_TENANT_ID, null, scriptId, argsList);
+
+        assertThat(results).hasSize(41);
+        for (int i = 0; i < 40; i++) {
+            assertThat(results.get(i).get()).isEqualTo(i > 20);
+        }
+        assertThatThrownBy(() -> results.get(40).get()).hasMessageContaining("input arguments exceed maximum");
+    }
+
     @Test
     void givenTooBigScriptForEval_thenReturnError() {
         String hugeScript = "var a = 'qwertyqwertywertyqwabababerqwertyqwertywertyqwabababerqwertyqwertywertyqwabababerqwertyqwertywertyqwabababerqwertyqwertywertyqwabababer'; return {a: a};";
@@ -0,0 +1,192 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TbCallback;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.dao.attributes.AttributesService;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.queue.discovery.NotificationsTopicService;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.service.state.DeviceStateService;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultSubscriptionManagerServiceTest {
+
+    private static final String SERVICE_ID = "tb-core-0";
+    private static final String SESSION_ID = "session";
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final EntityId entityId = new AssetId(UUID.randomUUID());
+
+    private TbLocalSubscriptionService localSubscriptionService;
+    private DefaultSubscriptionManagerService subscriptionManagerService;
+
+    @Before
+    public void before() {
+        AttributesService attrService = mock(AttributesService.class);
+        TimeseriesService tsService = mock(TimeseriesService.class);
+        PartitionService partitionService = mock(PartitionService.class);
+        TbServiceInfoProvider serviceInfoProvider = mock(TbServiceInfoProvider.class);
+        localSubscriptionService = mock(TbLocalSubscriptionService.class);
+
+        when(attrService.find(any(), any(), anyString(), anyCollection())).thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        when(tsService.findLatest(any(), any(), anyCollection())).thenReturn(Futures.immediateFuture(Collections.emptyList()));
+        when(partitionService.resolve(eq(ServiceType.TB_CORE), any(), any())).thenReturn(new TopicPartitionInfo("tb_core", tenantId, 0, true));
+        when(serviceInfoProvider.getServiceId()).thenReturn(SERVICE_ID);
+
+        subscriptionManagerService = new DefaultSubscriptionManagerService(attrService, tsService, mock(NotificationsTopicService.class),
+                partitionService, serviceInfoProvider, mock(TbQueueProducerProvider.class), localSubscriptionService,
+                mock(DeviceStateService.class), mock(TbClusterService.class));
+        subscriptionManagerService.initExecutor();
+    }
+
+    @After
+    public void after() {
+        subscriptionManagerService.shutdownExecutor();
+    }
+
+    @Test
+    public void testTimeseriesUpdateReachesSubscribersOfChangedKeys() {
+        subscriptionManagerService.addSubscription(tsSubscription(1, false, "temperature"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(tsSubscription(2, false, "humidity"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(tsSubscription(3, true), TbCallback.EMPTY);
+
+        subscriptionManagerService.onTimeSeriesUpdate(tenantId, entityId,
+                List.of(new BasicTsKvEntry(1000L, new DoubleDataEntry("temperature", 22.5))), TbCallback.EMPTY);
+
+        Map<Integer, Set<String>> updates = captureUpdates();
+        assertEquals(Set.of(1, 3), updates.keySet());
+        assertEquals(Set.of("temperature"), updates.get(1));
+        assertEquals(Set.of("temperature"), updates.get(3));
+    }
+
+    @Test
+    public void testAttributesUpdateReachesSubscribersOfChangedScope() {
+        subscriptionManagerService.addSubscription(attrSubscription(1, TbAttributeSubscriptionScope.SERVER_SCOPE, "active"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(attrSubscription(2, TbAttributeSubscriptionScope.CLIENT_SCOPE, "active"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(attrSubscription(3, TbAttributeSubscriptionScope.ANY_SCOPE, "active"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(attrSubscription(4, TbAttributeSubscriptionScope.SERVER_SCOPE, "inactivityAlarmTime"), TbCallback.EMPTY);
+
+        List<AttributeKvEntry> attributes = List.of(new BaseAttributeKvEntry(new StringDataEntry("active", "true"), 1000L));
+        subscriptionManagerService.onAttributesUpdate(tenantId, entityId, TbAttributeSubscriptionScope.SERVER_SCOPE.name(), attributes, false, TbCallback.EMPTY);
+
+        assertEquals(Set.of(1, 3), captureUpdates().keySet());
+    }
+
+    @Test
+    public void testCanceledSubscriptionIsNotUpdated() {
+        subscriptionManagerService.addSubscription(tsSubscription(1, false, "temperature"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(tsSubscription(2, false, "temperature"), TbCallback.EMPTY);
+
+        subscriptionManagerService.cancelSubscription(SESSION_ID, 1, TbCallback.EMPTY);
+        subscriptionManagerService.onTimeSeriesUpdate(tenantId, entityId,
+                List.of(new BasicTsKvEntry(1000L, new DoubleDataEntry("temperature", 22.5))), TbCallback.EMPTY);
+
+        assertEquals(Set.of(2), captureUpdates().keySet());
+    }
+
+    @Test
+    public void testEntityIsRemovedWithLastSubscription() {
+        subscriptionManagerService.addSubscription(tsSubscription(1, false, "temperature"), TbCallback.EMPTY);
+        subscriptionManagerService.addSubscription(attrSubscription(2, TbAttributeSubscriptionScope.SERVER_SCOPE, "active"), TbCallback.EMPTY);
+
+        subscriptionManagerService.cancelSubscription(SESSION_ID, 1, TbCallback.EMPTY);
+        assertEquals(Set.of(entityId), getSubscriptionsByEntityId().keySet());
+
+        subscriptionManagerService.cancelSubscription(SESSION_ID, 2, TbCallback.EMPTY);
+        assertTrue(getSubscriptionsByEntityId().isEmpty());
+        assertNull(((Map<?, ?>) ReflectionTestUtils.getField(subscriptionManagerService, "subscriptionsByWsSessionId")).get(SESSION_ID));
+
+        subscriptionManagerService.onTimeSeriesUpdate(tenantId, entityId,
+                List.of(new BasicTsKvEntry(1000L, new DoubleDataEntry("temperature", 22.5))), TbCallback.EMPTY);
+        verify(localSubscriptionService, never()).onSubscriptionUpdates(any(), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<EntityId, TbEntitySubscriptions> getSubscriptionsByEntityId() {
+        return (Map<EntityId, TbEntitySubscriptions>) ReflectionTestUtils.getField(subscriptionManagerService, "subscriptionsByEntityId");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, Set<String>> captureUpdates() {
+        ArgumentCaptor<List<TelemetrySubscriptionUpdate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(localSubscriptionService).onSubscriptionUpdates(eq(SESSION_ID), captor.capture(), any());
+        return captor.getValue().stream()
+                .collect(Collectors.toMap(TelemetrySubscriptionUpdate::getSubscriptionId, update -> update.getData().keySet()));
+    }
+
+    private TbTimeseriesSubscription tsSubscription(int subscriptionId, boolean allKeys, String... keys) {
+        return TbTimeseriesSubscription.builder()
+                .serviceId(SERVICE_ID).sessionId(SESSION_ID).subscriptionId(subscriptionId).tenantId(tenantId).entityId(entityId)
+                .allKeys(allKeys).keyStates(keyStates(keys)).latestValues(true)
+                .build();
+    }
+
+    private TbAttributeSubscription attrSubscription(int subscriptionId, TbAttributeSubscriptionScope scope, String... keys) {
+        return TbAttributeSubscription.builder()
+                .serviceId(SERVICE_ID).sessionId(SESSION_ID).subscriptionId(subscriptionId).tenantId(tenantId).entityId(entityId)
+                .keyStates(keyStates(keys)).scope(scope)
+                .build();
+    }
+
+    private static Map<String, Long> keyStates(String... keys) {
+        Map<String, Long> keyStates = new HashMap<>();
+        for (String key : keys) {
+            keyStates.put(key, 0L);
+        }
+        return keyStates;
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.RelationsQueryFilter;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TbEntityQueryDependenciesTest {
+
+    @Test
+    public void testDeviceTypeQueryDependsOnDevicesAndProfiles() {
+        EntityCountQuery query = new EntityCountQuery(new DeviceTypeFilter(List.of("thermostat"), null));
+        TbEntityQueryDependencies dependencies = TbEntityQueryDependencies.of(query);
+
+        assertTrue(dependencies.dependsOn(EntityType.DEVICE));
+        assertTrue(dependencies.dependsOn(EntityType.DEVICE_PROFILE));
+        assertFalse(dependencies.dependsOn(EntityType.ASSET));
+        assertFalse(dependencies.isRelations());
+        assertFalse(dependencies.isPeriodic());
+    }
+
+    @Test
+    public void testRelationsQueryWithoutFiltersDependsOnAnyEntity() {
+        RelationsQueryFilter filter = new RelationsQueryFilter();
+        TbEntityQueryDependencies dependencies = TbEntityQueryDependencies.of(new EntityCountQuery(filter));
+
+        assertTrue(dependencies.isRelations());
+        assertTrue(dependencies.dependsOn(EntityType.ASSET));
+        assertTrue(dependencies.dependsOn(EntityType.ENTITY_VIEW));
+    }
+
+    @Test
+    public void testKeyFilterOrSortByTelemetryIsPeriodic() {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(EntityType.ASSET);
+        KeyFilter keyFilter = new KeyFilter();
+        keyFilter.setKey(new EntityKey(EntityKeyType.ATTRIBUTE, "active"));
+        assertTrue(TbEntityQueryDependencies.of(new EntityCountQuery(filter, List.of(keyFilter))).isPeriodic());
+
+        EntityDataPageLink byName = new EntityDataPageLink(10, 0, null, new EntityDataSortOrder(new EntityKey(EntityKeyType.ENTITY_FIELD, "name")));
+        assertFalse(TbEntityQueryDependencies.of(new EntityDataQuery(filter, byName, Collections.emptyList(), Collections.emptyList(), Collections.emptyList())).isPeriodic());
+
+        EntityDataPageLink byTemperature = new EntityDataPageLink(10, 0, null, new EntityDataSortOrder(new EntityKey(EntityKeyType.TIME_SERIES, "temperature")));
+        assertTrue(TbEntityQueryDependencies.of(new EntityDataQuery(filter, byTemperature, Collections.emptyList(), Collections.emptyList(), Collections.emptyList())).isPeriodic());
+    }
+
+}
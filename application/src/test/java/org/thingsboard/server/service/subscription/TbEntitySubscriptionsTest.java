@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TbEntitySubscriptionsTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final EntityId entityId = new AssetId(UUID.randomUUID());
+
+    @Test
+    public void testAddAndRemove() {
+        TbTimeseriesSubscription tsSubscription = tsSubscription(1, false, "temperature");
+        TbAlarmsSubscription alarmsSubscription = TbAlarmsSubscription.builder()
+                .serviceId("tb-core").sessionId("session").subscriptionId(2).tenantId(tenantId).entityId(entityId).build();
+
+        TbEntitySubscriptions subscriptions = TbEntitySubscriptions.EMPTY.add(tsSubscription).add(alarmsSubscription);
+
+        assertTrue(TbEntitySubscriptions.EMPTY.isEmpty());
+        assertFalse(subscriptions.isEmpty());
+        assertTrue(subscriptions.contains(tsSubscription));
+        assertEquals(List.of(alarmsSubscription), subscriptions.getAlarms());
+
+        TbEntitySubscriptions removed = subscriptions.remove(tsSubscription);
+
+        assertNotSame(subscriptions, removed);
+        assertTrue(subscriptions.contains(tsSubscription));
+        assertFalse(removed.contains(tsSubscription));
+        assertTrue(removed.getTimeseries().getByKey("temperature").isEmpty());
+        assertTrue(removed.remove(alarmsSubscription).isEmpty());
+    }
+
+    @Test
+    public void testTimeseriesSubscriptionsAreIndexedByKey() {
+        TbTimeseriesSubscription temperature = tsSubscription(1, false, "temperature");
+        TbTimeseriesSubscription temperatureAndHumidity = tsSubscription(2, false, "temperature", "humidity");
+        TbTimeseriesSubscription allKeys = tsSubscription(3, true);
+
+        TbEntitySubscriptions subscriptions = TbEntitySubscriptions.EMPTY.add(temperature).add(temperatureAndHumidity).add(allKeys);
+
+        assertEquals(List.of(temperature, temperatureAndHumidity), subscriptions.getTimeseries().getByKey("temperature"));
+        assertEquals(List.of(temperatureAndHumidity), subscriptions.getTimeseries().getByKey("humidity"));
+        assertTrue(subscriptions.getTimeseries().getByKey("pressure").isEmpty());
+        assertEquals(List.of(allKeys), subscriptions.getTimeseries().getAllKeys());
+    }
+
+    @Test
+    public void testAttributeSubscriptionsAreIndexedByScopeAndKey() {
+        TbAttributeSubscription server = attrSubscription(1, TbAttributeSubscriptionScope.SERVER_SCOPE, "active");
+        TbAttributeSubscription client = attrSubscription(2, TbAttributeSubscriptionScope.CLIENT_SCOPE, "active");
+        TbAttributeSubscription any = attrSubscription(3, TbAttributeSubscriptionScope.ANY_SCOPE, "active");
+
+        TbEntitySubscriptions subscriptions = TbEntitySubscriptions.EMPTY.add(server).add(client).add(any);
+
+        assertEquals(List.of(server), subscriptions.getAttributes(TbAttributeSubscriptionScope.SERVER_SCOPE).getByKey("active"));
+        assertEquals(List.of(client), subscriptions.getAttributes(TbAttributeSubscriptionScope.CLIENT_SCOPE).getByKey("active"));
+        assertEquals(List.of(any), subscriptions.getAttributes(TbAttributeSubscriptionScope.ANY_SCOPE).getByKey("active"));
+        assertNull(subscriptions.getAttributes(TbAttributeSubscriptionScope.SHARED_SCOPE));
+        assertNull(subscriptions.remove(server).getAttributes(TbAttributeSubscriptionScope.SERVER_SCOPE));
+    }
+
+    @Test
+    public void testNotificationSubscriptionsAreSeparated() {
+        TbSubscription notifications = new TestSubscription(1, TbSubscriptionType.NOTIFICATIONS);
+        TbSubscription notificationsCount = new TestSubscription(2, TbSubscriptionType.NOTIFICATIONS_COUNT);
+
+        TbEntitySubscriptions subscriptions = TbEntitySubscriptions.EMPTY.add(notifications).add(notificationsCount);
+
+        assertEquals(List.of(notifications, notificationsCount), subscriptions.getNotifications());
+        assertTrue(subscriptions.getAlarms().isEmpty());
+        assertTrue(subscriptions.getTimeseries().getAllKeys().isEmpty());
+    }
+
+    @Test
+    public void testAddExistingSubscription() {
+        TbTimeseriesSubscription subscription = tsSubscription(1, false, "temperature");
+        TbEntitySubscriptions subscriptions = TbEntitySubscriptions.EMPTY.add(subscription).add(tsSubscription(1, false, "temperature"));
+
+        assertEquals(1, subscriptions.getAll().size());
+        assertSame(subscription, subscriptions.getTimeseries().getByKey("temperature").get(0));
+    }
+
+    private TbTimeseriesSubscription tsSubscription(int subscriptionId, boolean allKeys, String... keys) {
+        return TbTimeseriesSubscription.builder()
+                .serviceId("tb-core").sessionId("session").subscriptionId(subscriptionId).tenantId(tenantId).entityId(entityId)
+                .allKeys(allKeys).keyStates(keyStates(keys))
+                .build();
+    }
+
+    private TbAttributeSubscription attrSubscription(int subscriptionId, TbAttributeSubscriptionScope scope, String... keys) {
+        return TbAttributeSubscription.builder()
+                .serviceId("tb-core").sessionId("session").subscriptionId(subscriptionId).tenantId(tenantId).entityId(entityId)
+                .keyStates(keyStates(keys)).scope(scope)
+                .build();
+    }
+
+    private static Map<String, Long> keyStates(String... keys) {
+        Map<String, Long> keyStates = new HashMap<>();
+        for (String key : keys) {
+            keyStates.put(key, 0L);
+        }
+        return keyStates;
+    }
+
+    private class TestSubscription extends TbSubscription<Object> {
+
+        TestSubscription(int subscriptionId, TbSubscriptionType type) {
+            super("tb-core", "session", subscriptionId, tenantId, entityId, type, null);
+        }
+
+    }
+
+}
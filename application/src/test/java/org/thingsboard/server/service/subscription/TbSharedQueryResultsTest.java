@@ -0,0 +1,118 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TbSharedQueryResultsTest {
+
+    private TbSharedQueryResults sharedResults;
+    private TenantId tenantId;
+
+    @Before
+    public void before() {
+        sharedResults = new TbSharedQueryResults(60000, 60000);
+        tenantId = TenantId.fromUUID(UUID.randomUUID());
+    }
+
+    @Test
+    public void testResultsAreReusedUntilInvalidated() {
+        EntityCountQuery query = new EntityCountQuery(new DeviceTypeFilter(List.of("thermostat"), null));
+        AtomicInteger invocations = new AtomicInteger();
+
+        assertEquals(1, (int) sharedResults.get(tenantId, null, "entityCount", query, 60000, invocations::incrementAndGet));
+        assertEquals(1, (int) sharedResults.get(tenantId, null, "entityCount", query, 60000, invocations::incrementAndGet));
+
+        sharedResults.invalidate(tenantId);
+        assertEquals(2, (int) sharedResults.get(tenantId, null, "entityCount", query, 60000, invocations::incrementAndGet));
+    }
+
+    @Test
+    public void testConcurrentQueriesAreCoalesced() throws Exception {
+        SettableFuture<String> dbResult = SettableFuture.create();
+        AtomicInteger invocations = new AtomicInteger();
+
+        ListenableFuture<String> first = sharedResults.getAsync(tenantId, null, "timeseries", "query", 60000, () -> {
+            invocations.incrementAndGet();
+            return dbResult;
+        });
+        ListenableFuture<String> second = sharedResults.getAsync(tenantId, null, "timeseries", "query", 60000, () -> {
+            invocations.incrementAndGet();
+            return Futures.immediateFuture("other");
+        });
+        dbResult.set("result");
+
+        assertEquals(1, invocations.get());
+        assertSame(first, second);
+        assertEquals("result", second.get());
+    }
+
+    @Test
+    public void testTtlStartsWhenResultIsLoaded() throws Exception {
+        SettableFuture<String> dbResult = SettableFuture.create();
+        AtomicInteger invocations = new AtomicInteger();
+
+        ListenableFuture<String> first = sharedResults.getAsync(tenantId, null, "timeseries", "query", 200, () -> {
+            invocations.incrementAndGet();
+            return dbResult;
+        });
+        Thread.sleep(300);
+        dbResult.set("result");
+        ListenableFuture<String> second = sharedResults.getAsync(tenantId, null, "timeseries", "query", 200, () -> {
+            invocations.incrementAndGet();
+            return Futures.immediateFuture("other");
+        });
+
+        assertEquals(1, invocations.get());
+        assertSame(first, second);
+
+        Thread.sleep(300);
+        ListenableFuture<String> expired = sharedResults.getAsync(tenantId, null, "timeseries", "query", 200, () -> {
+            invocations.incrementAndGet();
+            return Futures.immediateFuture("other");
+        });
+
+        assertEquals(2, invocations.get());
+        assertEquals("other", expired.get());
+    }
+
+    @Test
+    public void testFailedResultsAreNotShared() throws Exception {
+        ListenableFuture<String> failed = sharedResults.getAsync(tenantId, null, "timeseries", "query", 60000,
+                () -> Futures.immediateFailedFuture(new RuntimeException("DB is down")));
+        ListenableFuture<String> retried = sharedResults.getAsync(tenantId, null, "timeseries", "query", 60000,
+                () -> Futures.immediateFuture("result"));
+
+        assertTrue(failed.isDone());
+        assertEquals("result", retried.get());
+    }
+
+}
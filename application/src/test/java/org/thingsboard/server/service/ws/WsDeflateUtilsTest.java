@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WsDeflateUtilsTest {
+
+    static final String SHARED = "{\"temperature\":[[1000,\"22.5\"]],\"name\":[[1000,\"Термометр\"]]}";
+
+    @Test
+    void deflate_without_shared_json() throws DataFormatException {
+        String msg = "{\"subscriptionId\":1,\"data\":" + SHARED + "}";
+
+        assertThat(inflate(WsDeflateUtils.deflate(msg, null))).isEqualTo(msg);
+    }
+
+    @Test
+    void deflate_with_shared_json() throws DataFormatException {
+        WsSharedJson sharedJson = new WsSharedJson(() -> SHARED);
+        String first = "{\"subscriptionId\":1,\"errorCode\":0,\"data\":" + SHARED + ",\"latestValues\":{\"temperature\":1000}}";
+        String second = "{\"subscriptionId\":22,\"errorCode\":0,\"data\":" + SHARED + ",\"latestValues\":{\"temperature\":1000}}";
+
+        assertThat(inflate(WsDeflateUtils.deflate(first, sharedJson))).isEqualTo(first);
+        assertThat(inflate(WsDeflateUtils.deflate(second, sharedJson))).isEqualTo(second);
+    }
+
+    @Test
+    void deflate_message_equal_to_shared_json() throws DataFormatException {
+        WsSharedJson sharedJson = new WsSharedJson(() -> SHARED);
+
+        assertThat(inflate(WsDeflateUtils.deflate(SHARED, sharedJson))).isEqualTo(SHARED);
+    }
+
+    @Test
+    void deflate_message_without_shared_json() throws DataFormatException {
+        WsSharedJson sharedJson = new WsSharedJson(() -> SHARED);
+        String msg = "{\"subscriptionId\":1,\"errorCode\":2}";
+
+        assertThat(inflate(WsDeflateUtils.deflate(msg, sharedJson))).isEqualTo(msg);
+    }
+
+    @Test
+    void deflate_large_shared_json() throws DataFormatException {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 10000; i++) {
+            json.append("\"key").append(i).append("\":[[").append(1000 + i).append(",\"").append(Math.sqrt(i)).append("\"]],");
+        }
+        json.setCharAt(json.length() - 1, '}');
+        WsSharedJson sharedJson = new WsSharedJson(json::toString);
+        String msg = "{\"cmdId\":3,\"update\":[" + json + "]}";
+
+        assertThat(inflate(WsDeflateUtils.deflate(msg, sharedJson))).isEqualTo(msg);
+    }
+
+    @Test
+    void shared_json_is_serialized_and_deflated_once() {
+        AtomicInteger serializations = new AtomicInteger();
+        WsSharedJson sharedJson = new WsSharedJson(() -> {
+            serializations.incrementAndGet();
+            return SHARED;
+        });
+
+        byte[] deflated = sharedJson.getDeflated();
+        WsDeflateUtils.deflate("{\"subscriptionId\":1,\"data\":" + SHARED + "}", sharedJson);
+        WsDeflateUtils.deflate("{\"subscriptionId\":2,\"data\":" + SHARED + "}", sharedJson);
+
+        assertThat(sharedJson.getDeflated()).isSameAs(deflated);
+        assertThat(serializations.get()).isEqualTo(1);
+    }
+
+    static String inflate(ByteBuffer buffer) throws DataFormatException {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1024];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                assertThat(length > 0 || !inflater.needsInput()).as("complete zlib stream").isTrue();
+                out.write(chunk, 0, length);
+            }
+            assertThat(inflater.getRemaining()).as("no trailing bytes").isZero();
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
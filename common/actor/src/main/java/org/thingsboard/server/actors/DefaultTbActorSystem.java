@@ -56,7 +56,12 @@ public class DefaultTbActorSystem implements TbActorSystem {
 
     @Override
     public void createDispatcher(String dispatcherId, ExecutorService executor) {
-        Dispatcher current = dispatchers.putIfAbsent(dispatcherId, new Dispatcher(dispatcherId, executor));
+        createDispatcher(dispatcherId, executor, DispatcherType.DEFAULT);
+    }
+
+    @Override
+    public void createDispatcher(String dispatcherId, ExecutorService executor, DispatcherType type) {
+        Dispatcher current = dispatchers.putIfAbsent(dispatcherId, new Dispatcher(dispatcherId, executor, type));
         if (current != null) {
             throw new RuntimeException("Dispatcher with id [" + dispatcherId + "] is already registered!");
         }
@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+/**
+ * Defines how mailboxes of the actors that belong to the dispatcher are scheduled.
+ */
+public enum DispatcherType {
+
+    /**
+     * Messages are stored in {@link java.util.concurrent.ConcurrentLinkedQueue}s and every processing round of the
+     * mailbox is submitted to the executor as a new task.
+     */
+    DEFAULT,
+
+    /**
+     * Messages are stored in array backed multi-producer single-consumer queues. The mailbox is submitted to the
+     * executor as a reusable {@link java.util.concurrent.ForkJoinTask}, so re-scheduling does not allocate and,
+     * if executor is a {@link java.util.concurrent.ForkJoinPool}, goes to the local queue of the current worker,
+     * from which it may be stolen by idle workers. Executor should be a {@link java.util.concurrent.ForkJoinPool}.
+     */
+    WORK_STEALING
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Unbounded multi-producer single-consumer queue backed by linked array chunks.
+ * <p>
+ * Producers claim a slot by incrementing the producer index, so an offer is a single atomic increment
+ * and a release store, while a new chunk is allocated only once per {@code chunkSize} elements.
+ * {@link #poll()}, {@link #peek()} and {@link #iterator()} must be called by a single consumer at a time;
+ * {@link #isEmpty()} and {@link #size()} may be called by any thread.
+ */
+final class MpscChunkedArrayQueue<E> extends AbstractQueue<E> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MpscChunkedArrayQueue, Chunk> PRODUCER_CHUNK =
+            AtomicReferenceFieldUpdater.newUpdater(MpscChunkedArrayQueue.class, Chunk.class, "producerChunk");
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile Chunk<E> producerChunk;
+    private volatile long consumerIndex;
+    private volatile Chunk<E> consumerChunk;
+
+    MpscChunkedArrayQueue(int chunkSize) {
+        if (chunkSize < 2 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two: " + chunkSize);
+        }
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        this.chunkMask = chunkSize - 1;
+        Chunk<E> first = new Chunk<>(0, chunkSize);
+        this.producerChunk = first;
+        this.consumerChunk = first;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        // hint must be read before the index is claimed, so it never points to the chunk after the claimed slot
+        Chunk<E> chunk = producerChunk;
+        long index = producerIndex.getAndIncrement();
+        long chunkId = index >>> chunkShift;
+        while (chunk.id < chunkId) {
+            chunk = chunk.nextOrCreate(chunkMask + 1);
+        }
+        Chunk<E> hint = producerChunk;
+        if (hint.id < chunk.id) {
+            PRODUCER_CHUNK.compareAndSet(this, hint, chunk);
+        }
+        chunk.slots.lazySet((int) (index & chunkMask), e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long index = consumerIndex;
+        Chunk<E> chunk = consumerChunk(index);
+        if (chunk == null) {
+            return null;
+        }
+        int offset = (int) (index & chunkMask);
+        E e = chunk.slots.get(offset);
+        if (e == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // slot is claimed by a producer, but element is not published yet
+            do {
+                Thread.onSpinWait();
+                e = chunk.slots.get(offset);
+            } while (e == null);
+        }
+        chunk.slots.lazySet(offset, null);
+        consumerIndex = index + 1;
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        long index = consumerIndex;
+        Chunk<E> chunk = consumerChunk(index);
+        if (chunk == null) {
+            return null;
+        }
+        int offset = (int) (index & chunkMask);
+        E e = chunk.slots.get(offset);
+        while (e == null && index != producerIndex.get()) {
+            Thread.onSpinWait();
+            e = chunk.slots.get(offset);
+        }
+        return e;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return consumerIndex == producerIndex.get();
+    }
+
+    @Override
+    public int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns weakly consistent snapshot of the elements that are published at the moment of the call.
+     * Removal is not supported.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long index = consumerIndex;
+        long end = producerIndex.get();
+        Chunk<E> chunk = consumerChunk;
+        while (chunk != null && index < end) {
+            if (chunk.id < index >>> chunkShift) {
+                chunk = chunk.next;
+                continue;
+            }
+            E e = chunk.slots.get((int) (index & chunkMask));
+            if (e != null) {
+                snapshot.add(e);
+            }
+            index++;
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private Chunk<E> consumerChunk(long index) {
+        Chunk<E> chunk = consumerChunk;
+        if (chunk.id == index >>> chunkShift) {
+            return chunk;
+        }
+        Chunk<E> next = chunk.next;
+        if (next == null) {
+            if (index == producerIndex.get()) {
+                return null;
+            }
+            // next chunk is being appended by the producer that claimed the slot
+            do {
+                Thread.onSpinWait();
+                next = chunk.next;
+            } while (next == null);
+        }
+        consumerChunk = next;
+        return next;
+    }
+
+    private static final class Chunk<E> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+        private final long id;
+        private final AtomicReferenceArray<E> slots;
+        private volatile Chunk<E> next;
+
+        private Chunk(long id, int size) {
+            this.id = id;
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Chunk<E> nextOrCreate(int size) {
+            Chunk<E> current = next;
+            if (current != null) {
+                return current;
+            }
+            Chunk<E> created = new Chunk<>(id + 1, size);
+            return NEXT.compareAndSet(this, null, created) ? created : next;
+        }
+    }
+}
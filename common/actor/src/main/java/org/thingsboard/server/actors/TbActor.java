@@ -30,6 +30,13 @@ public interface TbActor {
     default void destroy(TbActorStopReason stopReason, Throwable cause) throws TbActorException {
     }
 
+    /**
+     * Invoked by the mailbox after each processing round, i.e. once up to the actor throughput messages are processed
+     * or the mailbox is empty. Allows the actor to process the messages buffered during the round as one pack.
+     */
+    default void onProcessRoundEnd() {
+    }
+
     default InitFailureStrategy onInitFailure(int attempt, Throwable t) {
         return InitFailureStrategy.retryWithDelay(5000L * attempt);
     }
@@ -15,8 +15,8 @@
  */
 package org.thingsboard.server.actors;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.msg.MsgType;
@@ -25,7 +25,12 @@ import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbActorStopReason;
 
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
@@ -33,7 +38,6 @@ import java.util.function.Supplier;
 
 @Slf4j
 @Getter
-@RequiredArgsConstructor
 public final class TbActorMailbox implements TbActorCtx {
     private static final boolean HIGH_PRIORITY = true;
     private static final boolean NORMAL_PRIORITY = false;
@@ -44,19 +48,41 @@ public final class TbActorMailbox implements TbActorCtx {
     private static final boolean NOT_READY = false;
     private static final boolean READY = true;
 
+    private static final int MAILBOX_CHUNK_SIZE = 16;
+
     private final TbActorSystem system;
     private final TbActorSystemSettings settings;
     private final TbActorId selfId;
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final Queue<TbActorMsg> highPriorityMsgs;
+    private final Queue<TbActorMsg> normalPriorityMsgs;
+    @Getter(AccessLevel.NONE)
+    private final MailboxTask mailboxTask;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
     private volatile TbActorStopReason stopReason;
 
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        this.system = system;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        if (DispatcherType.WORK_STEALING.equals(dispatcher.getType())) {
+            this.highPriorityMsgs = new MpscChunkedArrayQueue<>(MAILBOX_CHUNK_SIZE);
+            this.normalPriorityMsgs = new MpscChunkedArrayQueue<>(MAILBOX_CHUNK_SIZE);
+            this.mailboxTask = new MailboxTask();
+        } else {
+            this.highPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.mailboxTask = null;
+        }
+    }
+
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
     }
@@ -132,7 +158,7 @@ public final class TbActorMailbox implements TbActorCtx {
         if (ready.get() == READY) {
             if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
                 if (busy.compareAndSet(FREE, BUSY)) {
-                    dispatcher.getExecutor().execute(this::processMailbox);
+                    scheduleMailbox();
                 } else {
                     log.trace("[{}] MessageBox is busy, new msg: {}", selfId, newMsg);
                 }
@@ -170,9 +196,26 @@ public final class TbActorMailbox implements TbActorCtx {
                 break;
             }
         }
+        try {
+            actor.onProcessRoundEnd();
+        } catch (Throwable t) {
+            log.debug("[{}] Failed to process end of the mailbox round", selfId, t);
+        }
         if (noMoreElements) {
             busy.set(FREE);
-            dispatcher.getExecutor().execute(() -> tryProcessQueue(false));
+            if (mailboxTask != null) {
+                tryProcessQueue(false);
+            } else {
+                dispatcher.getExecutor().execute(() -> tryProcessQueue(false));
+            }
+        } else {
+            scheduleMailbox();
+        }
+    }
+
+    private void scheduleMailbox() {
+        if (mailboxTask != null) {
+            mailboxTask.schedule();
         } else {
             dispatcher.getExecutor().execute(this::processMailbox);
         }
@@ -255,4 +298,50 @@ public final class TbActorMailbox implements TbActorCtx {
         enqueue(actorMsg, HIGH_PRIORITY);
     }
 
+    /**
+     * Reusable task of the mailbox for the {@link DispatcherType#WORK_STEALING} dispatchers.
+     * {@link #exec()} never completes the task, so the same instance is forked again for every processing round.
+     */
+    private final class MailboxTask extends ForkJoinTask<Void> implements Runnable {
+
+        private void schedule() {
+            ExecutorService executor = dispatcher.getExecutor();
+            if (executor instanceof ForkJoinPool) {
+                Thread thread = Thread.currentThread();
+                if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == executor) {
+                    fork();
+                } else {
+                    ((ForkJoinPool) executor).execute((ForkJoinTask<?>) this);
+                }
+            } else {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        protected boolean exec() {
+            run();
+            return false;
+        }
+
+        @Override
+        public void run() {
+            try {
+                processMailbox();
+            } catch (Throwable t) {
+                // exceptional completion would prevent the task from being executed again
+                log.warn("[{}] Failed to process mailbox", selfId, t);
+            }
+        }
+
+        @Override
+        public Void getRawResult() {
+            return null;
+        }
+
+        @Override
+        protected void setRawResult(Void value) {
+        }
+    }
+
 }
@@ -28,6 +28,8 @@ public interface TbActorSystem {
 
     void createDispatcher(String dispatcherId, ExecutorService executor);
 
+    void createDispatcher(String dispatcherId, ExecutorService executor, DispatcherType type);
+
     void destroyDispatcher(String dispatcherId);
 
     TbActorRef getActor(TbActorId actorId);
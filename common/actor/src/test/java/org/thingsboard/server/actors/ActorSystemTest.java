@@ -110,6 +110,34 @@ public class ActorSystemTest {
         testActorsAndMessages(1000, 1000, 10);
     }
 
+    @Test
+    public void test10actorsAnd100KMessagesWorkStealing() throws InterruptedException {
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor, DispatcherType.WORK_STEALING);
+        testActorsAndMessages(10, _100K, 1);
+    }
+
+    @Test
+    public void test100KActorsAnd1Messages5timesSingleThreadWorkStealing() throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName(getClass().getSimpleName()));
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor, DispatcherType.WORK_STEALING);
+        testActorsAndMessages(_100K, 1, 5);
+    }
+
+    @Test
+    public void test100KActorsAnd10MessagesWorkStealing() throws InterruptedException {
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor, DispatcherType.WORK_STEALING);
+        testActorsAndMessages(_100K, 10, 1);
+    }
+
+    @Test
+    public void test1KActorsAnd1KMessagesWorkStealing() throws InterruptedException {
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor, DispatcherType.WORK_STEALING);
+        testActorsAndMessages(1000, 1000, 10);
+    }
+
     @Test
     public void testNoMessagesAfterDestroy() throws InterruptedException {
         executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
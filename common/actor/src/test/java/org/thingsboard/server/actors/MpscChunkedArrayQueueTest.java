@@ -0,0 +1,90 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MpscChunkedArrayQueueTest {
+
+    @Test
+    public void testFifoOrderAcrossChunks() {
+        MpscChunkedArrayQueue<Integer> queue = new MpscChunkedArrayQueue<>(4);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        for (int i = 0; i < 10; i++) {
+            queue.add(i);
+        }
+        Assert.assertEquals(10, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.peek());
+        List<Integer> snapshot = new ArrayList<>();
+        queue.forEach(snapshot::add);
+        Assert.assertEquals(10, snapshot.size());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        Assert.assertNull(queue.peek());
+    }
+
+    @Test
+    public void testConcurrentProducersSingleConsumer() throws Exception {
+        int producers = 4;
+        int perProducer = 100_000;
+        MpscChunkedArrayQueue<long[]> queue = new MpscChunkedArrayQueue<>(16);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        queue.offer(new long[]{producer, i});
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            long[] lastSeen = new long[producers];
+            Arrays.fill(lastSeen, -1);
+            int received = 0;
+            long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+            while (received < producers * perProducer && System.currentTimeMillis() < deadline) {
+                long[] e = queue.poll();
+                if (e != null) {
+                    int producer = (int) e[0];
+                    Assert.assertEquals("Order of producer " + producer + " is broken", lastSeen[producer] + 1, e[1]);
+                    lastSeen[producer] = e[1];
+                    received++;
+                }
+            }
+            Assert.assertEquals(producers * perProducer, received);
+            Assert.assertTrue(queue.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.thingsboard.server.dao.cloud;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.edge.EdgeSettings;
@@ -49,9 +50,13 @@ public interface CloudEventService {
 
     PageData<CloudEvent> findCloudEvents(TenantId tenantId, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink);
 
+    PageData<CloudEvent> findCloudEvents(TenantId tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink);
+
     EdgeSettings findEdgeSettings(TenantId tenantId);
 
     ListenableFuture<List<String>> saveEdgeSettings(TenantId tenantId, EdgeSettings edgeSettings);
 
     void cleanupEvents(long ttl);
+
+    void cleanupAcknowledgedEvents(long seqIdOffset);
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data.cloud;
+
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+
+/**
+ * Category of the cloud event. Lanes are declared in the order of their priority.
+ * Order of the cloud events is guaranteed only within the same lane.
+ */
+public enum CloudEventLane {
+    CONTROL,
+    ALARM,
+    TELEMETRY;
+
+    public static CloudEventLane of(CloudEventType type, EdgeEventActionType action) {
+        if (action != null) {
+            switch (action) {
+                case ATTRIBUTES_UPDATED:
+                case POST_ATTRIBUTES:
+                case ATTRIBUTES_DELETED:
+                case TIMESERIES_UPDATED:
+                    return TELEMETRY;
+            }
+        }
+        return CloudEventType.ALARM.equals(type) ? ALARM : CONTROL;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data.cloud;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CloudEventLaneTest {
+
+    @Test
+    void testLaneOfCloudEvent() {
+        assertThat(CloudEventLane.of(CloudEventType.DEVICE, EdgeEventActionType.TIMESERIES_UPDATED)).isEqualTo(CloudEventLane.TELEMETRY);
+        assertThat(CloudEventLane.of(CloudEventType.ASSET, EdgeEventActionType.ATTRIBUTES_UPDATED)).isEqualTo(CloudEventLane.TELEMETRY);
+        assertThat(CloudEventLane.of(CloudEventType.ALARM, EdgeEventActionType.ALARM_ACK)).isEqualTo(CloudEventLane.ALARM);
+        assertThat(CloudEventLane.of(CloudEventType.DEVICE, EdgeEventActionType.RPC_CALL)).isEqualTo(CloudEventLane.CONTROL);
+        assertThat(CloudEventLane.of(CloudEventType.DEVICE, EdgeEventActionType.CREDENTIALS_REQUEST)).isEqualTo(CloudEventLane.CONTROL);
+    }
+
+}
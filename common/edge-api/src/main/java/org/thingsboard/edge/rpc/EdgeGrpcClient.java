@@ -67,6 +67,8 @@ public class EdgeGrpcClient implements EdgeRpcClient {
     private String certResource;
     @Value("${cloud.rpc.max_inbound_message_size:4194304}")
     private int maxInboundMessageSize;
+    @Value("${cloud.rpc.compression:gzip}")
+    private String compression;
     @Getter
     private int serverMaxInboundMessageSize;
 
@@ -105,7 +107,7 @@ public class EdgeGrpcClient implements EdgeRpcClient {
         channel = builder.build();
         EdgeRpcServiceGrpc.EdgeRpcServiceStub stub = EdgeRpcServiceGrpc.newStub(channel);
         log.info("[{}] Sending a connect request to the TB!", edgeKey);
-        this.inputStream = stub.withCompression("gzip").handleMsgs(initOutputStream(edgeKey, onUplinkResponse, onEdgeUpdate, onDownlink, onError));
+        this.inputStream = stub.withCompression(compression).handleMsgs(initOutputStream(edgeKey, onUplinkResponse, onEdgeUpdate, onDownlink, onError));
         this.inputStream.onNext(RequestMsg.newBuilder()
                 .setMsgType(RequestMsgType.CONNECT_RPC_MESSAGE)
                 .setConnectRequestMsg(ConnectRequestMsg.newBuilder()
@@ -16,12 +16,17 @@
 package org.thingsboard.server.common.msg;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.CustomerId;
@@ -33,6 +38,8 @@ import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Objects;
 import java.util.UUID;
@@ -57,7 +64,23 @@ public final class TbMsg implements Serializable {
     private final CustomerId customerId;
     private final TbMsgMetaData metaData;
     private final TbMsgDataType dataType;
-    private final String data;
+    // May be null until requested if the message was created from the JSON tree
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    private volatile String data;
+    //This field is parsed or serialized lazily and shared by the copies of the message that have the same data
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    transient private volatile JsonNode jsonData;
+    //Telemetry received from the transport. The data is built from it only if requested, e.g. by script or transform nodes
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Setter(value = AccessLevel.NONE)
+    transient private final TbMsgTsKvData tsKvData;
     private final RuleChainId ruleChainId;
     private final RuleNodeId ruleNodeId;
     @Getter(value = AccessLevel.NONE)
@@ -99,7 +122,7 @@ public final class TbMsg implements Serializable {
     @Deprecated(since = "3.6.0")
     public static TbMsg newMsg(String queueName, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, String data, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), null, type, originator, customerId,
-                metaData.copy(), TbMsgDataType.JSON, data, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
     }
 
     @Deprecated(since = "3.6.0", forRemoval = true)
@@ -110,7 +133,7 @@ public final class TbMsg implements Serializable {
     @Deprecated(since = "3.6.0", forRemoval = true)
     public static TbMsg newMsg(String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, String data) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), null, type, originator, customerId,
-                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, TbMsgCallback.EMPTY);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, null, null, TbMsgCallback.EMPTY);
     }
 
     public static TbMsg newMsg(String queueName, TbMsgType type, EntityId originator, TbMsgMetaData metaData, String data, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
@@ -119,7 +142,7 @@ public final class TbMsg implements Serializable {
 
     public static TbMsg newMsg(String queueName, TbMsgType type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, String data, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), type, originator, customerId,
-                metaData.copy(), TbMsgDataType.JSON, data, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
     }
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, TbMsgMetaData metaData, String data) {
@@ -128,7 +151,16 @@ public final class TbMsg implements Serializable {
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, String data) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), type, originator, customerId,
-                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, TbMsgCallback.EMPTY);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, null, null, TbMsgCallback.EMPTY);
+    }
+
+    /**
+     * Creates a new message with the telemetry in the wire format of the transport API.
+     * The JSON data is built lazily, so the rule nodes that work with the telemetry directly skip the JSON conversion.
+     */
+    public static TbMsg newMsg(String queueName, TbMsgType type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgTsKvData tsKvData, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
+        return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), type, originator, customerId,
+                metaData, TbMsgDataType.JSON, null, null, tsKvData, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
     }
 
     // REALLY NEW MSG
@@ -172,13 +204,13 @@ public final class TbMsg implements Serializable {
     @Deprecated(since = "3.6.0")
     public static TbMsg newMsg(String queueName, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, String data) {
         return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), null, type, originator, customerId,
-                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, TbMsgCallback.EMPTY);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, null, null, TbMsgCallback.EMPTY);
     }
 
     @Deprecated(since = "3.6.0", forRemoval = true)
     public static TbMsg newMsg(String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), null, type, originator, customerId,
-                metaData.copy(), dataType, data, null, null, null, TbMsgCallback.EMPTY);
+                metaData.copy(), dataType, data, null, null, null, null, null, TbMsgCallback.EMPTY);
     }
 
     /**
@@ -207,12 +239,12 @@ public final class TbMsg implements Serializable {
 
     public static TbMsg newMsg(String queueName, TbMsgType type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, String data) {
         return new TbMsg(queueName, UUID.randomUUID(), System.currentTimeMillis(), type, originator, customerId,
-                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, TbMsgCallback.EMPTY);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, null, null, TbMsgCallback.EMPTY);
     }
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), type, originator, customerId,
-                metaData.copy(), dataType, data, null, null, null, TbMsgCallback.EMPTY);
+                metaData.copy(), dataType, data, null, null, null, null, null, TbMsgCallback.EMPTY);
     }
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, TbMsgMetaData metaData, TbMsgDataType dataType, String data) {
@@ -224,13 +256,13 @@ public final class TbMsg implements Serializable {
     @Deprecated(since = "3.6.0", forRemoval = true)
     public static TbMsg newMsg(String type, EntityId originator, TbMsgMetaData metaData, TbMsgDataType dataType, String data, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), null, type, originator, null,
-                metaData.copy(), dataType, data, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
+                metaData.copy(), dataType, data, null, null, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
     }
 
     @Deprecated(since = "3.6.0", forRemoval = true)
     public static TbMsg newMsg(String type, EntityId originator, TbMsgMetaData metaData, String data, TbMsgCallback callback) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), null, type, originator, null,
-                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, callback);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, null, null, callback);
     }
 
     /**
@@ -252,77 +284,92 @@ public final class TbMsg implements Serializable {
     @Deprecated(since = "3.6.0")
     public static TbMsg transformMsg(TbMsg tbMsg, String type, EntityId originator, TbMsgMetaData metaData, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, null, type, originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
     }
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, TbMsgMetaData metaData, TbMsgDataType dataType, String data, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), type, originator, null,
-                metaData.copy(), dataType, data, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
+                metaData.copy(), dataType, data, null, null, ruleChainId, ruleNodeId, null, TbMsgCallback.EMPTY);
     }
 
     public static TbMsg newMsg(TbMsgType type, EntityId originator, TbMsgMetaData metaData, String data, TbMsgCallback callback) {
         return new TbMsg(null, UUID.randomUUID(), System.currentTimeMillis(), type, originator, null,
-                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, callback);
+                metaData.copy(), TbMsgDataType.JSON, data, null, null, null, null, null, callback);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, TbMsgType type, EntityId originator, TbMsgMetaData metaData, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, type, originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
     }
 
     public static TbMsg transformMsgOriginator(TbMsg tbMsg, EntityId originatorId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, originatorId, tbMsg.getCustomerId(), tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgData(TbMsg tbMsg, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+    }
+
+    /**
+     * Creates a copy of the message with the new data. The data is serialized to string only when it is requested,
+     * e.g. once the message is pushed to the queue, so the rule nodes down the chain may use the tree as is.
+     * The tree must not be modified after the message is created.
+     */
+    public static TbMsg transformMsgData(TbMsg tbMsg, JsonNode data) {
+        return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
+                null, data, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+    }
+
+    public static TbMsg transformMsg(TbMsg tbMsg, String type, TbMsgMetaData metaData, JsonNode data) {
+        return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, null, type, tbMsg.originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
+                null, data, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
     }
 
     public static TbMsg transformMsgMetadata(TbMsg tbMsg, TbMsgMetaData metadata) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, metadata.copy(), tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, TbMsgMetaData metadata, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, metadata, tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                data, null, null, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgCustomerId(TbMsg tbMsg, CustomerId customerId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgRuleChainId(TbMsg tbMsg, RuleChainId ruleChainId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsgQueueName(TbMsg tbMsg, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.getRuleChainId(), null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, tbMsg.getRuleChainId(), null, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, RuleChainId ruleChainId, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.internalType, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
     }
 
     //used for enqueueForTellNext
     public static TbMsg newMsg(TbMsg tbMsg, String queueName, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(queueName, UUID.randomUUID(), tbMsg.getTs(), tbMsg.getInternalType(), tbMsg.getType(), tbMsg.getOriginator(), tbMsg.customerId, tbMsg.getMetaData().copy(),
-                tbMsg.getDataType(), tbMsg.getData(), ruleChainId, ruleNodeId, tbMsg.ctx.copy(), TbMsgCallback.EMPTY);
+                tbMsg.getDataType(), tbMsg.data, tbMsg.jsonData, tbMsg.tsKvData, ruleChainId, ruleNodeId, tbMsg.ctx.copy(), TbMsgCallback.EMPTY);
     }
 
     private TbMsg(String queueName, UUID id, long ts, TbMsgType internalType, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
-                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
-        this(queueName, id, ts, internalType, internalType.name(), originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, ctx, callback);
+                  JsonNode jsonData, TbMsgTsKvData tsKvData, RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
+        this(queueName, id, ts, internalType, internalType.name(), originator, customerId, metaData, dataType, data, jsonData, tsKvData, ruleChainId, ruleNodeId, ctx, callback);
     }
 
     private TbMsg(String queueName, UUID id, long ts, TbMsgType internalType, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
-                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
+                  JsonNode jsonData, TbMsgTsKvData tsKvData, RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
         this.id = id;
         this.queueName = queueName;
         if (ts > 0) {
@@ -345,6 +392,8 @@ public final class TbMsg implements Serializable {
         this.metaData = metaData;
         this.dataType = dataType;
         this.data = data;
+        this.jsonData = jsonData;
+        this.tsKvData = tsKvData;
         this.ruleChainId = ruleChainId;
         this.ruleNodeId = ruleNodeId;
         this.ctx = ctx != null ? ctx : new TbMsgProcessingCtx();
@@ -384,7 +433,12 @@ public final class TbMsg implements Serializable {
         }
 
         builder.setDataType(msg.getDataType().ordinal());
-        builder.setData(msg.getData());
+        if (msg.tsKvData != null) {
+            // The data of the message is built from the telemetry, so there is no need to pass both of them
+            builder.setTsKvData(msg.tsKvData.toByteString());
+        } else {
+            builder.setData(msg.getData());
+        }
 
         builder.setCtx(msg.ctx.toProto());
         return builder.build().toByteArray();
@@ -417,8 +471,14 @@ public final class TbMsg implements Serializable {
             }
 
             TbMsgDataType dataType = TbMsgDataType.values()[proto.getDataType()];
+            String msgData = proto.getData();
+            TbMsgTsKvData tsKvData = null;
+            if (!proto.getTsKvData().isEmpty()) {
+                msgData = null;
+                tsKvData = TbMsgTsKvData.fromByteString(proto.getTsKvData());
+            }
             return new TbMsg(queueName, UUID.fromString(proto.getId()), proto.getTs(), null, proto.getType(), entityId, customerId,
-                    metaData, dataType, proto.getData(), ruleChainId, ruleNodeId, ctx, callback);
+                    metaData, dataType, msgData, null, tsKvData, ruleChainId, ruleNodeId, ctx, callback);
         } catch (InvalidProtocolBufferException e) {
             throw new IllegalStateException("Could not parse protobuf for TbMsg", e);
         }
@@ -430,17 +490,51 @@ public final class TbMsg implements Serializable {
 
     public TbMsg copyWithRuleChainId(RuleChainId ruleChainId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.internalType, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, null, this.ctx, callback);
+                this.metaData, this.dataType, this.data, this.jsonData, this.tsKvData, ruleChainId, null, this.ctx, callback);
     }
 
     public TbMsg copyWithRuleNodeId(RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.internalType, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx, callback);
+                this.metaData, this.dataType, this.data, this.jsonData, this.tsKvData, ruleChainId, ruleNodeId, this.ctx, callback);
     }
 
     public TbMsg copyWithNewCtx() {
         return new TbMsg(this.queueName, this.id, this.ts, this.internalType, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx.copy(), TbMsgCallback.EMPTY);
+                this.metaData, this.dataType, this.data, this.jsonData, this.tsKvData, ruleChainId, ruleNodeId, this.ctx.copy(), TbMsgCallback.EMPTY);
+    }
+
+    public String getData() {
+        String result = data;
+        if (result == null && (jsonData != null || tsKvData != null)) {
+            result = JacksonUtil.toString(getJsonData());
+            data = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the data of the message parsed as JSON tree. The data is parsed only once and the tree is shared by
+     * the copies of the message, so the tree must not be modified. Use {@link JsonNode#deepCopy()} to build the new data.
+     *
+     * @throws IllegalArgumentException if the data is not a valid JSON
+     */
+    @JsonIgnore
+    public JsonNode getJsonData() {
+        JsonNode result = jsonData;
+        if (result == null) {
+            if (data != null) {
+                result = JacksonUtil.toJsonNode(data);
+            } else if (tsKvData != null) {
+                result = tsKvData.toJson();
+            }
+            jsonData = result;
+        }
+        return result;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getData();
+        out.defaultWriteObject();
     }
 
     public TbMsgCallback getCallback() {
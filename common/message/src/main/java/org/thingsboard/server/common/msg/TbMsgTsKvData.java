@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+
+import java.util.List;
+
+/**
+ * Telemetry of the message in the wire format of the transport API (serialized PostTelemetryMsg).
+ * The bytes are passed through the queue as is and parsed only by the rule nodes that need the telemetry.
+ * The JSON representation is the same as the one the transport used to build: the object of the values
+ * for the single timestamp or the array of the objects with 'ts' and 'values' for several timestamps.
+ */
+public final class TbMsgTsKvData {
+
+    private final ByteString bytes;
+    private volatile List<MsgProtos.TbMsgTsKvListProto> tsKvList;
+
+    private TbMsgTsKvData(ByteString bytes) {
+        this.bytes = bytes;
+    }
+
+    public static TbMsgTsKvData fromByteString(ByteString bytes) {
+        return new TbMsgTsKvData(bytes);
+    }
+
+    public ByteString toByteString() {
+        return bytes;
+    }
+
+    public List<MsgProtos.TbMsgTsKvListProto> getTsKvList() {
+        List<MsgProtos.TbMsgTsKvListProto> result = tsKvList;
+        if (result == null) {
+            try {
+                result = MsgProtos.TbMsgTsKvDataProto.parseFrom(bytes).getTsKvListList();
+            } catch (InvalidProtocolBufferException e) {
+                throw new IllegalStateException("Could not parse protobuf for telemetry of TbMsg", e);
+            }
+            tsKvList = result;
+        }
+        return result;
+    }
+
+    public JsonNode toJson() {
+        List<MsgProtos.TbMsgTsKvListProto> tsKvList = getTsKvList();
+        if (tsKvList.size() == 1) {
+            return toJson(tsKvList.get(0).getKvList());
+        }
+        ArrayNode result = JacksonUtil.newArrayNode();
+        for (MsgProtos.TbMsgTsKvListProto tsKv : tsKvList) {
+            ObjectNode entry = result.addObject();
+            entry.put("ts", tsKv.getTs());
+            entry.set("values", toJson(tsKv.getKvList()));
+        }
+        return result;
+    }
+
+    private static ObjectNode toJson(List<MsgProtos.TbMsgKvProto> kvList) {
+        ObjectNode json = JacksonUtil.newObjectNode();
+        for (MsgProtos.TbMsgKvProto kv : kvList) {
+            switch (kv.getType()) {
+                case BOOLEAN_V:
+                    json.put(kv.getKey(), kv.getBoolV());
+                    break;
+                case LONG_V:
+                    json.put(kv.getKey(), kv.getLongV());
+                    break;
+                case DOUBLE_V:
+                    json.put(kv.getKey(), kv.getDoubleV());
+                    break;
+                case STRING_V:
+                    json.put(kv.getKey(), kv.getStringV());
+                    break;
+                case JSON_V:
+                    json.set(kv.getKey(), JacksonUtil.toJsonNode(kv.getJsonV()));
+                    break;
+            }
+        }
+        return json;
+    }
+
+}
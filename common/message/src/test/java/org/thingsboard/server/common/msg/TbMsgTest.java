@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.FSTUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TbMsgTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testJsonDataIsParsedOnceAndSharedByCopies() {
+        TbMsg msg = newMsg("{\"temperature\":42}");
+
+        JsonNode json = msg.getJsonData();
+        assertThat(json.get("temperature").asInt()).isEqualTo(42);
+        assertThat(msg.getJsonData()).isSameAs(json);
+        assertThat(msg.copyWithRuleChainId(new RuleChainId(UUID.randomUUID())).getJsonData()).isSameAs(json);
+        assertThat(TbMsg.transformMsgMetadata(msg, new TbMsgMetaData()).getJsonData()).isSameAs(json);
+    }
+
+    @Test
+    void testJsonDataIsSerializedOnRequest() {
+        TbMsg msg = newMsg("{\"temperature\":42}");
+        ObjectNode newData = msg.getJsonData().deepCopy();
+        newData.put("humidity", 10);
+
+        TbMsg transformed = TbMsg.transformMsgData(msg, newData);
+
+        assertThat(transformed.getJsonData()).isSameAs(newData);
+        assertThat(transformed.getData()).isEqualTo("{\"temperature\":42,\"humidity\":10}");
+        assertThat(transformed).isEqualTo(TbMsg.transformMsgData(msg, "{\"temperature\":42,\"humidity\":10}"));
+        assertThat(msg.getData()).isEqualTo("{\"temperature\":42}");
+    }
+
+    @Test
+    void testJsonDataIsSerializedToQueue() throws Exception {
+        TbMsg msg = TbMsg.transformMsgData(newMsg(TbMsg.EMPTY_JSON_OBJECT), mapper.readTree("{\"temperature\":42}"));
+
+        TbMsg decoded = TbMsg.fromBytes(msg.getQueueName(), TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+
+        assertThat(decoded.getData()).isEqualTo("{\"temperature\":42}");
+        assertThat(decoded.getJsonData()).isEqualTo(msg.getJsonData());
+    }
+
+    @Test
+    void testJsonDataIsSerializedWithFst() throws Exception {
+        TbMsg msg = TbMsg.transformMsgData(newMsg(TbMsg.EMPTY_JSON_OBJECT), mapper.readTree("{\"temperature\":42}"));
+
+        TbMsg decoded = FSTUtils.decode(FSTUtils.encode(msg));
+
+        assertThat(decoded.getData()).isEqualTo("{\"temperature\":42}");
+    }
+
+    @Test
+    void testInvalidJsonData() {
+        TbMsg msg = newMsg("not a json");
+
+        assertThat(msg.getData()).isEqualTo("not a json");
+        assertThatThrownBy(msg::getJsonData).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testEmptyJsonData() {
+        TbMsg msg = newMsg(TbMsg.EMPTY_STRING);
+
+        assertThat(msg.getJsonData()).isNull();
+        assertThat(msg.getData()).isEmpty();
+    }
+
+    @Test
+    void testTsKvDataIsConvertedToJsonOnRequest() {
+        TbMsg msg = newMsg(tsKvData(tsKvList(1L, longKv("temperature", 42), stringKv("state", "on"))));
+
+        assertThat(msg.getTsKvData().getTsKvList()).hasSize(1);
+        assertThat(msg.getData()).isEqualTo("{\"temperature\":42,\"state\":\"on\"}");
+        assertThat(msg.getJsonData().get("temperature").asInt()).isEqualTo(42);
+    }
+
+    @Test
+    void testTsKvDataWithSeveralTimestampsIsConvertedToJsonArray() {
+        TbMsg msg = newMsg(tsKvData(tsKvList(1L, longKv("temperature", 42)), tsKvList(2L, longKv("temperature", 43))));
+
+        assertThat(msg.getData()).isEqualTo("[{\"ts\":1,\"values\":{\"temperature\":42}},{\"ts\":2,\"values\":{\"temperature\":43}}]");
+    }
+
+    @Test
+    void testTsKvDataIsPassedToQueueAsIs() {
+        TbMsgTsKvData tsKvData = tsKvData(tsKvList(1L, longKv("temperature", 42)));
+        TbMsg msg = newMsg(tsKvData);
+
+        TbMsg decoded = TbMsg.fromBytes(msg.getQueueName(), TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+
+        assertThat(decoded.getTsKvData().toByteString()).isEqualTo(tsKvData.toByteString());
+        assertThat(decoded.getData()).isEqualTo("{\"temperature\":42}");
+        assertThat(TbMsg.transformMsgData(decoded, "{}").getTsKvData()).isNull();
+        assertThat(TbMsg.transformMsgMetadata(decoded, new TbMsgMetaData()).getTsKvData()).isSameAs(decoded.getTsKvData());
+    }
+
+    private static TbMsg newMsg(TbMsgTsKvData tsKvData) {
+        return TbMsg.newMsg(null, TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), null, new TbMsgMetaData(), tsKvData, null, null);
+    }
+
+    private static TbMsgTsKvData tsKvData(MsgProtos.TbMsgTsKvListProto... tsKvList) {
+        return TbMsgTsKvData.fromByteString(MsgProtos.TbMsgTsKvDataProto.newBuilder().addAllTsKvList(List.of(tsKvList)).build().toByteString());
+    }
+
+    private static MsgProtos.TbMsgTsKvListProto tsKvList(long ts, MsgProtos.TbMsgKvProto... kv) {
+        return MsgProtos.TbMsgTsKvListProto.newBuilder().setTs(ts).addAllKv(List.of(kv)).build();
+    }
+
+    private static MsgProtos.TbMsgKvProto longKv(String key, long value) {
+        return MsgProtos.TbMsgKvProto.newBuilder().setKey(key).setType(MsgProtos.TbMsgKvType.LONG_V).setLongV(value).build();
+    }
+
+    private static MsgProtos.TbMsgKvProto stringKv(String key, String value) {
+        return MsgProtos.TbMsgKvProto.newBuilder().setKey(key).setType(MsgProtos.TbMsgKvType.STRING_V).setStringV(value).build();
+    }
+
+    private static TbMsg newMsg(String data) {
+        return TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), data);
+    }
+
+}
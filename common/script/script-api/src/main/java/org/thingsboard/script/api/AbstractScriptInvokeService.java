@@ -28,6 +28,9 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.common.stats.TbApiUsageStateClient;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,6 +41,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
@@ -137,47 +141,105 @@ public abstract class AbstractScriptInvokeService implements ScriptInvokeService
 
     @Override
     public ListenableFuture<Object> invokeScript(TenantId tenantId, CustomerId customerId, UUID scriptId, Object... args) {
-        if (!apiUsageStateClient.isPresent() || apiUsageStateClient.get().getApiUsageState(tenantId).isJsExecEnabled()) {
-            if (!isScriptPresent(scriptId)) {
-                return error("No compiled script found for scriptId: [" + scriptId + "]!");
-            }
-            if (!isDisabled(scriptId)) {
-                if (argsSizeExceeded(args)) {
-                    TbScriptException t = new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new IllegalArgumentException(
-                            format("Script input arguments exceed maximum allowed total args size of %s symbols", getMaxTotalArgsSize())
-                    ));
-                    return Futures.immediateFailedFuture(handleScriptException(scriptId, null, t));
-                }
-                apiUsageReportClient.ifPresent(client -> client.report(tenantId, customerId, ApiUsageRecordKey.JS_EXEC_COUNT, 1));
-                pushedMsgs.incrementAndGet();
-                log.trace("[{}] InvokeScript uuid {} with timeout {}ms", tenantId, scriptId, getMaxInvokeRequestsTimeout());
-                var task = doInvokeFunction(scriptId, args);
-
-                var resultFuture = Futures.transformAsync(task.getResultFuture(), output -> {
-                    String result = JacksonUtil.toString(output);
-                    if (resultSizeExceeded(result)) {
-                        throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException(
-                                format("Script invocation result exceeds maximum allowed size of %s symbols", getMaxResultSize())
-                        ));
-                    }
-                    return Futures.immediateFuture(output);
-                }, MoreExecutors.directExecutor());
-
-                return withTimeoutAndStatsCallback(scriptId, task, resultFuture, invokeCallback, getMaxInvokeRequestsTimeout());
+        String error = checkInvocationAllowed(tenantId, scriptId);
+        if (error != null) {
+            return error(error);
+        }
+        if (argsSizeExceeded(args)) {
+            return argsSizeExceededError(scriptId);
+        }
+        apiUsageReportClient.ifPresent(client -> client.report(tenantId, customerId, ApiUsageRecordKey.JS_EXEC_COUNT, 1));
+        pushedMsgs.incrementAndGet();
+        log.trace("[{}] InvokeScript uuid {} with timeout {}ms", tenantId, scriptId, getMaxInvokeRequestsTimeout());
+        return processInvocationResult(scriptId, doInvokeFunction(scriptId, args));
+    }
+
+    @Override
+    public List<ListenableFuture<Object>> invokeScripts(TenantId tenantId, CustomerId customerId, UUID scriptId, List<Object[]> argsList) {
+        String error = checkInvocationAllowed(tenantId, scriptId);
+        if (error != null) {
+            return argsList.stream().map(args -> this.<Object>error(error)).collect(Collectors.toList());
+        }
+        List<ListenableFuture<Object>> results = new ArrayList<>(Collections.nCopies(argsList.size(), null));
+        List<Integer> validIdxs = new ArrayList<>(argsList.size());
+        List<Object[]> validArgsList = new ArrayList<>(argsList.size());
+        for (int i = 0; i < argsList.size(); i++) {
+            Object[] args = argsList.get(i);
+            if (argsSizeExceeded(args)) {
+                results.set(i, argsSizeExceededError(scriptId));
             } else {
-                String message = "Script invocation is blocked due to maximum error count "
-                        + getMaxErrors() + ", scriptId " + scriptId + "!";
-                log.warn("[{}] " + message, tenantId);
-                return error(message);
+                validIdxs.add(i);
+                validArgsList.add(args);
             }
-        } else {
-            return error("Script execution is disabled due to API limits!");
         }
+        if (!validArgsList.isEmpty()) {
+            apiUsageReportClient.ifPresent(client -> client.report(tenantId, customerId, ApiUsageRecordKey.JS_EXEC_COUNT, validArgsList.size()));
+            pushedMsgs.addAndGet(validArgsList.size());
+            log.trace("[{}] InvokeScripts uuid {} count {} with timeout {}ms", tenantId, scriptId, validArgsList.size(), getMaxInvokeRequestsTimeout());
+            List<? extends TbScriptExecutionTask> tasks = doInvokeFunctions(scriptId, validArgsList);
+            for (int i = 0; i < tasks.size(); i++) {
+                results.set(validIdxs.get(i), processInvocationResult(scriptId, tasks.get(i)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Invokes the function for each element of the argsList. Implementations may override it to execute
+     * the invocations in one task. The returned tasks must be in the order of the argsList.
+     */
+    protected List<? extends TbScriptExecutionTask> doInvokeFunctions(UUID scriptId, List<Object[]> argsList) {
+        return argsList.stream().map(args -> doInvokeFunction(scriptId, args)).collect(Collectors.toList());
+    }
+
+    private String checkInvocationAllowed(TenantId tenantId, UUID scriptId) {
+        if (apiUsageStateClient.isPresent() && !apiUsageStateClient.get().getApiUsageState(tenantId).isJsExecEnabled()) {
+            return "Script execution is disabled due to API limits!";
+        }
+        if (!isScriptPresent(scriptId)) {
+            return "No compiled script found for scriptId: [" + scriptId + "]!";
+        }
+        if (isDisabled(scriptId)) {
+            String message = "Script invocation is blocked due to maximum error count "
+                    + getMaxErrors() + ", scriptId " + scriptId + "!";
+            log.warn("[{}] " + message, tenantId);
+            return message;
+        }
+        return null;
+    }
+
+    private ListenableFuture<Object> argsSizeExceededError(UUID scriptId) {
+        TbScriptException t = new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new IllegalArgumentException(
+                format("Script input arguments exceed maximum allowed total args size of %s symbols", getMaxTotalArgsSize())
+        ));
+        return Futures.immediateFailedFuture(handleScriptException(scriptId, null, t));
+    }
+
+    private ListenableFuture<Object> processInvocationResult(UUID scriptId, TbScriptExecutionTask task) {
+        var resultFuture = Futures.transformAsync(task.getResultFuture(), output -> {
+            String result = JacksonUtil.toString(output);
+            if (resultSizeExceeded(result)) {
+                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException(
+                        format("Script invocation result exceeds maximum allowed size of %s symbols", getMaxResultSize())
+                ));
+            }
+            return Futures.immediateFuture(output);
+        }, MoreExecutors.directExecutor());
+
+        return withTimeoutAndStatsCallback(scriptId, task, resultFuture, invokeCallback, getMaxInvokeRequestsTimeout());
     }
 
     private <T extends V, V> ListenableFuture<T> withTimeoutAndStatsCallback(UUID scriptId, TbScriptExecutionTask task, ListenableFuture<T> future, FutureCallback<V> statsCallback, long timeout) {
         if (timeout > 0) {
-            future = Futures.withTimeout(future, timeout, TimeUnit.MILLISECONDS, timeoutExecutorService);
+            if (task != null) {
+                // the invocation may wait in the queue of the executor, e.g. behind the other invocations of the same pack
+                ListenableFuture<T> resultFuture = future;
+                future = Futures.transformAsync(task.getStartFuture(),
+                        started -> Futures.withTimeout(resultFuture, timeout, TimeUnit.MILLISECONDS, timeoutExecutorService),
+                        MoreExecutors.directExecutor());
+            } else {
+                future = Futures.withTimeout(future, timeout, TimeUnit.MILLISECONDS, timeoutExecutorService);
+            }
         }
         Futures.addCallback(future, statsCallback, getCallbackExecutor());
         return Futures.catchingAsync(future, Exception.class,
@@ -20,6 +20,7 @@ import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface ScriptInvokeService {
@@ -28,6 +29,14 @@ public interface ScriptInvokeService {
 
     ListenableFuture<Object> invokeScript(TenantId tenantId, CustomerId customerId, UUID scriptId, Object... args);
 
+    /**
+     * Invokes the script once per element of the argsList. The invocations are executed together where the
+     * implementation supports it, e.g. as one task of the executor, to avoid the per invocation scheduling overhead.
+     *
+     * @return the results of the invocations in the order of the argsList
+     */
+    List<ListenableFuture<Object>> invokeScripts(TenantId tenantId, CustomerId customerId, UUID scriptId, List<Object[]> argsList);
+
     ListenableFuture<Void> release(UUID scriptId);
 
     ScriptLanguage getLanguage();
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.script.api;
 
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -27,4 +28,11 @@ public abstract class TbScriptExecutionTask {
     private final ListenableFuture<Object> resultFuture;
 
     public abstract void stop();
+
+    /**
+     * Completes once the invocation starts executing. The invocation timeout is counted from this moment.
+     */
+    public ListenableFuture<Void> getStartFuture() {
+        return Futures.immediateFuture(null);
+    }
 }
@@ -22,6 +22,7 @@ import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -48,14 +49,17 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -190,21 +194,60 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
     @Override
     protected TbelScriptExecutionTask doInvokeFunction(UUID scriptId, Object[] args) {
         ExecutionContext executionContext = new ExecutionContext(this.parserConfig, maxMemoryLimitMb * 1024 * 1024);
-        return new TbelScriptExecutionTask(executionContext, executor.submit(() -> {
-            String scriptHash = scriptIdToHash.get(scriptId);
-            if (scriptHash == null) {
-                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException("Script not found!"));
-            }
-            TbelScript script = scriptMap.get(scriptHash);
-            Serializable compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody()));
-            try {
-                return MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args));
-            } catch (ScriptMemoryOverflowException e) {
-                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, script.getScriptBody(), new RuntimeException("Script memory overflow!"));
-            } catch (Exception e) {
-                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.RUNTIME, script.getScriptBody(), e);
-            }
-        }));
+        return new TbelScriptExecutionTask(executionContext, executor.submit(() -> executeScript(scriptId, executionContext, args)));
+    }
+
+    @Override
+    protected List<TbelScriptExecutionTask> doInvokeFunctions(UUID scriptId, List<Object[]> argsList) {
+        List<TbelScriptExecutionTask> tasks = new ArrayList<>(argsList.size());
+        List<SettableFuture<Object>> futures = new ArrayList<>(argsList.size());
+        List<SettableFuture<Void>> startFutures = new ArrayList<>(argsList.size());
+        for (int i = 0; i < argsList.size(); i++) {
+            SettableFuture<Object> future = SettableFuture.create();
+            SettableFuture<Void> startFuture = SettableFuture.create();
+            futures.add(future);
+            startFutures.add(startFuture);
+            tasks.add(new TbelScriptExecutionTask(new ExecutionContext(this.parserConfig, maxMemoryLimitMb * 1024 * 1024), future, startFuture));
+        }
+        try {
+            executor.execute(() -> {
+                for (int i = 0; i < argsList.size(); i++) {
+                    SettableFuture<Object> future = futures.get(i);
+                    // the timeout of the invocation is started only now, so the invocations at the end of the pack
+                    // are not timed out while waiting for the previous ones
+                    startFutures.get(i).set(null);
+                    // the invocation may be already cancelled
+                    if (future.isDone()) {
+                        continue;
+                    }
+                    try {
+                        future.set(executeScript(scriptId, tasks.get(i).getContext(), argsList.get(i)));
+                    } catch (Throwable t) {
+                        future.setException(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.setException(e));
+            startFutures.forEach(startFuture -> startFuture.set(null));
+        }
+        return tasks;
+    }
+
+    private Object executeScript(UUID scriptId, ExecutionContext executionContext, Object[] args) {
+        String scriptHash = scriptIdToHash.get(scriptId);
+        if (scriptHash == null) {
+            throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException("Script not found!"));
+        }
+        TbelScript script = scriptMap.get(scriptHash);
+        Serializable compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody()));
+        try {
+            return MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args));
+        } catch (ScriptMemoryOverflowException e) {
+            throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, script.getScriptBody(), new RuntimeException("Script memory overflow!"));
+        } catch (Exception e) {
+            throw new TbScriptException(scriptId, TbScriptException.ErrorCode.RUNTIME, script.getScriptBody(), e);
+        }
     }
 
     @Override
@@ -16,17 +16,31 @@
 package org.thingsboard.script.api.tbel;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import lombok.Getter;
 import org.mvel2.ExecutionContext;
 import org.thingsboard.script.api.TbScriptExecutionTask;
 
 
 public class TbelScriptExecutionTask extends TbScriptExecutionTask {
 
+    @Getter
     private final ExecutionContext context;
 
+    private final ListenableFuture<Void> startFuture;
+
     public TbelScriptExecutionTask(ExecutionContext context, ListenableFuture<Object> resultFuture) {
+        this(context, resultFuture, null);
+    }
+
+    public TbelScriptExecutionTask(ExecutionContext context, ListenableFuture<Object> resultFuture, ListenableFuture<Void> startFuture) {
         super(resultFuture);
         this.context = context;
+        this.startFuture = startFuture;
+    }
+
+    @Override
+    public ListenableFuture<Void> getStartFuture() {
+        return startFuture != null ? startFuture : super.getStartFuture();
     }
 
     @Override
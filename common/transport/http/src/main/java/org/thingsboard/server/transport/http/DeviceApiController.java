@@ -15,7 +15,9 @@
  */
 package org.thingsboard.server.transport.http;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -53,6 +55,7 @@ import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.AttributeUpdateNotificationMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetAttributeRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetAttributeResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ProvisionDeviceResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionCloseNotificationProto;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
@@ -65,9 +68,14 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToServerRpcResponseM
 import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 
@@ -124,6 +132,8 @@ public class DeviceApiController implements TbTransportService {
 
     private static final String ACCESS_TOKEN_PARAM_DESCRIPTION = "Your device access token.";
 
+    private static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
     @Autowired
     private HttpTransportContext transportContext;
 
@@ -210,6 +220,79 @@ public class DeviceApiController implements TbTransportService {
         return responseWriter;
     }
 
+    @ApiOperation(value = "Post time-series data of several devices (postTelemetryBatch)",
+            notes = "Post time-series data on behalf of several devices in a single request. "
+                    + "Intended for the gateways and the jobs that upload the historical data. "
+                    + "The body is read as it arrives, so it may be streamed. "
+                    + "Each device access token is validated once per request and the timestamps of the device are pushed to the rule engine together, split by the max message size. "
+                    + "They reach the rule engine as one message only if the typed telemetry payload is enabled, otherwise as one message per timestamp. "
+                    + "\n\n The 'application/x-ndjson' body contains one JSON object per line with the device 'token' and the telemetry in one of the formats above: "
+                    + MARKDOWN_CODE_BLOCK_START
+                    + "{\"token\":\"A1_TEST_TOKEN\",\"ts\":1634712287000,\"values\":{\"temperature\":26, \"humidity\":87}}\n"
+                    + "{\"token\":\"A1_TEST_TOKEN\",\"ts\":1634712588000,\"values\":{\"temperature\":25, \"humidity\":88}}\n"
+                    + "{\"token\":\"A2_TEST_TOKEN\",\"temperature\":31}"
+                    + MARKDOWN_CODE_BLOCK_END
+                    + "The 'application/x-protobuf' body contains the length-delimited 'DeviceTelemetryMsg' messages of the transport API. "
+                    + "\n\n Returns 413 if the body exceeds the max size, number of lines or devices of the batch. "
+                    + "Returns 401 with the list of the rejected tokens if some of the tokens are not valid, the data of the other devices is processed anyway.",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value = "/telemetry/batch", method = RequestMethod.POST,
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, APPLICATION_PROTOBUF_VALUE})
+    public DeferredResult<ResponseEntity> postTelemetryBatch(HttpServletRequest request) {
+        DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
+        if (request.getContentLengthLong() > transportContext.getBatchMaxSize()) {
+            responseWriter.setResult(new ResponseEntity<>("The batch is too large. Max allowed size in bytes: " + transportContext.getBatchMaxSize(), HttpStatus.PAYLOAD_TOO_LARGE));
+            return responseWriter;
+        }
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(transportContext.getBatchMaxDevices(), transportContext.getBatchMaxLines(),
+                transportContext.getBatchMaxSize(), transportContext.getBatchMaxMsgSize());
+        try (InputStream body = request.getInputStream()) {
+            if (MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                batch.readJson(body);
+            } else {
+                batch.readProto(body);
+            }
+        } catch (DeviceTelemetryBatch.BatchTooLargeException e) {
+            responseWriter.setResult(new ResponseEntity<>(e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE));
+            return responseWriter;
+        } catch (JsonParseException | IllegalArgumentException e) {
+            responseWriter.setResult(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+            return responseWriter;
+        } catch (IOException e) {
+            log.debug("Failed to read the telemetry batch", e);
+            responseWriter.setResult(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+            return responseWriter;
+        }
+        if (batch.isEmpty()) {
+            responseWriter.setResult(new ResponseEntity<>(HttpStatus.OK));
+            return responseWriter;
+        }
+        TransportService transportService = transportContext.getTransportService();
+        Map<String, List<PostTelemetryMsg>> telemetry = batch.getTelemetry();
+        BatchResponseCallback batchCallback = new BatchResponseCallback(responseWriter, telemetry.size());
+        telemetry.forEach((deviceToken, msgs) ->
+                transportService.process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+                        new TransportServiceCallback<>() {
+                            @Override
+                            public void onSuccess(ValidateDeviceCredentialsResponse msg) {
+                                if (msg.hasDeviceInfo()) {
+                                    SessionInfoProto sessionInfo = SessionInfoCreator.create(msg, transportContext, UUID.randomUUID());
+                                    TransportServiceCallback<Void> deviceCallback = batchCallback.forDevice(msgs.size());
+                                    msgs.forEach(telemetryMsg -> transportService.process(sessionInfo, telemetryMsg, deviceCallback));
+                                } else {
+                                    batchCallback.onUnauthorized(deviceToken);
+                                }
+                            }
+
+                            @Override
+                            public void onError(Throwable e) {
+                                log.warn("Failed to process request", e);
+                                batchCallback.onError();
+                            }
+                        }));
+        return responseWriter;
+    }
+
     @ApiOperation(value = "Save claiming information (claimDevice)",
             notes = "Saves the information required for user to claim the device. " +
                     "See more info about claiming in the corresponding 'Claiming devices' platform documentation."
@@ -567,6 +650,71 @@ public class DeviceApiController implements TbTransportService {
         }
     }
 
+    private static class BatchResponseCallback {
+        private final DeferredResult<ResponseEntity> responseWriter;
+        private final AtomicInteger remaining;
+        private final List<String> unauthorizedTokens = new ArrayList<>();
+        private volatile boolean failed;
+
+        BatchResponseCallback(DeferredResult<ResponseEntity> responseWriter, int devices) {
+            this.responseWriter = responseWriter;
+            this.remaining = new AtomicInteger(devices);
+        }
+
+        TransportServiceCallback<Void> forDevice(int msgs) {
+            AtomicInteger remainingMsgs = new AtomicInteger(msgs);
+            if (msgs == 0) {
+                // nothing is pushed, so the callback is never called
+                onDone();
+            }
+            return new TransportServiceCallback<>() {
+                @Override
+                public void onSuccess(Void msg) {
+                    if (remainingMsgs.decrementAndGet() == 0) {
+                        onDone();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    log.debug("Failed to process telemetry of the batch", e);
+                    if (remainingMsgs.getAndSet(0) > 0) {
+                        BatchResponseCallback.this.onError();
+                    }
+                }
+            };
+        }
+
+        void onUnauthorized(String deviceToken) {
+            synchronized (unauthorizedTokens) {
+                unauthorizedTokens.add(deviceToken);
+            }
+            onDone();
+        }
+
+        void onError() {
+            failed = true;
+            onDone();
+        }
+
+        private void onDone() {
+            if (remaining.decrementAndGet() > 0) {
+                return;
+            }
+            if (failed) {
+                responseWriter.setResult(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+            } else if (!unauthorizedTokens.isEmpty()) {
+                JsonArray rejectedTokens = new JsonArray();
+                unauthorizedTokens.forEach(rejectedTokens::add);
+                JsonObject result = new JsonObject();
+                result.add("rejectedTokens", rejectedTokens);
+                responseWriter.setResult(new ResponseEntity<>(result.toString(), HttpStatus.UNAUTHORIZED));
+            } else {
+                responseWriter.setResult(new ResponseEntity<>(HttpStatus.OK));
+            }
+        }
+    }
+
     @RequiredArgsConstructor
     private static class HttpSessionListener implements SessionMsgListener {
 
@@ -0,0 +1,276 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.protobuf.CodedOutputStream;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+import org.thingsboard.server.gen.transport.TransportApiProtos.DeviceTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Telemetry of several devices read from the request body as it arrives and grouped by the device access token,
+ * so the credentials are validated once per device. The telemetry of the device is split into the messages
+ * of the limited size, so the merged telemetry doesn't exceed the max message size of the queue.
+ */
+final class DeviceTelemetryBatch {
+
+    private static final String TOKEN_PROPERTY = "token";
+    // max size of the ts field and of the tag and length of the entry in the PostTelemetryMsg
+    private static final int TS_KV_OVERHEAD = 16;
+
+    private final int maxDevices;
+    private final int maxLines;
+    private final long maxBytes;
+    private final int maxMsgSize;
+    private final Map<String, DeviceTelemetry> telemetry = new LinkedHashMap<>();
+    private int lines;
+
+    DeviceTelemetryBatch(int maxDevices, int maxLines, long maxBytes, int maxMsgSize) {
+        this.maxDevices = maxDevices;
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        this.maxMsgSize = maxMsgSize;
+    }
+
+    /**
+     * Reads the JSON objects separated by new lines. Each object contains the device 'token' and the telemetry
+     * in one of the formats of the single device API: plain key-value pairs or the 'ts' and 'values'.
+     *
+     * @throws BatchTooLargeException if the body exceeds one of the limits of the batch.
+     */
+    void readJson(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new LimitedInputStream(body), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            checkLines();
+            JsonElement json = JsonParser.parseString(line);
+            if (!json.isJsonObject()) {
+                throw new JsonSyntaxException("Can't parse value: " + line);
+            }
+            JsonObject jo = json.getAsJsonObject();
+            JsonElement token = jo.remove(TOKEN_PROPERTY);
+            if (token == null || !token.isJsonPrimitive()) {
+                throw new JsonSyntaxException("Device token is missing: " + line);
+            }
+            add(token.getAsString(), JsonConverter.convertToTelemetryProto(jo));
+        }
+    }
+
+    /**
+     * Reads the length-delimited {@link DeviceTelemetryMsg} messages. Each message is counted as a line.
+     *
+     * @throws BatchTooLargeException if the body exceeds one of the limits of the batch.
+     */
+    void readProto(InputStream body) throws IOException {
+        LimitedInputStream in = new LimitedInputStream(body);
+        DeviceTelemetryMsg msg;
+        while ((msg = parseDelimited(in)) != null) {
+            checkLines();
+            if (StringUtils.isEmpty(msg.getToken())) {
+                throw new IllegalArgumentException("Device token is missing");
+            }
+            add(msg.getToken(), msg.getMsg());
+        }
+    }
+
+    boolean isEmpty() {
+        return telemetry.isEmpty();
+    }
+
+    /**
+     * @return the telemetry messages to push to the rule engine grouped by the device access token.
+     */
+    Map<String, List<PostTelemetryMsg>> getTelemetry() {
+        Map<String, List<PostTelemetryMsg>> result = new LinkedHashMap<>();
+        telemetry.forEach((token, deviceTelemetry) -> result.put(token, deviceTelemetry.getMsgs()));
+        return result;
+    }
+
+    private DeviceTelemetryMsg parseDelimited(LimitedInputStream in) throws IOException {
+        try {
+            return DeviceTelemetryMsg.parseDelimitedFrom(in);
+        } catch (IOException e) {
+            // the protobuf parser wraps the exceptions of the stream
+            if (in.isLimitExceeded()) {
+                throw bytesLimitExceeded();
+            }
+            throw e;
+        }
+    }
+
+    private void checkLines() throws BatchTooLargeException {
+        if (++lines > maxLines) {
+            throw new BatchTooLargeException("Too many lines in the batch. Max allowed: " + maxLines);
+        }
+    }
+
+    private BatchTooLargeException bytesLimitExceeded() {
+        return new BatchTooLargeException("The batch is too large. Max allowed size in bytes: " + maxBytes);
+    }
+
+    private void add(String token, PostTelemetryMsg msg) throws BatchTooLargeException {
+        if (msg.getTsKvListCount() == 0) {
+            // there is nothing to push for the device
+            return;
+        }
+        DeviceTelemetry deviceTelemetry = telemetry.get(token);
+        if (deviceTelemetry == null) {
+            if (telemetry.size() >= maxDevices) {
+                throw new BatchTooLargeException("Too many devices in the batch. Max allowed: " + maxDevices);
+            }
+            deviceTelemetry = new DeviceTelemetry();
+            telemetry.put(token, deviceTelemetry);
+        }
+        for (TsKvListProto tsKv : msg.getTsKvListList()) {
+            if (CodedOutputStream.computeMessageSize(PostTelemetryMsg.TSKVLIST_FIELD_NUMBER, tsKv) <= maxMsgSize) {
+                deviceTelemetry.add(tsKv);
+            } else {
+                split(deviceTelemetry, tsKv);
+            }
+        }
+    }
+
+    private void split(DeviceTelemetry deviceTelemetry, TsKvListProto tsKv) throws BatchTooLargeException {
+        TsKvListProto.Builder part = TsKvListProto.newBuilder().setTs(tsKv.getTs());
+        int partSize = TS_KV_OVERHEAD;
+        for (KeyValueProto kv : tsKv.getKvList()) {
+            int kvSize = CodedOutputStream.computeMessageSize(TsKvListProto.KV_FIELD_NUMBER, kv);
+            if (TS_KV_OVERHEAD + kvSize > maxMsgSize) {
+                throw new BatchTooLargeException("Value of the key [" + kv.getKey() + "] is too large. Max allowed message size in bytes: " + maxMsgSize);
+            }
+            if (part.getKvCount() > 0 && partSize + kvSize > maxMsgSize) {
+                deviceTelemetry.add(part.build());
+                part = TsKvListProto.newBuilder().setTs(tsKv.getTs());
+                partSize = TS_KV_OVERHEAD;
+            }
+            part.addKv(kv);
+            partSize += kvSize;
+        }
+        if (part.getKvCount() > 0) {
+            deviceTelemetry.add(part.build());
+        }
+    }
+
+    private final class DeviceTelemetry {
+        private final List<PostTelemetryMsg> msgs = new ArrayList<>();
+        private PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+        private int size;
+
+        void add(TsKvListProto tsKv) {
+            int tsKvSize = CodedOutputStream.computeMessageSize(PostTelemetryMsg.TSKVLIST_FIELD_NUMBER, tsKv);
+            if (size > 0 && size + tsKvSize > maxMsgSize) {
+                flush();
+            }
+            builder.addTsKvList(tsKv);
+            size += tsKvSize;
+        }
+
+        List<PostTelemetryMsg> getMsgs() {
+            if (size > 0) {
+                flush();
+            }
+            return msgs;
+        }
+
+        private void flush() {
+            msgs.add(builder.build());
+            builder = PostTelemetryMsg.newBuilder();
+            size = 0;
+        }
+    }
+
+    private final class LimitedInputStream extends FilterInputStream {
+        private long bytes;
+        private boolean limitExceeded;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        boolean isLimitExceeded() {
+            return limitExceeded;
+        }
+
+        private void count(long n) throws BatchTooLargeException {
+            bytes += n;
+            if (bytes > maxBytes) {
+                limitExceeded = true;
+                throw bytesLimitExceeded();
+            }
+        }
+    }
+
+    static final class BatchTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 4265384283318627434L;
+
+        BatchTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+}
@@ -42,6 +42,22 @@ public class HttpTransportContext extends TransportContext {
     @Value("${transport.http.max_request_timeout}")
     private long maxRequestTimeout;
 
+    @Getter
+    @Value("${transport.http.batch_max_devices:1000}")
+    private int batchMaxDevices;
+
+    @Getter
+    @Value("${transport.http.batch_max_lines:100000}")
+    private int batchMaxLines;
+
+    @Getter
+    @Value("${transport.http.batch_max_size:10485760}")
+    private long batchMaxSize;
+
+    @Getter
+    @Value("${transport.http.batch_max_msg_size:65536}")
+    private int batchMaxMsgSize;
+
     @Bean
     public TomcatConnectorCustomizer tomcatAsyncTimeoutConnectorCustomizer() {
         return connector -> {
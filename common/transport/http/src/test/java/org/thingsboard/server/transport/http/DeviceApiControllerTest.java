@@ -0,0 +1,216 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.http;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.thingsboard.server.common.data.DeviceTransportType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.gen.transport.TransportApiProtos.DeviceTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceApiControllerTest {
+
+    private static final String VALID_TOKEN = "VALID_TOKEN";
+
+    private HttpTransportContext transportContext;
+    private TransportService transportService;
+    private DeviceApiController controller;
+
+    @BeforeEach
+    void setUp() {
+        transportContext = mock(HttpTransportContext.class);
+        transportService = mock(TransportService.class);
+        when(transportContext.getTransportService()).thenReturn(transportService);
+        when(transportContext.getNodeId()).thenReturn("test-node");
+        when(transportContext.getBatchMaxDevices()).thenReturn(10);
+        when(transportContext.getBatchMaxLines()).thenReturn(10);
+        when(transportContext.getBatchMaxSize()).thenReturn(1024L);
+        when(transportContext.getBatchMaxMsgSize()).thenReturn(1024);
+        controller = new DeviceApiController();
+        ReflectionTestUtils.setField(controller, "transportContext", transportContext);
+
+        doAnswer(invocation -> {
+            ValidateDeviceTokenRequestMsg request = invocation.getArgument(1);
+            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback = invocation.getArgument(2);
+            callback.onSuccess(VALID_TOKEN.equals(request.getToken()) ?
+                    ValidateDeviceCredentialsResponse.builder().deviceInfo(deviceInfo()).build() :
+                    ValidateDeviceCredentialsResponse.builder().build());
+            return null;
+        }).when(transportService).process(eq(DeviceTransportType.DEFAULT), any(ValidateDeviceTokenRequestMsg.class), any());
+        doAnswer(invocation -> {
+            TransportServiceCallback<Void> callback = invocation.getArgument(2);
+            callback.onSuccess(null);
+            return null;
+        }).when(transportService).process(any(SessionInfoProto.class), any(PostTelemetryMsg.class), any());
+    }
+
+    @Test
+    void givenValidBatch_whenPost_thenTelemetryIsPushedOncePerDevice() {
+        ResponseEntity response = post("{\"token\":\"VALID_TOKEN\",\"ts\":1,\"values\":{\"temperature\":26}}\n" +
+                "{\"token\":\"VALID_TOKEN\",\"ts\":2,\"values\":{\"temperature\":25}}");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ArgumentCaptor<PostTelemetryMsg> msgCaptor = ArgumentCaptor.forClass(PostTelemetryMsg.class);
+        verify(transportService).process(any(SessionInfoProto.class), msgCaptor.capture(), any());
+        assertEquals(2, msgCaptor.getValue().getTsKvListCount());
+    }
+
+    @Test
+    void givenInvalidToken_whenPost_thenRejectedTokensAreReturned() {
+        ResponseEntity response = post("{\"token\":\"VALID_TOKEN\",\"temperature\":26}\n{\"token\":\"INVALID_TOKEN\",\"temperature\":25}");
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertTrue(response.getBody().toString().contains("INVALID_TOKEN"));
+        verify(transportService, times(1)).process(any(SessionInfoProto.class), any(PostTelemetryMsg.class), any());
+    }
+
+    @Test
+    void givenTelemetryAboveMsgSize_whenPost_thenSeveralMsgsArePushed() {
+        when(transportContext.getBatchMaxMsgSize()).thenReturn(32);
+
+        ResponseEntity response = post("{\"token\":\"VALID_TOKEN\",\"ts\":1,\"values\":{\"temperature\":26}}\n" +
+                "{\"token\":\"VALID_TOKEN\",\"ts\":2,\"values\":{\"temperature\":25}}\n" +
+                "{\"token\":\"VALID_TOKEN\",\"ts\":3,\"values\":{\"temperature\":24}}");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(transportService, times(1)).process(eq(DeviceTransportType.DEFAULT), any(ValidateDeviceTokenRequestMsg.class), any());
+        verify(transportService, times(3)).process(any(SessionInfoProto.class), any(PostTelemetryMsg.class), any());
+    }
+
+    @Test
+    void givenContentLengthAboveMaxSize_whenPost_thenPayloadTooLarge() {
+        ResponseEntity response = post("{\"token\":\"VALID_TOKEN\",\"temperature\":26}\n".repeat(64));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+        verify(transportService, never()).process(eq(DeviceTransportType.DEFAULT), any(ValidateDeviceTokenRequestMsg.class), any());
+    }
+
+    @Test
+    void givenTooManyLines_whenPost_thenPayloadTooLarge() {
+        when(transportContext.getBatchMaxLines()).thenReturn(1);
+
+        ResponseEntity response = post("{\"token\":\"VALID_TOKEN\",\"temperature\":26}\n{\"token\":\"VALID_TOKEN\",\"temperature\":25}");
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+        verify(transportService, never()).process(eq(DeviceTransportType.DEFAULT), any(ValidateDeviceTokenRequestMsg.class), any());
+    }
+
+    @Test
+    void givenMalformedLine_whenPost_thenBadRequest() {
+        ResponseEntity response = post("{\"token\":\"VALID_TOKEN\",");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void givenDeviceWithoutTelemetry_whenPostProto_thenResponseIsNotHeld() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DeviceTelemetryMsg.newBuilder().setToken(VALID_TOKEN)
+                .setMsg(PostTelemetryMsg.newBuilder().addTsKvList(TsKvListProto.newBuilder().setTs(1)
+                        .addKv(KeyValueProto.newBuilder().setKey("temperature").setType(KeyValueType.LONG_V).setLongV(26))))
+                .build().writeDelimitedTo(body);
+        DeviceTelemetryMsg.newBuilder().setToken("EMPTY_TOKEN").setMsg(PostTelemetryMsg.getDefaultInstance())
+                .build().writeDelimitedTo(body);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/telemetry/batch");
+        request.setContentType("application/x-protobuf");
+        request.setContent(body.toByteArray());
+        ResponseEntity response = result(controller.postTelemetryBatch(request));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(transportService, times(1)).process(eq(DeviceTransportType.DEFAULT), any(ValidateDeviceTokenRequestMsg.class), any());
+        verify(transportService, times(1)).process(any(SessionInfoProto.class), any(PostTelemetryMsg.class), any());
+    }
+
+    @Test
+    void givenOnlyDevicesWithoutTelemetry_whenPostProto_thenOk() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DeviceTelemetryMsg.newBuilder().setToken(VALID_TOKEN).setMsg(PostTelemetryMsg.getDefaultInstance())
+                .build().writeDelimitedTo(body);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/telemetry/batch");
+        request.setContentType("application/x-protobuf");
+        request.setContent(body.toByteArray());
+        ResponseEntity response = result(controller.postTelemetryBatch(request));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(transportService, never()).process(any(SessionInfoProto.class), any(PostTelemetryMsg.class), any());
+    }
+
+    private ResponseEntity post(String body) {
+        return result(controller.postTelemetryBatch(request(body)));
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/telemetry/batch");
+        request.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static ResponseEntity result(DeferredResult<ResponseEntity> deferredResult) {
+        assertTrue(deferredResult.hasResult());
+        return (ResponseEntity) deferredResult.getResult();
+    }
+
+    private static TransportDeviceInfo deviceInfo() {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        deviceInfo.setCustomerId(new CustomerId(UUID.randomUUID()));
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setDeviceName("Test device");
+        deviceInfo.setDeviceType("default");
+        return deviceInfo;
+    }
+
+}
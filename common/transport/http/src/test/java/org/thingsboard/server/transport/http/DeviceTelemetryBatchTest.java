@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.http;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.gen.transport.TransportApiProtos.DeviceTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceTelemetryBatchTest {
+
+    @Test
+    void givenJsonLines_whenRead_thenTelemetryIsGroupedByToken() throws IOException {
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 10, 1024, 1024);
+
+        batch.readJson(json("{\"token\":\"A1\",\"ts\":1,\"values\":{\"temperature\":26}}\n" +
+                "\n" +
+                "{\"token\":\"A2\",\"temperature\":31}\n" +
+                "{\"token\":\"A1\",\"ts\":2,\"values\":{\"temperature\":25}}"));
+
+        Map<String, List<PostTelemetryMsg>> telemetry = batch.getTelemetry();
+        assertEquals(List.of("A1", "A2"), List.copyOf(telemetry.keySet()));
+        assertEquals(1, telemetry.get("A1").size());
+        PostTelemetryMsg msg = telemetry.get("A1").get(0);
+        assertEquals(2, msg.getTsKvListCount());
+        assertEquals(1L, msg.getTsKvList(0).getTs());
+        assertEquals(2L, msg.getTsKvList(1).getTs());
+        assertEquals(31L, telemetry.get("A2").get(0).getTsKvList(0).getKv(0).getLongV());
+    }
+
+    @Test
+    void givenLineWithoutToken_whenRead_thenFails() {
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 10, 1024, 1024);
+
+        assertThrows(JsonSyntaxException.class, () -> batch.readJson(json("{\"temperature\":26}")));
+    }
+
+    @Test
+    void givenTooManyDevices_whenRead_thenFails() {
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(1, 10, 1024, 1024);
+
+        assertThrows(DeviceTelemetryBatch.BatchTooLargeException.class,
+                () -> batch.readJson(json("{\"token\":\"A1\",\"temperature\":26}\n{\"token\":\"A2\",\"temperature\":27}")));
+    }
+
+    @Test
+    void givenTooManyLines_whenRead_thenFails() {
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 2, 1024, 1024);
+
+        assertThrows(DeviceTelemetryBatch.BatchTooLargeException.class, () -> batch.readJson(json(
+                "{\"token\":\"A1\",\"temperature\":26}\n{\"token\":\"A1\",\"temperature\":27}\n{\"token\":\"A1\",\"temperature\":28}")));
+    }
+
+    @Test
+    void givenTooLargeBody_whenRead_thenFails() {
+        DeviceTelemetryBatch jsonBatch = new DeviceTelemetryBatch(10, 10, 16, 1024);
+        assertThrows(DeviceTelemetryBatch.BatchTooLargeException.class,
+                () -> jsonBatch.readJson(json("{\"token\":\"A1\",\"temperature\":26}")));
+
+        DeviceTelemetryBatch protoBatch = new DeviceTelemetryBatch(10, 10, 16, 1024);
+        assertThrows(DeviceTelemetryBatch.BatchTooLargeException.class,
+                () -> protoBatch.readProto(proto(deviceTelemetry("A1", tsKv(1, "temperature", "warm and humid")))));
+    }
+
+    @Test
+    void givenDelimitedProto_whenRead_thenTelemetryIsGroupedByToken() throws IOException {
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 10, 1024, 1024);
+
+        batch.readProto(proto(deviceTelemetry("A1", tsKv(1, "state", "on")),
+                deviceTelemetry("A2", tsKv(1, "state", "off")),
+                deviceTelemetry("A1", tsKv(2, "state", "off"))));
+
+        Map<String, List<PostTelemetryMsg>> telemetry = batch.getTelemetry();
+        assertEquals(2, telemetry.size());
+        assertEquals(2, telemetry.get("A1").get(0).getTsKvListCount());
+        assertEquals(1, telemetry.get("A2").get(0).getTsKvListCount());
+    }
+
+    @Test
+    void givenTelemetryAboveMsgSize_whenRead_thenSplitIntoSeveralMsgs() throws IOException {
+        int maxMsgSize = 64;
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 100, 4096, maxMsgSize);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            body.append("{\"token\":\"A1\",\"ts\":").append(i).append(",\"values\":{\"state\":\"value-").append(i).append("\"}}\n");
+        }
+
+        batch.readJson(json(body.toString()));
+
+        List<PostTelemetryMsg> msgs = batch.getTelemetry().get("A1");
+        assertTrue(msgs.size() > 1);
+        assertEquals(10, msgs.stream().mapToInt(PostTelemetryMsg::getTsKvListCount).sum());
+        msgs.forEach(msg -> assertTrue(msg.getSerializedSize() <= maxMsgSize));
+    }
+
+    @Test
+    void givenTimestampAboveMsgSize_whenRead_thenValuesAreSplit() throws IOException {
+        int maxMsgSize = 64;
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 10, 4096, maxMsgSize);
+        TsKvListProto.Builder tsKv = TsKvListProto.newBuilder().setTs(1);
+        for (int i = 0; i < 10; i++) {
+            tsKv.addKv(kv("key" + i, "value-" + i));
+        }
+
+        batch.readProto(proto(DeviceTelemetryMsg.newBuilder().setToken("A1")
+                .setMsg(PostTelemetryMsg.newBuilder().addTsKvList(tsKv)).build()));
+
+        List<PostTelemetryMsg> msgs = batch.getTelemetry().get("A1");
+        assertTrue(msgs.size() > 1);
+        assertEquals(10, msgs.stream().flatMap(msg -> msg.getTsKvListList().stream()).mapToInt(TsKvListProto::getKvCount).sum());
+        msgs.forEach(msg -> {
+            assertTrue(msg.getSerializedSize() <= maxMsgSize);
+            msg.getTsKvListList().forEach(part -> assertEquals(1L, part.getTs()));
+        });
+    }
+
+    @Test
+    void givenValueAboveMsgSize_whenRead_thenFails() {
+        DeviceTelemetryBatch batch = new DeviceTelemetryBatch(10, 10, 4096, 32);
+
+        assertThrows(DeviceTelemetryBatch.BatchTooLargeException.class,
+                () -> batch.readProto(proto(deviceTelemetry("A1", tsKv(1, "state", "a value that doesn't fit any message")))));
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream proto(DeviceTelemetryMsg... msgs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (DeviceTelemetryMsg msg : msgs) {
+            msg.writeDelimitedTo(out);
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static DeviceTelemetryMsg deviceTelemetry(String token, TsKvListProto tsKv) {
+        return DeviceTelemetryMsg.newBuilder().setToken(token).setMsg(PostTelemetryMsg.newBuilder().addTsKvList(tsKv)).build();
+    }
+
+    private static TsKvListProto tsKv(long ts, String key, String value) {
+        return TsKvListProto.newBuilder().setTs(ts).addKv(kv(key, value)).build();
+    }
+
+    private static KeyValueProto kv(String key, String value) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.device.profile.MqttTopics;
+
+import java.util.Arrays;
+
+/**
+ * Device API topics the device may publish to. The topic of the publish message is resolved with a single pass
+ * over the prefix tree of the topics instead of comparing the topic with each of them in turn.
+ * The topics that end with the request id are matched by prefix, the longest prefix wins.
+ */
+public enum DeviceTopic {
+
+    ATTRIBUTES_REQUEST(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX, true),
+    RPC_RESPONSE(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC, true),
+    RPC_REQUEST(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC, true),
+    CLAIM(MqttTopics.DEVICE_CLAIM_TOPIC, false),
+    FIRMWARE_REQUEST(MqttTopics.DEVICE_FIRMWARE_REQUEST_TOPIC_PREFIX, true),
+    SOFTWARE_REQUEST(MqttTopics.DEVICE_SOFTWARE_REQUEST_TOPIC_PREFIX, true),
+    TELEMETRY_SHORT(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC, false),
+    TELEMETRY_SHORT_JSON(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC, false),
+    TELEMETRY_SHORT_PROTO(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC, false),
+    ATTRIBUTES_SHORT(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC, false),
+    ATTRIBUTES_SHORT_JSON(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC, false),
+    ATTRIBUTES_SHORT_PROTO(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC, false),
+    RPC_RESPONSE_SHORT(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC, true),
+    RPC_RESPONSE_SHORT_JSON(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC, true),
+    RPC_RESPONSE_SHORT_PROTO(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC, true),
+    RPC_REQUEST_SHORT(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC, true),
+    RPC_REQUEST_SHORT_JSON(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC, true),
+    RPC_REQUEST_SHORT_PROTO(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC, true),
+    ATTRIBUTES_REQUEST_SHORT(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX, true),
+    ATTRIBUTES_REQUEST_SHORT_JSON(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX, true),
+    ATTRIBUTES_REQUEST_SHORT_PROTO(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX, true);
+
+    private static final Node ROOT = new Node();
+
+    static {
+        for (DeviceTopic topic : values()) {
+            Node node = ROOT;
+            for (int i = 0; i < topic.topic.length(); i++) {
+                node = node.getOrCreateChild(topic.topic.charAt(i));
+            }
+            if (topic.prefix) {
+                node.prefixTopic = topic;
+            } else {
+                node.topic = topic;
+            }
+        }
+    }
+
+    @Getter
+    private final String topic;
+    @Getter
+    private final boolean prefix;
+
+    DeviceTopic(String topic, boolean prefix) {
+        this.topic = topic;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return the device topic or null if the topic name doesn't match any of the device API topics.
+     */
+    public static DeviceTopic of(String topicName) {
+        Node node = ROOT;
+        DeviceTopic prefixTopic = null;
+        for (int i = 0; i < topicName.length(); i++) {
+            node = node.getChild(topicName.charAt(i));
+            if (node == null) {
+                return prefixTopic;
+            }
+            if (node.prefixTopic != null) {
+                prefixTopic = node.prefixTopic;
+            }
+        }
+        return node.topic != null ? node.topic : prefixTopic;
+    }
+
+    private static class Node {
+        private char[] chars = new char[0];
+        private Node[] children = new Node[0];
+        private DeviceTopic topic;
+        private DeviceTopic prefixTopic;
+
+        Node getChild(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrCreateChild(char c) {
+            Node child = getChild(c);
+            if (child == null) {
+                child = new Node();
+                chars = Arrays.copyOf(chars, chars.length + 1);
+                chars[chars.length - 1] = c;
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+}
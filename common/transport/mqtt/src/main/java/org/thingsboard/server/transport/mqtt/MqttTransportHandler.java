@@ -440,94 +440,107 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
 
     private void processDevicePublish(ChannelHandlerContext ctx, MqttPublishMessage mqttMsg, String topicName, int msgId) {
         try {
-            Matcher fwMatcher;
             MqttTransportAdaptor payloadAdaptor = deviceSessionCtx.getPayloadAdaptor();
             if (deviceSessionCtx.isDeviceAttributesTopic(topicName)) {
                 TransportProtos.PostAttributeMsg postAttributeMsg = payloadAdaptor.convertToPostAttributes(deviceSessionCtx, mqttMsg);
                 transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
                         getPubAckCallback(ctx, msgId, postAttributeMsg));
+                return;
             } else if (deviceSessionCtx.isDeviceTelemetryTopic(topicName)) {
                 TransportProtos.PostTelemetryMsg postTelemetryMsg = payloadAdaptor.convertToPostTelemetry(deviceSessionCtx, mqttMsg);
                 transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
                         getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V1;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V1;
-            } else if (topicName.equals(MqttTopics.DEVICE_CLAIM_TOPIC)) {
-                TransportProtos.ClaimDeviceMsg claimDeviceMsg = payloadAdaptor.convertToClaimDevice(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), claimDeviceMsg, getPubAckCallback(ctx, msgId, claimDeviceMsg));
-            } else if ((fwMatcher = FW_REQUEST_PATTERN.matcher(topicName)).find()) {
-                getOtaPackageCallback(ctx, mqttMsg, msgId, fwMatcher, OtaPackageType.FIRMWARE);
-            } else if ((fwMatcher = SW_REQUEST_PATTERN.matcher(topicName)).find()) {
-                getOtaPackageCallback(ctx, mqttMsg, msgId, fwMatcher, OtaPackageType.SOFTWARE);
-            } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = payloadAdaptor.convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = context.getJsonMqttAdaptor().convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC)) {
-                TransportProtos.PostTelemetryMsg postTelemetryMsg = context.getProtoMqttAdaptor().convertToPostTelemetry(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postTelemetryMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = payloadAdaptor.convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = context.getJsonMqttAdaptor().convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
-            } else if (topicName.equals(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC)) {
-                TransportProtos.PostAttributeMsg postAttributeMsg = context.getProtoMqttAdaptor().convertToPostAttributes(deviceSessionCtx, mqttMsg);
-                transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
-                        getPubAckCallback(ctx, msgId, postAttributeMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = context.getJsonMqttAdaptor().convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = context.getProtoMqttAdaptor().convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC)) {
-                TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg = payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = context.getJsonMqttAdaptor().convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V2_JSON;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = context.getProtoMqttAdaptor().convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V2_PROTO;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC)) {
-                TransportProtos.ToServerRpcRequestMsg rpcRequestMsg = payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC);
-                transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
-                toServerRpcSubTopicType = TopicType.V2;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = context.getJsonMqttAdaptor().convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V2_JSON;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = context.getProtoMqttAdaptor().convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V2_PROTO;
-            } else if (topicName.startsWith(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX)) {
-                TransportProtos.GetAttributeRequestMsg getAttributeMsg = payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX);
-                transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
-                attrReqTopicType = TopicType.V2;
-            } else {
-                transportService.reportActivity(deviceSessionCtx.getSessionInfo());
-                ack(ctx, msgId, ReturnCode.TOPIC_NAME_INVALID);
+                return;
+            }
+            DeviceTopic deviceTopic = DeviceTopic.of(topicName);
+            if (deviceTopic == null) {
+                onInvalidTopic(ctx, msgId);
+                return;
+            }
+            Matcher fwMatcher;
+            switch (deviceTopic) {
+                case ATTRIBUTES_REQUEST:
+                    processGetAttributes(ctx, msgId, payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    attrReqTopicType = TopicType.V1;
+                    break;
+                case RPC_RESPONSE:
+                    processRpcResponse(ctx, msgId, payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    break;
+                case RPC_REQUEST:
+                    processRpcRequest(ctx, msgId, payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    toServerRpcSubTopicType = TopicType.V1;
+                    break;
+                case CLAIM:
+                    TransportProtos.ClaimDeviceMsg claimDeviceMsg = payloadAdaptor.convertToClaimDevice(deviceSessionCtx, mqttMsg);
+                    transportService.process(deviceSessionCtx.getSessionInfo(), claimDeviceMsg, getPubAckCallback(ctx, msgId, claimDeviceMsg));
+                    break;
+                case FIRMWARE_REQUEST:
+                    if ((fwMatcher = FW_REQUEST_PATTERN.matcher(topicName)).find()) {
+                        getOtaPackageCallback(ctx, mqttMsg, msgId, fwMatcher, OtaPackageType.FIRMWARE);
+                    } else {
+                        onInvalidTopic(ctx, msgId);
+                    }
+                    break;
+                case SOFTWARE_REQUEST:
+                    if ((fwMatcher = SW_REQUEST_PATTERN.matcher(topicName)).find()) {
+                        getOtaPackageCallback(ctx, mqttMsg, msgId, fwMatcher, OtaPackageType.SOFTWARE);
+                    } else {
+                        onInvalidTopic(ctx, msgId);
+                    }
+                    break;
+                case TELEMETRY_SHORT:
+                    processPostTelemetry(ctx, msgId, topicName, payloadAdaptor.convertToPostTelemetry(deviceSessionCtx, mqttMsg));
+                    break;
+                case TELEMETRY_SHORT_JSON:
+                    processPostTelemetry(ctx, msgId, topicName, context.getJsonMqttAdaptor().convertToPostTelemetry(deviceSessionCtx, mqttMsg));
+                    break;
+                case TELEMETRY_SHORT_PROTO:
+                    processPostTelemetry(ctx, msgId, topicName, context.getProtoMqttAdaptor().convertToPostTelemetry(deviceSessionCtx, mqttMsg));
+                    break;
+                case ATTRIBUTES_SHORT:
+                    processPostAttributes(ctx, msgId, topicName, payloadAdaptor.convertToPostAttributes(deviceSessionCtx, mqttMsg));
+                    break;
+                case ATTRIBUTES_SHORT_JSON:
+                    processPostAttributes(ctx, msgId, topicName, context.getJsonMqttAdaptor().convertToPostAttributes(deviceSessionCtx, mqttMsg));
+                    break;
+                case ATTRIBUTES_SHORT_PROTO:
+                    processPostAttributes(ctx, msgId, topicName, context.getProtoMqttAdaptor().convertToPostAttributes(deviceSessionCtx, mqttMsg));
+                    break;
+                case RPC_RESPONSE_SHORT_JSON:
+                    processRpcResponse(ctx, msgId, context.getJsonMqttAdaptor().convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    break;
+                case RPC_RESPONSE_SHORT_PROTO:
+                    processRpcResponse(ctx, msgId, context.getProtoMqttAdaptor().convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    break;
+                case RPC_RESPONSE_SHORT:
+                    processRpcResponse(ctx, msgId, payloadAdaptor.convertToDeviceRpcResponse(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    break;
+                case RPC_REQUEST_SHORT_JSON:
+                    processRpcRequest(ctx, msgId, context.getJsonMqttAdaptor().convertToServerRpcRequest(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    toServerRpcSubTopicType = TopicType.V2_JSON;
+                    break;
+                case RPC_REQUEST_SHORT_PROTO:
+                    processRpcRequest(ctx, msgId, context.getProtoMqttAdaptor().convertToServerRpcRequest(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    toServerRpcSubTopicType = TopicType.V2_PROTO;
+                    break;
+                case RPC_REQUEST_SHORT:
+                    processRpcRequest(ctx, msgId, payloadAdaptor.convertToServerRpcRequest(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    toServerRpcSubTopicType = TopicType.V2;
+                    break;
+                case ATTRIBUTES_REQUEST_SHORT_JSON:
+                    processGetAttributes(ctx, msgId, context.getJsonMqttAdaptor().convertToGetAttributes(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    attrReqTopicType = TopicType.V2_JSON;
+                    break;
+                case ATTRIBUTES_REQUEST_SHORT_PROTO:
+                    processGetAttributes(ctx, msgId, context.getProtoMqttAdaptor().convertToGetAttributes(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    attrReqTopicType = TopicType.V2_PROTO;
+                    break;
+                case ATTRIBUTES_REQUEST_SHORT:
+                    processGetAttributes(ctx, msgId, payloadAdaptor.convertToGetAttributes(deviceSessionCtx, mqttMsg, deviceTopic.getTopic()));
+                    attrReqTopicType = TopicType.V2;
+                    break;
+                default:
+                    onInvalidTopic(ctx, msgId);
             }
         } catch (AdaptorException e) {
             log.debug("[{}] Failed to process publish msg [{}][{}]", sessionId, topicName, msgId, e);
@@ -535,6 +548,33 @@ public class MqttTransportHandler extends ChannelInboundHandlerAdapter implement
         }
     }
 
+    private void processPostTelemetry(ChannelHandlerContext ctx, int msgId, String topicName, TransportProtos.PostTelemetryMsg postTelemetryMsg) {
+        transportService.process(deviceSessionCtx.getSessionInfo(), postTelemetryMsg, getMetadata(deviceSessionCtx, topicName),
+                getPubAckCallback(ctx, msgId, postTelemetryMsg));
+    }
+
+    private void processPostAttributes(ChannelHandlerContext ctx, int msgId, String topicName, TransportProtos.PostAttributeMsg postAttributeMsg) {
+        transportService.process(deviceSessionCtx.getSessionInfo(), postAttributeMsg, getMetadata(deviceSessionCtx, topicName),
+                getPubAckCallback(ctx, msgId, postAttributeMsg));
+    }
+
+    private void processGetAttributes(ChannelHandlerContext ctx, int msgId, TransportProtos.GetAttributeRequestMsg getAttributeMsg) {
+        transportService.process(deviceSessionCtx.getSessionInfo(), getAttributeMsg, getPubAckCallback(ctx, msgId, getAttributeMsg));
+    }
+
+    private void processRpcResponse(ChannelHandlerContext ctx, int msgId, TransportProtos.ToDeviceRpcResponseMsg rpcResponseMsg) {
+        transportService.process(deviceSessionCtx.getSessionInfo(), rpcResponseMsg, getPubAckCallback(ctx, msgId, rpcResponseMsg));
+    }
+
+    private void processRpcRequest(ChannelHandlerContext ctx, int msgId, TransportProtos.ToServerRpcRequestMsg rpcRequestMsg) {
+        transportService.process(deviceSessionCtx.getSessionInfo(), rpcRequestMsg, getPubAckCallback(ctx, msgId, rpcRequestMsg));
+    }
+
+    private void onInvalidTopic(ChannelHandlerContext ctx, int msgId) {
+        transportService.reportActivity(deviceSessionCtx.getSessionInfo());
+        ack(ctx, msgId, ReturnCode.TOPIC_NAME_INVALID);
+    }
+
     private TbMsgMetaData getMetadata(DeviceSessionCtx ctx, String topicName) {
         if (ctx.isDeviceProfileMqttTransportType()) {
             TbMsgMetaData md = new TbMsgMetaData();
@@ -20,6 +20,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.handler.codec.mqtt.MqttFixedHeader;
 import io.netty.handler.codec.mqtt.MqttMessage;
 import io.netty.handler.codec.mqtt.MqttMessageType;
@@ -35,6 +36,7 @@ import org.thingsboard.server.common.transport.adaptor.JsonConverter;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.transport.mqtt.session.MqttDeviceAwareSessionContext;
 
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -57,9 +59,8 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     @Override
     public TransportProtos.PostTelemetryMsg convertToPostTelemetry(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
-            return JsonConverter.convertToTelemetryProto(new JsonParser().parse(payload));
+            return JsonConverter.convertToTelemetryProto(parsePayload(inbound.payload()));
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode post telemetry request", ex);
             throw new AdaptorException(ex);
@@ -68,9 +69,8 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     @Override
     public TransportProtos.PostAttributeMsg convertToPostAttributes(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound) throws AdaptorException {
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
-            return JsonConverter.convertToAttributesProto(new JsonParser().parse(payload));
+            return JsonConverter.convertToAttributesProto(parsePayload(inbound.payload()));
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode post attributes request", ex);
             throw new AdaptorException(ex);
@@ -160,22 +160,28 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
     }
 
     public static JsonElement validateJsonPayload(UUID sessionId, ByteBuf payloadData) throws AdaptorException {
-        String payload = validatePayload(sessionId, payloadData, false);
         try {
-            return new JsonParser().parse(payload);
+            return parsePayload(payloadData);
         } catch (JsonSyntaxException ex) {
-            log.debug("Payload is in incorrect format: {}", payload);
+            log.debug("Payload is in incorrect format: {}", payloadData.toString(UTF8));
             throw new AdaptorException(ex);
         }
     }
 
+    /**
+     * Parses the JSON straight from the (pooled) payload buffer without copying it to the string first.
+     * The reader index of the buffer is not changed.
+     */
+    private static JsonElement parsePayload(ByteBuf payloadData) {
+        return JsonParser.parseReader(new InputStreamReader(new ByteBufInputStream(payloadData.duplicate()), UTF8));
+    }
+
     private TransportProtos.GetAttributeRequestMsg processGetAttributeRequestMsg(MqttPublishMessage inbound, String topicBase) throws AdaptorException {
         String topicName = inbound.variableHeader().topicName();
         try {
             TransportProtos.GetAttributeRequestMsg.Builder result = TransportProtos.GetAttributeRequestMsg.newBuilder();
             result.setRequestId(getRequestId(topicName, topicBase));
-            String payload = inbound.payload().toString(UTF8);
-            JsonElement requestBody = new JsonParser().parse(payload);
+            JsonElement requestBody = parsePayload(inbound.payload());
             Set<String> clientKeys = toStringSet(requestBody, "clientKeys");
             Set<String> sharedKeys = toStringSet(requestBody, "sharedKeys");
             if (clientKeys != null) {
@@ -205,10 +211,9 @@ public class JsonMqttAdaptor implements MqttTransportAdaptor {
 
     private TransportProtos.ToServerRpcRequestMsg processToServerRpcRequestMsg(MqttDeviceAwareSessionContext ctx, MqttPublishMessage inbound, String topicBase) throws AdaptorException {
         String topicName = inbound.variableHeader().topicName();
-        String payload = validatePayload(ctx.getSessionId(), inbound.payload(), false);
         try {
             int requestId = getRequestId(topicName, topicBase);
-            return JsonConverter.convertToServerRpcRequest(new JsonParser().parse(payload), requestId);
+            return JsonConverter.convertToServerRpcRequest(parsePayload(inbound.payload()), requestId);
         } catch (IllegalStateException | JsonSyntaxException ex) {
             log.debug("Failed to decode to server rpc request", ex);
             throw new AdaptorException(ex);
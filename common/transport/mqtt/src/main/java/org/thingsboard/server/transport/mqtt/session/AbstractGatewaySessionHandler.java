@@ -57,6 +57,7 @@ import org.thingsboard.server.transport.mqtt.util.ReturnCode;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugConnectionState;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -366,7 +367,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
 
     protected void onDeviceTelemetryProto(int msgId, ByteBuf payload) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayTelemetryMsg telemetryMsgProto = TransportApiProtos.GatewayTelemetryMsg.parseFrom(getBytes(payload));
+            TransportApiProtos.GatewayTelemetryMsg telemetryMsgProto = TransportApiProtos.GatewayTelemetryMsg.parseFrom(getByteBuffer(payload));
             List<TransportApiProtos.TelemetryMsg> deviceMsgList = telemetryMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(deviceMsgList)) {
                 deviceMsgList.forEach(telemetryMsg -> {
@@ -521,7 +522,7 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
 
     private void onDeviceAttributesProto(int msgId, ByteBuf payload) throws AdaptorException {
         try {
-            TransportApiProtos.GatewayAttributesMsg attributesMsgProto = TransportApiProtos.GatewayAttributesMsg.parseFrom(getBytes(payload));
+            TransportApiProtos.GatewayAttributesMsg attributesMsgProto = TransportApiProtos.GatewayAttributesMsg.parseFrom(getByteBuffer(payload));
             List<TransportApiProtos.AttributesMsg> attributesMsgList = attributesMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(attributesMsgList)) {
                 attributesMsgList.forEach(attributesMsg -> {
@@ -719,6 +720,13 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         return ProtoMqttAdaptor.toBytes(payload);
     }
 
+    /**
+     * The view of the payload that shares the memory of the buffer, so the message is parsed without copying the payload.
+     */
+    protected ByteBuffer getByteBuffer(ByteBuf payload) {
+        return payload.nioBuffer();
+    }
+
     protected void ack(MqttPublishMessage msg, ReturnCode returnCode) {
         int msgId = getMsgId(msg);
         if (msgId > 0) {
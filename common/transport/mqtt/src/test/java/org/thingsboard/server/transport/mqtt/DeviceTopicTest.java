@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.device.profile.MqttTopics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DeviceTopicTest {
+
+    @Test
+    public void testExactTopics() {
+        assertEquals(DeviceTopic.CLAIM, DeviceTopic.of(MqttTopics.DEVICE_CLAIM_TOPIC));
+        assertEquals(DeviceTopic.TELEMETRY_SHORT, DeviceTopic.of(MqttTopics.DEVICE_TELEMETRY_SHORT_TOPIC));
+        assertEquals(DeviceTopic.TELEMETRY_SHORT_JSON, DeviceTopic.of(MqttTopics.DEVICE_TELEMETRY_SHORT_JSON_TOPIC));
+        assertEquals(DeviceTopic.TELEMETRY_SHORT_PROTO, DeviceTopic.of(MqttTopics.DEVICE_TELEMETRY_SHORT_PROTO_TOPIC));
+        assertEquals(DeviceTopic.ATTRIBUTES_SHORT, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_SHORT_TOPIC));
+        assertEquals(DeviceTopic.ATTRIBUTES_SHORT_JSON, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_SHORT_JSON_TOPIC));
+        assertEquals(DeviceTopic.ATTRIBUTES_SHORT_PROTO, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_SHORT_PROTO_TOPIC));
+    }
+
+    @Test
+    public void testPrefixTopics() {
+        assertEquals(DeviceTopic.ATTRIBUTES_REQUEST, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_TOPIC_PREFIX + "1"));
+        assertEquals(DeviceTopic.RPC_RESPONSE, DeviceTopic.of(MqttTopics.DEVICE_RPC_RESPONSE_TOPIC + "2"));
+        assertEquals(DeviceTopic.RPC_REQUEST, DeviceTopic.of(MqttTopics.DEVICE_RPC_REQUESTS_TOPIC + "3"));
+        assertEquals(DeviceTopic.FIRMWARE_REQUEST, DeviceTopic.of("v2/fw/request/4/chunk/0"));
+        assertEquals(DeviceTopic.SOFTWARE_REQUEST, DeviceTopic.of("v2/sw/request/5/chunk/1"));
+    }
+
+    @Test
+    public void testLongestPrefixWins() {
+        assertEquals(DeviceTopic.RPC_RESPONSE_SHORT, DeviceTopic.of(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_TOPIC + "1"));
+        assertEquals(DeviceTopic.RPC_RESPONSE_SHORT_JSON, DeviceTopic.of(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_JSON_TOPIC + "1"));
+        assertEquals(DeviceTopic.RPC_RESPONSE_SHORT_PROTO, DeviceTopic.of(MqttTopics.DEVICE_RPC_RESPONSE_SHORT_PROTO_TOPIC + "1"));
+        assertEquals(DeviceTopic.RPC_REQUEST_SHORT, DeviceTopic.of(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_TOPIC + "2"));
+        assertEquals(DeviceTopic.RPC_REQUEST_SHORT_JSON, DeviceTopic.of(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_JSON_TOPIC + "2"));
+        assertEquals(DeviceTopic.RPC_REQUEST_SHORT_PROTO, DeviceTopic.of(MqttTopics.DEVICE_RPC_REQUESTS_SHORT_PROTO_TOPIC + "2"));
+        assertEquals(DeviceTopic.ATTRIBUTES_REQUEST_SHORT, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_TOPIC_PREFIX + "3"));
+        assertEquals(DeviceTopic.ATTRIBUTES_REQUEST_SHORT_JSON, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_JSON_TOPIC_PREFIX + "3"));
+        assertEquals(DeviceTopic.ATTRIBUTES_REQUEST_SHORT_PROTO, DeviceTopic.of(MqttTopics.DEVICE_ATTRIBUTES_REQUEST_SHORT_PROTO_TOPIC_PREFIX + "3"));
+    }
+
+    @Test
+    public void testUnknownTopics() {
+        assertNull(DeviceTopic.of(""));
+        assertNull(DeviceTopic.of("v2"));
+        assertNull(DeviceTopic.of("v2/tt"));
+        assertNull(DeviceTopic.of(MqttTopics.DEVICE_CLAIM_TOPIC + "/1"));
+        assertNull(DeviceTopic.of(MqttTopics.GATEWAY_TELEMETRY_TOPIC));
+    }
+
+}
@@ -34,6 +34,8 @@ import org.thingsboard.server.common.data.kv.JsonDataEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
 import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.msg.TbMsgTsKvData;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.AttributeUpdateNotificationMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ClaimDeviceMsg;
@@ -260,9 +262,7 @@ public class JsonConverter {
         return TransportProtos.ToServerRpcRequestMsg.newBuilder().setRequestId(requestId).setMethodName(object.get("method").getAsString()).setParams(GSON.toJson(object.get("params"))).build();
     }
 
-    private static void parseNumericValue(List<KvEntry> result, Entry<String, JsonElement> valueEntry, JsonPrimitive value) {
-        String valueAsString = value.getAsString();
-        String key = valueEntry.getKey();
+    private static void parseNumericValue(List<KvEntry> result, String key, String valueAsString) {
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
             try {
@@ -502,23 +502,11 @@ public class JsonConverter {
             if (element.isJsonPrimitive()) {
                 JsonPrimitive value = element.getAsJsonPrimitive();
                 if (value.isString()) {
-                    if (maxStringValueLength > 0 && value.getAsString().length() > maxStringValueLength) {
-                        String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.getAsString().length(), valueEntry.getKey(), maxStringValueLength);
-                        throw new JsonSyntaxException(message);
-                    }
-                    if (isTypeCastEnabled && NumberUtils.isParsable(value.getAsString())) {
-                        try {
-                            parseNumericValue(result, valueEntry, value);
-                        } catch (RuntimeException th) {
-                            result.add(new StringDataEntry(valueEntry.getKey(), value.getAsString()));
-                        }
-                    } else {
-                        result.add(new StringDataEntry(valueEntry.getKey(), value.getAsString()));
-                    }
+                    parseStringValue(result, valueEntry.getKey(), value.getAsString());
                 } else if (value.isBoolean()) {
                     result.add(new BooleanDataEntry(valueEntry.getKey(), value.getAsBoolean()));
                 } else if (value.isNumber()) {
-                    parseNumericValue(result, valueEntry, value);
+                    parseNumericValue(result, valueEntry.getKey(), value.getAsString());
                 } else {
                     throw new JsonSyntaxException(CAN_T_PARSE_VALUE + value);
                 }
@@ -531,6 +519,22 @@ public class JsonConverter {
         return result;
     }
 
+    private static void parseStringValue(List<KvEntry> result, String key, String value) {
+        if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+            String message = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+            throw new JsonSyntaxException(message);
+        }
+        if (isTypeCastEnabled && NumberUtils.isParsable(value)) {
+            try {
+                parseNumericValue(result, key, value);
+            } catch (RuntimeException th) {
+                result.add(new StringDataEntry(key, value));
+            }
+        } else {
+            result.add(new StringDataEntry(key, value));
+        }
+    }
+
     public static Map<Long, List<KvEntry>> convertToTelemetry(JsonElement jsonElement, long systemTs) throws
             JsonSyntaxException {
         return convertToTelemetry(jsonElement, systemTs, false);
@@ -549,6 +553,50 @@ public class JsonConverter {
     }
 
 
+    /**
+     * Converts the telemetry of the message passed in the wire format of the transport API.
+     * The result is the same as the result of the conversion of the message data, but no JSON is built and parsed.
+     *
+     * @param useSystemTs use the system timestamp for all entries, even if the message contains several timestamps.
+     */
+    public static Map<Long, List<KvEntry>> convertToTelemetry(TbMsgTsKvData tsKvData, long systemTs, boolean useSystemTs, boolean sorted) throws
+            JsonSyntaxException {
+        Map<Long, List<KvEntry>> result = sorted ? new TreeMap<>() : new HashMap<>();
+        List<MsgProtos.TbMsgTsKvListProto> tsKvList = tsKvData.getTsKvList();
+        for (MsgProtos.TbMsgTsKvListProto tsKv : tsKvList) {
+            // The data of the single entry is the object of the values, so the timestamp of the message is used for it
+            long ts = useSystemTs || tsKvList.size() == 1 ? systemTs : tsKv.getTs();
+            List<KvEntry> entries = new ArrayList<>(tsKv.getKvCount());
+            for (MsgProtos.TbMsgKvProto kv : tsKv.getKvList()) {
+                parseValue(entries, kv);
+            }
+            if (!entries.isEmpty()) {
+                result.computeIfAbsent(ts, tmp -> new ArrayList<>()).addAll(entries);
+            }
+        }
+        return result;
+    }
+
+    private static void parseValue(List<KvEntry> result, MsgProtos.TbMsgKvProto kv) {
+        switch (kv.getType()) {
+            case BOOLEAN_V:
+                result.add(new BooleanDataEntry(kv.getKey(), kv.getBoolV()));
+                break;
+            case LONG_V:
+                result.add(new LongDataEntry(kv.getKey(), kv.getLongV()));
+                break;
+            case DOUBLE_V:
+                parseNumericValue(result, kv.getKey(), Double.toString(kv.getDoubleV()));
+                break;
+            case STRING_V:
+                parseStringValue(result, kv.getKey(), kv.getStringV());
+                break;
+            case JSON_V:
+                result.add(new JsonDataEntry(kv.getKey(), kv.getJsonV()));
+                break;
+        }
+    }
+
     private static void parseObject(Map<Long, List<KvEntry>> result, long systemTs, JsonObject jo) {
         if (jo.has("ts") && jo.has("values")) {
             parseWithTs(result, jo);
@@ -57,6 +57,7 @@ import org.thingsboard.server.common.data.notification.rule.trigger.RateLimitsTr
 import org.thingsboard.server.common.data.rpc.RpcStatus;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.TbMsgTsKvData;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
@@ -124,6 +125,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -161,6 +163,16 @@ public class DefaultTransportService implements TransportService {
     private int notificationsPollDuration;
     @Value("${transport.stats.enabled:false}")
     private boolean statsEnabled;
+    @Value("${transport.telemetry.typed_payload_enabled:false}")
+    private boolean typedTelemetryPayloadEnabled;
+    @Value("${transport.credentials_cache.enabled:true}")
+    private boolean credentialsCacheEnabled;
+    @Value("${transport.credentials_cache.max_size:100000}")
+    private long credentialsCacheMaxSize;
+    @Value("${transport.credentials_cache.ttl:300}")
+    private long credentialsCacheTtl;
+    @Value("${transport.credentials_cache.invalid_ttl:10}")
+    private long credentialsCacheInvalidTtl;
 
     @Autowired
     @Lazy
@@ -196,6 +208,7 @@ public class DefaultTransportService implements TransportService {
 
     protected ExecutorService transportCallbackExecutor;
     private ExecutorService mainConsumerExecutor;
+    private TransportDeviceCredentialsCache credentialsCache;
 
     public final ConcurrentMap<UUID, SessionMetaData> sessions = new ConcurrentHashMap<>();
     private final ConcurrentMap<UUID, SessionActivityData> sessionsActivity = new ConcurrentHashMap<>();
@@ -247,6 +260,9 @@ public class DefaultTransportService implements TransportService {
         transportNotificationsConsumer.subscribe(Collections.singleton(tpi));
         transportApiRequestTemplate.init();
         mainConsumerExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("transport-consumer"));
+        if (credentialsCacheEnabled) {
+            credentialsCache = new TransportDeviceCredentialsCache(credentialsCacheMaxSize, credentialsCacheTtl, credentialsCacheInvalidTtl);
+        }
     }
 
     @AfterStartUp(order = AfterStartUp.TRANSPORT_SERVICE)
@@ -401,7 +417,7 @@ public class DefaultTransportService implements TransportService {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateTokenRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, true, callback);
     }
 
     @Override
@@ -410,7 +426,7 @@ public class DefaultTransportService implements TransportService {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateBasicMqttCredRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, true, callback);
     }
 
     @Override
@@ -439,20 +455,21 @@ public class DefaultTransportService implements TransportService {
     public void process(DeviceTransportType transportType, TransportProtos.ValidateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, true, callback);
     }
 
     @Override
     public void process(DeviceTransportType transportType, TransportProtos.ValidateOrCreateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateOrCreateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, protoMsg, false, callback);
     }
 
-    private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
+    private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg, boolean cacheable,
                            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
-        ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
-            TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
+        ListenableFuture<TransportProtos.ValidateDeviceCredentialsResponseMsg> responseMsg = cacheable && credentialsCache != null ?
+                credentialsCache.get(protoMsg.getValue(), () -> sendValidateCredentialsRequest(protoMsg)) : sendValidateCredentialsRequest(protoMsg);
+        ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(responseMsg, msg -> {
             ValidateDeviceCredentialsResponse.ValidateDeviceCredentialsResponseBuilder result = ValidateDeviceCredentialsResponse.builder();
             if (msg.hasDeviceInfo()) {
                 result.credentials(msg.getCredentialsBody());
@@ -474,6 +491,10 @@ public class DefaultTransportService implements TransportService {
         AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
     }
 
+    private ListenableFuture<TransportProtos.ValidateDeviceCredentialsResponseMsg> sendValidateCredentialsRequest(TbProtoQueueMsg<TransportApiRequestMsg> protoMsg) {
+        return Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> tmp.getValue().getValidateCredResponseMsg(), MoreExecutors.directExecutor());
+    }
+
     @Override
     public void process(TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg requestMsg, TransportServiceCallback<GetOrCreateDeviceFromGatewayResponse> callback) {
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setGetOrCreateDeviceRequestMsg(requestMsg).build());
@@ -584,6 +605,17 @@ public class DefaultTransportService implements TransportService {
             TenantId tenantId = getTenantId(sessionInfo);
             DeviceId deviceId = new DeviceId(new UUID(sessionInfo.getDeviceIdMSB(), sessionInfo.getDeviceIdLSB()));
             CustomerId customerId = getCustomerId(sessionInfo);
+            if (typedTelemetryPayloadEnabled && msg.getTsKvListCount() > 0) {
+                TbMsgMetaData metaData = md != null ? md.copy() : new TbMsgMetaData();
+                metaData.putValue("deviceName", sessionInfo.getDeviceName());
+                metaData.putValue("deviceType", sessionInfo.getDeviceType());
+                if (msg.getTsKvListCount() == 1) {
+                    metaData.putValue("ts", msg.getTsKvList(0).getTs() + "");
+                }
+                sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, TbMsgTsKvData.fromByteString(msg.toByteString()), metaData,
+                        TbMsgType.POST_TELEMETRY_REQUEST, new TransportTbQueueCallback(new ApiStatsProxyCallback<>(tenantId, customerId, dataPoints, callback)));
+                return;
+            }
             MsgPackCallback packCallback = new MsgPackCallback(msg.getTsKvListCount(), new ApiStatsProxyCallback<>(tenantId, customerId, dataPoints, callback));
             for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
                 TbMsgMetaData metaData = md != null ? md.copy() : new TbMsgMetaData();
@@ -978,6 +1010,7 @@ public class DefaultTransportService implements TransportService {
                     DeviceProfile deviceProfile = deviceProfileCache.put(msg.getData());
                     if (deviceProfile != null) {
                         log.debug("On device profile update: {}", deviceProfile);
+                        evictCredentials();
                         onProfileUpdate(deviceProfile);
                     }
                 } else if (EntityType.TENANT_PROFILE.equals(entityType)) {
@@ -1001,6 +1034,7 @@ public class DefaultTransportService implements TransportService {
                     }
                 } else if (EntityType.DEVICE.equals(entityType)) {
                     Optional<Device> deviceOpt = dataDecodingEncodingService.decode(msg.getData().toByteArray());
+                    deviceOpt.ifPresent(device -> evictCredentials(device.getId()));
                     deviceOpt.ifPresent(this::onDeviceUpdate);
                 }
             } else if (toSessionMsg.hasEntityDeleteMsg()) {
@@ -1009,12 +1043,15 @@ public class DefaultTransportService implements TransportService {
                 UUID entityUuid = new UUID(msg.getEntityIdMSB(), msg.getEntityIdLSB());
                 if (EntityType.DEVICE_PROFILE.equals(entityType)) {
                     deviceProfileCache.evict(new DeviceProfileId(new UUID(msg.getEntityIdMSB(), msg.getEntityIdLSB())));
+                    evictCredentials();
                 } else if (EntityType.TENANT_PROFILE.equals(entityType)) {
                     tenantProfileCache.remove(new TenantProfileId(entityUuid));
                 } else if (EntityType.TENANT.equals(entityType)) {
                     rateLimitService.remove(TenantId.fromUUID(entityUuid));
+                    evictCredentials();
                 } else if (EntityType.DEVICE.equals(entityType)) {
                     rateLimitService.remove(new DeviceId(entityUuid));
+                    evictCredentials(new DeviceId(entityUuid));
                     onDeviceDeleted(new DeviceId(entityUuid));
                 }
             } else if (toSessionMsg.hasResourceUpdateMsg()) {
@@ -1042,6 +1079,9 @@ public class DefaultTransportService implements TransportService {
                 partitionService.updateQueue(toSessionMsg.getQueueUpdateMsg());
             } else if (toSessionMsg.hasQueueDeleteMsg()) {
                 partitionService.removeQueue(toSessionMsg.getQueueDeleteMsg());
+            } else if (toSessionMsg.hasDeviceCredentialsChangeMsg()) {
+                TransportProtos.DeviceCredentialsChangeMsg msg = toSessionMsg.getDeviceCredentialsChangeMsg();
+                evictCredentials(new DeviceId(new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB())));
             } else {
                 //TODO: should we notify the device actor about missed session?
                 log.debug("[{}] Missing session.", sessionId);
@@ -1049,6 +1089,17 @@ public class DefaultTransportService implements TransportService {
         }
     }
 
+    private void evictCredentials(DeviceId deviceId) {
+        if (credentialsCache != null) {
+            credentialsCache.evict(deviceId);
+        }
+    }
+
+    private void evictCredentials() {
+        if (credentialsCache != null) {
+            credentialsCache.evictAll();
+        }
+    }
 
     public void onProfileUpdate(DeviceProfile deviceProfile) {
         long deviceProfileIdMSB = deviceProfile.getId().getId().getMostSignificantBits();
@@ -1184,6 +1235,18 @@ public class DefaultTransportService implements TransportService {
 
     private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
                                   TbMsgMetaData metaData, TbMsgType tbMsgType, TbQueueCallback callback) {
+        sendToRuleEngine(tenantId, sessionInfo, callback, (queueName, ruleChainId) ->
+                TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null));
+    }
+
+    private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, TbMsgTsKvData tsKvData,
+                                  TbMsgMetaData metaData, TbMsgType tbMsgType, TbQueueCallback callback) {
+        sendToRuleEngine(tenantId, sessionInfo, callback, (queueName, ruleChainId) ->
+                TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, tsKvData, ruleChainId, null));
+    }
+
+    private void sendToRuleEngine(TenantId tenantId, TransportProtos.SessionInfoProto sessionInfo, TbQueueCallback callback,
+                                  BiFunction<String, RuleChainId, TbMsg> msgFactory) {
         DeviceProfileId deviceProfileId = new DeviceProfileId(new UUID(sessionInfo.getDeviceProfileIdMSB(), sessionInfo.getDeviceProfileIdLSB()));
         DeviceProfile deviceProfile = deviceProfileCache.get(deviceProfileId);
         RuleChainId ruleChainId;
@@ -1198,8 +1261,7 @@ public class DefaultTransportService implements TransportService {
             queueName = deviceProfile.getDefaultQueueName();
         }
 
-        TbMsg tbMsg = TbMsg.newMsg(queueName, tbMsgType, deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
-        sendToRuleEngine(tenantId, tbMsg, callback);
+        sendToRuleEngine(tenantId, msgFactory.apply(queueName, ruleChainId), callback);
     }
 
     private class TransportTbQueueCallback implements TbQueueCallback {
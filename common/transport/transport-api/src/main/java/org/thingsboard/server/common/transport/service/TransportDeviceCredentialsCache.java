@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Ticker;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Transport-local results of the device credentials validation, so the stateless (HTTP) requests and reconnecting devices
+ * don't hit the core on every request. Concurrent validations of the same credentials wait for the single request in progress.
+ * Entries of the device are evicted on device, device credentials and tenant change notifications from the core.
+ * Invalid credentials are cached for a short time, since the notifications don't carry the credentials that became valid.
+ */
+final class TransportDeviceCredentialsCache {
+
+    private final Cache<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg> validCredentials;
+    private final Cache<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg> invalidCredentials;
+    private final ConcurrentMap<DeviceId, Set<TransportApiRequestMsg>> requestsByDevice = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TransportApiRequestMsg, ListenableFuture<ValidateDeviceCredentialsResponseMsg>> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    TransportDeviceCredentialsCache(long maxSize, long ttlSec, long invalidTtlSec) {
+        this(maxSize, ttlSec, invalidTtlSec, Ticker.systemTicker());
+    }
+
+    TransportDeviceCredentialsCache(long maxSize, long ttlSec, long invalidTtlSec, Ticker ticker) {
+        this.validCredentials = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSec, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .removalListener(this::onRemoval)
+                .build();
+        this.invalidCredentials = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(invalidTtlSec, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    ListenableFuture<ValidateDeviceCredentialsResponseMsg> get(TransportApiRequestMsg request,
+                                                               Supplier<ListenableFuture<ValidateDeviceCredentialsResponseMsg>> loader) {
+        ValidateDeviceCredentialsResponseMsg cached = validCredentials.getIfPresent(request);
+        if (cached == null) {
+            cached = invalidCredentials.getIfPresent(request);
+        }
+        if (cached != null) {
+            return Futures.immediateFuture(cached);
+        }
+        ListenableFuture<ValidateDeviceCredentialsResponseMsg> pending = pendingRequests.get(request);
+        if (pending != null) {
+            return pending;
+        }
+        long requestVersion = version.get();
+        ListenableFuture<ValidateDeviceCredentialsResponseMsg> future = loader.get();
+        ListenableFuture<ValidateDeviceCredentialsResponseMsg> concurrent = pendingRequests.putIfAbsent(request, future);
+        if (concurrent != null) {
+            return concurrent;
+        }
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable ValidateDeviceCredentialsResponseMsg response) {
+                pendingRequests.remove(request, future);
+                // The response may be outdated already if the device was changed while the request was in progress
+                if (response != null && version.get() == requestVersion) {
+                    put(request, response);
+                    if (version.get() != requestVersion) {
+                        validCredentials.invalidate(request);
+                        invalidCredentials.invalidate(request);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                pendingRequests.remove(request, future);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    void evict(DeviceId deviceId) {
+        version.incrementAndGet();
+        Set<TransportApiRequestMsg> requests = requestsByDevice.remove(deviceId);
+        if (requests != null) {
+            validCredentials.invalidateAll(requests);
+        }
+        // The credentials of the device might be invalid before the change
+        invalidCredentials.invalidateAll();
+    }
+
+    void evictAll() {
+        version.incrementAndGet();
+        validCredentials.invalidateAll();
+        invalidCredentials.invalidateAll();
+        requestsByDevice.clear();
+    }
+
+    private void put(TransportApiRequestMsg request, ValidateDeviceCredentialsResponseMsg response) {
+        if (response.hasDeviceInfo()) {
+            DeviceId deviceId = new DeviceId(new UUID(response.getDeviceInfo().getDeviceIdMSB(), response.getDeviceInfo().getDeviceIdLSB()));
+            requestsByDevice.computeIfAbsent(deviceId, id -> ConcurrentHashMap.newKeySet()).add(request);
+            validCredentials.put(request, response);
+        } else {
+            invalidCredentials.put(request, response);
+        }
+    }
+
+    private void onRemoval(RemovalNotification<TransportApiRequestMsg, ValidateDeviceCredentialsResponseMsg> notification) {
+        ValidateDeviceCredentialsResponseMsg response = notification.getValue();
+        if (response == null || !notification.wasEvicted()) {
+            return;
+        }
+        DeviceId deviceId = new DeviceId(new UUID(response.getDeviceInfo().getDeviceIdMSB(), response.getDeviceInfo().getDeviceIdLSB()));
+        requestsByDevice.computeIfPresent(deviceId, (id, requests) -> {
+            requests.remove(notification.getKey());
+            return requests.isEmpty() ? null : requests;
+        });
+    }
+
+}
@@ -19,6 +19,8 @@ import org.junit.Assert;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.msg.TbMsgTsKvData;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.transport.adaptor.JsonConverter;
 
 import java.util.ArrayList;
@@ -101,4 +103,51 @@ public class JsonConverterTest {
             JsonConverter.convertToTelemetry(JSON_PARSER.parse("{\"meterReadingDelta\": 9.9701010061400066E19}"), 0L);
         });
     }
+
+    @Test
+    public void testParseTsKvDataSameAsJson() {
+        TbMsgTsKvData tsKvData = TbMsgTsKvData.fromByteString(MsgProtos.TbMsgTsKvDataProto.newBuilder()
+                .addTsKvList(MsgProtos.TbMsgTsKvListProto.newBuilder().setTs(1L)
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("count").setType(MsgProtos.TbMsgKvType.STRING_V).setStringV("11"))
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("temperature").setType(MsgProtos.TbMsgKvType.DOUBLE_V).setDoubleV(42.5)))
+                .build().toByteString());
+        var jsonData = JSON_PARSER.parse("{\"count\":\"11\",\"temperature\":42.5}");
+
+        Assert.assertEquals(JsonConverter.convertToTelemetry(jsonData, 5L), JsonConverter.convertToTelemetry(tsKvData, 5L, false, false));
+        Assert.assertEquals(11L, JsonConverter.convertToTelemetry(tsKvData, 5L, false, false).get(5L).get(0).getLongValue().get().longValue());
+    }
+
+    @Test
+    public void testParseTsKvDataWithSeveralTimestamps() {
+        TbMsgTsKvData tsKvData = TbMsgTsKvData.fromByteString(MsgProtos.TbMsgTsKvDataProto.newBuilder()
+                .addTsKvList(MsgProtos.TbMsgTsKvListProto.newBuilder().setTs(1L)
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("temperature").setType(MsgProtos.TbMsgKvType.LONG_V).setLongV(42)))
+                .addTsKvList(MsgProtos.TbMsgTsKvListProto.newBuilder().setTs(2L)
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("temperature").setType(MsgProtos.TbMsgKvType.LONG_V).setLongV(43)))
+                .build().toByteString());
+
+        var result = JsonConverter.convertToTelemetry(tsKvData, 5L, false, true);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(42L, result.get(1L).get(0).getLongValue().get().longValue());
+        Assert.assertEquals(43L, result.get(2L).get(0).getLongValue().get().longValue());
+
+        result = JsonConverter.convertToTelemetry(tsKvData, 5L, true, true);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(2, result.get(5L).size());
+    }
+
+    @Test
+    public void testParseTsKvDataValueTypes() {
+        TbMsgTsKvData tsKvData = TbMsgTsKvData.fromByteString(MsgProtos.TbMsgTsKvDataProto.newBuilder()
+                .addTsKvList(MsgProtos.TbMsgTsKvListProto.newBuilder().setTs(1L)
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("active").setType(MsgProtos.TbMsgKvType.BOOLEAN_V).setBoolV(true))
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("count").setType(MsgProtos.TbMsgKvType.LONG_V).setLongV(7))
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("temperature").setType(MsgProtos.TbMsgKvType.DOUBLE_V).setDoubleV(1.0E20))
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("name").setType(MsgProtos.TbMsgKvType.STRING_V).setStringV("dev"))
+                        .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("config").setType(MsgProtos.TbMsgKvType.JSON_V).setJsonV("{\"a\":1}")))
+                .build().toByteString());
+        var jsonData = JSON_PARSER.parse("{\"active\":true,\"count\":7,\"temperature\":1.0E20,\"name\":\"dev\",\"config\":{\"a\":1}}");
+
+        Assert.assertEquals(JsonConverter.convertToTelemetry(jsonData, 5L), JsonConverter.convertToTelemetry(tsKvData, 5L, false, false));
+    }
 }
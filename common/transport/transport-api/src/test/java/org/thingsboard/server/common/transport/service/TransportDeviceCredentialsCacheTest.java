@@ -0,0 +1,255 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransportDeviceCredentialsCacheTest {
+
+    private static final long TTL_SEC = 60;
+    private static final long INVALID_TTL_SEC = 5;
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private TransportDeviceCredentialsCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new TransportDeviceCredentialsCache(100, TTL_SEC, INVALID_TTL_SEC, ticker);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void givenValidCredentials_whenGetTwice_thenLoadOnce() throws Exception {
+        TransportApiRequestMsg request = request("token");
+
+        assertThat(get(request, validResponse(deviceId)).get()).isEqualTo(validResponse(deviceId));
+        assertThat(get(request, validResponse(deviceId)).get()).isEqualTo(validResponse(deviceId));
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenRequestInProgress_whenGet_thenWaitForPendingRequest() throws Exception {
+        TransportApiRequestMsg request = request("token");
+        SettableFuture<ValidateDeviceCredentialsResponseMsg> response = SettableFuture.create();
+
+        ListenableFuture<ValidateDeviceCredentialsResponseMsg> first = load(request, response);
+        ListenableFuture<ValidateDeviceCredentialsResponseMsg> second = load(request, SettableFuture.create());
+        response.set(validResponse(deviceId));
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.get()).isEqualTo(validResponse(deviceId));
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenFailedRequest_whenGet_thenLoadAgain() throws Exception {
+        TransportApiRequestMsg request = request("token");
+
+        load(request, Futures.immediateFailedFuture(new RuntimeException("timeout")));
+        get(request, validResponse(deviceId)).get();
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenCachedCredentials_whenEvictDevice_thenLoadAgain() throws Exception {
+        DeviceId otherDeviceId = new DeviceId(UUID.randomUUID());
+        TransportApiRequestMsg request = request("token");
+        TransportApiRequestMsg otherRequest = request("other");
+        get(request, validResponse(deviceId)).get();
+        get(otherRequest, validResponse(otherDeviceId)).get();
+
+        cache.evict(deviceId);
+        get(request, validResponse(deviceId)).get();
+        get(otherRequest, validResponse(otherDeviceId)).get();
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void givenInvalidCredentials_whenEvictAnyDevice_thenLoadAgain() throws Exception {
+        TransportApiRequestMsg request = request("token");
+        get(request, invalidResponse()).get();
+        get(request, invalidResponse()).get();
+        assertThat(loads.get()).isEqualTo(1);
+
+        cache.evict(new DeviceId(UUID.randomUUID()));
+        assertThat(get(request, validResponse(deviceId)).get()).isEqualTo(validResponse(deviceId));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenCachedCredentials_whenEvictAll_thenLoadAgain() throws Exception {
+        TransportApiRequestMsg request = request("token");
+        TransportApiRequestMsg invalidRequest = request("invalid");
+        get(request, validResponse(deviceId)).get();
+        get(invalidRequest, invalidResponse()).get();
+
+        cache.evictAll();
+        get(request, validResponse(deviceId)).get();
+        get(invalidRequest, invalidResponse()).get();
+
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void givenRequestInProgress_whenEvictDevice_thenOutdatedResponseIsNotCached() throws Exception {
+        TransportApiRequestMsg request = request("token");
+        SettableFuture<ValidateDeviceCredentialsResponseMsg> response = SettableFuture.create();
+        ListenableFuture<ValidateDeviceCredentialsResponseMsg> future = load(request, response);
+
+        cache.evict(deviceId);
+        response.set(validResponse(deviceId));
+
+        assertThat(future.get()).isEqualTo(validResponse(deviceId));
+        get(request, validResponse(deviceId)).get();
+        get(request, validResponse(deviceId)).get();
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenRequestInProgress_whenEvictDeviceConcurrently_thenOutdatedResponseIsNeverCached() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            TransportApiRequestMsg request = request("token" + i);
+            SettableFuture<ValidateDeviceCredentialsResponseMsg> response = SettableFuture.create();
+            load(request, response);
+
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?> complete = executor.submit(() -> {
+                start.await();
+                return response.set(validResponse(deviceId));
+            });
+            Future<?> evict = executor.submit(() -> {
+                start.await();
+                cache.evict(deviceId);
+                return null;
+            });
+            start.countDown();
+            complete.get(5, TimeUnit.SECONDS);
+            evict.get(5, TimeUnit.SECONDS);
+
+            int loadsBefore = loads.get();
+            get(request, validResponse(deviceId)).get();
+            assertThat(loads.get()).as("iteration %s", i).isEqualTo(loadsBefore + 1);
+        }
+    }
+
+    @Test
+    public void givenValidCredentials_whenTtlExpires_thenLoadAgain() throws Exception {
+        TransportApiRequestMsg request = request("token");
+        get(request, validResponse(deviceId)).get();
+
+        ticker.advance(TTL_SEC - 1, TimeUnit.SECONDS);
+        get(request, validResponse(deviceId)).get();
+        assertThat(loads.get()).isEqualTo(1);
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        get(request, validResponse(deviceId)).get();
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenInvalidCredentials_whenInvalidTtlExpires_thenLoadAgain() throws Exception {
+        TransportApiRequestMsg request = request("token");
+        get(request, invalidResponse()).get();
+
+        ticker.advance(INVALID_TTL_SEC - 1, TimeUnit.SECONDS);
+        get(request, invalidResponse()).get();
+        assertThat(loads.get()).isEqualTo(1);
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertThat(get(request, validResponse(deviceId)).get()).isEqualTo(validResponse(deviceId));
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private ListenableFuture<ValidateDeviceCredentialsResponseMsg> get(TransportApiRequestMsg request, ValidateDeviceCredentialsResponseMsg response) {
+        return load(request, Futures.immediateFuture(response));
+    }
+
+    private ListenableFuture<ValidateDeviceCredentialsResponseMsg> load(TransportApiRequestMsg request,
+                                                                        ListenableFuture<ValidateDeviceCredentialsResponseMsg> response) {
+        return cache.get(request, () -> {
+            loads.incrementAndGet();
+            return response;
+        });
+    }
+
+    private static TransportApiRequestMsg request(String token) {
+        return TransportApiRequestMsg.newBuilder()
+                .setValidateTokenRequestMsg(ValidateDeviceTokenRequestMsg.newBuilder().setToken(token).build())
+                .build();
+    }
+
+    private static ValidateDeviceCredentialsResponseMsg validResponse(DeviceId deviceId) {
+        return ValidateDeviceCredentialsResponseMsg.newBuilder()
+                .setDeviceInfo(DeviceInfoProto.newBuilder()
+                        .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                        .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                        .build())
+                .build();
+    }
+
+    private static ValidateDeviceCredentialsResponseMsg invalidResponse() {
+        return ValidateDeviceCredentialsResponseMsg.getDefaultInstance();
+    }
+
+    private static class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long time, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(time));
+        }
+    }
+
+}
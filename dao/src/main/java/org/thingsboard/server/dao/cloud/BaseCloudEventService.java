@@ -24,6 +24,7 @@ import org.springframework.stereotype.Service;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.edge.EdgeSettings;
@@ -68,6 +69,11 @@ public class BaseCloudEventService implements CloudEventService {
         cloudEventDao.cleanupEvents(ttl);
     }
 
+    @Override
+    public void cleanupAcknowledgedEvents(long seqIdOffset) {
+        cloudEventDao.cleanupAcknowledgedEvents(seqIdOffset);
+    }
+
     @Override
     public ListenableFuture<Void> saveAsync(CloudEvent cloudEvent) {
         cloudEventValidator.validate(cloudEvent, CloudEvent::getTenantId);
@@ -122,6 +128,11 @@ public class BaseCloudEventService implements CloudEventService {
         return cloudEventDao.findCloudEvents(tenantId.getId(), seqIdStart, seqIdEnd, pageLink);
     }
 
+    @Override
+    public PageData<CloudEvent> findCloudEvents(TenantId tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink) {
+        return cloudEventDao.findCloudEvents(tenantId.getId(), lane, seqIdStart, seqIdEnd, pageLink);
+    }
+
     private long countEventsByTenantIdAndEntityIdAndActionAndTypeAndStartTimeAndEndTime(TenantId tenantId,
                                                                                        EntityId entityId,
                                                                                        CloudEventType cloudEventType,
@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.cloud;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.page.PageData;
@@ -50,6 +51,18 @@ public interface CloudEventDao extends Dao<CloudEvent> {
      */
     PageData<CloudEvent> findCloudEvents(UUID tenantId, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink);
 
+    /**
+     * Find cloud events of the lane by tenantId and pageLink.
+     *
+     * @param tenantId the tenantId
+     * @param lane the lane of cloud events
+     * @param seqIdStart  the seq id start
+     * @param seqIdEnd  the seq id end
+     * @param pageLink the pageLink
+     * @return the event list
+     */
+    PageData<CloudEvent> findCloudEvents(UUID tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink);
+
     long countEventsByTenantIdAndEntityIdAndActionAndTypeAndStartTimeAndEndTime(UUID tenantId,
                                                                                 UUID entityId,
                                                                                 CloudEventType cloudEventType,
@@ -63,5 +76,11 @@ public interface CloudEventDao extends Dao<CloudEvent> {
      */
     void cleanupEvents(long eventsTtl);
 
+    /**
+     * Cleanup cloud events that were already delivered to the cloud.
+     * @param seqIdOffset the seq id of the latest delivered cloud event
+     */
+    void cleanupAcknowledgedEvents(long seqIdOffset);
+
     void migrateCloudEvents();
 }
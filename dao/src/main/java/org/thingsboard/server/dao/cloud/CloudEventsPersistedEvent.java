@@ -13,33 +13,14 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.thingsboard.rule.engine.deduplication;
+package org.thingsboard.server.dao.cloud;
 
 import lombok.Data;
-import org.thingsboard.server.common.msg.TbMsg;
-
-import java.util.LinkedList;
-import java.util.List;
 
+/**
+ * Published once a batch of cloud events is flushed to the database.
+ */
 @Data
-public class DeduplicationData {
-
-    private final List<TbMsg> msgList;
-    private boolean tickScheduled;
-
-    public DeduplicationData() {
-        msgList = new LinkedList<>();
-    }
-
-    public int size() {
-        return msgList.size();
-    }
-
-    public void add(TbMsg msg) {
-        msgList.add(msg);
-    }
-
-    public boolean isEmpty() {
-        return msgList.isEmpty();
-    }
+public class CloudEventsPersistedEvent {
+    private final long maxSeqId;
 }
@@ -0,0 +1,402 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.cloud.log;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+import org.thingsboard.server.common.data.id.CloudEventId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Single memory-mapped file of the {@link CloudEventSegmentLog}.
+ * <p>
+ * Records are appended sequentially and get contiguous seqIds starting from the base seqId of the segment,
+ * so the position of the record is resolved by the in-memory index without any search.
+ * Every record starts with its length, lane and created time, so scans do not need to decode the whole event.
+ * Length of the record is written last, hence a record torn by a crash is never read back.
+ * Removed record stays in place with the removed flag set in its lane byte, so the seqIds of the next records don't change.
+ * <p>
+ * Segment has a single writer, while readers access the mapped buffer concurrently up to the published count of records.
+ * The buffer is unmapped once the segment is deleted, so the log must not delete a segment while it is read.
+ */
+@Slf4j
+class CloudEventSegment {
+
+    static final String FILE_SUFFIX = ".log";
+
+    private static final int LANE_OFFSET = Integer.BYTES;
+    private static final int CREATED_TIME_OFFSET = LANE_OFFSET + 1;
+    private static final int ID_OFFSET = CREATED_TIME_OFFSET + Long.BYTES;
+    private static final int TENANT_ID_OFFSET = ID_OFFSET + 2 * Long.BYTES;
+    private static final int ENTITY_ID_OFFSET = TENANT_ID_OFFSET + 2 * Long.BYTES;
+    private static final int HEADER_SIZE = ENTITY_ID_OFFSET + 1 + 2 * Long.BYTES;
+    private static final CloudEventLane[] LANES = CloudEventLane.values();
+    private static final int REMOVED_FLAG = 0x80;
+    private static final int LANE_MASK = REMOVED_FLAG - 1;
+    private static final BufferCleaner CLEANER = BufferCleaner.create();
+
+    @Getter
+    private final long baseSeqId;
+    @Getter
+    private final Path file;
+    private final MappedByteBuffer buffer;
+
+    private volatile int[] positions = new int[1024];
+    private volatile int count;
+    private int writePosition;
+
+    @Getter
+    private volatile long minCreatedTime = Long.MAX_VALUE;
+    @Getter
+    private volatile long maxCreatedTime = Long.MIN_VALUE;
+    private final AtomicLongArray laneCounts = new AtomicLongArray(LANES.length);
+    private volatile int removedCount;
+    // tenant of all records of the segment, or null if segment contains records of several tenants
+    private volatile UUID tenantId;
+    private boolean mixedTenants;
+
+    private CloudEventSegment(long baseSeqId, Path file, MappedByteBuffer buffer) {
+        this.baseSeqId = baseSeqId;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static CloudEventSegment create(Path dir, long baseSeqId, int capacity) throws IOException {
+        Path file = dir.resolve(String.format("%020d", baseSeqId) + FILE_SUFFIX);
+        return new CloudEventSegment(baseSeqId, file, map(file, capacity));
+    }
+
+    /**
+     * Opens existing segment file and restores the index of its records.
+     */
+    static CloudEventSegment open(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        long baseSeqId = Long.parseLong(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+        CloudEventSegment segment = new CloudEventSegment(baseSeqId, file, map(file, (int) Files.size(file)));
+        segment.recover();
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void recover() {
+        int position = 0;
+        while (position + Integer.BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < HEADER_SIZE || position + length > buffer.capacity() || (buffer.get(position + LANE_OFFSET) & LANE_MASK) >= LANES.length) {
+                break;
+            }
+            indexRecord(position);
+            position += length;
+        }
+        writePosition = position;
+        log.debug("[{}] Restored {} cloud event(s) from segment", file, count);
+    }
+
+    /**
+     * Appends the event to the segment and sets its seqId.
+     *
+     * @return false if there is not enough space left in the segment
+     */
+    boolean append(CloudEvent event) {
+        byte[] type = encodeType(event);
+        byte[] action = encodeAction(event);
+        byte[] body = encodeBody(event);
+        int length = recordSize(type, action, body);
+        if (writePosition + length > buffer.capacity()) {
+            return false;
+        }
+        ByteBuffer buf = buffer.duplicate();
+        buf.position(writePosition + LANE_OFFSET);
+        buf.put((byte) CloudEventLane.of(event.getType(), event.getAction()).ordinal());
+        buf.putLong(event.getCreatedTime());
+        putUuid(buf, event.getUuidId());
+        putUuid(buf, event.getTenantId().getId());
+        buf.put((byte) (event.getEntityId() != null ? 1 : 0));
+        putUuid(buf, event.getEntityId());
+        putBytes(buf, type);
+        putBytes(buf, action);
+        putBytes(buf, body);
+        buffer.putInt(writePosition, length);
+        event.setSeqId(baseSeqId + count);
+        indexRecord(writePosition);
+        writePosition += length;
+        return true;
+    }
+
+    private void indexRecord(int position) {
+        int index = count;
+        int[] current = positions;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            positions = current;
+        }
+        current[index] = position;
+        long createdTime = buffer.getLong(position + CREATED_TIME_OFFSET);
+        minCreatedTime = Math.min(minCreatedTime, createdTime);
+        maxCreatedTime = Math.max(maxCreatedTime, createdTime);
+        int lane = buffer.get(position + LANE_OFFSET);
+        if ((lane & REMOVED_FLAG) != 0) {
+            removedCount++;
+        } else {
+            laneCounts.incrementAndGet(lane);
+        }
+        UUID recordTenantId = getUuid(position + TENANT_ID_OFFSET);
+        if (index == 0) {
+            tenantId = recordTenantId;
+        } else if (!mixedTenants && !recordTenantId.equals(tenantId)) {
+            mixedTenants = true;
+            tenantId = null;
+        }
+        // publishes the record to the readers
+        count = index + 1;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getLastSeqId() {
+        return baseSeqId + count - 1;
+    }
+
+    /**
+     * @return number of records of the tenant and lane, or -1 if segment contains records of several tenants
+     */
+    int count(UUID tenantId, CloudEventLane lane) {
+        if (!Objects.equals(this.tenantId, tenantId)) {
+            return this.tenantId == null ? -1 : 0;
+        }
+        return lane != null ? (int) laneCounts.get(lane.ordinal()) : count - removedCount;
+    }
+
+    boolean matches(int index, UUID tenantId, CloudEventLane lane, Long startTime, Long endTime) {
+        int position = positions[index];
+        byte recordLane = buffer.get(position + LANE_OFFSET);
+        if ((recordLane & REMOVED_FLAG) != 0 || (lane != null && recordLane != lane.ordinal())) {
+            return false;
+        }
+        long createdTime = buffer.getLong(position + CREATED_TIME_OFFSET);
+        if ((startTime != null && createdTime < startTime) || (endTime != null && createdTime > endTime)) {
+            return false;
+        }
+        return tenantId.equals(getUuid(position + TENANT_ID_OFFSET));
+    }
+
+    boolean isRemoved(int index) {
+        return (buffer.get(positions[index] + LANE_OFFSET) & REMOVED_FLAG) != 0;
+    }
+
+    /**
+     * Marks the record as removed. The mark is written to the mapped buffer, so it is restored on reopen.
+     *
+     * @return false if the record is already removed
+     */
+    boolean remove(int index) {
+        int position = positions[index] + LANE_OFFSET;
+        int lane = buffer.get(position);
+        if ((lane & REMOVED_FLAG) != 0) {
+            return false;
+        }
+        buffer.put(position, (byte) (lane | REMOVED_FLAG));
+        laneCounts.decrementAndGet(lane);
+        removedCount++;
+        return true;
+    }
+
+    UUID getId(int index) {
+        return getUuid(positions[index] + ID_OFFSET);
+    }
+
+    long getCreatedTime(int index) {
+        return buffer.getLong(positions[index] + CREATED_TIME_OFFSET);
+    }
+
+    boolean hasEntityId(int index, UUID entityId) {
+        int position = positions[index] + ENTITY_ID_OFFSET;
+        return buffer.get(position) == 1 && entityId.equals(getUuid(position + 1));
+    }
+
+    /**
+     * Decodes the record directly from the mapped buffer. The body is parsed from the mapped bytes without copying them.
+     */
+    CloudEvent read(int index) {
+        ByteBuffer buf = buffer.duplicate();
+        buf.position(positions[index] + CREATED_TIME_OFFSET);
+        long createdTime = buf.getLong();
+        CloudEvent event = new CloudEvent(new CloudEventId(getUuid(buf)));
+        event.setCreatedTime(createdTime);
+        event.setSeqId(baseSeqId + index);
+        event.setTenantId(TenantId.fromUUID(getUuid(buf)));
+        boolean hasEntityId = buf.get() == 1;
+        UUID entityId = getUuid(buf);
+        event.setEntityId(hasEntityId ? entityId : null);
+        String type = getString(buf);
+        event.setType(type != null ? CloudEventType.valueOf(type) : null);
+        String action = getString(buf);
+        event.setAction(action != null ? EdgeEventActionType.valueOf(action) : null);
+        event.setEntityBody(getJson(buf));
+        return event;
+    }
+
+    /**
+     * Unmaps the buffer and removes the file. Must not be called while the segment is read.
+     */
+    void delete() throws IOException {
+        CLEANER.clean(buffer);
+        Files.deleteIfExists(file);
+    }
+
+    private UUID getUuid(int position) {
+        return new UUID(buffer.getLong(position), buffer.getLong(position + Long.BYTES));
+    }
+
+    private static UUID getUuid(ByteBuffer buf) {
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
+    private static void putUuid(ByteBuffer buf, UUID uuid) {
+        buf.putLong(uuid != null ? uuid.getMostSignificantBits() : 0L);
+        buf.putLong(uuid != null ? uuid.getLeastSignificantBits() : 0L);
+    }
+
+    private static byte[] encodeType(CloudEvent event) {
+        return event.getType() != null ? event.getType().name().getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] encodeAction(CloudEvent event) {
+        return event.getAction() != null ? event.getAction().name().getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] encodeBody(CloudEvent event) {
+        return event.getEntityBody() != null ? JacksonUtil.toString(event.getEntityBody()).getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int recordSize(byte[]... fields) {
+        int size = HEADER_SIZE;
+        for (byte[] field : fields) {
+            size += Integer.BYTES + (field != null ? field.length : 0);
+        }
+        return size;
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] bytes) {
+        if (bytes == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(bytes.length);
+            buf.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static JsonNode getJson(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer bytes = buf.slice();
+        bytes.limit(length);
+        buf.position(buf.position() + length);
+        try (InputStream in = new ByteBufferBackedInputStream(bytes)) {
+            return JacksonUtil.OBJECT_MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to parse the body of the cloud event", e);
+        }
+    }
+
+    static int recordSize(CloudEvent event) {
+        return recordSize(encodeType(event), encodeAction(event), encodeBody(event));
+    }
+
+    /**
+     * Releases the mapping right away instead of waiting for GC, so the memory and the file space of the removed segments
+     * are freed at once. Falls back to GC if the cleaner is not accessible.
+     */
+    private static class BufferCleaner {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private BufferCleaner(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        static BufferCleaner create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new BufferCleaner(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (Exception e) {
+                log.warn("Memory-mapped buffers of the cloud event log are going to be unmapped by GC", e);
+                return new BufferCleaner(null, null);
+            }
+        }
+
+        void clean(MappedByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (Exception e) {
+                log.debug("Failed to unmap the buffer, it is going to be unmapped by GC", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.cloud.log;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.SortOrder;
+import org.thingsboard.server.common.data.page.TimePageLink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of cloud events that consists of memory-mapped segments of the fixed size.
+ * <p>
+ * Events get monotonically increasing seqIds in the order they are appended. Segments are indexed by the seqId
+ * of their first event, so the page of events after the queue offset is read starting from the segment that
+ * contains the offset without scanning the previous ones. Once the queue offset passes the last event of the segment,
+ * the whole segment file is removed.
+ * <p>
+ * Writers are serialized by the log monitor. Readers don't block the appends, but a segment is removed and unmapped
+ * only under the write lock, so it is never released while it is read.
+ */
+@Slf4j
+public class CloudEventSegmentLog {
+
+    private final Path dir;
+    private final int segmentSize;
+    private final ConcurrentNavigableMap<Long, CloudEventSegment> segments = new ConcurrentSkipListMap<>();
+    private volatile CloudEventSegment active;
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+
+    public CloudEventSegmentLog(Path dir, int segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    public synchronized void open() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(CloudEventSegment.FILE_SUFFIX)).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            CloudEventSegment segment = CloudEventSegment.open(file);
+            segments.put(segment.getBaseSeqId(), segment);
+        }
+        if (segments.isEmpty()) {
+            active = CloudEventSegment.create(dir, 1L, segmentSize);
+            segments.put(active.getBaseSeqId(), active);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+        log.info("Opened cloud event log [{}]: {} segment(s), next seqId [{}]", dir, segments.size(), active.getLastSeqId() + 1);
+    }
+
+    /**
+     * Appends events to the end of the log and flushes them to the disk.
+     *
+     * @return seqId of the last appended event
+     */
+    public synchronized long append(List<CloudEvent> events) throws IOException {
+        for (CloudEvent event : events) {
+            if (!active.append(event)) {
+                roll(Math.max(segmentSize, CloudEventSegment.recordSize(event)));
+                if (!active.append(event)) {
+                    throw new IOException("Failed to append cloud event to the new segment " + active.getFile());
+                }
+            }
+        }
+        active.force();
+        return active.getLastSeqId();
+    }
+
+    private void roll(int capacity) throws IOException {
+        long baseSeqId = active.getLastSeqId() + 1;
+        if (active.size() == 0) {
+            // record does not fit into the empty segment, so segment is re-created with the bigger size
+            remove(active);
+        } else {
+            active.force();
+        }
+        CloudEventSegment segment = CloudEventSegment.create(dir, baseSeqId, capacity);
+        segments.put(baseSeqId, segment);
+        active = segment;
+        log.debug("Cloud event log rolled to the new segment [{}]", segment.getFile());
+    }
+
+    /**
+     * Reads the page of events with seqId in range (seqIdStart, seqIdEnd) that were created within the time range of the page link.
+     * Events are ordered by seqId, descending order is used if the page link is sorted in descending order.
+     */
+    public PageData<CloudEvent> find(UUID tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink) {
+        Lock lock = segmentsLock.readLock();
+        lock.lock();
+        try {
+            return doFind(tenantId, lane, seqIdStart, seqIdEnd, pageLink);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PageData<CloudEvent> doFind(UUID tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink) {
+        boolean descending = pageLink.getSortOrder() != null && SortOrder.Direction.DESC.equals(pageLink.getSortOrder().getDirection());
+        long offset = (long) pageLink.getPage() * pageLink.getPageSize();
+        Collection<CloudEventSegment> ordered = descending ? segments.descendingMap().values() : segments.values();
+        CloudEventSegment current = active;
+        if (seqIdStart != null && !descending) {
+            Long first = segments.floorKey(seqIdStart + 1);
+            ordered = first != null ? segments.tailMap(first, true).values() : ordered;
+        }
+        List<CloudEvent> data = new ArrayList<>();
+        long total = 0;
+        for (CloudEventSegment segment : ordered) {
+            int size = segment.size();
+            if (size == 0 || !overlaps(segment, pageLink.getStartTime(), pageLink.getEndTime())) {
+                continue;
+            }
+            int from = seqIdStart != null ? (int) Math.min(size, Math.max(0, seqIdStart + 1 - segment.getBaseSeqId())) : 0;
+            int to = seqIdEnd != null ? (int) Math.max(0, Math.min(size, seqIdEnd - segment.getBaseSeqId())) : size;
+            if (from >= to) {
+                continue;
+            }
+            if (segment != current && from == 0 && to == size && covers(segment, pageLink.getStartTime(), pageLink.getEndTime())) {
+                int count = segment.count(tenantId, lane);
+                if (count >= 0 && (total + count <= offset || data.size() == pageLink.getPageSize())) {
+                    total += count;
+                    continue;
+                }
+            }
+            for (int i = from; i < to; i++) {
+                int index = descending ? to - 1 - (i - from) : i;
+                if (segment.matches(index, tenantId, lane, pageLink.getStartTime(), pageLink.getEndTime())) {
+                    if (total >= offset && data.size() < pageLink.getPageSize()) {
+                        data.add(segment.read(index));
+                    }
+                    total++;
+                }
+            }
+        }
+        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((double) total / pageLink.getPageSize()) : 1;
+        return new PageData<>(data, totalPages, total, total > offset + data.size());
+    }
+
+    public long count(UUID tenantId, UUID entityId, CloudEventType type, EdgeEventActionType action, Long startTime, Long endTime) {
+        Lock lock = segmentsLock.readLock();
+        lock.lock();
+        try {
+            long count = 0;
+            for (CloudEventSegment segment : segments.values()) {
+                int size = segment.size();
+                if (size == 0 || (startTime != null && segment.getMaxCreatedTime() <= startTime)
+                        || (endTime != null && segment.getMinCreatedTime() > endTime)) {
+                    continue;
+                }
+                for (int i = 0; i < size; i++) {
+                    long createdTime = segment.getCreatedTime(i);
+                    if ((startTime != null && createdTime <= startTime) || (endTime != null && createdTime > endTime)
+                            || segment.isRemoved(i) || !segment.hasEntityId(i, entityId)) {
+                        continue;
+                    }
+                    CloudEvent event = segment.read(i);
+                    if (tenantId.equals(event.getTenantId().getId()) && type == event.getType() && action == event.getAction()) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CloudEvent findById(UUID id) {
+        Lock lock = segmentsLock.readLock();
+        lock.lock();
+        try {
+            for (CloudEventSegment segment : segments.values()) {
+                int size = segment.size();
+                for (int i = 0; i < size; i++) {
+                    if (!segment.isRemoved(i) && id.equals(segment.getId(i))) {
+                        return segment.read(i);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the events with the provided ids as removed, so they are skipped by the reads.
+     * Removed events keep their seqIds, the segment file is removed by the queue offset or TTL as usual.
+     *
+     * @return number of removed events
+     */
+    public synchronized int remove(Collection<UUID> ids) {
+        Set<UUID> remaining = new HashSet<>(ids);
+        int removed = 0;
+        for (CloudEventSegment segment : segments.values()) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            int size = segment.size();
+            boolean changed = false;
+            for (int i = 0; i < size && !remaining.isEmpty(); i++) {
+                if (!segment.isRemoved(i) && remaining.remove(segment.getId(i)) && segment.remove(i)) {
+                    changed = true;
+                    removed++;
+                }
+            }
+            if (changed) {
+                segment.force();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes segments that contain only events with seqId less than or equal to the provided one.
+     * Segment that is currently written is never removed, as it keeps the next seqId of the log.
+     *
+     * @return number of removed segments
+     */
+    public synchronized int removeUpTo(long seqId) throws IOException {
+        int removed = 0;
+        for (CloudEventSegment segment : new ArrayList<>(segments.headMap(active.getBaseSeqId()).values())) {
+            if (segment.getLastSeqId() > seqId) {
+                break;
+            }
+            remove(segment);
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Removes segments that contain only events created before the provided time.
+     *
+     * @return number of removed segments
+     */
+    public synchronized int removeCreatedBefore(long ts) throws IOException {
+        int removed = 0;
+        for (CloudEventSegment segment : new ArrayList<>(segments.headMap(active.getBaseSeqId()).values())) {
+            if (segment.getMaxCreatedTime() >= ts) {
+                break;
+            }
+            remove(segment);
+            removed++;
+        }
+        return removed;
+    }
+
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    int getSegmentsCount() {
+        return segments.size();
+    }
+
+    private void remove(CloudEventSegment segment) throws IOException {
+        Lock lock = segmentsLock.writeLock();
+        lock.lock();
+        try {
+            segments.remove(segment.getBaseSeqId(), segment);
+            segment.delete();
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Removed cloud event log segment [{}]", segment.getFile());
+    }
+
+    private static boolean overlaps(CloudEventSegment segment, Long startTime, Long endTime) {
+        return (startTime == null || segment.getMaxCreatedTime() >= startTime)
+                && (endTime == null || segment.getMinCreatedTime() <= endTime);
+    }
+
+    private static boolean covers(CloudEventSegment segment, Long startTime, Long endTime) {
+        return (startTime == null || segment.getMinCreatedTime() >= startTime)
+                && (endTime == null || segment.getMaxCreatedTime() <= endTime);
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.cloud.log;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+import org.thingsboard.server.common.data.id.CloudEventId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.TimePageLink;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.cloud.CloudEventDao;
+import org.thingsboard.server.dao.cloud.CloudEventsPersistedEvent;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueueOverflowPolicy;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
+
+/**
+ * Cloud event storage that keeps the queue of cloud events in the local {@link CloudEventSegmentLog}
+ * instead of the cloud_event table. Events are written sequentially in batches and segments are removed
+ * as soon as the queue offset passes them, so the database is not loaded by the cloud event writes
+ * while edge is disconnected from the cloud.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "cloud.rpc.storage", value = "type", havingValue = "segment_log")
+public class SegmentLogCloudEventDao implements CloudEventDao {
+
+    private final ScheduledLogExecutorComponent logExecutor;
+
+    private final StatsFactory statsFactory;
+
+    private final TbSqlBlockingQueueSettings queueSettings;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${cloud.rpc.storage.segment_log.dir:data/cloud_events}")
+    private String dir;
+
+    @Value("${cloud.rpc.storage.segment_log.segment_size:67108864}")
+    private int segmentSize;
+
+    @Value("${sql.cloud_events.batch_size:10000}")
+    private int batchSize;
+
+    @Value("${sql.cloud_events.batch_max_delay:100}")
+    private long maxDelay;
+
+    @Value("${sql.cloud_events.stats_print_interval_ms:10000}")
+    private long statsPrintIntervalMs;
+
+    private CloudEventSegmentLog segmentLog;
+
+    private TbSqlBlockingQueueWrapper<CloudEvent> queue;
+
+    @PostConstruct
+    private void init() throws IOException {
+        segmentLog = new CloudEventSegmentLog(Paths.get(dir), segmentSize);
+        segmentLog.open();
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Cloud Events Log")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("cloud.events.log")
+                .batchSortEnabled(true)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(TbSqlQueueOverflowPolicy.BLOCK)
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
+                .build();
+        // single writer keeps seqIds in the order of appending
+        queue = new TbSqlBlockingQueueWrapper<>(params, event -> 0, 1, statsFactory);
+        queue.init(logExecutor, events -> {
+                    try {
+                        long maxSeqId = segmentLog.append(events);
+                        eventPublisher.publishEvent(new CloudEventsPersistedEvent(maxSeqId));
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to append cloud events to the log", e);
+                    }
+                },
+                Comparator.comparing(CloudEvent::getCreatedTime)
+        );
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        if (segmentLog != null) {
+            segmentLog.close();
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> saveAsync(CloudEvent cloudEvent) {
+        log.debug("Save cloud event [{}] ", cloudEvent);
+        if (cloudEvent.getId() == null) {
+            UUID timeBased = Uuids.timeBased();
+            cloudEvent.setId(new CloudEventId(timeBased));
+            cloudEvent.setCreatedTime(Uuids.unixTimestamp(timeBased));
+        } else if (cloudEvent.getCreatedTime() == 0L) {
+            UUID eventId = cloudEvent.getId().getId();
+            if (eventId.version() == 1) {
+                cloudEvent.setCreatedTime(Uuids.unixTimestamp(eventId));
+            } else {
+                cloudEvent.setCreatedTime(System.currentTimeMillis());
+            }
+        }
+        if (cloudEvent.getTenantId() == null) {
+            cloudEvent.setTenantId(TenantId.fromUUID(NULL_UUID));
+        }
+        return queue.add(cloudEvent);
+    }
+
+    @Override
+    public PageData<CloudEvent> findCloudEvents(UUID tenantId, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink) {
+        log.trace("Executing findCloudEvents [{}], [{}], [{}], [{}]", tenantId, seqIdStart, seqIdEnd, pageLink);
+        return segmentLog.find(tenantId, null, seqIdStart, seqIdEnd, pageLink);
+    }
+
+    @Override
+    public PageData<CloudEvent> findCloudEvents(UUID tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink) {
+        log.trace("Executing findCloudEvents [{}], [{}], [{}], [{}], [{}]", tenantId, lane, seqIdStart, seqIdEnd, pageLink);
+        return segmentLog.find(tenantId, lane, seqIdStart, seqIdEnd, pageLink);
+    }
+
+    @Override
+    public long countEventsByTenantIdAndEntityIdAndActionAndTypeAndStartTimeAndEndTime(UUID tenantId,
+                                                                                       UUID entityId,
+                                                                                       CloudEventType cloudEventType,
+                                                                                       EdgeEventActionType cloudEventAction,
+                                                                                       Long startTime,
+                                                                                       Long endTime) {
+        return segmentLog.count(tenantId, entityId, cloudEventType, cloudEventAction, startTime, endTime);
+    }
+
+    @Override
+    public void cleanupEvents(long ttl) {
+        log.info("Going to cleanup cloud event log segments created before: {}", ttl);
+        try {
+            int removed = segmentLog.removeCreatedBefore(ttl);
+            log.info("Removed {} expired segment(s) of the cloud event log", removed);
+        } catch (IOException e) {
+            log.error("Failed to cleanup expired segments of the cloud event log", e);
+        }
+    }
+
+    @Override
+    public void cleanupAcknowledgedEvents(long seqIdOffset) {
+        try {
+            int removed = segmentLog.removeUpTo(seqIdOffset);
+            if (removed > 0) {
+                log.debug("Removed {} acknowledged segment(s) of the cloud event log, offset [{}]", removed, seqIdOffset);
+            }
+        } catch (IOException e) {
+            log.error("Failed to cleanup acknowledged segments of the cloud event log, offset [{}]", seqIdOffset, e);
+        }
+    }
+
+    @Override
+    public void migrateCloudEvents() {
+        log.info("Cloud events are stored in the segment log, migration of the cloud_event table is skipped");
+    }
+
+    @Override
+    public List<CloudEvent> find(TenantId tenantId) {
+        return segmentLog.find(tenantId.getId(), null, null, null, new TimePageLink(Integer.MAX_VALUE)).getData();
+    }
+
+    @Override
+    public CloudEvent findById(TenantId tenantId, UUID id) {
+        return segmentLog.findById(id);
+    }
+
+    @Override
+    public ListenableFuture<CloudEvent> findByIdAsync(TenantId tenantId, UUID id) {
+        return Futures.immediateFuture(findById(tenantId, id));
+    }
+
+    @Override
+    public boolean existsById(TenantId tenantId, UUID id) {
+        return findById(tenantId, id) != null;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> existsByIdAsync(TenantId tenantId, UUID id) {
+        return Futures.immediateFuture(existsById(tenantId, id));
+    }
+
+    @Override
+    public CloudEvent save(TenantId tenantId, CloudEvent cloudEvent) {
+        try {
+            saveAsync(cloudEvent).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Failed to save cloud event", e);
+        }
+        return cloudEvent;
+    }
+
+    @Override
+    public CloudEvent saveAndFlush(TenantId tenantId, CloudEvent cloudEvent) {
+        return save(tenantId, cloudEvent);
+    }
+
+    @Override
+    public boolean removeById(TenantId tenantId, UUID id) {
+        return segmentLog.remove(Collections.singleton(id)) > 0;
+    }
+
+    @Override
+    public void removeAllByIds(Collection<UUID> ids) {
+        int removed = segmentLog.remove(ids);
+        log.debug("Removed {} of {} cloud event(s) from the log", removed, ids.size());
+    }
+}
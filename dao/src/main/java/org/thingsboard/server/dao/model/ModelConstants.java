@@ -569,6 +569,7 @@ public class ModelConstants {
     public static final String CLOUD_EVENT_SEQUENTIAL_ID_PROPERTY = "seq_id";
     public static final String CLOUD_EVENT_TYPE_PROPERTY = "cloud_event_type";
     public static final String CLOUD_EVENT_ACTION_PROPERTY = "cloud_event_action";
+    public static final String CLOUD_EVENT_LANE_PROPERTY = "cloud_event_lane";
     public static final String CLOUD_EVENT_ENTITY_ID_PROPERTY = "entity_id";
     public static final String CLOUD_EVENT_ENTITY_BODY_PROPERTY = "entity_body";
 
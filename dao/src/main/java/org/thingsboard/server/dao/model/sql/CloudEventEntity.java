@@ -22,6 +22,7 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.Type;
 import org.hibernate.annotations.TypeDef;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.id.CloudEventId;
@@ -41,6 +42,7 @@ import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_ACTION
 import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_COLUMN_FAMILY_NAME;
 import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_ENTITY_BODY_PROPERTY;
 import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_ENTITY_ID_PROPERTY;
+import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_LANE_PROPERTY;
 import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_SEQUENTIAL_ID_PROPERTY;
 import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_TENANT_ID_PROPERTY;
 import static org.thingsboard.server.dao.model.ModelConstants.CLOUD_EVENT_TYPE_PROPERTY;
@@ -72,6 +74,10 @@ public class CloudEventEntity extends BaseSqlEntity<CloudEvent> implements BaseE
     @Column(name = CLOUD_EVENT_ACTION_PROPERTY)
     private EdgeEventActionType cloudEventAction;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = CLOUD_EVENT_LANE_PROPERTY)
+    private CloudEventLane cloudEventLane;
+
     @Type(type = "json")
     @Column(name = CLOUD_EVENT_ENTITY_BODY_PROPERTY)
     private JsonNode entityBody;
@@ -95,6 +101,7 @@ public class CloudEventEntity extends BaseSqlEntity<CloudEvent> implements BaseE
         }
         this.cloudEventType = cloudEvent.getType();
         this.cloudEventAction = cloudEvent.getAction();
+        this.cloudEventLane = CloudEventLane.of(cloudEvent.getType(), cloudEvent.getAction());
         this.entityBody = cloudEvent.getEntityBody();
     }
 
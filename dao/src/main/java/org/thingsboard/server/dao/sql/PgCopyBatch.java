@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import org.postgresql.PGConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Batch of rows encoded in the binary format of the PostgreSQL COPY command.
+ * <p>
+ * Rows are streamed to the server with a single {@code COPY ... FROM STDIN WITH (FORMAT BINARY)} statement,
+ * so the server does not parse and plan a separate insert statement for every row of the batch.
+ * Fields must be written in the order of the columns of the COPY statement.
+ */
+public class PgCopyBatch {
+
+    public static final String FORMAT_BINARY = " FROM STDIN WITH (FORMAT BINARY)";
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int NULL_LENGTH = -1;
+    private static final int TRAILER = -1;
+
+    private final ByteArrayOutputStream out;
+    private int rowsCount;
+    private boolean finished;
+
+    public PgCopyBatch(int expectedRowsCount) {
+        out = new ByteArrayOutputStream(Math.max(expectedRowsCount, 1) * 128);
+        out.write(SIGNATURE, 0, SIGNATURE.length);
+        // flags and length of the header extension
+        writeInt(0);
+        writeInt(0);
+    }
+
+    public PgCopyBatch startRow(int fieldsCount) {
+        if (finished) {
+            throw new IllegalStateException("Batch is already finished");
+        }
+        writeShort(fieldsCount);
+        rowsCount++;
+        return this;
+    }
+
+    public PgCopyBatch addUuid(UUID value) {
+        if (value == null) {
+            return addNull();
+        }
+        writeInt(2 * Long.BYTES);
+        writeLong(value.getMostSignificantBits());
+        writeLong(value.getLeastSignificantBits());
+        return this;
+    }
+
+    public PgCopyBatch addInt(Integer value) {
+        if (value == null) {
+            return addNull();
+        }
+        writeInt(Integer.BYTES);
+        writeInt(value);
+        return this;
+    }
+
+    public PgCopyBatch addLong(Long value) {
+        if (value == null) {
+            return addNull();
+        }
+        writeInt(Long.BYTES);
+        writeLong(value);
+        return this;
+    }
+
+    public PgCopyBatch addDouble(Double value) {
+        if (value == null) {
+            return addNull();
+        }
+        writeInt(Long.BYTES);
+        writeLong(Double.doubleToLongBits(value));
+        return this;
+    }
+
+    public PgCopyBatch addBoolean(Boolean value) {
+        if (value == null) {
+            return addNull();
+        }
+        writeInt(1);
+        out.write(value ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * Adds value of the text, varchar or json column. Binary representation of these types is the UTF-8 encoded text.
+     */
+    public PgCopyBatch addString(String value) {
+        if (value == null) {
+            return addNull();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        out.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    public PgCopyBatch addNull() {
+        writeInt(NULL_LENGTH);
+        return this;
+    }
+
+    public int getRowsCount() {
+        return rowsCount;
+    }
+
+    public byte[] toByteArray() {
+        if (!finished) {
+            writeShort(TRAILER);
+            finished = true;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Executes the COPY statement on the provided connection.
+     *
+     * @param copySql COPY statement, e.g. {@code "COPY table (column1, column2)" + PgCopyBatch.FORMAT_BINARY}
+     * @return number of copied rows
+     */
+    public long copyIn(Connection connection, String copySql) throws SQLException {
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, new ByteArrayInputStream(toByteArray()));
+        } catch (IOException e) {
+            throw new SQLException("Failed to stream batch to the COPY statement: " + copySql, e);
+        }
+    }
+
+    private void writeShort(int value) {
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private void writeInt(int value) {
+        writeShort(value >>> 16);
+        writeShort(value);
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+}
@@ -17,18 +17,25 @@ package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.stats.DefaultCounter;
 import org.thingsboard.server.common.stats.MessagesStats;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,20 +43,38 @@ import java.util.stream.Stream;
 @Slf4j
 public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
-    private final BlockingQueue<TbSqlQueueElement<E>> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TbSqlQueueElement<E>> queue;
     private final TbSqlBlockingQueueParams params;
 
     private ExecutorService executor;
+    private ExecutorService flushExecutor;
+    private Semaphore flushPermits;
+    private Consumer<List<E>> saveFunction;
     private final MessagesStats stats;
+    private final DefaultCounter rejectedStats;
+    private final Timer batchTimer;
+    private final AtomicInteger queueSize;
+    private final Set<FlushTask> pendingFlushTasks = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopped;
 
-    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, DefaultCounter rejectedStats, Timer batchTimer, AtomicInteger queueSize) {
         this.params = params;
         this.stats = stats;
+        this.rejectedStats = rejectedStats;
+        this.batchTimer = batchTimer;
+        this.queueSize = queueSize;
+        this.queue = params.getMaxQueueSize() > 0 ? new LinkedBlockingQueue<>(params.getMaxQueueSize()) : new LinkedBlockingQueue<>();
     }
 
     @Override
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int index) {
+        this.saveFunction = saveFunction;
         executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
+        if (params.getFlushThreads() > 1) {
+            flushExecutor = Executors.newFixedThreadPool(params.getFlushThreads(),
+                    ThingsBoardThreadFactory.forName("sql-queue-flush-" + index + "-" + params.getLogName().toLowerCase()));
+            flushPermits = new Semaphore(params.getFlushThreads());
+        }
         executor.submit(() -> {
             String logName = params.getLogName();
             int batchSize = params.getBatchSize();
@@ -65,18 +90,29 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
                         entities.add(attr);
                     }
                     queue.drainTo(entities, batchSize - 1);
+                    queueSize.addAndGet(-entities.size());
                     boolean fullPack = entities.size() == batchSize;
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Going to save {} entities", logName, entities.size());
                         log.trace("[{}] Going to save entities: {}", logName, entities);
                     }
                     Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
-                    saveFunction.accept(
-                            (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
-                                    .collect(Collectors.toList())
-                    );
-                    entities.forEach(v -> v.getFuture().set(null));
-                    stats.incrementSuccessful(entities.size());
+                    List<E> batch = (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
+                            .collect(Collectors.toList());
+                    if (flushExecutor != null) {
+                        FlushTask flushTask = new FlushTask(batch, new ArrayList<>(entities));
+                        flushPermits.acquire();
+                        pendingFlushTasks.add(flushTask);
+                        try {
+                            flushExecutor.execute(flushTask);
+                        } catch (RejectedExecutionException e) {
+                            pendingFlushTasks.remove(flushTask);
+                            flushPermits.release();
+                            throw e;
+                        }
+                    } else {
+                        saveBatch(batch, entities);
+                    }
                     if (!fullPack) {
                         long remainingDelay = maxDelay - (System.currentTimeMillis() - currentTs);
                         if (remainingDelay > 0) {
@@ -100,25 +136,117 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
         logExecutor.scheduleAtFixedRate(() -> {
             if (queue.size() > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
-                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
-                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] totalRejected [{}]", index,
+                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed(), rejectedStats.get());
                 stats.reset();
+                rejectedStats.clear();
             }
         }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void destroy() {
+        stopped = true;
         if (executor != null) {
             executor.shutdownNow();
         }
+        List<TbSqlQueueElement<E>> pending = new ArrayList<>();
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+            // tasks that were not started by the flush threads
+            for (FlushTask task : pendingFlushTasks) {
+                if (pendingFlushTasks.remove(task)) {
+                    pending.addAll(task.elements);
+                }
+            }
+        }
+        queueSize.addAndGet(-queue.drainTo(pending));
+        if (!pending.isEmpty()) {
+            log.warn("[{}] Queue was stopped, {} entities were not saved", params.getLogName(), pending.size());
+            stats.incrementFailed(pending.size());
+            RejectedExecutionException e = new RejectedExecutionException("[" + params.getLogName() + "] Queue was stopped");
+            pending.forEach(element -> element.getFuture().setException(e));
+        }
     }
 
     @Override
     public ListenableFuture<Void> add(E element) {
         SettableFuture<Void> future = SettableFuture.create();
-        queue.add(new TbSqlQueueElement<>(future, element));
+        TbSqlQueueElement<E> queueElement = new TbSqlQueueElement<>(future, element);
         stats.incrementTotal();
+        if (stopped) {
+            return onStopped(queueElement);
+        }
+        if (queue.offer(queueElement)) {
+            return onQueued(queueElement);
+        }
+        if (TbSqlQueueOverflowPolicy.BLOCK.equals(params.getOverflowPolicy())) {
+            try {
+                if (queue.offer(queueElement, params.getOverflowTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    return onQueued(queueElement);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rejectedStats.increment();
+        stats.incrementFailed();
+        future.setException(new RejectedExecutionException("[" + params.getLogName() + "] Queue is full, max size: " + params.getMaxQueueSize()));
         return future;
     }
+
+    private ListenableFuture<Void> onQueued(TbSqlQueueElement<E> queueElement) {
+        queueSize.incrementAndGet();
+        // element that was queued while the queue was being stopped is never polled
+        if (stopped && queue.remove(queueElement)) {
+            queueSize.decrementAndGet();
+            return onStopped(queueElement);
+        }
+        return queueElement.getFuture();
+    }
+
+    private ListenableFuture<Void> onStopped(TbSqlQueueElement<E> queueElement) {
+        stats.incrementFailed();
+        queueElement.getFuture().setException(new RejectedExecutionException("[" + params.getLogName() + "] Queue was stopped"));
+        return queueElement.getFuture();
+    }
+
+    private void save(List<E> batch, List<TbSqlQueueElement<E>> elements) {
+        try {
+            saveBatch(batch, elements);
+        } catch (Exception e) {
+            stats.incrementFailed(elements.size());
+            elements.forEach(element -> element.getFuture().setException(e));
+            log.error("[{}] Failed to save {} entities", params.getLogName(), elements.size(), e);
+        }
+    }
+
+    private void saveBatch(List<E> batch, List<TbSqlQueueElement<E>> elements) {
+        long startTs = System.nanoTime();
+        saveFunction.accept(batch);
+        batchTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+        elements.forEach(v -> v.getFuture().set(null));
+        stats.incrementSuccessful(elements.size());
+    }
+
+    private class FlushTask implements Runnable {
+        private final List<E> batch;
+        private final List<TbSqlQueueElement<E>> elements;
+
+        FlushTask(List<E> batch, List<TbSqlQueueElement<E>> elements) {
+            this.batch = batch;
+            this.elements = elements;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (pendingFlushTasks.remove(this)) {
+                    save(batch, elements);
+                }
+            } finally {
+                flushPermits.release();
+            }
+        }
+    }
 }
@@ -30,4 +30,17 @@ public class TbSqlBlockingQueueParams {
     private final long statsPrintIntervalMs;
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
+    /**
+     * Max number of elements in the queue, 0 means that queue is not bounded
+     */
+    private final int maxQueueSize;
+    @Builder.Default
+    private final TbSqlQueueOverflowPolicy overflowPolicy = TbSqlQueueOverflowPolicy.BLOCK;
+    private final long overflowTimeoutMs;
+    /**
+     * Number of threads that save batches of the same queue concurrently.
+     * Must be 1 if the order of the saved batches matters
+     */
+    @Builder.Default
+    private final int flushThreads = 1;
 }
@@ -16,14 +16,17 @@
 package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.stats.DefaultCounter;
 import org.thingsboard.server.common.stats.MessagesStats;
 import org.thingsboard.server.common.stats.StatsFactory;
 
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -47,8 +50,13 @@ public class TbSqlBlockingQueueWrapper<E> {
      */
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
         for (int i = 0; i < maxThreads; i++) {
-            MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats);
+            String statsKey = params.getStatsNamePrefix() + ".queue." + i;
+            MessagesStats stats = statsFactory.createMessagesStats(statsKey);
+            DefaultCounter rejectedStats = statsFactory.createDefaultCounter(statsKey + ".rejected");
+            Timer batchTimer = statsFactory.createTimer(statsKey + ".batchLatency");
+            AtomicInteger queueSize = new AtomicInteger(0);
+            statsFactory.createGauge(statsKey + ".size", queueSize);
+            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats, rejectedStats, batchTimer, queueSize);
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, i);
         }
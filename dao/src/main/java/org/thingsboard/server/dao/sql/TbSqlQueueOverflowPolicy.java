@@ -0,0 +1,33 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+/**
+ * Behaviour of the bounded {@link TbSqlBlockingQueue} once it is full.
+ * Queues that rely on the order of the writes (latest values, cloud and edge events) always use {@link #BLOCK},
+ * since a rejected element would be saved again later and overtake the elements that are already queued.
+ * The entity is never saved in the caller thread, which may be an actor or transport thread.
+ */
+public enum TbSqlQueueOverflowPolicy {
+    /**
+     * Caller waits for the free space up to the overflow timeout, future fails if the timeout is reached.
+     */
+    BLOCK,
+    /**
+     * Future fails immediately.
+     */
+    REJECT
+}
@@ -36,7 +36,9 @@ import org.thingsboard.server.dao.model.sql.AttributeKvEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractDaoListeningExecutorService;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueueOverflowPolicy;
 import org.thingsboard.server.dao.util.SqlDao;
 
 import javax.annotation.PostConstruct;
@@ -66,6 +68,9 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired
+    private TbSqlBlockingQueueSettings queueSettings;
+
     @Value("${sql.attributes.batch_size:1000}")
     private int batchSize;
 
@@ -92,6 +97,9 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("attributes")
                 .batchSortEnabled(batchSortEnabled)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(TbSqlQueueOverflowPolicy.BLOCK)
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
                 .build();
 
         Function<AttributeKvEntity, Integer> hashcodeFunction = entity -> entity.getId().getEntityId().hashCode();
@@ -16,14 +16,17 @@
 package org.thingsboard.server.dao.sql.cloud;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.thingsboard.server.dao.model.sql.CloudEventEntity;
+import org.thingsboard.server.dao.sql.PgCopyBatch;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -34,42 +37,82 @@ import java.util.List;
 public class CloudEventInsertRepository {
 
     private static final String INSERT =
-            "INSERT INTO cloud_event (id, created_time, entity_body, entity_id, cloud_event_type, cloud_event_action, tenant_id, ts) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "INSERT INTO cloud_event (id, created_time, entity_body, entity_id, cloud_event_type, cloud_event_action, tenant_id, ts, cloud_event_lane) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
                     "ON CONFLICT DO NOTHING;";
 
+    // cloud_event has no unique constraints, so rows are copied directly to the table
+    private static final String COPY =
+            "COPY cloud_event (id, created_time, entity_body, entity_id, cloud_event_type, cloud_event_action, tenant_id, ts, cloud_event_lane)" +
+                    PgCopyBatch.FORMAT_BINARY;
+
+    private static final String SELECT_LAST_SEQ_ID = "SELECT currval(pg_get_serial_sequence('cloud_event', 'seq_id'));";
+
     @Autowired
     protected JdbcTemplate jdbcTemplate;
 
     @Autowired
     private TransactionTemplate transactionTemplate;
 
-    protected void save(List<CloudEventEntity> entities) {
-        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+    @Value("${sql.cloud_events.use_copy:false}")
+    private boolean useCopy;
+
+    /**
+     * @return the highest seq id generated for the saved batch
+     */
+    protected Long save(List<CloudEventEntity> entities) {
+        return transactionTemplate.execute(new TransactionCallback<>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                if (useCopy) {
+                    copy(entities);
+                } else {
+                    insert(entities);
+                }
+                return jdbcTemplate.queryForObject(SELECT_LAST_SEQ_ID, Long.class);
+            }
+        });
+    }
+
+    private void insert(List<CloudEventEntity> entities) {
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
             @Override
-            protected void doInTransactionWithoutResult(TransactionStatus status) {
-                jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
-                    @Override
-                    public void setValues(PreparedStatement ps, int i) throws SQLException {
-                        CloudEventEntity cloudEvent = entities.get(i);
-                        ps.setObject(1, cloudEvent.getId());
-                        ps.setLong(2, cloudEvent.getCreatedTime());
-                        ps.setString(3, cloudEvent.getEntityBody() != null
-                                ? cloudEvent.getEntityBody().toString()
-                                : null);
-                        ps.setObject(4, cloudEvent.getEntityId());
-                        ps.setString(5, cloudEvent.getCloudEventType().name());
-                        ps.setString(6, cloudEvent.getCloudEventAction().name());
-                        ps.setObject(7, cloudEvent.getTenantId());
-                        ps.setLong(8, cloudEvent.getTs());
-                    }
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CloudEventEntity cloudEvent = entities.get(i);
+                ps.setObject(1, cloudEvent.getId());
+                ps.setLong(2, cloudEvent.getCreatedTime());
+                ps.setString(3, cloudEvent.getEntityBody() != null
+                        ? cloudEvent.getEntityBody().toString()
+                        : null);
+                ps.setObject(4, cloudEvent.getEntityId());
+                ps.setString(5, cloudEvent.getCloudEventType().name());
+                ps.setString(6, cloudEvent.getCloudEventAction().name());
+                ps.setObject(7, cloudEvent.getTenantId());
+                ps.setLong(8, cloudEvent.getTs());
+                ps.setString(9, cloudEvent.getCloudEventLane().name());
+            }
 
-                    @Override
-                    public int getBatchSize() {
-                        return entities.size();
-                    }
-                });
+            @Override
+            public int getBatchSize() {
+                return entities.size();
             }
         });
     }
+
+    private void copy(List<CloudEventEntity> entities) {
+        PgCopyBatch batch = new PgCopyBatch(entities.size());
+        for (CloudEventEntity cloudEvent : entities) {
+            batch.startRow(9)
+                    .addUuid(cloudEvent.getId())
+                    .addLong(cloudEvent.getCreatedTime())
+                    .addString(cloudEvent.getEntityBody() != null ? cloudEvent.getEntityBody().toString() : null)
+                    .addUuid(cloudEvent.getEntityId())
+                    .addString(cloudEvent.getCloudEventType().name())
+                    .addString(cloudEvent.getCloudEventAction().name())
+                    .addUuid(cloudEvent.getTenantId())
+                    .addLong(cloudEvent.getTs())
+                    .addString(cloudEvent.getCloudEventLane().name());
+        }
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> batch.copyIn(connection, COPY));
+    }
 }
@@ -21,6 +21,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.dao.model.sql.CloudEventEntity;
@@ -43,6 +44,22 @@ public interface CloudEventRepository extends JpaRepository<CloudEventEntity, UU
                                                 @Param("seqIdEnd") Long seqIdEnd,
                                                 Pageable pageable);
 
+    @Query("SELECT e FROM CloudEventEntity e WHERE " +
+            "e.tenantId = :tenantId " +
+            "AND e.cloudEventLane = :cloudEventLane " +
+            "AND (:startTime IS NULL OR e.createdTime >= :startTime) " +
+            "AND (:endTime IS NULL OR e.createdTime <= :endTime) " +
+            "AND (:seqIdStart IS NULL OR e.seqId > :seqIdStart) " +
+            "AND (:seqIdEnd IS NULL OR e.seqId < :seqIdEnd)"
+    )
+    Page<CloudEventEntity> findEventsByTenantIdAndLane(@Param("tenantId") UUID tenantId,
+                                                       @Param("cloudEventLane") CloudEventLane cloudEventLane,
+                                                       @Param("startTime") Long startTime,
+                                                       @Param("endTime") Long endTime,
+                                                       @Param("seqIdStart") Long seqIdStart,
+                                                       @Param("seqIdEnd") Long seqIdEnd,
+                                                       Pageable pageable);
+
     @Query("SELECT COUNT(e) FROM CloudEventEntity e WHERE " +
             "e.tenantId = :tenantId " +
             "AND e.entityId  = :entityId " +
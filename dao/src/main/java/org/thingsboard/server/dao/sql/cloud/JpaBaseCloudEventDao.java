@@ -20,9 +20,12 @@ import com.google.common.util.concurrent.ListenableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
 import org.thingsboard.server.common.data.cloud.CloudEventType;
 import org.thingsboard.server.common.data.edge.EdgeEventActionType;
 import org.thingsboard.server.common.data.id.CloudEventId;
@@ -32,12 +35,15 @@ import org.thingsboard.server.common.data.page.TimePageLink;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.cloud.CloudEventDao;
+import org.thingsboard.server.dao.cloud.CloudEventsPersistedEvent;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.model.sql.CloudEventEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractDao;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueueOverflowPolicy;
 import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
 
 import javax.annotation.PostConstruct;
@@ -54,6 +60,7 @@ import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "cloud.rpc.storage", value = "type", havingValue = "sql", matchIfMissing = true)
 public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, CloudEvent> implements CloudEventDao {
 
     private final UUID systemTenantId = NULL_UUID;
@@ -62,12 +69,16 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
 
     private final StatsFactory statsFactory;
 
+    private final TbSqlBlockingQueueSettings queueSettings;
+
     private final CloudEventRepository cloudEventRepository;
 
     private final CloudEventInsertRepository cloudEventInsertRepository;
 
     private final SqlPartitioningRepository partitioningRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     @Value("${sql.cloud_events.batch_size:10000}")
     private int batchSize;
 
@@ -106,6 +117,9 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("cloud.events")
                 .batchSortEnabled(true)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(TbSqlQueueOverflowPolicy.BLOCK)
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
                 .build();
         Function<CloudEventEntity, Integer> hashcodeFunction = entity -> {
             if (entity.getEntityId() != null) {
@@ -115,7 +129,12 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
             }
         };
         queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, 1, statsFactory);
-        queue.init(logExecutor, v -> cloudEventInsertRepository.save(v),
+        queue.init(logExecutor, v -> {
+                    Long maxSeqId = cloudEventInsertRepository.save(v);
+                    if (maxSeqId != null) {
+                        eventPublisher.publishEvent(new CloudEventsPersistedEvent(maxSeqId));
+                    }
+                },
                 Comparator.comparing(CloudEventEntity::getTs)
         );
     }
@@ -182,6 +201,26 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
                                 DaoUtil.toPageable(pageLink, sortOrders)));
     }
 
+    @Override
+    public PageData<CloudEvent> findCloudEvents(UUID tenantId, CloudEventLane lane, Long seqIdStart, Long seqIdEnd, TimePageLink pageLink) {
+        log.trace("Executing findCloudEvents [{}], [{}], [{}], [{}], [{}]", tenantId, lane, seqIdStart, seqIdEnd, pageLink);
+        List<SortOrder> sortOrders = new ArrayList<>();
+        if (pageLink.getSortOrder() != null) {
+            sortOrders.add(pageLink.getSortOrder());
+        }
+        sortOrders.add(new SortOrder("seqId"));
+        return DaoUtil.toPageData(
+                cloudEventRepository
+                        .findEventsByTenantIdAndLane(
+                                tenantId,
+                                lane,
+                                pageLink.getStartTime(),
+                                pageLink.getEndTime(),
+                                seqIdStart,
+                                seqIdEnd,
+                                DaoUtil.toPageable(pageLink, sortOrders)));
+    }
+
     @Override
     public long countEventsByTenantIdAndEntityIdAndActionAndTypeAndStartTimeAndEndTime(UUID tenantId,
                                                                                        UUID entityId,
@@ -205,6 +244,11 @@ public class JpaBaseCloudEventDao extends JpaAbstractDao<CloudEventEntity, Cloud
         partitioningRepository.dropPartitionsBefore(TABLE_NAME, ttl, TimeUnit.HOURS.toMillis(partitionSizeInHours));
     }
 
+    @Override
+    public void cleanupAcknowledgedEvents(long seqIdOffset) {
+        // seqId of the table is cyclic, delivered events are removed along with the expired partitions
+    }
+
     @Override
     public void migrateCloudEvents() {
         long startTime = cloudEventsTtl > 0 ? System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(cloudEventsTtl) : 1629158400000L;
@@ -38,7 +38,9 @@ import org.thingsboard.server.dao.model.sql.EdgeEventEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractDao;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+import org.thingsboard.server.dao.sql.TbSqlQueueOverflowPolicy;
 import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
 
@@ -66,6 +68,8 @@ public class JpaBaseEdgeEventDao extends JpaAbstractDao<EdgeEventEntity, EdgeEve
 
     private final StatsFactory statsFactory;
 
+    private final TbSqlBlockingQueueSettings queueSettings;
+
     private final EdgeEventRepository edgeEventRepository;
 
     private final EdgeEventInsertRepository edgeEventInsertRepository;
@@ -112,6 +116,9 @@ public class JpaBaseEdgeEventDao extends JpaAbstractDao<EdgeEventEntity, EdgeEve
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("edge.events")
                 .batchSortEnabled(true)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(TbSqlQueueOverflowPolicy.BLOCK)
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
                 .build();
         Function<EdgeEventEntity, Integer> hashcodeFunction = entity -> {
             if (entity.getEntityId() != null) {
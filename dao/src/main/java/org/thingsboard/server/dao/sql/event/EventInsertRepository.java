@@ -18,6 +18,7 @@ package org.thingsboard.server.dao.sql.event;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.TransactionStatus;
@@ -31,6 +32,7 @@ import org.thingsboard.server.common.data.event.LifecycleEvent;
 import org.thingsboard.server.common.data.event.RuleChainDebugEvent;
 import org.thingsboard.server.common.data.event.RuleNodeDebugEvent;
 import org.thingsboard.server.common.data.event.StatisticsEvent;
+import org.thingsboard.server.dao.sql.PgCopyBatch;
 import org.thingsboard.server.dao.util.SqlDao;
 
 import javax.annotation.PostConstruct;
@@ -55,6 +57,9 @@ public class EventInsertRepository {
 
     private final Map<EventType, String> insertStmtMap = new ConcurrentHashMap<>();
 
+    // event tables have no unique constraints, so rows are copied directly to the tables
+    private final Map<EventType, String> copyStmtMap = new ConcurrentHashMap<>();
+
     @Autowired
     protected JdbcTemplate jdbcTemplate;
 
@@ -64,6 +69,9 @@ public class EventInsertRepository {
     @Value("${sql.remove_null_chars:true}")
     private boolean removeNullChars;
 
+    @Value("${sql.events.use_copy:false}")
+    private boolean useCopy;
+
     @PostConstruct
     public void init() {
         insertStmtMap.put(EventType.ERROR, "INSERT INTO " + EventType.ERROR.getTable() +
@@ -81,6 +89,18 @@ public class EventInsertRepository {
         insertStmtMap.put(EventType.DEBUG_RULE_CHAIN, "INSERT INTO " + EventType.DEBUG_RULE_CHAIN.getTable() +
                 " (id, tenant_id, ts, entity_id, service_id, e_message, e_error) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING;");
+
+        copyStmtMap.put(EventType.ERROR, "COPY " + EventType.ERROR.getTable() +
+                " (id, tenant_id, ts, entity_id, service_id, e_method, e_error)" + PgCopyBatch.FORMAT_BINARY);
+        copyStmtMap.put(EventType.LC_EVENT, "COPY " + EventType.LC_EVENT.getTable() +
+                " (id, tenant_id, ts, entity_id, service_id, e_type, e_success, e_error)" + PgCopyBatch.FORMAT_BINARY);
+        copyStmtMap.put(EventType.STATS, "COPY " + EventType.STATS.getTable() +
+                " (id, tenant_id, ts, entity_id, service_id, e_messages_processed, e_errors_occurred)" + PgCopyBatch.FORMAT_BINARY);
+        copyStmtMap.put(EventType.DEBUG_RULE_NODE, "COPY " + EventType.DEBUG_RULE_NODE.getTable() +
+                " (id, tenant_id, ts, entity_id, service_id, e_type, e_entity_id, e_entity_type, e_msg_id, e_msg_type, e_data_type, e_relation_type, e_data, e_metadata, e_error)" +
+                PgCopyBatch.FORMAT_BINARY);
+        copyStmtMap.put(EventType.DEBUG_RULE_CHAIN, "COPY " + EventType.DEBUG_RULE_CHAIN.getTable() +
+                " (id, tenant_id, ts, entity_id, service_id, e_message, e_error)" + PgCopyBatch.FORMAT_BINARY);
     }
 
     public void save(List<Event> entities) {
@@ -89,12 +109,78 @@ public class EventInsertRepository {
             @Override
             protected void doInTransactionWithoutResult(TransactionStatus status) {
                 for (var entry : eventsByType.entrySet()) {
-                    jdbcTemplate.batchUpdate(insertStmtMap.get(entry.getKey()), getStatementSetter(entry.getKey(), entry.getValue()));
+                    if (useCopy) {
+                        copy(entry.getKey(), entry.getValue());
+                    } else {
+                        jdbcTemplate.batchUpdate(insertStmtMap.get(entry.getKey()), getStatementSetter(entry.getKey(), entry.getValue()));
+                    }
                 }
             }
         });
     }
 
+    private void copy(EventType eventType, List<Event> events) {
+        PgCopyBatch batch = new PgCopyBatch(events.size());
+        for (Event event : events) {
+            addCopyRow(batch, eventType, event);
+        }
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> batch.copyIn(connection, copyStmtMap.get(eventType)));
+    }
+
+    private void addCopyRow(PgCopyBatch batch, EventType eventType, Event event) {
+        switch (eventType) {
+            case ERROR:
+                ErrorEvent errorEvent = (ErrorEvent) event;
+                addCommonEventFields(batch.startRow(7), event)
+                        .addString(replaceNullChars(errorEvent.getMethod()))
+                        .addString(replaceNullChars(errorEvent.getError()));
+                break;
+            case LC_EVENT:
+                LifecycleEvent lcEvent = (LifecycleEvent) event;
+                addCommonEventFields(batch.startRow(8), event)
+                        .addString(replaceNullChars(lcEvent.getLcEventType()))
+                        .addBoolean(lcEvent.isSuccess())
+                        .addString(replaceNullChars(lcEvent.getError()));
+                break;
+            case STATS:
+                StatisticsEvent statsEvent = (StatisticsEvent) event;
+                addCommonEventFields(batch.startRow(7), event)
+                        .addLong(statsEvent.getMessagesProcessed())
+                        .addLong(statsEvent.getErrorsOccurred());
+                break;
+            case DEBUG_RULE_NODE:
+                RuleNodeDebugEvent ruleNodeEvent = (RuleNodeDebugEvent) event;
+                addCommonEventFields(batch.startRow(15), event)
+                        .addString(replaceNullChars(ruleNodeEvent.getEventType()))
+                        .addUuid(ruleNodeEvent.getEventEntity() != null ? ruleNodeEvent.getEventEntity().getId() : null)
+                        .addString(ruleNodeEvent.getEventEntity() != null ? ruleNodeEvent.getEventEntity().getEntityType().name() : null)
+                        .addUuid(ruleNodeEvent.getMsgId())
+                        .addString(replaceNullChars(ruleNodeEvent.getMsgType()))
+                        .addString(replaceNullChars(ruleNodeEvent.getDataType()))
+                        .addString(replaceNullChars(ruleNodeEvent.getRelationType()))
+                        .addString(replaceNullChars(ruleNodeEvent.getData()))
+                        .addString(replaceNullChars(ruleNodeEvent.getMetadata()))
+                        .addString(replaceNullChars(ruleNodeEvent.getError()));
+                break;
+            case DEBUG_RULE_CHAIN:
+                RuleChainDebugEvent ruleChainEvent = (RuleChainDebugEvent) event;
+                addCommonEventFields(batch.startRow(7), event)
+                        .addString(replaceNullChars(ruleChainEvent.getMessage()))
+                        .addString(replaceNullChars(ruleChainEvent.getError()));
+                break;
+            default:
+                throw new RuntimeException(eventType + " support is not implemented!");
+        }
+    }
+
+    private PgCopyBatch addCommonEventFields(PgCopyBatch batch, Event event) {
+        return batch.addUuid(event.getId().getId())
+                .addUuid(event.getTenantId().getId())
+                .addLong(event.getCreatedTime())
+                .addUuid(event.getEntityId())
+                .addString(event.getServiceId());
+    }
+
     private BatchPreparedStatementSetter getStatementSetter(EventType eventType, List<Event> events) {
         switch (eventType) {
             case ERROR:
@@ -40,6 +40,7 @@ import org.thingsboard.server.dao.event.EventDao;
 import org.thingsboard.server.dao.model.sql.EventEntity;
 import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
@@ -95,6 +96,12 @@ public class JpaBaseEventDao implements EventDao {
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired
+    private TbSqlBlockingQueueSettings queueSettings;
+
+    @Value("${sql.events.flush_threads:1}")
+    private int flushThreads;
+
     @Value("${sql.events.batch_size:10000}")
     private int batchSize;
 
@@ -123,6 +130,10 @@ public class JpaBaseEventDao implements EventDao {
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("events")
                 .batchSortEnabled(batchSortEnabled)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(queueSettings.getOverflowPolicy())
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
+                .flushThreads(flushThreads)
                 .build();
         Function<Event, Integer> hashcodeFunction = entity -> Objects.hash(super.hashCode(), entity.getTenantId(), entity.getEntityId());
         queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, batchThreads, statsFactory);
@@ -33,6 +33,7 @@ import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
 import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
@@ -61,6 +62,9 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired
+    private TbSqlBlockingQueueSettings queueSettings;
+
     @PostConstruct
     protected void init() {
         TbSqlBlockingQueueParams tsParams = TbSqlBlockingQueueParams.builder()
@@ -70,6 +74,10 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts")
                 .batchSortEnabled(batchSortEnabled)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(queueSettings.getOverflowPolicy())
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
+                .flushThreads(tsFlushThreads)
                 .build();
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
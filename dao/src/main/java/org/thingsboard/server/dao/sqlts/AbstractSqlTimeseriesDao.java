@@ -60,6 +60,9 @@ public abstract class AbstractSqlTimeseriesDao extends BaseAbstractSqlTimeseries
     @Value("${sql.ts.batch_threads:4}")
     protected int tsBatchThreads;
 
+    @Value("${sql.ts.flush_threads:1}")
+    protected int tsFlushThreads;
+
     @Value("${sql.timescale.batch_threads:4}")
     protected int timescaleBatchThreads;
 
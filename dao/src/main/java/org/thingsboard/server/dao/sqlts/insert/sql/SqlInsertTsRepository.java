@@ -15,16 +15,22 @@
  */
 package org.thingsboard.server.dao.sqlts.insert.sql;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sql.PgCopyBatch;
 import org.thingsboard.server.dao.sqlts.insert.AbstractInsertRepository;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
 import org.thingsboard.server.dao.util.SqlTsDao;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.List;
 
@@ -36,8 +42,28 @@ public class SqlInsertTsRepository extends AbstractInsertRepository implements I
     private static final String INSERT_ON_CONFLICT_DO_UPDATE = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) VALUES (?, ?, ?, ?, ?, ?, ?, cast(? AS json)) " +
             "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = ?, str_v = ?, long_v = ?, dbl_v = ?, json_v = cast(? AS json);";
 
+    // temporary table is not written to WAL and is truncated once the batch transaction is committed
+    private static final String CREATE_COPY_TABLE = "CREATE TEMP TABLE IF NOT EXISTS ts_kv_copy (entity_id uuid, key int, ts bigint, " +
+            "bool_v boolean, str_v varchar, long_v bigint, dbl_v double precision, json_v json, seq int) ON COMMIT DELETE ROWS;";
+
+    private static final String COPY = "COPY ts_kv_copy (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v, seq)" + PgCopyBatch.FORMAT_BINARY;
+
+    // the latest value of the same key and ts within the batch wins, same as with the sequential inserts
+    private static final String MERGE_COPY_TABLE = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) " +
+            "SELECT DISTINCT ON (entity_id, key, ts) entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v FROM ts_kv_copy " +
+            "ORDER BY entity_id, key, ts, seq DESC " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = excluded.bool_v, str_v = excluded.str_v, " +
+            "long_v = excluded.long_v, dbl_v = excluded.dbl_v, json_v = excluded.json_v;";
+
+    @Value("${sql.ts.use_copy:false}")
+    private boolean useCopy;
+
     @Override
     public void saveOrUpdate(List<TsKvEntity> entities) {
+        if (useCopy) {
+            saveOrUpdateWithCopy(entities);
+            return;
+        }
         jdbcTemplate.batchUpdate(INSERT_ON_CONFLICT_DO_UPDATE, new BatchPreparedStatementSetter() {
             @Override
             public void setValues(PreparedStatement ps, int i) throws SQLException {
@@ -85,4 +111,34 @@ public class SqlInsertTsRepository extends AbstractInsertRepository implements I
         });
     }
 
+    private void saveOrUpdateWithCopy(List<TsKvEntity> entities) {
+        PgCopyBatch batch = new PgCopyBatch(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            TsKvEntity tsKvEntity = entities.get(i);
+            batch.startRow(9)
+                    .addUuid(tsKvEntity.getEntityId())
+                    .addInt(tsKvEntity.getKey())
+                    .addLong(tsKvEntity.getTs())
+                    .addBoolean(tsKvEntity.getBooleanValue())
+                    .addString(replaceNullChars(tsKvEntity.getStrValue()))
+                    .addLong(tsKvEntity.getLongValue())
+                    .addDouble(tsKvEntity.getDoubleValue())
+                    .addString(replaceNullChars(tsKvEntity.getJsonValue()))
+                    .addInt(i);
+        }
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(CREATE_COPY_TABLE);
+                        batch.copyIn(connection, COPY);
+                        statement.execute(MERGE_COPY_TABLE);
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
 }
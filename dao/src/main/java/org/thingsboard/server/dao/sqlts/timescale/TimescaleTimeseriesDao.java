@@ -36,6 +36,7 @@ import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
 import org.thingsboard.server.dao.model.sqlts.timescale.ts.TimescaleTsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueSettings;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.AbstractSqlTimeseriesDao;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
@@ -66,6 +67,9 @@ public class TimescaleTimeseriesDao extends AbstractSqlTimeseriesDao implements
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired
+    private TbSqlBlockingQueueSettings queueSettings;
+
     @Autowired
     protected InsertTsRepository<TimescaleTsKvEntity> insertRepository;
 
@@ -80,6 +84,10 @@ public class TimescaleTimeseriesDao extends AbstractSqlTimeseriesDao implements
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts.timescale")
                 .batchSortEnabled(batchSortEnabled)
+                .maxQueueSize(queueSettings.getMaxQueueSize())
+                .overflowPolicy(queueSettings.getOverflowPolicy())
+                .overflowTimeoutMs(queueSettings.getOverflowTimeoutMs())
+                .flushThreads(tsFlushThreads)
                 .build();
 
         Function<TimescaleTsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
@@ -67,6 +67,8 @@ CREATE INDEX IF NOT EXISTS idx_edge_event_tenant_id_and_created_time ON edge_eve
 
 CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_and_created_time ON cloud_event(tenant_id, created_time DESC);
 
+CREATE INDEX IF NOT EXISTS idx_cloud_event_tenant_id_and_lane_and_seq_id ON cloud_event(tenant_id, cloud_event_lane, seq_id);
+
 CREATE INDEX IF NOT EXISTS idx_edge_event_id ON edge_event(id);
 
 CREATE INDEX IF NOT EXISTS idx_rpc_tenant_id_device_id ON rpc(tenant_id, device_id);
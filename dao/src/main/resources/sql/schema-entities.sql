@@ -768,7 +768,8 @@ CREATE TABLE IF NOT EXISTS cloud_event (
     cloud_event_action varchar(255),
     entity_body varchar(10000000),
     tenant_id uuid,
-    ts bigint NOT NULL
+    ts bigint NOT NULL,
+    cloud_event_lane varchar(255)
 ) PARTITION BY RANGE(created_time);
 
 ALTER TABLE IF EXISTS cloud_event ALTER COLUMN seq_id SET CYCLE;
@@ -0,0 +1,228 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.cloud.log;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.cloud.CloudEvent;
+import org.thingsboard.server.common.data.cloud.CloudEventLane;
+import org.thingsboard.server.common.data.cloud.CloudEventType;
+import org.thingsboard.server.common.data.edge.EdgeEventActionType;
+import org.thingsboard.server.common.data.id.CloudEventId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.SortOrder;
+import org.thingsboard.server.common.data.page.TimePageLink;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CloudEventSegmentLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final UUID entityId = UUID.randomUUID();
+    private Path dir;
+    private CloudEventSegmentLog log;
+
+    @Before
+    public void before() throws IOException {
+        dir = folder.getRoot().toPath();
+        log = new CloudEventSegmentLog(dir, SEGMENT_SIZE);
+        log.open();
+    }
+
+    @Test
+    public void testEventsAreReadAfterOffset() throws IOException {
+        Assert.assertEquals(100, log.append(events(100, 1000L)));
+        Assert.assertTrue(log.getSegmentsCount() > 1);
+
+        PageData<CloudEvent> page = log.find(tenantId, null, 40L, null, new TimePageLink(10));
+        Assert.assertEquals(10, page.getData().size());
+        Assert.assertEquals(41, page.getData().get(0).getSeqId());
+        Assert.assertEquals(60, page.getTotalElements());
+        Assert.assertTrue(page.hasNext());
+
+        CloudEvent event = page.getData().get(0);
+        Assert.assertEquals(tenantId, event.getTenantId().getId());
+        Assert.assertEquals(entityId, event.getEntityId());
+        Assert.assertEquals(CloudEventType.DEVICE, event.getType());
+        Assert.assertEquals(EdgeEventActionType.UPDATED, event.getAction());
+        Assert.assertEquals(1040L, event.getCreatedTime());
+        Assert.assertEquals(40, event.getEntityBody().get("index").asInt());
+
+        page = log.find(tenantId, null, 90L, null, new TimePageLink(10));
+        Assert.assertEquals(10, page.getData().size());
+        Assert.assertFalse(page.hasNext());
+
+        page = log.find(tenantId, null, 0L, 5L, new TimePageLink(10));
+        Assert.assertEquals(4, page.getData().size());
+    }
+
+    @Test
+    public void testEventsAreFilteredByLaneAndTime() throws IOException {
+        List<CloudEvent> events = events(50, 1000L);
+        events.get(10).setAction(EdgeEventActionType.TIMESERIES_UPDATED);
+        events.get(30).setAction(EdgeEventActionType.ATTRIBUTES_UPDATED);
+        log.append(events);
+
+        PageData<CloudEvent> page = log.find(tenantId, CloudEventLane.TELEMETRY, 0L, null, new TimePageLink(10));
+        Assert.assertEquals(2, page.getData().size());
+        Assert.assertEquals(11, page.getData().get(0).getSeqId());
+        Assert.assertEquals(31, page.getData().get(1).getSeqId());
+
+        page = log.find(tenantId, null, 0L, null, new TimePageLink(100, 0, null, null, 1020L, 1029L));
+        Assert.assertEquals(10, page.getData().size());
+        Assert.assertEquals(21, page.getData().get(0).getSeqId());
+
+        page = log.find(tenantId, null, 0L, null, new TimePageLink(5, 0, null, new SortOrder("createdTime", SortOrder.Direction.DESC)));
+        Assert.assertEquals(50, page.getData().get(0).getSeqId());
+
+        Assert.assertTrue(log.find(UUID.randomUUID(), null, 0L, null, new TimePageLink(10)).getData().isEmpty());
+        Assert.assertEquals(50, log.count(tenantId, entityId, CloudEventType.DEVICE, EdgeEventActionType.UPDATED, 999L, 2000L)
+                + log.count(tenantId, entityId, CloudEventType.DEVICE, EdgeEventActionType.TIMESERIES_UPDATED, 999L, 2000L)
+                + log.count(tenantId, entityId, CloudEventType.DEVICE, EdgeEventActionType.ATTRIBUTES_UPDATED, 999L, 2000L));
+    }
+
+    @Test
+    public void testAcknowledgedSegmentsAreRemoved() throws IOException {
+        log.append(events(100, 1000L));
+        int segments = log.getSegmentsCount();
+
+        Assert.assertTrue(log.removeUpTo(50) > 0);
+        Assert.assertTrue(log.getSegmentsCount() < segments);
+        PageData<CloudEvent> page = log.find(tenantId, null, 50L, null, new TimePageLink(100));
+        Assert.assertEquals(50, page.getData().size());
+        Assert.assertEquals(51, page.getData().get(0).getSeqId());
+
+        log.removeUpTo(100);
+        Assert.assertEquals(1, log.getSegmentsCount());
+        Assert.assertEquals(101, log.append(events(1, 2000L)));
+    }
+
+    @Test
+    public void testSegmentsAreRemovedWhileRead() throws Exception {
+        log.append(events(100, 1000L));
+        AtomicBoolean stopped = new AtomicBoolean();
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(readers.submit(() -> {
+                    while (!stopped.get()) {
+                        for (CloudEvent event : log.find(tenantId, null, 0L, null, new TimePageLink(100)).getData()) {
+                            Assert.assertNotNull(event.getEntityBody().get("index"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 1; i <= 50; i++) {
+                log.append(events(10, 2000L));
+                log.removeUpTo(i * 10L);
+            }
+            stopped.set(true);
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            stopped.set(true);
+            readers.shutdownNow();
+        }
+        Assert.assertEquals(100, log.find(tenantId, null, 500L, null, new TimePageLink(200)).getTotalElements());
+    }
+
+    @Test
+    public void testLogIsRestoredAfterReopen() throws IOException {
+        log.append(events(30, 1000L));
+        log.close();
+
+        CloudEventSegmentLog reopened = new CloudEventSegmentLog(dir, SEGMENT_SIZE);
+        reopened.open();
+        Assert.assertEquals(30, reopened.find(tenantId, null, 0L, null, new TimePageLink(100)).getTotalElements());
+        Assert.assertEquals(31, reopened.append(events(1, 2000L)));
+    }
+
+    @Test
+    public void testRemovedEventsAreSkipped() throws IOException {
+        List<CloudEvent> events = events(100, 1000L);
+        log.append(events);
+        UUID removedId = events.get(49).getUuidId();
+
+        Assert.assertEquals(2, log.remove(List.of(events.get(4).getUuidId(), removedId, UUID.randomUUID())));
+        Assert.assertEquals(0, log.remove(List.of(removedId)));
+
+        PageData<CloudEvent> page = log.find(tenantId, null, 0L, null, new TimePageLink(10, 5));
+        Assert.assertEquals(98, page.getTotalElements());
+        Assert.assertEquals(53, page.getData().get(0).getSeqId());
+        Assert.assertNull(log.findById(removedId));
+        Assert.assertEquals(events.get(50).getUuidId(), log.findById(events.get(50).getUuidId()).getUuidId());
+        Assert.assertEquals(98, log.count(tenantId, entityId, CloudEventType.DEVICE, EdgeEventActionType.UPDATED, 999L, 2000L));
+
+        log.close();
+        CloudEventSegmentLog reopened = new CloudEventSegmentLog(dir, SEGMENT_SIZE);
+        reopened.open();
+        Assert.assertEquals(98, reopened.find(tenantId, null, 0L, null, new TimePageLink(100)).getTotalElements());
+        Assert.assertNull(reopened.findById(removedId));
+        Assert.assertEquals(101, reopened.append(events(1, 2000L)));
+    }
+
+    @Test
+    public void testEventBiggerThanSegmentIsAppended() throws IOException {
+        CloudEvent event = event(0, 1000L);
+        event.setEntityBody(JacksonUtil.newObjectNode().put("value", "a".repeat(SEGMENT_SIZE * 2)));
+        log.append(List.of(event(1, 1000L), event, event(2, 1000L)));
+
+        PageData<CloudEvent> page = log.find(tenantId, null, 0L, null, new TimePageLink(10));
+        Assert.assertEquals(3, page.getData().size());
+        Assert.assertEquals(SEGMENT_SIZE * 2, page.getData().get(1).getEntityBody().get("value").asText().length());
+    }
+
+    private List<CloudEvent> events(int count, long createdTime) {
+        List<CloudEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(event(i, createdTime + i));
+        }
+        return events;
+    }
+
+    private CloudEvent event(int index, long createdTime) {
+        CloudEvent event = new CloudEvent(new CloudEventId(UUID.randomUUID()));
+        event.setCreatedTime(createdTime);
+        event.setTenantId(TenantId.fromUUID(tenantId));
+        event.setEntityId(entityId);
+        event.setType(CloudEventType.DEVICE);
+        event.setAction(EdgeEventActionType.UPDATED);
+        event.setEntityBody(JacksonUtil.newObjectNode().put("index", index));
+        return event;
+    }
+}
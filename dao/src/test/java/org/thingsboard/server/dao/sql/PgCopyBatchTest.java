@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+public class PgCopyBatchTest {
+
+    private static final byte[] SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    public void testRowsAreEncodedInBinaryCopyFormat() {
+        UUID uuid = UUID.randomUUID();
+        PgCopyBatch batch = new PgCopyBatch(1);
+        batch.startRow(6)
+                .addUuid(uuid)
+                .addInt(7)
+                .addLong(42L)
+                .addBoolean(true)
+                .addString("ü")
+                .addDouble(null);
+
+        ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+        byte[] signature = new byte[SIGNATURE.length];
+        buf.get(signature);
+        Assert.assertArrayEquals(SIGNATURE, signature);
+        Assert.assertEquals(0, buf.getInt());
+        Assert.assertEquals(0, buf.getInt());
+
+        Assert.assertEquals(6, buf.getShort());
+        Assert.assertEquals(16, buf.getInt());
+        Assert.assertEquals(uuid, new UUID(buf.getLong(), buf.getLong()));
+        Assert.assertEquals(4, buf.getInt());
+        Assert.assertEquals(7, buf.getInt());
+        Assert.assertEquals(8, buf.getInt());
+        Assert.assertEquals(42L, buf.getLong());
+        Assert.assertEquals(1, buf.getInt());
+        Assert.assertEquals(1, buf.get());
+        Assert.assertEquals(2, buf.getInt());
+        byte[] text = new byte[2];
+        buf.get(text);
+        Assert.assertEquals("ü", new String(text, StandardCharsets.UTF_8));
+        Assert.assertEquals(-1, buf.getInt());
+
+        Assert.assertEquals(-1, buf.getShort());
+        Assert.assertFalse(buf.hasRemaining());
+        Assert.assertEquals(1, batch.getRowsCount());
+    }
+
+    @Test
+    public void testTrailerIsWrittenOnce() {
+        PgCopyBatch batch = new PgCopyBatch(0);
+        byte[] first = batch.toByteArray();
+        Assert.assertTrue(Arrays.equals(first, batch.toByteArray()));
+        Assert.assertEquals(SIGNATURE.length + 2 * Integer.BYTES + Short.BYTES, first.length);
+        Assert.assertThrows(IllegalStateException.class, () -> batch.startRow(1));
+    }
+}
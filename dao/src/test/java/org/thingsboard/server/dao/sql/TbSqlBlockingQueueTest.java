@@ -0,0 +1,224 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.MessagesStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class TbSqlBlockingQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DefaultCounter rejectedStats = new DefaultCounter(new AtomicInteger(), meterRegistry.counter("rejected"));
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final CountDownLatch saveLatch = new CountDownLatch(1);
+    private TbSqlBlockingQueue<Integer> queue;
+
+    @After
+    public void tearDown() {
+        saveLatch.countDown();
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    @Test
+    public void testElementIsRejectedWhenQueueIsFull() throws Exception {
+        queue = createQueue(TbSqlQueueOverflowPolicy.REJECT, 1, batch -> awaitSaveLatch());
+        queue.add(1);
+        // wait for the first element to be taken by the flush thread, so the next one fills the queue
+        awaitQueueSize(0);
+        ListenableFuture<Void> queued = queue.add(2);
+        ListenableFuture<Void> rejected = queue.add(3);
+
+        Assert.assertFalse(queued.isDone());
+        assertRejected(rejected);
+        Assert.assertEquals(1, rejectedStats.get());
+        Assert.assertEquals(1, queueSize.get());
+    }
+
+    @Test
+    public void testElementIsRejectedAfterBlockTimeout() throws Exception {
+        queue = createQueue(TbSqlQueueOverflowPolicy.BLOCK, 1, batch -> awaitSaveLatch());
+        queue.add(1);
+        awaitQueueSize(0);
+        queue.add(2);
+        long startTs = System.currentTimeMillis();
+        assertRejected(queue.add(3));
+        Assert.assertTrue(System.currentTimeMillis() - startTs >= 100);
+    }
+
+    @Test
+    public void testFullQueueNeverSavesInCallerThread() throws Exception {
+        for (TbSqlQueueOverflowPolicy policy : TbSqlQueueOverflowPolicy.values()) {
+            Set<Thread> saveThreads = ConcurrentHashMap.newKeySet();
+            queue = createQueue(policy, 1, batch -> {
+                saveThreads.add(Thread.currentThread());
+                awaitSaveLatch();
+            });
+            queue.add(1);
+            awaitQueueSize(0);
+            queue.add(2);
+            assertRejected(queue.add(3));
+            Assert.assertFalse(saveThreads.contains(Thread.currentThread()));
+            queue.destroy();
+        }
+    }
+
+    @Test
+    public void testPendingFuturesFailOnDestroy() throws Exception {
+        queue = createQueue(TbSqlQueueOverflowPolicy.BLOCK, 10, batch -> awaitSaveLatch());
+        ListenableFuture<Void> saving = queue.add(1);
+        awaitQueueSize(0);
+        ListenableFuture<Void> queued = queue.add(2);
+
+        queue.destroy();
+
+        assertFailed(saving);
+        assertRejected(queued);
+        assertRejected(queue.add(3));
+        Assert.assertEquals(0, queueSize.get());
+    }
+
+    @Test
+    public void testPendingFlushFuturesFailOnDestroy() throws Exception {
+        CountDownLatch flushStarted = new CountDownLatch(2);
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(1)
+                .maxDelay(10)
+                .statsPrintIntervalMs(10000)
+                .flushThreads(2)
+                .build();
+        queue = createQueue(params, batch -> {
+            flushStarted.countDown();
+            awaitSaveLatch();
+        });
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        futures.add(queue.add(1));
+        futures.add(queue.add(2));
+        Assert.assertTrue(flushStarted.await(1, TimeUnit.SECONDS));
+        // the third element waits for a free flush thread, the fourth one stays in the queue
+        futures.add(queue.add(3));
+        futures.add(queue.add(4));
+        awaitQueueSize(1);
+
+        queue.destroy();
+
+        for (ListenableFuture<Void> future : futures) {
+            assertFailed(future);
+        }
+    }
+
+    @Test
+    public void testBatchesAreSavedConcurrently() throws Exception {
+        CountDownLatch concurrentSaves = new CountDownLatch(2);
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(1)
+                .maxDelay(10)
+                .statsPrintIntervalMs(10000)
+                .flushThreads(2)
+                .build();
+        queue = createQueue(params, batch -> {
+            concurrentSaves.countDown();
+            try {
+                concurrentSaves.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        ListenableFuture<Void> first = queue.add(1);
+        ListenableFuture<Void> second = queue.add(2);
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(0, concurrentSaves.getCount());
+    }
+
+    private TbSqlBlockingQueue<Integer> createQueue(TbSqlQueueOverflowPolicy policy, int maxQueueSize, Consumer<List<Integer>> saveFunction) {
+        return createQueue(params(policy, maxQueueSize), saveFunction);
+    }
+
+    private TbSqlBlockingQueue<Integer> createQueue(TbSqlBlockingQueueParams params, Consumer<List<Integer>> saveFunction) {
+        TbSqlBlockingQueue<Integer> queue = new TbSqlBlockingQueue<>(params, Mockito.mock(MessagesStats.class), rejectedStats,
+                meterRegistry.timer("batchLatency"), queueSize);
+        queue.init(Mockito.mock(ScheduledLogExecutorComponent.class), saveFunction, Comparator.naturalOrder(), 0);
+        return queue;
+    }
+
+    private TbSqlBlockingQueueParams params(TbSqlQueueOverflowPolicy policy, int maxQueueSize) {
+        return TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(10)
+                .maxDelay(10)
+                .statsPrintIntervalMs(10000)
+                .maxQueueSize(maxQueueSize)
+                .overflowPolicy(policy)
+                .overflowTimeoutMs(100)
+                .build();
+    }
+
+    private void awaitSaveLatch() {
+        try {
+            saveLatch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void awaitQueueSize(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (queueSize.get() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, queueSize.get());
+    }
+
+    private void assertFailed(ListenableFuture<Void> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assert.fail("Future must fail");
+        } catch (ExecutionException e) {
+            Assert.assertNotNull(e.getCause());
+        }
+    }
+
+    private void assertRejected(ListenableFuture<Void> future) throws InterruptedException {
+        try {
+            future.get();
+            Assert.fail("Future must fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
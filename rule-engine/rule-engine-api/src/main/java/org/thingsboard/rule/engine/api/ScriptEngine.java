@@ -21,6 +21,7 @@ import org.thingsboard.server.common.msg.TbMsg;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public interface ScriptEngine {
 
@@ -36,6 +37,23 @@ public interface ScriptEngine {
 
     ListenableFuture<String> executeToStringAsync(TbMsg msg);
 
+    /**
+     * Executes the script for the pack of messages. The implementations may execute the whole pack as one task.
+     *
+     * @return the results in the order of the messages
+     */
+    default List<ListenableFuture<List<TbMsg>>> executeUpdateAsync(List<TbMsg> msgs) {
+        return msgs.stream().map(this::executeUpdateAsync).collect(Collectors.toList());
+    }
+
+    default List<ListenableFuture<Boolean>> executeFilterAsync(List<TbMsg> msgs) {
+        return msgs.stream().map(this::executeFilterAsync).collect(Collectors.toList());
+    }
+
+    default List<ListenableFuture<Set<String>>> executeSwitchAsync(List<TbMsg> msgs) {
+        return msgs.stream().map(this::executeSwitchAsync).collect(Collectors.toList());
+    }
+
     void destroy();
 
 }
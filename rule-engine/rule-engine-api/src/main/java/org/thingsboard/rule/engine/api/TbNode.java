@@ -20,7 +20,9 @@ import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Created by ashvayka on 19.01.18.
@@ -31,6 +33,26 @@ public interface TbNode {
 
     void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException;
 
+    /**
+     * Indicates whether the messages delivered to the node during one round of the rule node actor mailbox
+     * should be processed as a pack using {@link #onMsgs(TbContext, List, Consumer)} instead of {@link #onMsg(TbContext, TbMsg)}.
+     */
+    default boolean isMsgPackSupported() {
+        return false;
+    }
+
+    /**
+     * Processes the pack of messages. The node reports each message it took responsibility for via {@code dispatched},
+     * i.e. the message is already passed to the next nodes or will be passed by an asynchronous callback.
+     * If the method throws an exception, only the messages that were not reported as dispatched are failed.
+     */
+    default void onMsgs(TbContext ctx, List<TbMsg> msgs, Consumer<TbMsg> dispatched) throws ExecutionException, InterruptedException, TbNodeException {
+        for (TbMsg msg : msgs) {
+            onMsg(ctx, msg);
+            dispatched.accept(msg);
+        }
+    }
+
     default void destroy() {
     }
 
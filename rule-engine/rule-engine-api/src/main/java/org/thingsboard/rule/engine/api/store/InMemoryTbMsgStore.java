@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.api.store;
+
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class InMemoryTbMsgStore implements TbMsgStore {
+
+    private final Map<String, List<TbMsg>> msgs = new HashMap<>();
+    private int size;
+
+    @Override
+    public synchronized void put(String key, TbMsg msg) {
+        msgs.computeIfAbsent(key, k -> new ArrayList<>()).add(msg);
+        size++;
+    }
+
+    @Override
+    public synchronized List<TbMsg> get(String key) {
+        List<TbMsg> keyMsgs = msgs.get(key);
+        return keyMsgs != null ? new ArrayList<>(keyMsgs) : Collections.emptyList();
+    }
+
+    @Override
+    public synchronized List<TbMsg> remove(String key) {
+        List<TbMsg> keyMsgs = msgs.remove(key);
+        if (keyMsgs == null) {
+            return Collections.emptyList();
+        }
+        size -= keyMsgs.size();
+        return keyMsgs;
+    }
+
+    @Override
+    public synchronized void replace(String key, List<TbMsg> newMsgs) {
+        remove(key);
+        if (!newMsgs.isEmpty()) {
+            msgs.put(key, new ArrayList<>(newMsgs));
+            size += newMsgs.size();
+        }
+    }
+
+    @Override
+    public synchronized int size(String key) {
+        List<TbMsg> keyMsgs = msgs.get(key);
+        return keyMsgs != null ? keyMsgs.size() : 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized Set<String> getKeys() {
+        return new HashSet<>(msgs.keySet());
+    }
+
+    @Override
+    public synchronized void clear() {
+        msgs.clear();
+        size = 0;
+    }
+
+}
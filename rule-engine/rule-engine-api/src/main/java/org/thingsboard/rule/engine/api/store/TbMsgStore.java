@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.api.store;
+
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyed buffer of the messages that are held by the rule node between invocations,
+ * e.g. pending messages of the deduplication or delay nodes.
+ * <p>
+ * Depending on the configuration, content of the store is kept either in memory or on disk. Disk based store keeps
+ * only the index and a bounded part of the messages in memory and survives restart and update of the rule node.
+ * Messages are returned in the order they were added. Implementations are thread-safe.
+ */
+public interface TbMsgStore {
+
+    void put(String key, TbMsg msg);
+
+    List<TbMsg> get(String key);
+
+    List<TbMsg> remove(String key);
+
+    /**
+     * Replaces all messages of the key. Empty list removes the key.
+     */
+    void replace(String key, List<TbMsg> msgs);
+
+    int size(String key);
+
+    int size();
+
+    Set<String> getKeys();
+
+    void clear();
+
+}
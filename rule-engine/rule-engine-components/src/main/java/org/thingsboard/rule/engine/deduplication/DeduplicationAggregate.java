@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.deduplication;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.msg.TbMsg;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Deduplication state of a single originator that is updated on arrival of every message,
+ * so the memory footprint does not depend on the number of messages within the deduplication interval.
+ */
+@Slf4j
+class DeduplicationAggregate {
+
+    @Getter
+    private final long packEndTs;
+    @Getter
+    private TbMsg retainedMsg;
+    private final Map<String, NumericStats> stats = new LinkedHashMap<>();
+
+    DeduplicationAggregate(long packEndTs) {
+        this.packEndTs = packEndTs;
+    }
+
+    void add(TbMsg msg, DeduplicationStrategy strategy) {
+        switch (strategy) {
+            case FIRST:
+                if (retainedMsg == null || msg.getMetaDataTs() < retainedMsg.getMetaDataTs()) {
+                    retainedMsg = msg;
+                }
+                break;
+            case LAST:
+                if (retainedMsg == null || msg.getMetaDataTs() > retainedMsg.getMetaDataTs()) {
+                    retainedMsg = msg;
+                }
+                break;
+            case AGGREGATE:
+                addNumericValues(msg.getData());
+                break;
+            default:
+                throw new IllegalArgumentException("Strategy " + strategy + " does not support streaming deduplication");
+        }
+    }
+
+    /**
+     * Returns min, max, avg, sum and count of every numeric top-level field of the aggregated messages.
+     */
+    ObjectNode toJson() {
+        ObjectNode result = JacksonUtil.newObjectNode();
+        stats.forEach((key, keyStats) -> {
+            ObjectNode keyNode = result.putObject(key);
+            keyNode.put("min", keyStats.min);
+            keyNode.put("max", keyStats.max);
+            keyNode.put("avg", keyStats.sum / keyStats.count);
+            keyNode.put("sum", keyStats.sum);
+            keyNode.put("count", keyStats.count);
+        });
+        return result;
+    }
+
+    private void addNumericValues(String data) {
+        try (JsonParser parser = JacksonUtil.OBJECT_MAPPER.getFactory().createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                    stats.computeIfAbsent(key, k -> new NumericStats()).add(parser.getDoubleValue());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Failed to parse msg data: [{}]", data, e);
+        }
+    }
+
+    private static class NumericStats {
+        private double min = Double.MAX_VALUE;
+        private double max = -Double.MAX_VALUE;
+        private double sum;
+        private long count;
+
+        private void add(double value) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+        }
+    }
+
+}
@@ -17,6 +17,6 @@ package org.thingsboard.rule.engine.deduplication;
 
 public enum DeduplicationStrategy {
 
-    FIRST, LAST, ALL
+    FIRST, LAST, ALL, AGGREGATE
 
 }
@@ -24,8 +24,11 @@ import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.rule.engine.api.store.InMemoryTbMsgStore;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
 import org.thingsboard.server.common.data.plugin.ComponentType;
@@ -36,10 +39,14 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -53,7 +60,10 @@ import java.util.concurrent.TimeUnit;
                 "<b>FIRST</b> - return first message that arrived during deduplication period.<br></br>" +
                 "<b>LAST</b> - return last message that arrived during deduplication period.<br></br>" +
                 "<b>ALL</b> - return all messages as a single JSON array message. " +
-                "Where each element represents object with <b>msg</b> and <b>metadata</b> inner properties.<br></br>",
+                "Where each element represents object with <b>msg</b> and <b>metadata</b> inner properties.<br></br>" +
+                "<b>AGGREGATE</b> - return min, max, avg, sum and count of every numeric field of the messages as a single JSON object message. " +
+                "Aggregates are updated on arrival of every message, so the messages are not kept until the end of deduplication period.<br></br>" +
+                "<b>FIRST</b> and <b>LAST</b> strategies keep only the retained message in the <b>streaming</b> mode.<br></br>",
         icon = "content_copy",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbActionNodeMsgDeduplicationConfig"
@@ -65,23 +75,39 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     private TbMsgDeduplicationNodeConfiguration config;
 
-    private final Map<EntityId, DeduplicationData> deduplicationMap;
+    private final Set<EntityId> tickScheduled;
+    private final Map<EntityId, DeduplicationAggregate> aggregates;
+    private TbMsgStore msgStore;
     private long deduplicationInterval;
+    private boolean streaming;
 
     public TbMsgDeduplicationNode() {
-        this.deduplicationMap = new HashMap<>();
+        this.tickScheduled = new HashSet<>();
+        this.aggregates = new HashMap<>();
     }
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbMsgDeduplicationNodeConfiguration.class);
         this.deduplicationInterval = TimeUnit.SECONDS.toMillis(config.getInterval());
+        this.streaming = DeduplicationStrategy.AGGREGATE.equals(config.getStrategy())
+                || (config.isStreaming() && !DeduplicationStrategy.ALL.equals(config.getStrategy()));
+        this.msgStore = Optional.ofNullable(ctx.getMsgStore()).orElseGet(InMemoryTbMsgStore::new);
+        for (String key : msgStore.getKeys()) {
+            EntityId deduplicationId = toDeduplicationId(key);
+            log.trace("[{}][{}] Restored {} pending msgs", ctx.getSelfId(), deduplicationId, msgStore.size(key));
+            scheduleTickMsgIfNeeded(ctx, deduplicationId);
+        }
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
         if (msg.isTypeOf(TbMsgType.DEDUPLICATION_TIMEOUT_SELF_MSG)) {
+            tickScheduled.remove(msg.getOriginator());
             processDeduplication(ctx, msg.getOriginator());
+            processAggregate(ctx, msg.getOriginator());
+        } else if (streaming) {
+            processOnRegularMsgStreaming(ctx, msg);
         } else {
             processOnRegularMsg(ctx, msg);
         }
@@ -89,17 +115,69 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     @Override
     public void destroy() {
-        deduplicationMap.clear();
+        tickScheduled.clear();
+        aggregates.clear();
+    }
+
+    private void processOnRegularMsgStreaming(TbContext ctx, TbMsg msg) {
+        EntityId id = msg.getOriginator();
+        long msgTs = msg.getMetaDataTs();
+        DeduplicationAggregate aggregate = aggregates.get(id);
+        if (aggregate != null && msgTs >= aggregate.getPackEndTs()) {
+            aggregates.remove(id);
+            enqueueForTellNextWithRetry(ctx, toResultMsg(id, aggregate), 0);
+            aggregate = null;
+        }
+        if (aggregate == null) {
+            aggregate = new DeduplicationAggregate(msgTs + deduplicationInterval);
+            aggregates.put(id, aggregate);
+        }
+        log.trace("[{}][{}] Adding msg: [{}][{}] to the aggregate ...", ctx.getSelfId(), id, msg.getId(), msgTs);
+        aggregate.add(msg, config.getStrategy());
+        ctx.ack(msg);
+        scheduleTickMsgIfNeeded(ctx, id);
+    }
+
+    private void processAggregate(TbContext ctx, EntityId deduplicationId) {
+        DeduplicationAggregate aggregate = aggregates.get(deduplicationId);
+        if (aggregate == null) {
+            return;
+        }
+        if (aggregate.getPackEndTs() <= System.currentTimeMillis()) {
+            aggregates.remove(deduplicationId);
+            enqueueForTellNextWithRetry(ctx, toResultMsg(deduplicationId, aggregate), 0);
+        } else {
+            scheduleTickMsgIfNeeded(ctx, deduplicationId);
+        }
+    }
+
+    private TbMsg toResultMsg(EntityId deduplicationId, DeduplicationAggregate aggregate) {
+        if (DeduplicationStrategy.AGGREGATE.equals(config.getStrategy())) {
+            return TbMsg.newMsg(
+                    config.getQueueName(),
+                    config.getOutMsgType(),
+                    deduplicationId,
+                    getMetadata(),
+                    JacksonUtil.toString(aggregate.toJson()));
+        }
+        TbMsg resultMsg = aggregate.getRetainedMsg();
+        return TbMsg.newMsg(
+                resultMsg.getQueueName(),
+                resultMsg.getType(),
+                resultMsg.getOriginator(),
+                resultMsg.getCustomerId(),
+                resultMsg.getMetaData(),
+                resultMsg.getData());
     }
 
     private void processOnRegularMsg(TbContext ctx, TbMsg msg) {
         EntityId id = msg.getOriginator();
-        DeduplicationData deduplicationMsgs = deduplicationMap.computeIfAbsent(id, k -> new DeduplicationData());
-        if (deduplicationMsgs.size() < config.getMaxPendingMsgs()) {
+        String key = toKey(id);
+        if (msgStore.size(key) < config.getMaxPendingMsgs()) {
             log.trace("[{}][{}] Adding msg: [{}][{}] to the pending msgs map ...", ctx.getSelfId(), id, msg.getId(), msg.getMetaDataTs());
-            deduplicationMsgs.add(msg);
+            msgStore.put(key, msg);
             ctx.ack(msg);
-            scheduleTickMsg(ctx, id, deduplicationMsgs);
+            scheduleTickMsgIfNeeded(ctx, id);
         } else {
             log.trace("[{}] Max limit of pending messages reached for deduplication id: [{}]", ctx.getSelfId(), id);
             ctx.tellFailure(msg, new RuntimeException("[" + ctx.getSelfId() + "] Max limit of pending messages reached for deduplication id: [" + id + "]"));
@@ -107,18 +185,15 @@ public class TbMsgDeduplicationNode implements TbNode {
     }
 
     private void processDeduplication(TbContext ctx, EntityId deduplicationId) {
-        DeduplicationData data = deduplicationMap.get(deduplicationId);
-        if (data == null) {
-            return;
-        }
-        data.setTickScheduled(false);
-        if (data.isEmpty()) {
+        String key = toKey(deduplicationId);
+        List<TbMsg> msgList = new LinkedList<>(msgStore.get(key));
+        if (msgList.isEmpty()) {
             return;
         }
+        int initialSize = msgList.size();
         long deduplicationTimeoutMs = System.currentTimeMillis();
         try {
             List<TbMsg> deduplicationResults = new ArrayList<>();
-            List<TbMsg> msgList = data.getMsgList();
             Optional<TbPair<Long, Long>> packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
             while (packBoundsOpt.isPresent()) {
                 TbPair<Long, Long> packBounds = packBoundsOpt.get();
@@ -138,6 +213,17 @@ public class TbMsgDeduplicationNode implements TbNode {
                             deduplicationId,
                             getMetadata(),
                             getMergedData(pack)));
+                } else if (DeduplicationStrategy.AGGREGATE.equals(config.getStrategy())) {
+                    DeduplicationAggregate aggregate = new DeduplicationAggregate(packBounds.getSecond());
+                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
+                        TbMsg msg = iterator.next();
+                        long msgTs = msg.getMetaDataTs();
+                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
+                            aggregate.add(msg, DeduplicationStrategy.AGGREGATE);
+                            iterator.remove();
+                        }
+                    }
+                    deduplicationResults.add(toResultMsg(deduplicationId, aggregate));
                 } else {
                     TbMsg resultMsg = null;
                     boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
@@ -167,19 +253,30 @@ public class TbMsgDeduplicationNode implements TbNode {
             }
             deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
         } finally {
-            if (!data.isEmpty()) {
-                scheduleTickMsg(ctx, deduplicationId, data);
+            if (msgList.size() != initialSize) {
+                msgStore.replace(key, msgList);
+            }
+            if (!msgList.isEmpty()) {
+                scheduleTickMsgIfNeeded(ctx, deduplicationId);
             }
         }
     }
 
-    private void scheduleTickMsg(TbContext ctx, EntityId deduplicationId, DeduplicationData data) {
-        if (!data.isTickScheduled()) {
+    private void scheduleTickMsgIfNeeded(TbContext ctx, EntityId deduplicationId) {
+        if (tickScheduled.add(deduplicationId)) {
             scheduleTickMsg(ctx, deduplicationId);
-            data.setTickScheduled(true);
         }
     }
 
+    private static String toKey(EntityId deduplicationId) {
+        return deduplicationId.getEntityType().name() + ":" + deduplicationId.getId();
+    }
+
+    private static EntityId toDeduplicationId(String key) {
+        int separatorIdx = key.indexOf(':');
+        return EntityIdFactory.getByTypeAndUuid(key.substring(0, separatorIdx), UUID.fromString(key.substring(separatorIdx + 1)));
+    }
+
     private Optional<TbPair<Long, Long>> findValidPack(List<TbMsg> msgs, long deduplicationTimeoutMs) {
         Optional<TbMsg> min = msgs.stream().min(Comparator.comparing(TbMsg::getMetaDataTs));
         return min.map(minTsMsg -> {
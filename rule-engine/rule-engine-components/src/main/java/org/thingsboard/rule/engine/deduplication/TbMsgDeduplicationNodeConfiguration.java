@@ -24,7 +24,11 @@ public class TbMsgDeduplicationNodeConfiguration implements NodeConfiguration<Tb
     private int interval;
     private DeduplicationStrategy strategy;
 
-    // only for DeduplicationStrategy.ALL:
+    // only for DeduplicationStrategy.FIRST and DeduplicationStrategy.LAST:
+    // keep only the retained message instead of all messages of the deduplication interval
+    private boolean streaming;
+
+    // only for DeduplicationStrategy.ALL and DeduplicationStrategy.AGGREGATE:
     private String outMsgType;
     private String queueName;
 
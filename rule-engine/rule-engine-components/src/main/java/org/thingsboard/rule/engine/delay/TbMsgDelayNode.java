@@ -22,16 +22,18 @@ import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.rule.engine.api.store.InMemoryTbMsgStore;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -51,19 +53,27 @@ import java.util.concurrent.TimeUnit;
 public class TbMsgDelayNode implements TbNode {
 
     private TbMsgDelayNodeConfiguration config;
-    private Map<UUID, TbMsg> pendingMsgs;
+    private TbMsgStore pendingMsgs;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbMsgDelayNodeConfiguration.class);
-        this.pendingMsgs = new HashMap<>();
+        this.pendingMsgs = Optional.ofNullable(ctx.getMsgStore()).orElseGet(InMemoryTbMsgStore::new);
+        long now = System.currentTimeMillis();
+        for (String key : pendingMsgs.getKeys()) {
+            List<TbMsg> msgs = pendingMsgs.get(key);
+            if (msgs.isEmpty()) {
+                continue;
+            }
+            long dueTs = Long.parseLong(key.substring(key.indexOf(':') + 1));
+            scheduleTickMsg(ctx, key, msgs.get(0).getCustomerId(), Math.max(0L, dueTs - now));
+        }
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         if (msg.isTypeOf(TbMsgType.DELAY_TIMEOUT_SELF_MSG)) {
-            TbMsg pendingMsg = pendingMsgs.remove(UUID.fromString(msg.getData()));
-            if (pendingMsg != null) {
+            for (TbMsg pendingMsg : pendingMsgs.remove(msg.getData())) {
                 ctx.enqueueForTellNext(
                         TbMsg.newMsg(
                                 pendingMsg.getQueueName(),
@@ -78,9 +88,10 @@ public class TbMsgDelayNode implements TbNode {
             }
         } else {
             if (pendingMsgs.size() < config.getMaxPendingMsgs()) {
-                pendingMsgs.put(msg.getId(), msg);
-                TbMsg tickMsg = ctx.newMsg(null, TbMsgType.DELAY_TIMEOUT_SELF_MSG, ctx.getSelfId(), msg.getCustomerId(), TbMsgMetaData.EMPTY, msg.getId().toString());
-                ctx.tellSelf(tickMsg, getDelay(msg));
+                long delay = getDelay(msg);
+                String key = msg.getId() + ":" + (System.currentTimeMillis() + delay);
+                pendingMsgs.put(key, msg);
+                scheduleTickMsg(ctx, key, msg.getCustomerId(), delay);
                 ctx.ack(msg);
             } else {
                 ctx.tellFailure(msg, new RuntimeException("Max limit of pending messages reached!"));
@@ -88,6 +99,11 @@ public class TbMsgDelayNode implements TbNode {
         }
     }
 
+    private void scheduleTickMsg(TbContext ctx, String key, CustomerId customerId, long delay) {
+        TbMsg tickMsg = ctx.newMsg(null, TbMsgType.DELAY_TIMEOUT_SELF_MSG, ctx.getSelfId(), customerId, TbMsgMetaData.EMPTY, key);
+        ctx.tellSelf(tickMsg, delay);
+    }
+
     private long getDelay(TbMsg msg) {
         int periodInSeconds;
         if (config.isUseMetadataPeriodInSecondsPatterns()) {
@@ -108,6 +124,5 @@ public class TbMsgDelayNode implements TbNode {
 
     @Override
     public void destroy() {
-        pendingMsgs.clear();
     }
 }
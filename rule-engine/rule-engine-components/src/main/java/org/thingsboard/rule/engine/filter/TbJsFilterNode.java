@@ -15,6 +15,7 @@
  */
 package org.thingsboard.rule.engine.filter;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.ScriptEngine;
@@ -28,6 +29,9 @@ import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 import org.thingsboard.server.common.msg.TbMsg;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import static org.thingsboard.common.util.DonAsynchron.withCallback;
 
 @Slf4j
@@ -62,7 +66,26 @@ public class TbJsFilterNode implements TbNode {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         ctx.logJsEvalRequest();
-        withCallback(scriptEngine.executeFilterAsync(msg),
+        processFilterResult(ctx, msg, scriptEngine.executeFilterAsync(msg));
+    }
+
+    @Override
+    public boolean isMsgPackSupported() {
+        return true;
+    }
+
+    @Override
+    public void onMsgs(TbContext ctx, List<TbMsg> msgs, Consumer<TbMsg> dispatched) {
+        msgs.forEach(msg -> ctx.logJsEvalRequest());
+        List<ListenableFuture<Boolean>> results = scriptEngine.executeFilterAsync(msgs);
+        for (int i = 0; i < msgs.size(); i++) {
+            processFilterResult(ctx, msgs.get(i), results.get(i));
+            dispatched.accept(msgs.get(i));
+        }
+    }
+
+    private void processFilterResult(TbContext ctx, TbMsg msg, ListenableFuture<Boolean> resultFuture) {
+        withCallback(resultFuture,
                 filterResult -> {
                     ctx.logJsEvalResponse();
                     ctx.tellNext(msg, filterResult ? TbNodeConnectionType.TRUE : TbNodeConnectionType.FALSE);
@@ -17,6 +17,7 @@ package org.thingsboard.rule.engine.filter;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -31,7 +32,9 @@ import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 import org.thingsboard.server.common.msg.TbMsg;
 
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @RuleNode(
@@ -63,7 +66,26 @@ public class TbJsSwitchNode implements TbNode {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         ctx.logJsEvalRequest();
-        Futures.addCallback(scriptEngine.executeSwitchAsync(msg), new FutureCallback<>() {
+        processSwitchResult(ctx, msg, scriptEngine.executeSwitchAsync(msg));
+    }
+
+    @Override
+    public boolean isMsgPackSupported() {
+        return true;
+    }
+
+    @Override
+    public void onMsgs(TbContext ctx, List<TbMsg> msgs, Consumer<TbMsg> dispatched) {
+        msgs.forEach(msg -> ctx.logJsEvalRequest());
+        List<ListenableFuture<Set<String>>> results = scriptEngine.executeSwitchAsync(msgs);
+        for (int i = 0; i < msgs.size(); i++) {
+            processSwitchResult(ctx, msgs.get(i), results.get(i));
+            dispatched.accept(msgs.get(i));
+        }
+    }
+
+    private void processSwitchResult(TbContext ctx, TbMsg msg, ListenableFuture<Set<String>> resultFuture) {
+        Futures.addCallback(resultFuture, new FutureCallback<>() {
             @Override
             public void onSuccess(@Nullable Set<String> result) {
                 ctx.logJsEvalResponse();
@@ -15,14 +15,21 @@
  */
 package org.thingsboard.rule.engine.geo;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import lombok.NonNull;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.util.GeometryFixer;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContext;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContextFactory;
@@ -33,6 +40,7 @@ import org.locationtech.spatial4j.shape.jts.JtsGeometry;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -42,22 +50,97 @@ import java.util.stream.Collectors;
 
 public class GeoUtil {
 
+    private static final int PERIMETERS_CACHE_MAX_SIZE = 10000;
+    private static final int INDEXES_CACHE_MAX_SIZE = 100;
+
     private static final SpatialContext distCtx = SpatialContext.GEO;
     private static final JtsSpatialContext jtsCtx;
 
+    // compiled perimeters are immutable, so they are shared across all the geofencing nodes and evaluated without locking
+    private static final LoadingCache<String, PreparedGeometry> perimeters = CacheBuilder.newBuilder()
+            .maximumSize(PERIMETERS_CACHE_MAX_SIZE)
+            .build(CacheLoader.from(GeoUtil::compilePerimeter));
+    private static final LoadingCache<String, GeofenceIndex<String>> indexes = CacheBuilder.newBuilder()
+            .maximumSize(INDEXES_CACHE_MAX_SIZE)
+            .build(CacheLoader.from(GeoUtil::compileIndex));
+
     static {
         JtsSpatialContextFactory factory = new JtsSpatialContextFactory();
         factory.normWrapLongitude = true;
         jtsCtx = factory.newSpatialContext();
     }
 
-    public static synchronized double distance(Coordinates x, Coordinates y, RangeUnit unit) {
+    public static double distance(Coordinates x, Coordinates y, RangeUnit unit) {
         Point xLL = distCtx.getShapeFactory().pointXY(x.getLongitude(), x.getLatitude());
         Point yLL = distCtx.getShapeFactory().pointXY(y.getLongitude(), y.getLatitude());
         return unit.fromKm(distCtx.getDistCalc().distance(xLL, yLL) * DistanceUtils.DEG_TO_KM);
     }
 
-    public static synchronized boolean contains(@NonNull String polygonInString, @NonNull Coordinates coordinates) {
+    /**
+     * Checks if the point is inside the perimeter.
+     * <p>
+     * Perimeter is either an array of polygons or a JSON object of named polygons, e.g. {"zoneA": [[..]], "zoneB": [[..]]}.
+     * In the latter case polygons are evaluated using {@link GeofenceIndex} and the point matches if any polygon contains it.
+     */
+    public static boolean contains(@NonNull String polygonInString, @NonNull Coordinates coordinates) {
+        if (isNamedPerimeters(polygonInString)) {
+            return getIndex(polygonInString).containsAny(coordinates);
+        }
+        return getPerimeter(polygonInString).contains(toPoint(coordinates));
+    }
+
+    /**
+     * @return names of the polygons from the JSON object of named polygons that contain the point
+     */
+    public static List<String> findContaining(@NonNull String namedPolygonsInString, @NonNull Coordinates coordinates) {
+        return getIndex(namedPolygonsInString).findContaining(coordinates);
+    }
+
+    /**
+     * Builds spatial index of the polygons. Could be used to test the point against a big number of perimeters at once.
+     */
+    public static <K> GeofenceIndex<K> buildIndex(Map<K, String> polygonsInString) {
+        Map<K, PreparedGeometry> compiled = new LinkedHashMap<>();
+        polygonsInString.forEach((key, polygon) -> compiled.put(key, getPerimeter(polygon)));
+        return new GeofenceIndex<>(compiled);
+    }
+
+    static org.locationtech.jts.geom.Point toPoint(Coordinates coordinates) {
+        return jtsCtx.getShapeFactory().getGeometryFactory()
+                .createPoint(new Coordinate(coordinates.getLatitude(), coordinates.getLongitude()));
+    }
+
+    private static boolean isNamedPerimeters(String polygonInString) {
+        for (int i = 0; i < polygonInString.length(); i++) {
+            char c = polygonInString.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{';
+            }
+        }
+        return false;
+    }
+
+    private static PreparedGeometry getPerimeter(String polygonInString) {
+        try {
+            return perimeters.getUnchecked(polygonInString);
+        } catch (UncheckedExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static GeofenceIndex<String> getIndex(String namedPolygonsInString) {
+        try {
+            return indexes.getUnchecked(namedPolygonsInString);
+        } catch (UncheckedExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(UncheckedExecutionException e) {
+        return e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+
+    private static PreparedGeometry compilePerimeter(String polygonInString) {
         if (polygonInString.isEmpty() || polygonInString.isBlank()) {
             throw new RuntimeException("Polygon string can't be empty or null!");
         }
@@ -67,11 +150,16 @@ public class GeoUtil {
         Set<Geometry> holes = extractHolesFrom(polygons);
         polygons.removeIf(holes::contains);
 
-        Geometry globalGeometry = unionToGlobalGeometry(polygons, holes);
-        var point = jtsCtx.getShapeFactory().getGeometryFactory()
-                .createPoint(new Coordinate(coordinates.getLatitude(), coordinates.getLongitude()));
+        return PreparedGeometryFactory.prepare(unionToGlobalGeometry(polygons, holes));
+    }
 
-        return globalGeometry.contains(point);
+    private static GeofenceIndex<String> compileIndex(String namedPolygonsInString) {
+        JsonObject namedPolygons = JsonParser.parseString(namedPolygonsInString).getAsJsonObject();
+        Map<String, String> polygons = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : namedPolygons.entrySet()) {
+            polygons.put(entry.getKey(), entry.getValue().toString());
+        }
+        return buildIndex(polygons);
     }
 
     private static Geometry unionToGlobalGeometry(List<Geometry> polygons, Set<Geometry> holes) {
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.geo;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable spatial index of the compiled polygon perimeters.
+ * <p>
+ * Perimeters are stored in the STR-tree by their bounding boxes, so only the perimeters whose envelope contains
+ * the point are evaluated with the prepared geometry. The index is built eagerly and is safe for concurrent queries.
+ */
+public class GeofenceIndex<K> {
+
+    private final STRtree tree;
+    private final int size;
+
+    GeofenceIndex(Map<K, PreparedGeometry> perimeters) {
+        this.tree = new STRtree();
+        for (Map.Entry<K, PreparedGeometry> perimeter : perimeters.entrySet()) {
+            tree.insert(perimeter.getValue().getGeometry().getEnvelopeInternal(), new Entry<>(perimeter.getKey(), perimeter.getValue()));
+        }
+        this.tree.build();
+        this.size = perimeters.size();
+    }
+
+    public boolean containsAny(Coordinates coordinates) {
+        Point point = GeoUtil.toPoint(coordinates);
+        for (Entry<K> entry : query(point)) {
+            if (entry.geometry.contains(point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<K> findContaining(Coordinates coordinates) {
+        Point point = GeoUtil.toPoint(coordinates);
+        List<K> result = new ArrayList<>();
+        for (Entry<K> entry : query(point)) {
+            if (entry.geometry.contains(point)) {
+                result.add(entry.key);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Entry<K>> query(Point point) {
+        return tree.query(new Envelope(point.getCoordinate()));
+    }
+
+    private static class Entry<K> {
+        private final K key;
+        private final PreparedGeometry geometry;
+
+        private Entry(K key, PreparedGeometry geometry) {
+            this.key = key;
+            this.geometry = geometry;
+        }
+    }
+
+}
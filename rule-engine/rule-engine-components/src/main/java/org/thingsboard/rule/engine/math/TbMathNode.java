@@ -26,7 +26,6 @@ import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.common.util.DonAsynchron;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
@@ -235,9 +234,9 @@ public class TbMathNode implements TbNode {
     private Optional<ObjectNode> convertMsgBodyIfRequired(TbMsg msg) {
         Optional<ObjectNode> msgBodyOpt;
         if (msgBodyToJsonConversionRequired) {
-            var jsonNode = JacksonUtil.toJsonNode(msg.getData());
+            var jsonNode = msg.getJsonData();
             if (jsonNode.isObject()) {
-                msgBodyOpt = Optional.of((ObjectNode) jsonNode);
+                msgBodyOpt = Optional.of(((ObjectNode) jsonNode).deepCopy());
             } else {
                 throw new RuntimeException("Message body is not a JSON object!");
             }
@@ -265,7 +264,7 @@ public class TbMathNode implements TbNode {
         } else {
             body.put(mathResultKey, toDoubleValue(mathResultDef, result));
         }
-        return TbMsg.transformMsgData(msg, JacksonUtil.toString(body));
+        return TbMsg.transformMsgData(msg, body);
     }
 
     private TbMsg addToMeta(TbMsg msg, TbMathResult mathResultDef, String mathResultKey, double result) {
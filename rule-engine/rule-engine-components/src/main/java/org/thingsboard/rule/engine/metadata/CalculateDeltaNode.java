@@ -20,13 +20,13 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.EntityStateCache;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.msg.TbMsgType;
@@ -39,8 +39,6 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static org.thingsboard.common.util.DonAsynchron.withCallback;
 
@@ -56,7 +54,7 @@ import static org.thingsboard.common.util.DonAsynchron.withCallback;
         configDirective = "tbEnrichmentNodeCalculateDeltaConfig")
 public class CalculateDeltaNode implements TbNode {
 
-    private Map<EntityId, ValueWithTs> cache;
+    private EntityStateCache<EntityId, ValueWithTs> cache;
     private CalculateDeltaNodeConfiguration config;
     private TbContext ctx;
     private TimeseriesService timeseriesService;
@@ -69,7 +67,7 @@ public class CalculateDeltaNode implements TbNode {
         this.timeseriesService = ctx.getTimeseriesService();
         this.useCache = config.isUseCache();
         if (useCache) {
-            cache = new ConcurrentHashMap<>();
+            cache = new EntityStateCache<>(ctx.getStatsFactory(), "calculateDelta", config.getCacheMaxSize(), config.getCacheExpiration());
         }
     }
 
@@ -79,7 +77,7 @@ public class CalculateDeltaNode implements TbNode {
             ctx.tellNext(msg, TbNodeConnectionType.OTHER);
             return;
         }
-        JsonNode json = JacksonUtil.toJsonNode(msg.getData());
+        JsonNode json = msg.getJsonData();
         String inputKey = config.getInputValueKey();
         if (!json.has(inputKey)) {
             ctx.tellNext(msg, TbNodeConnectionType.OTHER);
@@ -105,7 +103,7 @@ public class CalculateDeltaNode implements TbNode {
                         delta = delta.setScale(config.getRound(), RoundingMode.HALF_UP);
                     }
 
-                    ObjectNode result = (ObjectNode) json;
+                    ObjectNode result = ((ObjectNode) json).deepCopy();
                     if (delta.stripTrailingZeros().scale() > 0) {
                         result.put(config.getOutputValueKey(), delta.doubleValue());
                     } else {
@@ -116,7 +114,7 @@ public class CalculateDeltaNode implements TbNode {
                         long period = previousData != null ? currentTs - previousData.ts : 0;
                         result.put(config.getPeriodValueKey(), period);
                     }
-                    ctx.tellSuccess(TbMsg.transformMsgData(msg, JacksonUtil.toString(result)));
+                    ctx.tellSuccess(TbMsg.transformMsgData(msg, result));
                 },
                 t -> ctx.tellFailure(msg, t), ctx.getDbCallbackExecutor());
     }
@@ -124,6 +122,7 @@ public class CalculateDeltaNode implements TbNode {
     @Override
     public void destroy() {
         if (useCache) {
+            log.debug("[{}] Previous values cache: {}", ctx.getSelfId(), cache);
             cache.clear();
         }
     }
@@ -144,11 +143,7 @@ public class CalculateDeltaNode implements TbNode {
 
     private ListenableFuture<ValueWithTs> getLastValue(EntityId entityId) {
         if (useCache) {
-            ValueWithTs latestValue;
-            if ((latestValue = cache.get(entityId)) == null) {
-                latestValue = fetchLatestValue(entityId);
-            }
-            return Futures.immediateFuture(latestValue);
+            return Futures.immediateFuture(cache.get(entityId, this::fetchLatestValue));
         } else {
             return fetchLatestValueAsync(entityId);
         }
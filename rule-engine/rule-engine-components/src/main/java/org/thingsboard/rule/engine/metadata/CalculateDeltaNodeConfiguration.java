@@ -26,6 +26,10 @@ public class CalculateDeltaNodeConfiguration implements NodeConfiguration<Calcul
     private String inputValueKey;
     private String outputValueKey;
     private boolean useCache;
+    // Max number of originators to cache the previous value for. 0 means unlimited
+    private long cacheMaxSize;
+    // Time in seconds since the last access after which the cached value is evicted. 0 means never
+    private long cacheExpiration;
     private boolean addPeriodBetweenMsgs;
     private String periodValueKey;
     private Integer round;
@@ -37,6 +41,7 @@ public class CalculateDeltaNodeConfiguration implements NodeConfiguration<Calcul
         configuration.setInputValueKey("pulseCounter");
         configuration.setOutputValueKey("delta");
         configuration.setUseCache(true);
+        configuration.setCacheMaxSize(100000);
         configuration.setAddPeriodBetweenMsgs(false);
         configuration.setPeriodValueKey("periodInMs");
         configuration.setTellFailureIfDeltaIsNegative(true);
@@ -26,6 +26,7 @@ import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.EntityStateCache;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.EntityType;
@@ -40,11 +41,11 @@ import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
 
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RuleNode(
@@ -64,40 +65,45 @@ public class TbDeviceProfileNode implements TbNode {
     private TbDeviceProfileNodeConfiguration config;
     private RuleEngineDeviceProfileCache cache;
     private TbContext ctx;
-    private final Map<DeviceId, DeviceState> deviceStates = new ConcurrentHashMap<>();
+    private EntityStateCache<DeviceId, DeviceState> deviceStates;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbDeviceProfileNodeConfiguration.class);
         this.cache = ctx.getDeviceProfileCache();
         this.ctx = ctx;
+        this.deviceStates = new EntityStateCache<>(ctx.getStatsFactory(), "deviceProfile", config.getMaxDeviceStates(), config.getDeviceStateExpiration());
         scheduleAlarmHarvesting(ctx, null);
         ctx.addDeviceProfileListeners(this::onProfileUpdate, this::onDeviceUpdate);
-        initAlarmRuleState(false);
+        try {
+            initAlarmRuleState(false);
+        } catch (ExecutionException | InterruptedException e) {
+            throw new TbNodeException(e);
+        }
     }
 
-    private void initAlarmRuleState(boolean printNewlyAddedDeviceStates) {
+    private void initAlarmRuleState(boolean printNewlyAddedDeviceStates) throws ExecutionException, InterruptedException {
         if (config.isFetchAlarmRulesStateOnStart()) {
             log.info("[{}] Fetching alarm rule state", ctx.getSelfId());
             int fetchCount = 0;
+            int loadedCount = 0;
             PageLink pageLink = new PageLink(1024);
-            while (true) {
+            while (!deviceStates.isFull()) {
                 PageData<RuleNodeState> states = ctx.findRuleNodeStates(pageLink);
-                if (!states.getData().isEmpty()) {
-                    for (RuleNodeState rns : states.getData()) {
-                        fetchCount++;
-                        if (rns.getEntityId().getEntityType().equals(EntityType.DEVICE) && ctx.isLocalEntity(rns.getEntityId())) {
-                            getOrCreateDeviceState(ctx, new DeviceId(rns.getEntityId().getId()), rns, printNewlyAddedDeviceStates);
-                        }
-                    }
-                }
+                fetchCount += states.getData().size();
+                List<RuleNodeState> localStates = states.getData().stream()
+                        .filter(rns -> rns.getEntityId().getEntityType().equals(EntityType.DEVICE) && ctx.isLocalEntity(rns.getEntityId()))
+                        .collect(Collectors.toList());
+                loadedCount += deviceStates.warmUp(localStates, rns -> new DeviceId(rns.getEntityId().getId()),
+                        rns -> createDeviceState(ctx, new DeviceId(rns.getEntityId().getId()), rns, printNewlyAddedDeviceStates),
+                        ctx.getDbCallbackExecutor());
                 if (!states.hasNext()) {
                     break;
                 } else {
                     pageLink = pageLink.nextPageLink();
                 }
             }
-            log.info("[{}] Fetched alarm rule state for {} entities", ctx.getSelfId(), fetchCount);
+            log.info("[{}] Fetched alarm rule state for {} entities, loaded {} device states", ctx.getSelfId(), fetchCount, loadedCount);
         }
         if (!config.isPersistAlarmRulesState() && ctx.isLocalEntity(ctx.getSelfId())) {
             log.debug("[{}] Going to cleanup rule node states", ctx.getSelfId());
@@ -111,6 +117,7 @@ public class TbDeviceProfileNode implements TbNode {
         if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_PERIODIC_SELF_MSG)) {
             scheduleAlarmHarvesting(ctx, msg);
             harvestAlarms(ctx, System.currentTimeMillis());
+            log.debug("[{}] Device states: {}", ctx.getSelfId(), deviceStates);
         } else if (msg.isTypeOf(TbMsgType.DEVICE_PROFILE_UPDATE_SELF_MSG)) {
             updateProfile(ctx, new DeviceProfileId(UUID.fromString(msg.getData())));
         } else if (msg.isTypeOf(TbMsgType.DEVICE_UPDATE_SELF_MSG)) {
@@ -148,8 +155,12 @@ public class TbDeviceProfileNode implements TbNode {
     @Override
     public void onPartitionChangeMsg(TbContext ctx, PartitionChangeMsg msg) {
         // Cleanup the cache for all entities that are no longer assigned to current server partitions
-        deviceStates.entrySet().removeIf(entry -> !ctx.isLocalEntity(entry.getKey()));
-        initAlarmRuleState(true);
+        deviceStates.removeIf(deviceId -> !ctx.isLocalEntity(deviceId));
+        try {
+            initAlarmRuleState(true);
+        } catch (ExecutionException | InterruptedException e) {
+            log.warn("[{}] Failed to fetch alarm rule state", ctx.getSelfId(), e);
+        }
     }
 
     @Override
@@ -159,18 +170,18 @@ public class TbDeviceProfileNode implements TbNode {
     }
 
     protected DeviceState getOrCreateDeviceState(TbContext ctx, DeviceId deviceId, RuleNodeState rns, boolean printNewlyAddedDeviceStates) {
-        DeviceState deviceState = deviceStates.get(deviceId);
-        if (deviceState == null) {
-            DeviceProfile deviceProfile = cache.get(ctx.getTenantId(), deviceId);
-            if (deviceProfile != null) {
-                deviceState = new DeviceState(ctx, config, deviceId, new ProfileState(deviceProfile), rns);
-                deviceStates.put(deviceId, deviceState);
-                if (printNewlyAddedDeviceStates) {
-                    log.info("[{}][{}] Device [{}] was added during PartitionChangeMsg", ctx.getTenantId(), ctx.getSelfId(), deviceId);
-                }
-            }
+        return deviceStates.get(deviceId, id -> createDeviceState(ctx, id, rns, printNewlyAddedDeviceStates));
+    }
+
+    private DeviceState createDeviceState(TbContext ctx, DeviceId deviceId, RuleNodeState rns, boolean printNewlyAddedDeviceStates) {
+        DeviceProfile deviceProfile = cache.get(ctx.getTenantId(), deviceId);
+        if (deviceProfile == null) {
+            return null;
+        }
+        if (printNewlyAddedDeviceStates) {
+            log.info("[{}][{}] Device [{}] was added during PartitionChangeMsg", ctx.getTenantId(), ctx.getSelfId(), deviceId);
         }
-        return deviceState;
+        return new DeviceState(ctx, config, deviceId, new ProfileState(deviceProfile), rns);
     }
 
     protected void scheduleAlarmHarvesting(TbContext ctx, TbMsg msg) {
@@ -212,7 +223,7 @@ public class TbDeviceProfileNode implements TbNode {
     }
 
     protected void invalidateDeviceProfileCache(DeviceId deviceId, String deviceJson) {
-        DeviceState deviceState = deviceStates.get(deviceId);
+        DeviceState deviceState = deviceStates.getIfPresent(deviceId);
         if (deviceState != null) {
             DeviceProfileId currentProfileId = deviceState.getProfileId();
             try {
@@ -227,7 +238,7 @@ public class TbDeviceProfileNode implements TbNode {
     }
 
     protected void invalidateDeviceProfileCache(DeviceId deviceId, DeviceProfileId deviceProfileId) {
-        DeviceState deviceState = deviceStates.get(deviceId);
+        DeviceState deviceState = deviceStates.getIfPresent(deviceId);
         if (deviceState != null) {
             if (!deviceState.getProfileId().equals(deviceProfileId)) {
                 removeDeviceState(deviceId);
@@ -25,6 +25,11 @@ public class TbDeviceProfileNodeConfiguration implements NodeConfiguration<TbDev
 
     private boolean persistAlarmRulesState;
     private boolean fetchAlarmRulesStateOnStart;
+    // Max number of device states kept in memory. 0 means unlimited.
+    // Evicted states are restored from the persisted alarm rules state on the next message of the device
+    private long maxDeviceStates;
+    // Time in seconds since the last message of the device after which its state is evicted. 0 means never
+    private long deviceStateExpiration;
 
     @Override
     public TbDeviceProfileNodeConfiguration defaultConfiguration() {
@@ -87,10 +87,11 @@ public class TbMsgTimeseriesNode implements TbNode {
             return;
         }
         long ts = computeTs(msg, config.isUseServerTs());
-        String src = msg.getData();
-        Map<Long, List<KvEntry>> tsKvMap = JsonConverter.convertToTelemetry(JsonParser.parseString(src), ts);
+        Map<Long, List<KvEntry>> tsKvMap = msg.getTsKvData() != null ?
+                JsonConverter.convertToTelemetry(msg.getTsKvData(), ts, config.isUseServerTs(), false) :
+                JsonConverter.convertToTelemetry(JsonParser.parseString(msg.getData()), ts);
         if (tsKvMap.isEmpty()) {
-            ctx.tellFailure(msg, new IllegalArgumentException("Msg body is empty: " + src));
+            ctx.tellFailure(msg, new IllegalArgumentException("Msg body is empty: " + msg.getData()));
             return;
         }
         List<TsKvEntry> tsKvEntryList = new ArrayList<>();
@@ -28,6 +28,8 @@ import org.thingsboard.server.common.msg.queue.RuleEngineException;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.thingsboard.common.util.DonAsynchron.withCallback;
 
@@ -52,6 +54,19 @@ public abstract class TbAbstractTransformNode<C> implements TbNode {
                 MoreExecutors.directExecutor());
     }
 
+    @Override
+    public void onMsgs(TbContext ctx, List<TbMsg> msgs, Consumer<TbMsg> dispatched) {
+        List<ListenableFuture<List<TbMsg>>> results = transform(ctx, msgs);
+        for (int i = 0; i < msgs.size(); i++) {
+            TbMsg msg = msgs.get(i);
+            withCallback(results.get(i),
+                    m -> transformSuccess(ctx, msg, m),
+                    t -> transformFailure(ctx, msg, t),
+                    MoreExecutors.directExecutor());
+            dispatched.accept(msg);
+        }
+    }
+
     protected abstract C loadNodeConfiguration(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException;
 
     protected void transformFailure(TbContext ctx, TbMsg msg, Throwable t) {
@@ -81,4 +96,8 @@ public abstract class TbAbstractTransformNode<C> implements TbNode {
 
     protected abstract ListenableFuture<List<TbMsg>> transform(TbContext ctx, TbMsg msg);
 
+    protected List<ListenableFuture<List<TbMsg>>> transform(TbContext ctx, List<TbMsg> msgs) {
+        return msgs.stream().map(msg -> transform(ctx, msg)).collect(Collectors.toList());
+    }
+
 }
@@ -18,7 +18,6 @@ package org.thingsboard.rule.engine.transform;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import lombok.extern.slf4j.Slf4j;
-import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.rule.engine.api.EmptyNodeConfiguration;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
@@ -58,13 +57,13 @@ public class TbSplitArrayMsgNode implements TbNode {
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws ExecutionException, InterruptedException, TbNodeException {
-        JsonNode jsonNode = JacksonUtil.toJsonNode(msg.getData());
+        JsonNode jsonNode = msg.getJsonData();
         if (jsonNode.isArray()) {
             ArrayNode data = (ArrayNode) jsonNode;
             if (data.isEmpty()) {
                 ctx.ack(msg);
             } else if (data.size() == 1) {
-                ctx.tellSuccess(TbMsg.transformMsgData(msg, JacksonUtil.toString(data.get(0))));
+                ctx.tellSuccess(TbMsg.transformMsgData(msg, data.get(0)));
             } else {
                 TbMsgCallbackWrapper wrapper = new MultipleTbMsgsCallbackWrapper(data.size(), new TbMsgCallback() {
                     @Override
@@ -78,7 +77,7 @@ public class TbSplitArrayMsgNode implements TbNode {
                     }
                 });
                 data.forEach(msgNode -> {
-                    TbMsg outMsg = TbMsg.transformMsgData(msg, JacksonUtil.toString(msgNode));
+                    TbMsg outMsg = TbMsg.transformMsgData(msg, msgNode);
                     ctx.enqueueForTellNext(outMsg, TbNodeConnectionType.SUCCESS, wrapper::onSuccess, wrapper::onFailure);
                 });
             }
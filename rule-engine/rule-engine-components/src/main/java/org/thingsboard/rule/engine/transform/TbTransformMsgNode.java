@@ -61,6 +61,17 @@ public class TbTransformMsgNode extends TbAbstractTransformNode<TbTransformMsgNo
         return scriptEngine.executeUpdateAsync(msg);
     }
 
+    @Override
+    public boolean isMsgPackSupported() {
+        return true;
+    }
+
+    @Override
+    protected List<ListenableFuture<List<TbMsg>>> transform(TbContext ctx, List<TbMsg> msgs) {
+        msgs.forEach(msg -> ctx.logJsEvalRequest());
+        return scriptEngine.executeUpdateAsync(msgs);
+    }
+
     @Override
     protected void transformFailure(TbContext ctx, TbMsg msg, Throwable t) {
         ctx.logJsEvalFailure();
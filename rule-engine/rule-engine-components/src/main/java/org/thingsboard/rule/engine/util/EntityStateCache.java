@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.thingsboard.common.util.ListeningExecutor;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Per-originator state of the rule node, bounded by size and by time since the last access.
+ * <p>
+ * Evicted state is loaded again on the next access by the provided loader, e.g. from the persisted rule node state
+ * or the latest telemetry. Zero max size or expiration means that corresponding limit is not applied.
+ * <p>
+ * Hits, misses and evictions are reported to the {@link StatsFactory} under {@value #STATS_NAME}, tagged by the cache name.
+ */
+public class EntityStateCache<K extends EntityId, V> {
+
+    private static final String STATS_NAME = "ruleNodeState.cache";
+
+    private final Cache<K, V> cache;
+    private final long maxSize;
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+    private final DefaultCounter evictionCounter;
+
+    public EntityStateCache(long maxSize, long expirationSec) {
+        this(null, null, maxSize, expirationSec);
+    }
+
+    /**
+     * @param statsFactory factory of the hit, miss and eviction counters, stats are not reported if null
+     */
+    public EntityStateCache(StatsFactory statsFactory, String name, long maxSize, long expirationSec) {
+        this.maxSize = maxSize;
+        if (statsFactory != null) {
+            this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "name", name, "result", "hit");
+            this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "name", name, "result", "miss");
+            this.evictionCounter = statsFactory.createDefaultCounter(STATS_NAME, "name", name, "result", "eviction");
+        } else {
+            this.hitCounter = null;
+            this.missCounter = null;
+            this.evictionCounter = null;
+        }
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+        if (maxSize > 0) {
+            cacheBuilder.maximumSize(maxSize);
+        }
+        if (expirationSec > 0) {
+            cacheBuilder.expireAfterAccess(expirationSec, TimeUnit.SECONDS);
+        }
+        this.cache = cacheBuilder.<K, V>removalListener(notification -> {
+            if (notification.wasEvicted() && evictionCounter != null) {
+                evictionCounter.increment();
+            }
+        }).build();
+    }
+
+    /**
+     * Returns the cached state or loads it on a miss. State is not cached if loader returns null.
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value = getIfPresent(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                cache.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public V getIfPresent(K key) {
+        V value = cache.getIfPresent(key);
+        if (hitCounter != null) {
+            (value != null ? hitCounter : missCounter).increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, value);
+    }
+
+    public V remove(K key) {
+        return cache.asMap().remove(key);
+    }
+
+    public void removeIf(Predicate<K> predicate) {
+        cache.asMap().keySet().removeIf(predicate);
+    }
+
+    public Collection<V> values() {
+        return cache.asMap().values();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public boolean isFull() {
+        return maxSize > 0 && cache.size() >= maxSize;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Loads the state of the provided sources in parallel until the cache is full.
+     * Sources that are not loaded because of the size limit are loaded lazily on the first access.
+     *
+     * @return number of loaded states
+     */
+    public <T> int warmUp(List<T> sources, Function<T, K> keyMapper, Function<T, V> loader, ListeningExecutor executor)
+            throws ExecutionException, InterruptedException {
+        AtomicInteger loaded = new AtomicInteger();
+        List<ListenableFuture<?>> futures = new ArrayList<>(sources.size());
+        for (T source : sources) {
+            if (isFull()) {
+                break;
+            }
+            K key = keyMapper.apply(source);
+            if (key == null || cache.asMap().containsKey(key)) {
+                continue;
+            }
+            futures.add(executor.executeAsync(() -> {
+                V value = loader.apply(source);
+                if (value != null) {
+                    cache.asMap().putIfAbsent(key, value);
+                    loaded.incrementAndGet();
+                }
+            }));
+        }
+        Futures.allAsList(futures).get();
+        return loaded.get();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = cache.stats();
+        return "size=" + cache.size() + ", hits=" + stats.hitCount() + ", misses=" + stats.missCount() + ", evictions=" + stats.evictionCount();
+    }
+
+}
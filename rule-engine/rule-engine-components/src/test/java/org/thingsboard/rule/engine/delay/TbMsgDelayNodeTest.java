@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.delay;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.store.InMemoryTbMsgStore;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.msg.TbMsgType;
+import org.thingsboard.server.common.data.msg.TbNodeConnectionType;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbMsgDelayNodeTest {
+
+    private TbContext ctx;
+    private TbMsgStore store;
+    private TbNodeConfiguration nodeConfiguration;
+
+    @BeforeEach
+    public void init() {
+        ctx = mock(TbContext.class);
+        store = new InMemoryTbMsgStore();
+        when(ctx.getSelfId()).thenReturn(new RuleNodeId(UUID.randomUUID()));
+        when(ctx.getMsgStore()).thenReturn(store);
+        doAnswer((Answer<TbMsg>) invocationOnMock -> {
+            TbMsgType type = (TbMsgType) (invocationOnMock.getArguments())[1];
+            EntityId originator = (EntityId) (invocationOnMock.getArguments())[2];
+            CustomerId customerId = (CustomerId) (invocationOnMock.getArguments())[3];
+            TbMsgMetaData metaData = (TbMsgMetaData) (invocationOnMock.getArguments())[4];
+            String data = (String) (invocationOnMock.getArguments())[5];
+            return TbMsg.newMsg(type, originator, customerId, metaData.copy(), data);
+        }).when(ctx).newMsg(isNull(), eq(TbMsgType.DELAY_TIMEOUT_SELF_MSG), nullable(EntityId.class), nullable(CustomerId.class), any(TbMsgMetaData.class), anyString());
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(new TbMsgDelayNodeConfiguration().defaultConfiguration()));
+    }
+
+    @Test
+    public void testPendingMsgIsRestoredAfterRestart() throws Exception {
+        CustomerId customerId = new CustomerId(UUID.randomUUID());
+        TbMsg msg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, new DeviceId(UUID.randomUUID()), customerId, new TbMsgMetaData(), "{\"temperature\":22}");
+
+        TbMsgDelayNode node = new TbMsgDelayNode();
+        node.init(ctx, nodeConfiguration);
+        node.onMsg(ctx, msg);
+        verify(ctx).ack(msg);
+        node.destroy();
+
+        TbMsgDelayNode restarted = new TbMsgDelayNode();
+        restarted.init(ctx, nodeConfiguration);
+
+        ArgumentCaptor<TbMsg> tickCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        ArgumentCaptor<Long> delayCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(ctx, times(2)).tellSelf(tickCaptor.capture(), delayCaptor.capture());
+        TbMsg scheduledTick = tickCaptor.getAllValues().get(0);
+        TbMsg restoredTick = tickCaptor.getAllValues().get(1);
+        Assertions.assertEquals(scheduledTick.getData(), restoredTick.getData());
+        Assertions.assertEquals(customerId, restoredTick.getCustomerId());
+        Assertions.assertTrue(delayCaptor.getAllValues().get(1) <= TimeUnit.SECONDS.toMillis(60));
+
+        restarted.onMsg(ctx, restoredTick);
+        ArgumentCaptor<TbMsg> msgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx).enqueueForTellNext(msgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS));
+        TbMsg delayedMsg = msgCaptor.getValue();
+        Assertions.assertEquals(msg.getOriginator(), delayedMsg.getOriginator());
+        Assertions.assertEquals(customerId, delayedMsg.getCustomerId());
+        Assertions.assertEquals(msg.getData(), delayedMsg.getData());
+        Assertions.assertEquals(0, store.size());
+
+        // tick scheduled before the restart is still delivered, but the message is not sent twice
+        restarted.onMsg(ctx, scheduledTick);
+        verify(ctx, times(1)).enqueueForTellNext(any(TbMsg.class), eq(TbNodeConnectionType.SUCCESS));
+        verify(ctx, times(2)).tellSelf(any(TbMsg.class), anyLong());
+    }
+}
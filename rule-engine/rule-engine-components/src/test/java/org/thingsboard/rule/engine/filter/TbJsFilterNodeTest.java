@@ -37,8 +37,11 @@ import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -91,6 +94,25 @@ public class TbJsFilterNodeTest {
         verify(ctx).tellNext(msg, TbNodeConnectionType.TRUE);
     }
 
+    @Test
+    public void packOfMsgsIsEvaluatedByOneScriptEngineCall() throws TbNodeException {
+        initWithScript();
+        TbMsg trueMsg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, null, TbMsgMetaData.EMPTY, TbMsgDataType.JSON, TbMsg.EMPTY_JSON_OBJECT, ruleChainId, ruleNodeId);
+        TbMsg falseMsg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, null, TbMsgMetaData.EMPTY, TbMsgDataType.JSON, TbMsg.EMPTY_JSON_OBJECT, ruleChainId, ruleNodeId);
+        TbMsg failedMsg = TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, null, TbMsgMetaData.EMPTY, TbMsgDataType.JSON, TbMsg.EMPTY_JSON_OBJECT, ruleChainId, ruleNodeId);
+        List<TbMsg> msgs = List.of(trueMsg, falseMsg, failedMsg);
+        when(scriptEngine.executeFilterAsync(msgs)).thenReturn(List.of(Futures.immediateFuture(true), Futures.immediateFuture(false),
+                Futures.immediateFailedFuture(new ScriptException("error"))));
+
+        assertTrue(node.isMsgPackSupported());
+        List<TbMsg> dispatched = new ArrayList<>();
+        node.onMsgs(ctx, msgs, dispatched::add);
+        assertEquals(msgs, dispatched);
+        verify(ctx).tellNext(trueMsg, TbNodeConnectionType.TRUE);
+        verify(ctx).tellNext(falseMsg, TbNodeConnectionType.FALSE);
+        verifyError(failedMsg, "error", ScriptException.class);
+    }
+
     private void initWithScript() throws TbNodeException {
         TbJsFilterNodeConfiguration config = new TbJsFilterNodeConfiguration();
         config.setScriptLang(ScriptLanguage.JS);
@@ -20,6 +20,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @RunWith(MockitoJUnitRunner.class)
 public class GeoUtilTest {
 
@@ -160,4 +164,31 @@ public class GeoUtilTest {
         );
     }
 
+    @Test
+    public void testPointsInNamedPolygons() {
+        String namedPolygons = "{\"rect\": " + SIMPLE_RECT_WITH_HOLE_IN_CENTER + ", \"sandClock\": " + SAND_CLOCK + "}";
+
+        Assert.assertTrue(GeoUtil.contains(namedPolygons, POINT_INSIDE_SIMPLE_RECT_NEAR_BORDER));
+        Assert.assertTrue(GeoUtil.contains(namedPolygons, POINT_INSIDE_SAND_CLOCK_CENTER));
+        Assert.assertFalse(GeoUtil.contains(namedPolygons, POINT_OUTSIDE_SIMPLE_RECT));
+
+        Assert.assertEquals(List.of("rect"), GeoUtil.findContaining(namedPolygons, POINT_INSIDE_SIMPLE_RECT_NEAR_BORDER));
+        Assert.assertEquals(List.of("sandClock"), GeoUtil.findContaining(namedPolygons, POINT_INSIDE_SAND_CLOCK_CENTER));
+        Assert.assertTrue(GeoUtil.findContaining(namedPolygons, POINT_OUTSIDE_SIMPLE_RECT).isEmpty());
+    }
+
+    @Test
+    public void testIndexOfManyPerimeters() {
+        Map<Integer, String> polygons = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            polygons.put(i, "[[" + i + ",0],[" + (i + 1) + ",1]]");
+        }
+        GeofenceIndex<Integer> index = GeoUtil.buildIndex(polygons);
+
+        Assert.assertEquals(1000, index.size());
+        Assert.assertEquals(List.of(500), index.findContaining(new Coordinates(500.5, 0.5)));
+        Assert.assertTrue(index.containsAny(new Coordinates(999.5, 0.5)));
+        Assert.assertFalse(index.containsAny(new Coordinates(500.5, 2)));
+    }
+
 }
@@ -30,6 +30,8 @@ import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.rule.engine.api.store.InMemoryTbMsgStore;
+import org.thingsboard.rule.engine.api.store.TbMsgStore;
 import org.thingsboard.rule.engine.deduplication.DeduplicationStrategy;
 import org.thingsboard.rule.engine.deduplication.TbMsgDeduplicationNode;
 import org.thingsboard.rule.engine.deduplication.TbMsgDeduplicationNodeConfiguration;
@@ -385,6 +387,105 @@ public class TbMsgDeduplicationNodeTest {
         Assertions.assertEquals(msgWithLatestTsInSecondPack.getType(), actualMsg.getType());
     }
 
+    @Test
+    public void given_pending_messages_in_store_when_node_restarted_then_verifyOutput() throws TbNodeException, ExecutionException, InterruptedException {
+        int wantedNumberOfTellSelfInvocation = 1;
+        int msgCount = 10;
+        awaitTellSelfLatch = new CountDownLatch(wantedNumberOfTellSelfInvocation);
+        invokeTellSelf(wantedNumberOfTellSelfInvocation);
+
+        TbMsgStore msgStore = new InMemoryTbMsgStore();
+        when(ctx.getMsgStore()).thenReturn(msgStore);
+
+        config.setInterval(deduplicationInterval);
+        config.setMaxPendingMsgs(msgCount);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<TbMsg> inputMsgs = getTbMsgs(deviceId, msgCount, System.currentTimeMillis() - 2000, 0);
+        for (TbMsg msg : inputMsgs) {
+            msgStore.put("DEVICE:" + deviceId.getId(), msg);
+        }
+        node.destroy();
+        node.init(ctx, nodeConfiguration);
+
+        awaitTellSelfLatch.await();
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(1)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        Assertions.assertEquals(inputMsgs.get(0).getData(), newMsgCaptor.getValue().getData());
+        Assertions.assertEquals(inputMsgs.get(0).getMetaData(), newMsgCaptor.getValue().getMetaData());
+        Assertions.assertEquals(0, msgStore.size());
+    }
+
+    @Test
+    public void given_10_messages_strategy_first_streaming_then_verifyOutput() throws TbNodeException, ExecutionException, InterruptedException {
+        int wantedNumberOfTellSelfInvocation = 1;
+        int msgCount = 10;
+        awaitTellSelfLatch = new CountDownLatch(wantedNumberOfTellSelfInvocation);
+        invokeTellSelf(wantedNumberOfTellSelfInvocation);
+
+        TbMsgStore msgStore = new InMemoryTbMsgStore();
+        when(ctx.getMsgStore()).thenReturn(msgStore);
+
+        config.setInterval(deduplicationInterval);
+        config.setStreaming(true);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<TbMsg> inputMsgs = getTbMsgs(deviceId, msgCount, System.currentTimeMillis() - 2000, 0);
+        for (TbMsg msg : inputMsgs) {
+            node.onMsg(ctx, msg);
+        }
+        Assertions.assertEquals(0, msgStore.size());
+
+        awaitTellSelfLatch.await();
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(msgCount)).ack(any());
+        verify(ctx, times(1)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        Assertions.assertNotEquals(inputMsgs.get(0).getId(), newMsgCaptor.getValue().getId());
+        Assertions.assertEquals(inputMsgs.get(0).getMetaData(), newMsgCaptor.getValue().getMetaData());
+    }
+
+    @Test
+    public void given_10_messages_strategy_aggregate_then_verifyOutput() throws TbNodeException, ExecutionException, InterruptedException {
+        int wantedNumberOfTellSelfInvocation = 1;
+        int msgCount = 10;
+        awaitTellSelfLatch = new CountDownLatch(wantedNumberOfTellSelfInvocation);
+        invokeTellSelf(wantedNumberOfTellSelfInvocation);
+
+        config.setInterval(deduplicationInterval);
+        config.setStrategy(DeduplicationStrategy.AGGREGATE);
+        config.setOutMsgType(TbMsgType.POST_TELEMETRY_REQUEST.name());
+        config.setQueueName(DataConstants.MAIN_QUEUE_NAME);
+        nodeConfiguration = new TbNodeConfiguration(JacksonUtil.valueToTree(config));
+        node.init(ctx, nodeConfiguration);
+
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        long ts = System.currentTimeMillis() - 2000;
+        for (int i = 0; i < msgCount; i++) {
+            TbMsgMetaData metaData = new TbMsgMetaData();
+            metaData.putValue("ts", String.valueOf(ts + i));
+            node.onMsg(ctx, TbMsg.newMsg(TbMsgType.POST_TELEMETRY_REQUEST, deviceId, metaData,
+                    "{\"temperature\":" + i + ",\"status\":\"ok\",\"nested\":{\"humidity\":1}}"));
+        }
+
+        awaitTellSelfLatch.await();
+
+        ArgumentCaptor<TbMsg> newMsgCaptor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(msgCount)).ack(any());
+        verify(ctx, times(1)).enqueueForTellNext(newMsgCaptor.capture(), eq(TbNodeConnectionType.SUCCESS), any(), any());
+        TbMsg actualMsg = newMsgCaptor.getValue();
+        Assertions.assertEquals(deviceId, actualMsg.getOriginator());
+        Assertions.assertEquals(TbMsgType.POST_TELEMETRY_REQUEST.name(), actualMsg.getType());
+        ObjectNode expected = JacksonUtil.newObjectNode();
+        expected.putObject("temperature").put("min", 0.0).put("max", 9.0).put("avg", 4.5).put("sum", 45.0).put("count", msgCount);
+        Assertions.assertEquals(expected, JacksonUtil.toJsonNode(actualMsg.getData()));
+    }
+
     private TbMsg getMsgWithLatestTs(List<TbMsg> firstMsgPack) {
         int indexOfLastMsgInArray = firstMsgPack.size() - 1;
         int indexToSetMaxTs = new Random().nextInt(indexOfLastMsgInArray) + 1;
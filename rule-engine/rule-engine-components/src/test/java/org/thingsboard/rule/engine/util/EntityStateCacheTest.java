@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.util;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.rule.engine.TestDbCallbackExecutor;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EntityStateCacheTest {
+
+    @Test
+    public void givenMissingState_whenGet_thenLoadOnceAndRecordStats() {
+        EntityStateCache<DeviceId, String> cache = new EntityStateCache<>(0, 0);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("state", cache.get(deviceId, id -> {
+            loads.incrementAndGet();
+            return "state";
+        }));
+        assertEquals("state", cache.get(deviceId, id -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void givenStatsFactory_whenGetAndEvict_thenReportStats() {
+        Map<String, DefaultCounter> counters = new HashMap<>();
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createDefaultCounter(eq("ruleNodeState.cache"), any(String[].class))).thenAnswer(invocation -> {
+            DefaultCounter counter = new DefaultCounter(new AtomicInteger(), mock(Counter.class));
+            counters.put(invocation.getArgument(4), counter);
+            return counter;
+        });
+        EntityStateCache<DeviceId, String> cache = new EntityStateCache<>(statsFactory, "test", 1, 0);
+        List<DeviceId> deviceIds = newDeviceIds(2);
+
+        cache.get(deviceIds.get(0), DeviceId::toString);
+        cache.get(deviceIds.get(0), DeviceId::toString);
+        cache.get(deviceIds.get(1), DeviceId::toString);
+
+        assertEquals(1, counters.get("hit").get());
+        assertEquals(2, counters.get("miss").get());
+        assertEquals(1, counters.get("eviction").get());
+    }
+
+    @Test
+    public void givenNullLoaded_whenGet_thenStateIsNotCached() {
+        EntityStateCache<DeviceId, String> cache = new EntityStateCache<>(0, 0);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+        assertNull(cache.get(deviceId, id -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void givenMaxSize_whenPut_thenEvictAndReload() {
+        EntityStateCache<DeviceId, String> cache = new EntityStateCache<>(10, 0);
+        List<DeviceId> deviceIds = newDeviceIds(100);
+        deviceIds.forEach(deviceId -> cache.put(deviceId, deviceId.toString()));
+
+        assertEquals(10, cache.size());
+        assertTrue(cache.isFull());
+        DeviceId evicted = deviceIds.get(0);
+        assertNull(cache.getIfPresent(evicted));
+        assertEquals(evicted.toString(), cache.get(evicted, DeviceId::toString));
+    }
+
+    @Test
+    public void givenMaxSize_whenWarmUp_thenStopWhenFull() throws ExecutionException, InterruptedException {
+        EntityStateCache<DeviceId, String> cache = new EntityStateCache<>(10, 0);
+        List<DeviceId> deviceIds = newDeviceIds(100);
+
+        int loaded = cache.warmUp(deviceIds, Function.identity(), DeviceId::toString, new TestDbCallbackExecutor());
+
+        assertTrue(loaded >= 10 && loaded <= 100);
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void givenStates_whenRemoveIf_thenRemoveMatching() {
+        EntityStateCache<DeviceId, String> cache = new EntityStateCache<>(0, 0);
+        List<DeviceId> deviceIds = newDeviceIds(4);
+        deviceIds.forEach(deviceId -> cache.put(deviceId, deviceId.toString()));
+
+        cache.removeIf(deviceIds.subList(0, 2)::contains);
+
+        assertEquals(2, cache.size());
+        assertEquals(deviceIds.get(2).toString(), cache.getIfPresent(deviceIds.get(2)));
+    }
+
+    private static List<DeviceId> newDeviceIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new DeviceId(UUID.randomUUID())).collect(Collectors.toList());
+    }
+
+}
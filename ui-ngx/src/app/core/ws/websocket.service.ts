@@ -48,7 +48,10 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
 
   notificationUri: string;
 
-  dataStream: WebSocketSubject<CmdWrapper | CmdUpdateMsg>;
+  dataStream: WebSocketSubject<CmdWrapper | CmdUpdateMsg | ArrayBuffer>;
+
+  pendingMessages: Promise<void> = Promise.resolve();
+  pendingMessagesCount = 0;
 
   errorName = 'WebSocket Error';
 
@@ -158,10 +161,15 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
   }
 
   private openSocket(token: string) {
-    const uri = `${this.notificationUri}?token=${token}`;
+    let uri = `${this.notificationUri}?token=${token}`;
+    if (this.isCompressionSupported()) {
+      uri += '&compression=deflate';
+    }
     this.dataStream = webSocket(
       {
         url: uri,
+        binaryType: 'arraybuffer',
+        deserializer: (e: MessageEvent) => e.data instanceof ArrayBuffer ? e.data : JSON.parse(e.data),
         openObserver: {
           next: () => {
             this.onOpen();
@@ -178,7 +186,11 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
     this.dataStream.subscribe({
       next: (message) => {
         this.ngZone.runOutsideAngular(() => {
-          this.onMessage(message as WebsocketNotificationMsg);
+          if (message instanceof ArrayBuffer || this.pendingMessagesCount > 0) {
+            this.enqueueMessage(message);
+          } else {
+            this.onMessage(message as WebsocketNotificationMsg);
+          }
         });
       },
       error: (error) => {
@@ -187,6 +199,25 @@ export abstract class WebsocketService<T extends WsSubscriber> implements WsServ
     });
   }
 
+  private isCompressionSupported(): boolean {
+    return typeof (this.window as any).DecompressionStream === 'function';
+  }
+
+  private enqueueMessage(message: CmdWrapper | CmdUpdateMsg | ArrayBuffer) {
+    // Compressed messages are inflated asynchronously, so the following messages wait for them to keep the order.
+    this.pendingMessagesCount++;
+    this.pendingMessages = this.pendingMessages
+      .then(() => message instanceof ArrayBuffer ? this.inflate(message) : message)
+      .then((msg) => this.onMessage(msg as WebsocketNotificationMsg))
+      .catch((error) => this.onError(error))
+      .finally(() => this.pendingMessagesCount--);
+  }
+
+  private inflate(data: ArrayBuffer): Promise<any> {
+    const stream = new Blob([data]).stream().pipeThrough(new (this.window as any).DecompressionStream('deflate'));
+    return new Response(stream).text().then((text) => JSON.parse(text));
+  }
+
   private onOpen() {
     this.isOpening = false;
     this.isOpened = true;